@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import http.HttpParseException;
+import http.HttpRequest;
+import http.HttpRequestParser;
+
+/**
+ * 요청줄과 헤더를 바이트에서 HttpRequest 로 만드는 비용. nio 엔진처럼 연결마다 parser 하나를 재사용한다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpRequestParserBenchmark {
+    private static final String BROWSER_GET = "GET /user/list.html?page=2 HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Cache-Control: max-age=0\r\n"
+            + "Upgrade-Insecure-Requests: 1\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) "
+            + "Chrome/120.0.0.0 Safari/537.36\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n"
+            + "Referer: http://localhost:8080/index.html\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Accept-Language: ko-KR,ko;q=0.9,en-US;q=0.8,en;q=0.7\r\n"
+            + "Cookie: SESSIONID=wKMgewsZHHcq222kcJJyAZs1uvHDT2hCKd_g1iihfu6W; theme=dark\r\n"
+            + "\r\n";
+    private static final String FORM_POST = "POST /user/create HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "Content-Type: application/x-www-form-urlencoded\r\n"
+            + "Content-Length: 57\r\n"
+            + "\r\n"
+            + "userId=javajigi&name=%EC%9E%90%EB%B0%94%EC%A7%80%EA%B8%B0";
+
+    private ByteBuffer get;
+    private ByteBuffer post;
+    private HttpRequestParser parser;
+
+    @Setup
+    public void setUp() {
+        get = ByteBuffer.wrap(BROWSER_GET.getBytes(StandardCharsets.US_ASCII));
+        post = ByteBuffer.wrap(FORM_POST.getBytes(StandardCharsets.US_ASCII));
+        parser = new HttpRequestParser();
+    }
+
+    @Benchmark
+    public HttpRequest browserGet() throws HttpParseException {
+        get.rewind();
+        parser.feed(get);
+        return parser.parse();
+    }
+
+    @Benchmark
+    public void browserGet_cookieAndHeaders(Blackhole blackhole) throws HttpParseException {
+        HttpRequest request = browserGet();
+        blackhole.consume(request.getCookie("SESSIONID"));
+        blackhole.consume(request.getHeader("accept-encoding"));
+        blackhole.consume(request.getHeader("If-None-Match"));
+    }
+
+    @Benchmark
+    public String formPost() throws HttpParseException {
+        post.rewind();
+        parser.feed(post);
+        return parser.parse().getParameter("name");
+    }
+}
@@ -0,0 +1,54 @@
+package benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.HttpRequestUtils;
+import util.HttpRequestUtils.Pair;
+
+/**
+ * 회원가입 form, 브라우저가 보내는 Cookie, 헤더 한 줄을 해석하는 비용.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpRequestUtilsBenchmark {
+    private String queryString = "userId=javajigi&password=password&name=%EC%9E%90%EB%B0%94%EC%A7%80%EA%B8%B0"
+            + "&email=javajigi%40slipp.net";
+    private String cookies = "_ga=GA1.1.1234567890.1700000000; theme=dark; lang=ko-KR; "
+            + "SESSIONID=wKMgewsZHHcq222kcJJyAZs1uvHDT2hCKd_g1iihfu6W; _gid=GA1.1.987654321.1700000000";
+    private String header = "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko)";
+
+    @Benchmark
+    public Map<String, String> parseQueryString() {
+        return HttpRequestUtils.parseQueryString(queryString);
+    }
+
+    @Benchmark
+    public Map<String, String> parseCookies() {
+        return HttpRequestUtils.parseCookies(cookies);
+    }
+
+    @Benchmark
+    public String getCookie() {
+        return HttpRequestUtils.getCookie(cookies, "SESSIONID");
+    }
+
+    @Benchmark
+    public Pair parseHeader() {
+        return HttpRequestUtils.parseHeader(header);
+    }
+}
@@ -0,0 +1,227 @@
+package benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import metrics.LatencyHistogram;
+
+/**
+ * 실행 중인 서버에 loopback 으로 부하를 주고 처리량과 응답 시간 분위수를 보고한다.
+ * 연결마다 스레드 하나가 keep-alive 로 요청을 보내고 응답을 끝까지 읽은 뒤 다음 요청을 보낸다(closed loop).
+ *
+ * 예) java -cp target/benchmarks.jar benchmark.LoadGenerator port=8080 path=/index.html connections=32 seconds=10
+ * /user/list.html 처럼 로그인이 필요한 경로는 login=true 를 주면 사용자를 만들고 로그인한 쿠키로 보낸다.
+ */
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final String path;
+    private final String cookie;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    LoadGenerator(String host, int port, String path, String cookie) {
+        this.host = host;
+        this.port = port;
+        this.path = path;
+        this.cookie = cookie;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = option(args, "host", "127.0.0.1");
+        int port = Integer.parseInt(option(args, "port", "8080"));
+        String path = option(args, "path", "/index.html");
+        int connections = Integer.parseInt(option(args, "connections", "16"));
+        int seconds = Integer.parseInt(option(args, "seconds", "10"));
+        int warmup = Integer.parseInt(option(args, "warmup", "3"));
+
+        String cookie = Boolean.parseBoolean(option(args, "login", "false")) ? login(host, port) : null;
+        if (warmup > 0) {
+            new LoadGenerator(host, port, path, cookie).run(connections, warmup);
+        }
+        LoadGenerator generator = new LoadGenerator(host, port, path, cookie);
+        long elapsed = generator.run(connections, seconds);
+        generator.report(connections, elapsed);
+    }
+
+    /**
+     * @return 실제로 부하를 준 시간(ns)
+     */
+    long run(int connections, int seconds) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(connections);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < connections; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    connectionLoop(deadline);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + i);
+            thread.start();
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    void report(int connections, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format(Locale.ROOT,
+                "%s connections=%d requests=%d errors=%d throughput=%.0f req/s (%.1f MB/s)%n"
+                        + "latency p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+                path, connections, latency.getCount(), errors.sum(), latency.getCount() / seconds,
+                bytes.sum() / seconds / (1024 * 1024), latency.getValueAtQuantile(0.5) / 1e3,
+                latency.getValueAtQuantile(0.9) / 1e3, latency.getValueAtQuantile(0.99) / 1e3,
+                latency.getValueAtQuantile(0.999) / 1e3, latency.getMaxMicros() / 1e3));
+    }
+
+    private void connectionLoop(long deadline) {
+        byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\nAccept-Encoding: gzip\r\n"
+                + (cookie == null ? "" : "Cookie: " + cookie + "\r\n") + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(host, port));
+                socket.setSoTimeout(10_000);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+                boolean keepAlive = true;
+                while (keepAlive && System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    out.write(request);
+                    out.flush();
+                    Response response = Response.read(in);
+                    latency.record(System.nanoTime() - start);
+                    bytes.add(response.bytes);
+                    if (response.status >= 400) {
+                        errors.increment();
+                    }
+                    keepAlive = response.keepAlive;
+                }
+            } catch (IOException e) {
+                errors.increment();
+            }
+        }
+    }
+
+    private static String login(String host, int port) throws IOException {
+        String userId = "load" + System.nanoTime();
+        post(host, port, "/user/create", "userId=" + userId + "&password=password&name=load&email="
+                + URLEncoder.encode(userId + "@slipp.net", "UTF-8"));
+        Response response = post(host, port, "/user/login", "userId=" + userId + "&password=password");
+        if (response.setCookie == null) {
+            throw new IOException("로그인하지 못했습니다 : " + response.status);
+        }
+        return response.setCookie.substring(0, response.setCookie.indexOf(';'));
+    }
+
+    private static Response post(String host, int port, String path, String body) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST " + path + " HTTP/1.1\r\nHost: " + host + "\r\nConnection: close\r\n"
+                    + "Content-Type: application/x-www-form-urlencoded\r\nContent-Length: " + body.length()
+                    + "\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            return Response.read(new BufferedInputStream(socket.getInputStream()));
+        }
+    }
+
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 응답 하나를 끝까지 읽는다. Content-Length, chunked, 연결 종료로 끝나는 본문을 모두 읽는다.
+     */
+    static class Response {
+        int status;
+        boolean keepAlive = true;
+        String setCookie;
+        long bytes;
+
+        static Response read(InputStream in) throws IOException {
+            Response response = new Response();
+            String statusLine = response.readLine(in);
+            response.status = Integer.parseInt(statusLine.substring(9, 12));
+            long contentLength = -1;
+            boolean chunked = false;
+            String line;
+            while (!(line = response.readLine(in)).isEmpty()) {
+                int colon = line.indexOf(':');
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                if (name.equals("content-length")) {
+                    contentLength = Long.parseLong(value);
+                } else if (name.equals("transfer-encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equals("connection")) {
+                    response.keepAlive = !value.equalsIgnoreCase("close");
+                } else if (name.equals("set-cookie")) {
+                    response.setCookie = value;
+                }
+            }
+            if (chunked) {
+                long size;
+                while ((size = Long.parseLong(response.readLine(in).trim(), 16)) > 0) {
+                    response.skip(in, size);
+                    response.readLine(in);
+                }
+                response.readLine(in);
+            } else if (contentLength >= 0) {
+                response.skip(in, contentLength);
+            } else {
+                response.skip(in, Long.MAX_VALUE);
+                response.keepAlive = false;
+            }
+            return response;
+        }
+
+        private String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("연결이 닫혔습니다");
+                }
+                line.append((char) b);
+            }
+            bytes += line.length() + 1;
+            int length = line.length();
+            return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+        }
+
+        private void skip(InputStream in, long length) throws IOException {
+            byte[] buffer = new byte[8192];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    if (length == Long.MAX_VALUE) {
+                        return;
+                    }
+                    throw new IOException("본문이 끝나기 전에 연결이 닫혔습니다");
+                }
+                remaining -= read;
+                bytes += read;
+            }
+        }
+    }
+}
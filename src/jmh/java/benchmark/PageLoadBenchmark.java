@@ -0,0 +1,308 @@
+package benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import http2.FrameReader;
+import http2.FrameWriter;
+import http2.HpackDecoder;
+import http2.HpackEncoder;
+import http2.Http2;
+import metrics.LatencyHistogram;
+
+/**
+ * index.html 과 그 페이지가 읽는 css, js, 이미지를 한 번에 받는 "페이지 로드"를 반복해 HTTP/1.1 과 HTTP/2(h2c)를 비교한다.
+ *
+ * protocol=h1 은 브라우저처럼 클라이언트마다 keep-alive 연결 6 개(h1.connections)에 자원을 나눠 차례로 받고,
+ * protocol=h2 는 클라이언트마다 연결 하나에서 모든 자원을 동시에 요청한다(prior knowledge).
+ * clients 개의 클라이언트가 각자 페이지 로드를 끝내면 바로 다음을 시작하고(closed loop), 페이지 로드 시간의 분위수를 보고한다.
+ *
+ * 예) java -cp target/benchmarks.jar benchmark.PageLoadBenchmark port=8080 protocol=h2 clients=8 seconds=10
+ */
+public class PageLoadBenchmark {
+    private static final List<String> DEFAULT_PATHS = Arrays.asList("/index.html", "/css/bootstrap.min.css",
+            "/css/styles.css", "/js/jquery-2.2.0.min.js", "/js/bootstrap.min.js", "/js/scripts.js", "/favicon.ico",
+            "/fonts/glyphicons-halflings-regular.woff2", "/images/80-text.png");
+    // 받는 쪽 창. 서버가 창을 기다리지 않도록 크게 열고, 받은 만큼 연결의 창을 다시 연다.
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    private final String host;
+    private final int port;
+    private final List<String> paths;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    PageLoadBenchmark(String host, int port, List<String> paths) {
+        this.host = host;
+        this.port = port;
+        this.paths = paths;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = option(args, "host", "127.0.0.1");
+        int port = Integer.parseInt(option(args, "port", "8080"));
+        String protocol = option(args, "protocol", "h2");
+        int clients = Integer.parseInt(option(args, "clients", "8"));
+        int h1Connections = Integer.parseInt(option(args, "h1.connections", "6"));
+        int seconds = Integer.parseInt(option(args, "seconds", "10"));
+        int warmup = Integer.parseInt(option(args, "warmup", "3"));
+        String pathOption = option(args, "paths", "");
+        List<String> paths = pathOption.isEmpty() ? DEFAULT_PATHS : Arrays.asList(pathOption.split(","));
+        if (!"h1".equals(protocol) && !"h2".equals(protocol)) {
+            throw new IllegalArgumentException("protocol 은 h1 또는 h2 입니다 : " + protocol);
+        }
+
+        if (warmup > 0) {
+            new PageLoadBenchmark(host, port, paths).run(protocol, clients, h1Connections, warmup);
+        }
+        PageLoadBenchmark benchmark = new PageLoadBenchmark(host, port, paths);
+        long elapsed = benchmark.run(protocol, clients, h1Connections, seconds);
+        benchmark.report(protocol, clients, elapsed);
+    }
+
+    /**
+     * @return 실제로 부하를 준 시간(ns)
+     */
+    long run(String protocol, int clients, int h1Connections, int seconds) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    if ("h2".equals(protocol)) {
+                        h2Loop(deadline);
+                    } else {
+                        h1Loop(deadline, h1Connections);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "page-load-" + i);
+            thread.start();
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    void report(String protocol, int clients, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format(Locale.ROOT,
+                "%s clients=%d resources=%d pages=%d errors=%d throughput=%.1f pages/s (%.1f MB/s)%n"
+                        + "page load p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                protocol, clients, paths.size(), latency.getCount(), errors.sum(), latency.getCount() / seconds,
+                bytes.sum() / seconds / (1024 * 1024), latency.getValueAtQuantile(0.5) / 1e3,
+                latency.getValueAtQuantile(0.9) / 1e3, latency.getValueAtQuantile(0.99) / 1e3,
+                latency.getMaxMicros() / 1e3));
+    }
+
+    /**
+     * 자원을 연결 수만큼 나눠 연결마다 스레드 하나가 차례로 받는다. 모든 연결이 끝나야 페이지 로드가 끝난다.
+     */
+    private void h1Loop(long deadline, int connections) {
+        int count = Math.min(connections, paths.size());
+        List<H1Connection> pool = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                pool.add(new H1Connection());
+            }
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                CountDownLatch page = new CountDownLatch(count);
+                for (int i = 0; i < count; i++) {
+                    H1Connection connection = pool.get(i);
+                    int first = i;
+                    executor.execute(() -> {
+                        try {
+                            for (int p = first; p < paths.size(); p += count) {
+                                connection.get(paths.get(p));
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                            connection.reconnect();
+                        } finally {
+                            page.countDown();
+                        }
+                    });
+                }
+                page.await();
+                latency.record(System.nanoTime() - start);
+            }
+        } catch (IOException | InterruptedException e) {
+            errors.increment();
+        } finally {
+            executor.shutdownNow();
+            for (H1Connection connection : pool) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * 연결 하나에 모든 자원의 HEADERS 를 먼저 보내고, 모든 stream 이 END_STREAM 으로 끝날 때까지 프레임을 읽는다.
+     */
+    private void h2Loop(long deadline) {
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = connect()) {
+                OutputStream out = socket.getOutputStream();
+                FrameReader reader = new FrameReader(new BufferedInputStream(socket.getInputStream(), 64 * 1024),
+                        Http2.DEFAULT_MAX_FRAME_SIZE);
+                FrameWriter writer = new FrameWriter(out);
+                HpackDecoder decoder = new HpackDecoder(4096, 64 * 1024);
+                out.write(Http2.PREFACE);
+                writer.writeSettings(Http2.SETTINGS_ENABLE_PUSH, 0, Http2.SETTINGS_INITIAL_WINDOW_SIZE, WINDOW_SIZE);
+                writer.writeWindowUpdate(0, WINDOW_SIZE - Http2.DEFAULT_WINDOW_SIZE);
+                int nextStreamId = 1;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    int firstStreamId = nextStreamId;
+                    for (String path : paths) {
+                        HpackEncoder encoder = new HpackEncoder();
+                        encoder.encode(":method", "GET");
+                        encoder.encode(":scheme", "http");
+                        encoder.encode(":authority", host + ":" + port);
+                        encoder.encode(":path", path);
+                        encoder.encode("accept-encoding", "gzip");
+                        writer.writeHeaders(nextStreamId, encoder.array(), encoder.size(), true);
+                        nextStreamId += 2;
+                    }
+                    writer.flush();
+                    readPage(reader, writer, decoder, firstStreamId, paths.size());
+                    latency.record(System.nanoTime() - start);
+                }
+            } catch (IOException e) {
+                errors.increment();
+            }
+        }
+    }
+
+    private void readPage(FrameReader reader, FrameWriter writer, HpackDecoder decoder, int firstStreamId,
+            int streams) throws IOException {
+        int remaining = streams;
+        while (remaining > 0) {
+            if (!reader.readFrame()) {
+                throw new IOException("연결이 닫혔습니다");
+            }
+            int streamId = reader.getStreamId();
+            switch (reader.getType()) {
+            case Http2.HEADERS:
+                List<String> fields = new ArrayList<>();
+                decoder.decode(reader.getPayload(), 0, reader.getLength(), fields);
+                bytes.add(reader.getLength());
+                if (fields.size() >= 2 && fields.get(1).compareTo("400") >= 0) {
+                    errors.increment();
+                }
+                break;
+            case Http2.DATA:
+                bytes.add(reader.getLength());
+                if (reader.getLength() > 0) {
+                    writer.writeWindowUpdate(0, reader.getLength());
+                }
+                break;
+            case Http2.SETTINGS:
+                if (!reader.hasFlag(Http2.FLAG_ACK)) {
+                    writer.writeSettingsAck();
+                    writer.flush();
+                }
+                continue;
+            case Http2.RST_STREAM:
+                errors.increment();
+                remaining--;
+                continue;
+            case Http2.GOAWAY:
+                throw new IOException("GOAWAY");
+            default:
+                continue;
+            }
+            if (streamId >= firstStreamId && reader.hasFlag(Http2.FLAG_END_STREAM)) {
+                remaining--;
+            }
+        }
+        // 연결의 창은 처음에 크게 열어 두었으므로 WINDOW_UPDATE 는 페이지마다 모아 보낸다.
+        writer.flush();
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port));
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * keep-alive 연결 하나. 응답이 연결을 닫으면 다시 연결한다.
+     */
+    private class H1Connection {
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        H1Connection() throws IOException {
+            reconnect0();
+        }
+
+        void get(String path) throws IOException {
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\nAccept-Encoding: gzip\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            LoadGenerator.Response response = LoadGenerator.Response.read(in);
+            bytes.add(response.bytes);
+            if (response.status >= 400) {
+                errors.increment();
+            }
+            if (!response.keepAlive) {
+                reconnect0();
+            }
+        }
+
+        void reconnect() {
+            try {
+                close();
+                reconnect0();
+            } catch (IOException e) {
+                errors.increment();
+            }
+        }
+
+        private void reconnect0() throws IOException {
+            socket = connect();
+            in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            out = socket.getOutputStream();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                errors.increment();
+            }
+        }
+    }
+}
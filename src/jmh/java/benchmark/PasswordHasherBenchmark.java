@@ -0,0 +1,53 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import security.PasswordHasher;
+
+/**
+ * 반복 횟수(iterations)에 따라 코어 하나가 1초에 처리하는 로그인(verify)과 가입(hash) 수를 본다.
+ * 서버 전체의 로그인 처리량은 대략 이 값에 password.threads 를 곱한 값이다. -t 로 스레드를 늘려 코어가 늘 때도 볼 수 있다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    @Param({ "100000", "600000" })
+    int iterations;
+
+    private PasswordHasher hasher;
+    private String stored;
+
+    @Setup
+    public void setUp() {
+        hasher = new PasswordHasher(iterations);
+        stored = hasher.hash("password");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.matches("password", stored);
+    }
+
+    @Benchmark
+    public String hash() {
+        return hasher.hash("password");
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.Controller;
+import http.HttpRequest;
+import http.HttpRequestParser;
+import webserver.Router;
+import webserver.Router.Route;
+
+/**
+ * 등록한 경로 수(routes)가 늘어도 고정 경로, {name} 경로, fallback 을 찾는 비용이 같은지 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+    @Param({ "4", "64" })
+    int routes;
+
+    private Router router;
+    private HttpRequest exact;
+    private HttpRequest pattern;
+    private HttpRequest unmatched;
+
+    @Setup
+    public void setUp() throws IOException {
+        Controller controller = (request, response) -> {
+        };
+        router = new Router();
+        for (int i = 0; i < routes; i++) {
+            router.get("/section" + i + "/list.html", controller)
+                    .get("/section" + i + "/{id}", controller)
+                    .get("/section" + i + "/{id}/answers/{answerId}", controller);
+        }
+        router.fallback(controller);
+        exact = request("/section" + (routes - 1) + "/list.html");
+        pattern = request("/section" + (routes - 1) + "/123/answers/7");
+        unmatched = request("/css/styles.css");
+    }
+
+    @Benchmark
+    public Route exact() {
+        return router.route(exact);
+    }
+
+    @Benchmark
+    public Route pattern() {
+        return router.route(pattern);
+    }
+
+    @Benchmark
+    public Route fallback() {
+        return router.route(unmatched);
+    }
+
+    private static HttpRequest request(String path) throws IOException {
+        String request = "GET " + path + " HTTP/1.1\r\n\r\n";
+        return new HttpRequestParser().read(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
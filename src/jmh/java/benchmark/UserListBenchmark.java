@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.ListUserController;
+import http.ChunkedOutputStream;
+import model.User;
+import template.HtmlBuffer;
+import template.Template;
+
+/**
+ * webapp/user/list.html 을 users 명으로 렌더링하는 비용. 저장소 루트에서 실행해야 템플릿을 찾는다.
+ * render 는 버퍼에 다 모으는 경우, stream 은 응답처럼 8KB 마다 내보내는 경우다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class UserListBenchmark {
+    @Param({ "10", "1000", "100000" })
+    int users;
+
+    private Template<Collection<User>> template;
+    private List<User> model;
+
+    @Setup
+    public void setUp() throws IOException {
+        template = ListUserController.loadTemplate(Paths.get("webapp"));
+        model = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            model.add(new User("user" + i, "password", "사용자 <" + i + ">", "user" + i + "@slipp.net"));
+        }
+    }
+
+    @Benchmark
+    public int render() throws IOException {
+        HtmlBuffer html = HtmlBuffer.acquire();
+        try {
+            template.render(model, html);
+            return html.size();
+        } finally {
+            HtmlBuffer.release(html);
+        }
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) throws IOException {
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(len);
+            }
+        };
+        HtmlBuffer html = HtmlBuffer.acquire();
+        try {
+            html.streamTo(sink, ChunkedOutputStream.DEFAULT_BUFFER_SIZE);
+            template.render(model, html);
+            html.flush();
+        } finally {
+            HtmlBuffer.release(html);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.User;
+
+/**
+ * 여러 스레드가 동시에 DataBase 를 읽고 쓸 때의 비용. 쓰기 하나에 읽기 셋(readWrite 그룹)인 경우와 쓰기만 하는 경우를 본다.
+ * durable=true 는 db.dir 에 기록하는 경우로, 쓰기 시간에 sync window 를 기다리는 시간이 들어간다.
+ * clear() 를 쓰기 위해 db 패키지에 둔다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataBaseBenchmark {
+    private static final int PRELOADED = 100_000;
+
+    @Param({ "false", "true" })
+    boolean durable;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Path dir;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        DataBase.close();
+        DataBase.clear();
+        // 미리 넣는 사용자는 기록하지 않는다. 하나씩 sync window 를 기다리면 준비에만 몇 분이 걸린다.
+        for (int i = 0; i < PRELOADED; i++) {
+            DataBase.addUser(user("user" + i));
+        }
+        if (durable) {
+            dir = Files.createTempDirectory("db-bench");
+            DataBase.open(dir, 2, 100_000);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        DataBase.close();
+        DataBase.clear();
+        if (dir != null) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+            dir = null;
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public User readWrite_findUserById() {
+        return DataBase.findUserById("user" + ThreadLocalRandom.current().nextInt(PRELOADED));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWrite_addUser() throws IOException {
+        DataBase.addUser(user("new" + sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    @Group("writeOnly")
+    @GroupThreads(4)
+    public void writeOnly_addUser() throws IOException {
+        DataBase.addUser(user("new" + sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    public User findUserByEmail() {
+        return DataBase.findUserByEmail("USER" + ThreadLocalRandom.current().nextInt(PRELOADED) + "@slipp.net");
+    }
+
+    @Benchmark
+    public List<User> findAll_page() {
+        return DataBase.findAll(ThreadLocalRandom.current().nextInt(PRELOADED - 20), 20);
+    }
+
+    private static User user(String userId) {
+        return new User(userId, "password", userId, userId + "@slipp.net");
+    }
+}
@@ -0,0 +1,290 @@
+package accesslog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 요청마다 한 줄씩 남기는 access log. 요청을 처리한 스레드는 미리 만들어 둔 칸에 값만 채우고 돌아가며,
+ * 줄을 만들어 파일에 쓰는 일은 writer 스레드 하나가 모아서 한다.
+ *
+ * 칸은 크기가 정해진 ring buffer 에 있고, 칸마다 둔 sequence 를 CAS 로 차지하므로 lock 없이 여러 스레드가 쓸 수 있다.
+ * (Dmitry Vyukov 의 bounded MPMC queue 를 소비자 하나로 줄인 형태)
+ * buffer 가 가득 차면 DROP 은 그 줄을 버리고 센다. BLOCK 은 자리가 날 때까지 기다린다.
+ * writer 는 buffer 가 빌 때까지 읽어 64KB 버퍼에 쌓고, 비었을 때 한 번 파일에 쓴다.
+ *
+ * 한 줄은 time=... method=GET path="/index.html" status=200 bytes=1234 duration_us=532 형식이다.
+ * path 의 제어 문자, 따옴표, ASCII 밖의 문자는 \xHH(0xff 보다 크면 ?)로 바꿔 한 줄이 둘로 나뉘거나 필드가 섞이지 않게 한다.
+ */
+public class AccessLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
+            .withZone(ZoneOffset.UTC);
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final OutputStream out;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // writer 스레드만 쓴다.
+    private long head;
+    private final byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+    private int count;
+    private long lastSecond = -1;
+    private byte[] secondPrefix;
+
+    /**
+     * @param capacity
+     *            buffer 의 칸 수. 2의 거듭제곱으로 올린다.
+     */
+    public AccessLog(OutputStream out, int capacity, OverflowPolicy overflowPolicy) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.out = out;
+        this.writer = new Thread(this::drainLoop, "access-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static AccessLog open(Path file, int capacity, OverflowPolicy overflowPolicy) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new AccessLog(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                capacity, overflowPolicy);
+    }
+
+    /**
+     * 요청 하나를 남긴다. 문자열을 만들거나 복사하지 않고 참조만 칸에 담는다.
+     *
+     * @return buffer 가 가득 차 버렸으면 false
+     */
+    public boolean log(String method, String path, int status, long bytes, long durationNanos) {
+        if (closed) {
+            return false;
+        }
+        long position = tail.get();
+        Slot slot;
+        while (true) {
+            slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // writer 가 아직 이 칸을 비우지 않았다.
+                if (overflowPolicy == OverflowPolicy.DROP || closed) {
+                    dropped.increment();
+                    return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                position = tail.get();
+            } else {
+                position = tail.get();
+            }
+        }
+        slot.timeMillis = System.currentTimeMillis();
+        slot.method = method;
+        slot.path = path;
+        slot.status = status;
+        slot.bytes = bytes;
+        slot.durationNanos = durationNanos;
+        slot.sequence = position + 1;
+        return true;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 남은 줄을 모두 쓰고 writer 를 멈춘다. 파일도 닫는다.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                boolean stopping = closed;
+                if (drain() == 0) {
+                    if (count > 0) {
+                        writeBuffer();
+                        out.flush();
+                    }
+                    if (stopping) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Access log stopped : {}", e.getMessage());
+            closed = true;
+        }
+    }
+
+    /**
+     * @return 읽은 줄 수
+     */
+    private int drain() throws IOException {
+        int drained = 0;
+        while (true) {
+            Slot slot = slots[(int) (head & mask)];
+            if (slot.sequence != head + 1) {
+                return drained;
+            }
+            append(slot);
+            slot.method = null;
+            slot.path = null;
+            slot.sequence = head + slots.length;
+            head++;
+            drained++;
+        }
+    }
+
+    private void append(Slot slot) throws IOException {
+        // 한 줄의 고정 부분과 path 한 글자가 \xHH 로 네 배가 되는 경우까지 담을 수 있게 비운다.
+        int maxLength = 160 + (slot.method == null ? 0 : slot.method.length() * 4)
+                + (slot.path == null ? 0 : slot.path.length() * 4);
+        if (buffer.length - count < maxLength) {
+            writeBuffer();
+            if (buffer.length < maxLength) {
+                // request.line.max 가 이보다 작아 생기지 않지만, 생기면 파일을 지키기 위해 버린다.
+                dropped.increment();
+                return;
+            }
+        }
+        appendAscii("time=");
+        appendTime(slot.timeMillis);
+        appendAscii(" method=");
+        appendEscaped(slot.method);
+        appendAscii(" path=\"");
+        appendEscaped(slot.path);
+        appendAscii("\" status=");
+        appendLong(slot.status);
+        appendAscii(" bytes=");
+        appendLong(slot.bytes);
+        appendAscii(" duration_us=");
+        appendLong(TimeUnit.NANOSECONDS.toMicros(slot.durationNanos));
+        buffer[count++] = '\n';
+    }
+
+    private void appendTime(long millis) {
+        long second = millis / 1000;
+        if (second != lastSecond) {
+            secondPrefix = TIME.format(Instant.ofEpochSecond(second)).getBytes();
+            lastSecond = second;
+        }
+        System.arraycopy(secondPrefix, 0, buffer, count, secondPrefix.length);
+        count += secondPrefix.length;
+        int fraction = (int) (millis % 1000);
+        buffer[count++] = '.';
+        buffer[count++] = (byte) ('0' + fraction / 100);
+        buffer[count++] = (byte) ('0' + fraction / 10 % 10);
+        buffer[count++] = (byte) ('0' + fraction % 10);
+        buffer[count++] = 'Z';
+    }
+
+    private void appendAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer[count++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void appendEscaped(String text) {
+        if (text == null) {
+            buffer[count++] = '-';
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c > 0xff) {
+                buffer[count++] = '?';
+            } else if (c < 0x20 || c > 0x7e || c == '"' || c == '\\') {
+                buffer[count++] = '\\';
+                buffer[count++] = 'x';
+                buffer[count++] = HEX[c >> 4 & 0xf];
+                buffer[count++] = HEX[c & 0xf];
+            } else {
+                buffer[count++] = (byte) c;
+            }
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+    }
+
+    private void writeBuffer() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+
+    private static class Slot {
+        volatile long sequence;
+        long timeMillis;
+        String method;
+        String path;
+        int status;
+        long bytes;
+        long durationNanos;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
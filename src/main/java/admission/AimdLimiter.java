@@ -0,0 +1,111 @@
+package admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 동시에 처리하는 요청 수를 응답 시간에 맞춰 조절하며 제한한다. (AIMD)
+ *
+ * 처리 시간이 latencyThreshold 를 넘거나 뒤에서 과부하로 거절된 요청이 있으면 한도를 backoff 배로 줄이고,
+ * 그렇지 않으면서 한도의 절반 이상을 쓰고 있었다면 요청마다 1/한도 씩, 즉 한도만큼 처리할 때마다 1 씩 늘린다.
+ * 느린 응답이 한꺼번에 끝나도 한도가 바닥까지 떨어지지 않도록 줄이는 것은 latencyThreshold 마다 한 번만 한다.
+ * 한도를 넘는 요청은 기다리게 하지 않고 바로 거절해 이미 받은 요청의 응답 시간을 지킨다.
+ */
+public class AimdLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoff;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // double 한도를 비트로 담는다.
+    private final AtomicLong limit;
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+    private final LongAdder rejected = new LongAdder();
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoff) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit || backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("한도 설정이 잘못되었습니다 : " + initialLimit + ", " + minLimit + ", "
+                    + maxLimit + ", " + backoff);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoff = backoff;
+        this.limit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+    }
+
+    /**
+     * @return 한도 안이면 true. true 를 받았다면 처리가 끝난 뒤 release 나 cancel 을 불러야 한다.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 처리를 마치고 걸린 시간으로 한도를 조절한다.
+     *
+     * @param overloaded
+     *            뒤에서 과부하로 거절했는지(503)
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        release(latencyNanos, overloaded, System.nanoTime());
+    }
+
+    void release(long latencyNanos, boolean overloaded, long now) {
+        int current = inFlight.getAndDecrement();
+        if (overloaded || latencyNanos > latencyThresholdNanos) {
+            long last = lastDecrease.get();
+            if (now - last >= latencyThresholdNanos && lastDecrease.compareAndSet(last, now)) {
+                update(-1);
+            }
+        } else if (current * 2 >= getLimit()) {
+            update(1);
+        }
+    }
+
+    /**
+     * 처리하지 않고 자리만 돌려준다. 응답 시간은 한도에 반영하지 않는다.
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @param direction
+     *            1 이면 늘리고 -1 이면 줄인다.
+     */
+    private void update(int direction) {
+        while (true) {
+            long bits = limit.get();
+            double current = Double.longBitsToDouble(bits);
+            double next = direction > 0 ? Math.min(maxLimit, current + 1 / current)
+                    : Math.max(minLimit, current * backoff);
+            if (next == current || limit.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package admission;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 키(클라이언트 주소)마다 토큰 버킷으로 요청 수를 제한한다. 초당 rate 개씩 차고 burst 개까지 모인다.
+ *
+ * 버킷은 GCRA 방식으로 "버킷이 가득 차는 시각" 하나를 AtomicLong 에 두고 compareAndSet 으로만 바꾸므로 lock 이 없다.
+ * 요청 하나는 그 시각을 토큰 하나 만큼(1/rate 초) 뒤로 미루고, 미룬 시각이 지금보다 burst 개 만큼 넘게 앞서면 거절한다.
+ * 가득 찬 버킷은 새 버킷과 같으므로, 이따금 훑어서 가득 찬 버킷을 지워 오래 오지 않은 클라이언트가 메모리를 차지하지 않게 한다.
+ * 키가 maxKeys 개에 이르면 다음 정리로 자리가 날 때까지 새 키를 제한 없이 통과시킨다.
+ */
+public class TokenBucketLimiter<K> {
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final long sweepIntervalNanos;
+    private final int maxKeys;
+
+    private final Map<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param rate
+     *            초당 채우는 토큰 수
+     * @param burst
+     *            버킷에 모이는 최대 토큰 수
+     */
+    public TokenBucketLimiter(double rate, int burst, int maxKeys) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate, burst 가 잘못되었습니다 : " + rate + ", " + burst);
+        }
+        this.intervalNanos = Math.max(1, (long) (1e9 / rate));
+        this.capacityNanos = intervalNanos * burst;
+        this.sweepIntervalNanos = Math.max(capacityNanos, 1000000000L);
+        this.maxKeys = maxKeys;
+        this.nextSweep = new AtomicLong(System.nanoTime() + sweepIntervalNanos);
+    }
+
+    /**
+     * @return 0 이면 허용. 거절하면 토큰이 하나 찰 때까지 남은 시간(ns)
+     */
+    public long tryAcquire(K key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(K key, long now) {
+        sweepIfDue(now);
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            // 자리가 없을 때마다 훑으면 주소를 바꿔 가며 보내는 요청마다 전체를 훑게 되므로,
+            // 다음 정기 정리까지는 훑지 않고 통과시킨다.
+            if (buckets.size() >= maxKeys) {
+                return 0;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + intervalNanos;
+            long wait = next - now - capacityNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due >= 0 && nextSweep.compareAndSet(due, now + sweepIntervalNanos)) {
+            sweep(now);
+        }
+    }
+
+    /**
+     * 가득 찬 버킷을 지운다. 지우는 순간 다른 스레드가 같은 버킷을 쓰고 있었다면 그 요청 하나만큼 덜 제한될 뿐이다.
+     */
+    void sweep(long now) {
+        Iterator<AtomicLong> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() - now <= 0) {
+                iterator.remove();
+            }
+        }
+    }
+}
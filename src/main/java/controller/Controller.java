@@ -0,0 +1,14 @@
+package controller;
+
+import java.io.IOException;
+
+import http.HttpRequest;
+import http.HttpResponse;
+
+/**
+ * 요청 하나를 처리해 응답을 쓴다. 어느 요청을 맡을지는 Router 에 등록할 때 정한다.
+ * 소켓과 무관하게 HttpRequest 와 HttpResponse 만 다루므로 메모리 위의 요청으로 시험할 수 있다.
+ */
+public interface Controller {
+    void service(HttpRequest request, HttpResponse response) throws IOException;
+}
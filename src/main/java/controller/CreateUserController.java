@@ -0,0 +1,47 @@
+package controller;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import db.DataBase;
+import db.DuplicateEmailException;
+import http.HttpRequest;
+import http.HttpResponse;
+import model.User;
+import security.PasswordService;
+
+public class CreateUserController implements Controller {
+    private final PasswordService passwords;
+
+    public CreateUserController(PasswordService passwords) {
+        this.passwords = passwords;
+    }
+
+    @Override
+    public void service(HttpRequest request, HttpResponse response) throws IOException {
+        String userId = request.getParameter("userId");
+        String plain = request.getParameter("password");
+        if (userId == null || userId.isEmpty() || plain == null) {
+            response.response302Header("/user/form.html");
+            return;
+        }
+        String password;
+        try {
+            password = passwords.hash(plain);
+        } catch (RejectedExecutionException e) {
+            response.response503();
+            return;
+        }
+        User user = new User(userId,
+                password,
+                request.getParameter("name"),
+                request.getParameter("email"));
+        try {
+            DataBase.addUser(user);
+        } catch (DuplicateEmailException e) {
+            response.response302Header("/user/form.html");
+            return;
+        }
+        response.response302Header("/index.html");
+    }
+}
@@ -0,0 +1,75 @@
+package controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import db.DataBase;
+import http.ChunkedOutputStream;
+import http.CompressingOutputStream;
+import http.ContentEncoding;
+import http.HeaderNames;
+import http.HttpRequest;
+import http.HttpResponse;
+import model.User;
+import session.SessionStore;
+import template.Bindings;
+import template.HtmlBuffer;
+import template.Template;
+import webserver.CompressionPolicy;
+
+public class ListUserController implements Controller {
+    private final SessionStore sessions;
+    private final CompressionPolicy compressionPolicy;
+    private final Template<Collection<User>> template;
+
+    public ListUserController(SessionStore sessions, CompressionPolicy compressionPolicy,
+            Template<Collection<User>> template) {
+        this.sessions = sessions;
+        this.compressionPolicy = compressionPolicy;
+        this.template = template;
+    }
+
+    /**
+     * webapp/user/list.html 을 사용자 목록 템플릿으로 컴파일한다.
+     */
+    public static Template<Collection<User>> loadTemplate(Path webapp) throws IOException {
+        Bindings<User> user = new Bindings<User>()
+                .value("userId", User::getUserId)
+                .value("name", User::getName)
+                .value("email", User::getEmail);
+        return Template.load(webapp.resolve("user/list.html"),
+                new Bindings<Collection<User>>().section("users", users -> users, user));
+    }
+
+    @Override
+    public void service(HttpRequest request, HttpResponse response) throws IOException {
+        if (!isLogined(request)) {
+            response.response302Header("/user/login.html");
+            return;
+        }
+
+        // 목록을 다 만들기 전에 앞부분부터 보내므로 길이를 알 수 없다. chunked 로 보내고 버퍼 크기만큼씩 내보낸다.
+        ContentEncoding encoding = ContentEncoding.negotiate(request.getHeader(HeaderNames.ACCEPT_ENCODING));
+        boolean compress = encoding != ContentEncoding.IDENTITY && compressionPolicy.isCompressible("text/html");
+        response.addHeader("Vary", "Accept-Encoding");
+        if (compress) {
+            response.addHeader("Content-Encoding", encoding.getToken());
+        }
+        HtmlBuffer html = HtmlBuffer.acquire();
+        try (OutputStream body = response.response200Stream("text/html", !"HTTP/1.0".equals(request.getVersion()));
+                OutputStream out = compress ? CompressingOutputStream.open(body, encoding) : body) {
+            html.streamTo(out, ChunkedOutputStream.DEFAULT_BUFFER_SIZE);
+            template.render(DataBase.findAll(), html);
+            html.flush();
+        } finally {
+            HtmlBuffer.release(html);
+        }
+    }
+
+    private boolean isLogined(HttpRequest request) {
+        String token = request.getCookie(LoginController.SESSION_COOKIE);
+        return token != null && sessions.findUserId(token) != null;
+    }
+}
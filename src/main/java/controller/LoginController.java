@@ -0,0 +1,51 @@
+package controller;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import db.DataBase;
+import http.HttpRequest;
+import http.HttpResponse;
+import model.User;
+import security.PasswordService;
+import session.SessionStore;
+
+public class LoginController implements Controller {
+    public static final String SESSION_COOKIE = "SESSIONID";
+
+    private final SessionStore sessions;
+    private final PasswordService passwords;
+
+    public LoginController(SessionStore sessions, PasswordService passwords) {
+        this.sessions = sessions;
+        this.passwords = passwords;
+    }
+
+    @Override
+    public void service(HttpRequest request, HttpResponse response) throws IOException {
+        User user = DataBase.findUserById(request.getParameter("userId"));
+        String verified;
+        try {
+            verified = passwords.verify(user == null ? null : user.getPassword(), request.getParameter("password"));
+        } catch (RejectedExecutionException e) {
+            response.response503();
+            return;
+        }
+        if (verified == null) {
+            response.response302Header("/user/login_failed.html");
+            return;
+        }
+        // 평문이거나 반복 횟수를 올리기 전에 만든 값이면 이번에 맞춘 비밀번호로 다시 해시한 값을 저장한다.
+        // 해시하는 동안 사용자가 바뀌었을 수 있으므로 검증한 값이 그대로일 때 비밀번호만 바꾼다.
+        if (!verified.equals(user.getPassword())) {
+            DataBase.replacePassword(user.getUserId(), user.getPassword(), verified);
+        }
+        // 로그인 전에 받은 토큰을 계속 쓰지 않도록 새로 발급한다.
+        String previous = request.getCookie(SESSION_COOKIE);
+        if (previous != null) {
+            sessions.invalidate(previous);
+        }
+        response.response302Header("/index.html", SESSION_COOKIE + "=" + sessions.create(user.getUserId())
+                + "; Path=/; Max-Age=" + sessions.getTimeToLiveSeconds() + "; HttpOnly; SameSite=Lax");
+    }
+}
@@ -0,0 +1,25 @@
+package controller;
+
+import java.nio.charset.StandardCharsets;
+
+import http.HttpRequest;
+import http.HttpResponse;
+import webserver.ServerMetrics;
+
+/**
+ * Prometheus 가 수집할 수 있도록 서버 지표를 text 형식으로 응답한다.
+ */
+public class MetricsController implements Controller {
+    private final ServerMetrics metrics;
+
+    public MetricsController(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void service(HttpRequest request, HttpResponse response) {
+        byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+        response.response200Header(body.length, "text/plain; version=0.0.4");
+        response.responseBody(body);
+    }
+}
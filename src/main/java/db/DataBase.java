@@ -1,24 +1,278 @@
 package db;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.UnaryOperator;
 
-import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Striped;
 
 import model.User;
 
+/**
+ * 여러 요청 스레드가 함께 쓰는 사용자 저장소.
+ *
+ * 사용자는 ConcurrentHashMap 에 두고, 같은 userId 를 바꾸는 쓰기만 lock stripe 로 묶어 email 인덱스와 어긋나지 않게 한다.
+ * email 은 한 사용자만 쓸 수 있다. 다른 userId 끼리는 lock 이 다르므로 인덱스의 putIfAbsent 로 먼저 차지한 쪽이 갖는다.
+ * 목록 조회는 변경이 있을 때만 다시 만드는 불변 스냅샷을 읽으므로 가입과 서로 막지 않는다.
+ *
+ * open 으로 디렉터리를 지정하면 변경을 UserLog 에 남기고, addUser 는 그 변경이 디스크에 기록된 뒤에 돌아온다.
+ */
 public class DataBase {
-    private static Map<String, User> users = Maps.newHashMap();
+    private static final Logger log = LoggerFactory.getLogger(DataBase.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final Map<String, User> users = new ConcurrentHashMap<>();
+    private static final Map<String, String> userIdsByEmail = new ConcurrentHashMap<>();
+    private static final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
+    private static final AtomicLong version = new AtomicLong();
+    private static final Object snapshotLock = new Object();
+    private static volatile Snapshot snapshot = new Snapshot(0, Collections.<User> emptyList());
+    private static volatile UserLog userLog;
+
+    /**
+     * dir 의 스냅샷과 로그로 사용자를 되살리고, 이후의 변경을 그 디렉터리에 기록한다.
+     *
+     * @param syncWindowMillis
+     *            fsync 한 번에 묶을 변경을 기다리는 시간. 길수록 처리량이 늘고 가입 응답은 늦어진다.
+     * @param snapshotRecords
+     *            로그에 이만큼 쌓이면 스냅샷을 새로 쓰고 이전 로그를 지운다.
+     */
+    public static synchronized void open(Path dir, long syncWindowMillis, int snapshotRecords) throws IOException {
+        if (userLog != null) {
+            throw new IllegalStateException("already opened: " + dir);
+        }
+        long started = System.nanoTime();
+        userLog = UserLog.open(dir, syncWindowMillis, snapshotRecords, DataBase::put, DataBase::findAll);
+        version.incrementAndGet();
+        log.info("loaded {} users from {} in {} ms", users.size(), dir,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * 기록 중인 변경을 모두 디스크에 쓰고 로그를 닫는다. 이후에는 메모리에만 둔다.
+     */
+    public static synchronized void close() throws IOException {
+        if (userLog != null) {
+            userLog.close();
+            userLog = null;
+        }
+    }
 
-    public static void addUser(User user) {
-        users.put(user.getUserId(), user);
+    /**
+     * 같은 userId 가 있으면 덮어쓴다.
+     *
+     * @throws DuplicateEmailException
+     *             다른 사용자가 같은 email 을 쓰고 있는 경우
+     */
+    public static void addUser(User user) throws IOException {
+        update(user.getUserId(), current -> user);
+    }
+
+    /**
+     * 저장된 비밀번호 값이 아직 expected 일 때만 password 로 바꾼다. 비밀번호를 검증하는 사이 다른 요청이
+     * 사용자를 바꿨다면 그 변경을 덮어쓰지 않는다.
+     *
+     * @return 바꿨으면 true
+     */
+    public static boolean replacePassword(String userId, String expected, String password) throws IOException {
+        return update(userId, current -> current != null && Objects.equals(current.getPassword(), expected)
+                ? current.withPassword(password)
+                : null);
+    }
+
+    /**
+     * @param change
+     *            lock 안에서 지금 사용자(없으면 null)로 저장할 사용자를 만든다. null 이면 바꾸지 않는다.
+     * @return 바꿨으면 true
+     */
+    private static boolean update(String userId, UnaryOperator<User> change) throws IOException {
+        UserLog currentLog = userLog;
+        CompletableFuture<Void> written = null;
+        User user;
+        User previous;
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            user = change.apply(users.get(userId));
+            if (user == null) {
+                return false;
+            }
+            if (user.getEmail() != null) {
+                String owner = userIdsByEmail.putIfAbsent(emailKey(user.getEmail()), userId);
+                if (owner != null && !owner.equals(userId)) {
+                    throw new DuplicateEmailException(user.getEmail());
+                }
+            }
+            // 로그를 넘길 때 뜨는 스냅샷이 이전 로그의 레코드를 모두 담도록 메모리에 먼저 반영하고 append 한다.
+            // 같은 사용자의 변경이 메모리에 반영된 순서와 로그에 남는 순서가 같도록 둘 다 lock 안에서 한다.
+            previous = put(user);
+            version.incrementAndGet();
+            if (currentLog != null) {
+                try {
+                    written = currentLog.append(user);
+                } catch (IOException e) {
+                    restore(user, previous);
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (written != null) {
+            try {
+                UserLog.await(written);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    restore(user, previous);
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 기록하지 못한 변경을 되돌린다. 그 사이 같은 사용자가 다시 바뀌었다면 그 변경을 둔다.
+     */
+    private static void restore(User user, User previous) {
+        if (users.get(user.getUserId()) != user) {
+            return;
+        }
+        if (previous != null) {
+            put(previous);
+        } else {
+            users.remove(user.getUserId());
+            if (user.getEmail() != null) {
+                userIdsByEmail.remove(emailKey(user.getEmail()), user.getUserId());
+            }
+        }
+        version.incrementAndGet();
     }
 
     public static User findUserById(String userId) {
+        if (userId == null) {
+            return null;
+        }
         return users.get(userId);
     }
 
+    /**
+     * email 은 대소문자를 구분하지 않는다.
+     */
+    public static User findUserByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String userId = userIdsByEmail.get(emailKey(email));
+        if (userId == null) {
+            return null;
+        }
+        User user = users.get(userId);
+        // 인덱스를 읽은 뒤 사용자가 바뀌었을 수 있다.
+        return user != null && user.getEmail() != null && emailKey(user.getEmail()).equals(emailKey(email)) ? user
+                : null;
+    }
+
+    /**
+     * @return userId 순으로 정렬된, 호출 시점의 변경할 수 없는 스냅샷
+     */
     public static Collection<User> findAll() {
-        return users.values();
+        return snapshot().users;
+    }
+
+    /**
+     * @return userId 순으로 offset 번째부터 최대 limit 명
+     */
+    public static List<User> findAll(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset=" + offset + ", limit=" + limit);
+        }
+        List<User> all = snapshot().users;
+        if (offset >= all.size()) {
+            return Collections.emptyList();
+        }
+        return all.subList(offset, (int) Math.min(all.size(), (long) offset + limit));
+    }
+
+    public static int count() {
+        return users.size();
+    }
+
+    /**
+     * @return 덮어쓴 사용자. 없었으면 null
+     */
+    private static User put(User user) {
+        User previous = users.put(user.getUserId(), user);
+        String email = user.getEmail() == null ? null : emailKey(user.getEmail());
+        // email 이 그대로면 지우지 않는다. 지웠다 다시 넣는 사이 다른 사용자가 차지할 수 있다.
+        if (previous != null && previous.getEmail() != null && !emailKey(previous.getEmail()).equals(email)) {
+            userIdsByEmail.remove(emailKey(previous.getEmail()), previous.getUserId());
+        }
+        if (email != null) {
+            userIdsByEmail.put(email, user.getUserId());
+        }
+        return previous;
+    }
+
+    static void clear() {
+        synchronized (snapshotLock) {
+            users.clear();
+            userIdsByEmail.clear();
+            version.incrementAndGet();
+        }
+    }
+
+    private static Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current.version == version.get()) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            current = snapshot;
+            // 복사하는 동안 들어온 변경은 다음 조회에서 반영되도록 복사 전에 버전을 읽는다.
+            long latest = version.get();
+            if (current.version != latest) {
+                List<User> copy = new ArrayList<>(users.values());
+                copy.sort(Comparator.comparing(User::getUserId));
+                current = new Snapshot(latest, Collections.unmodifiableList(copy));
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final List<User> users;
+
+        Snapshot(long version, List<User> users) {
+            this.version = version;
+            this.users = users;
+        }
     }
 }
@@ -0,0 +1,12 @@
+package db;
+
+/**
+ * 다른 사용자가 이미 쓰고 있는 email 로 저장하려 할 때 발생한다.
+ */
+public class DuplicateEmailException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateEmailException(String email) {
+        super("이미 사용 중인 email 입니다 : " + email);
+    }
+}
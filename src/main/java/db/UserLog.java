@@ -0,0 +1,574 @@
+package db;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import model.User;
+
+/**
+ * 사용자 변경을 디렉터리 안의 append-only 로그에 남기고, 재시작할 때 스냅샷과 그 뒤의 로그로 되살린다.
+ *
+ * 로그 레코드는 [길이][CRC32][내용] 이다. 쓰기는 writer 스레드 하나가 맡아, 큐에 쌓인 레코드를 syncWindow 동안 더 모은 뒤
+ * 한 번에 쓰고 한 번 fsync 한다(group commit). 호출한 스레드는 자기 레코드가 fsync 될 때까지 기다린다.
+ *
+ * 로그가 snapshotRecords 개를 넘으면 새 로그 파일로 넘어가고, 별도 스레드가 그 시점의 사용자 전체를 스냅샷으로 쓴 뒤
+ * 스냅샷에 포함된 이전 로그를 지운다. 레코드는 사용자 전체를 담은 upsert 라서, 스냅샷에 이미 반영된 레코드를 다시 적용해도
+ * 결과가 같다.
+ *
+ * 파일 이름의 번호가 n 인 스냅샷은 n 보다 작은 번호의 로그를 모두 담고 있으므로, 복구는 가장 최근의 스냅샷을 읽고
+ * 번호가 n 이상인 로그를 순서대로 적용한다. 둘 다 memory-mapped 로 읽는다.
+ *
+ * batch 를 쓰다 실패하면 batch 가 시작된 위치로 로그를 잘라낸다. 덜 쓰인 바이트를 남겨 두면 복구가 거기서 멈춰,
+ * 그 뒤에 기록을 확인받은 레코드까지 버리게 된다. 잘라내지도 못하면 그 뒤의 append 는 모두 실패시킨다.
+ */
+class UserLog implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(UserLog.class);
+
+    private static final String LOG_PREFIX = "log-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".dat";
+    private static final long SNAPSHOT_MAGIC = 0x5553455253534e31L; // "USERSSN1"
+
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_BATCH = 4096;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    // 큐에 넣으면 writer 가 앞선 레코드를 모두 쓰고 끝난다.
+    private static final Pending CLOSE = new Pending(new byte[0]);
+
+    private final Path dir;
+    private final long syncWindowNanos;
+    private final int snapshotRecords;
+    private final Supplier<Collection<User>> snapshotSource;
+    private final ChannelOpener opener;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final Thread writer;
+    private volatile Thread snapshotWriter;
+
+    private volatile boolean closed;
+    private FileChannel channel;
+    private long sequence;
+    private long logSize;
+    private IOException broken;
+    private int recordsInLog;
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+    private UserLog(Path dir, long syncWindowMillis, int snapshotRecords, Supplier<Collection<User>> snapshotSource,
+            ChannelOpener opener) {
+        this.dir = dir;
+        this.syncWindowNanos = TimeUnit.MILLISECONDS.toNanos(syncWindowMillis);
+        this.snapshotRecords = snapshotRecords;
+        this.snapshotSource = snapshotSource;
+        this.opener = opener;
+        this.writer = new Thread(this::writeLoop, "db-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * dir 의 스냅샷과 로그를 읽어 사용자마다 loader 를 부른 뒤 새 로그를 연다.
+     *
+     * @param snapshotSource
+     *            스냅샷을 쓸 때 그 시점의 사용자 전체를 돌려준다.
+     */
+    static UserLog open(Path dir, long syncWindowMillis, int snapshotRecords, Consumer<User> loader,
+            Supplier<Collection<User>> snapshotSource) throws IOException {
+        return open(dir, syncWindowMillis, snapshotRecords, loader, snapshotSource,
+                file -> FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND));
+    }
+
+    static UserLog open(Path dir, long syncWindowMillis, int snapshotRecords, Consumer<User> loader,
+            Supplier<Collection<User>> snapshotSource, ChannelOpener opener) throws IOException {
+        Files.createDirectories(dir);
+        UserLog userLog = new UserLog(dir, syncWindowMillis, snapshotRecords, snapshotSource, opener);
+        userLog.recover(loader);
+        userLog.writer.start();
+        return userLog;
+    }
+
+    /**
+     * 레코드를 큐에 넣는다. 같은 사용자에 대한 append 순서가 로그의 순서가 된다.
+     *
+     * @return 레코드가 디스크에 기록되면 완료된다.
+     */
+    CompletableFuture<Void> append(User user) throws IOException {
+        if (closed) {
+            throw new IOException("user log is closed");
+        }
+        Pending pending = new Pending(encode(user));
+        queue.add(pending);
+        return pending.done;
+    }
+
+    static void await(CompletableFuture<Void> done) throws IOException {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for user log");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 큐에 남은 레코드를 모두 쓰고, 쓰고 있던 스냅샷을 마친 뒤 닫는다.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join();
+            Thread snapshotting = snapshotWriter;
+            if (snapshotting != null) {
+                snapshotting.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * 마지막 로그는 깨진 끝을 잘라낸 뒤 이어서 쓴다.
+     */
+    private void recover(Consumer<User> loader) throws IOException {
+        long snapshotSequence = -1;
+        List<Long> snapshots = list(SNAPSHOT_PREFIX);
+        for (int i = snapshots.size() - 1; i >= 0 && snapshotSequence < 0; i--) {
+            long candidate = snapshots.get(i);
+            if (readSnapshot(file(SNAPSHOT_PREFIX, candidate), loader)) {
+                snapshotSequence = candidate;
+            } else {
+                log.warn("ignore corrupt snapshot {}", file(SNAPSHOT_PREFIX, candidate));
+            }
+        }
+
+        long current = Math.max(snapshotSequence, 0);
+        int records = 0;
+        List<Long> logs = list(LOG_PREFIX);
+        for (int i = 0; i < logs.size(); i++) {
+            long logSequence = logs.get(i);
+            if (logSequence < snapshotSequence) {
+                continue;
+            }
+            boolean last = i == logs.size() - 1;
+            records = replayLog(file(LOG_PREFIX, logSequence), loader, last);
+            current = logSequence;
+        }
+        openLog(current);
+        recordsInLog = records;
+    }
+
+    /**
+     * @return 파일 전체가 온전하면 true
+     */
+    private boolean readSnapshot(Path file, Consumer<User> loader) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (in.size() < 16) {
+                return false;
+            }
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            // 내용을 적용하기 전에 끝의 CRC 로 파일 전체를 확인한다.
+            ByteBuffer content = buffer.duplicate();
+            content.limit(buffer.capacity() - 4);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if ((int) crc.getValue() != buffer.getInt(buffer.capacity() - 4) || buffer.getLong(0) != SNAPSHOT_MAGIC) {
+                return false;
+            }
+
+            buffer.position(8);
+            int count = buffer.getInt();
+            Decoder decoder = new Decoder();
+            for (int i = 0; i < count; i++) {
+                buffer.getInt();
+                loader.accept(decoder.decode(buffer));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 로그를 앞에서부터 적용한다. 마지막 로그의 끝이 덜 쓰였거나 깨졌다면 그 앞에서 자른다.
+     *
+     * @return 적용한 레코드 수
+     */
+    private int replayLog(Path file, Consumer<User> loader, boolean last) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            if (size == 0) {
+                return 0;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("user log too large: " + file);
+            }
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Decoder decoder = new Decoder();
+            CRC32 crc = new CRC32();
+            int valid = 0;
+            int records = 0;
+            while (buffer.remaining() >= RECORD_HEADER) {
+                int length = buffer.getInt(valid);
+                int checksum = buffer.getInt(valid + 4);
+                if (length <= 0 || length > buffer.limit() - valid - RECORD_HEADER) {
+                    break;
+                }
+                ByteBuffer record = buffer.duplicate();
+                record.position(valid + RECORD_HEADER).limit(valid + RECORD_HEADER + length);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                buffer.position(valid + RECORD_HEADER);
+                loader.accept(decoder.decode(buffer));
+                valid += RECORD_HEADER + length;
+                records++;
+                buffer.position(valid);
+            }
+
+            if (valid < size) {
+                if (!last) {
+                    throw new IOException("corrupt user log " + file + " at " + valid);
+                }
+                log.warn("truncate user log {} from {} to {} bytes", file, size, valid);
+                in.truncate(valid);
+            }
+            return records;
+        }
+    }
+
+    private void openLog(long sequence) throws IOException {
+        this.channel = opener.open(file(LOG_PREFIX, sequence));
+        this.logSize = channel.size();
+        this.sequence = sequence;
+        this.recordsInLog = 0;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            Pending first = takeUninterruptibly();
+            if (first == CLOSE) {
+                break;
+            }
+            batch.add(first);
+            stopping = collect(batch);
+
+            IOException failure = null;
+            try {
+                write(batch);
+            } catch (IOException e) {
+                log.error("failed to write user log", e);
+                failure = e;
+            }
+            for (Pending pending : batch) {
+                if (failure == null) {
+                    pending.done.complete(null);
+                } else {
+                    pending.done.completeExceptionally(failure);
+                }
+            }
+            batch.clear();
+
+            if (failure == null && recordsInLog >= snapshotRecords) {
+                try {
+                    rotate();
+                } catch (IOException e) {
+                    log.error("failed to rotate user log", e);
+                }
+            }
+        }
+
+        // 닫는 중에 늦게 들어온 레코드
+        IOException closedException = new IOException("user log is closed");
+        for (Pending pending; (pending = queue.poll()) != null;) {
+            pending.done.completeExceptionally(closedException);
+        }
+    }
+
+    private Pending takeUninterruptibly() {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                // writer 스레드는 CLOSE 로만 끝낸다.
+            }
+        }
+    }
+
+    /**
+     * 첫 레코드를 받은 뒤 syncWindow 동안 더 들어오는 레코드를 같은 fsync 에 싣는다.
+     *
+     * @return CLOSE 를 만났다면 true
+     */
+    private boolean collect(List<Pending> batch) {
+        long deadline = System.nanoTime() + syncWindowNanos;
+        while (batch.size() < MAX_BATCH) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Pending next;
+            try {
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (next == null) {
+                break;
+            }
+            if (next == CLOSE) {
+                return true;
+            }
+            batch.add(next);
+        }
+        queue.drainTo(batch, MAX_BATCH - batch.size());
+        return batch.remove(CLOSE);
+    }
+
+    private void write(List<Pending> batch) throws IOException {
+        if (broken != null) {
+            throw new IOException("user log could not discard a failed write", broken);
+        }
+        long start = logSize;
+        try {
+            writeBuffer.clear();
+            CRC32 crc = new CRC32();
+            for (Pending pending : batch) {
+                byte[] record = pending.record;
+                if (writeBuffer.remaining() < RECORD_HEADER + record.length) {
+                    flushWriteBuffer();
+                    if (writeBuffer.capacity() < RECORD_HEADER + record.length) {
+                        writeBuffer = ByteBuffer.allocateDirect(RECORD_HEADER + record.length);
+                    }
+                }
+                crc.reset();
+                crc.update(record, 0, record.length);
+                writeBuffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+            }
+            flushWriteBuffer();
+            channel.force(false);
+        } catch (IOException e) {
+            discardFrom(start);
+            throw e;
+        }
+        recordsInLog += batch.size();
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            logSize += channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private void discardFrom(long start) {
+        try {
+            channel.truncate(start);
+            channel.force(false);
+            logSize = start;
+        } catch (IOException e) {
+            log.error("failed to discard a failed write from user log", e);
+            broken = e;
+        }
+    }
+
+    /**
+     * 새 로그로 넘어가고 스냅샷을 쓴다. 이전 로그의 레코드는 append 전에 이미 메모리에 반영되어 있으므로,
+     * 넘어간 뒤에 읽은 사용자 전체는 이전 로그를 모두 포함한다.
+     */
+    private void rotate() throws IOException {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return;
+        }
+        channel.close();
+        openLog(sequence + 1);
+        long snapshotSequence = sequence;
+        Thread snapshotting = new Thread(() -> {
+            try {
+                writeSnapshot(snapshotSequence, snapshotSource.get());
+            } catch (IOException e) {
+                log.error("failed to write user snapshot", e);
+            } finally {
+                snapshotRunning.set(false);
+            }
+        }, "db-snapshot");
+        snapshotting.setDaemon(true);
+        snapshotWriter = snapshotting;
+        snapshotting.start();
+    }
+
+    private void writeSnapshot(long snapshotSequence, Collection<User> users) throws IOException {
+        long started = System.nanoTime();
+        Path target = file(SNAPSHOT_PREFIX, snapshotSequence);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            buffer.putLong(SNAPSHOT_MAGIC).putInt(users.size());
+            for (User user : users) {
+                byte[] record = encode(user);
+                if (buffer.remaining() < 4 + record.length + 4) {
+                    writeFully(out, buffer, crc);
+                    if (buffer.capacity() < 4 + record.length + 4) {
+                        buffer = ByteBuffer.allocate(4 + record.length + 4);
+                    }
+                }
+                buffer.putInt(record.length).put(record);
+            }
+            writeFully(out, buffer, crc);
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        deleteBefore(snapshotSequence);
+        log.info("wrote user snapshot {} with {} users in {} ms", target.getFileName(), users.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void writeFully(FileChannel out, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 새 스냅샷에 포함된 로그와 이전 스냅샷을 지운다.
+     */
+    private void deleteBefore(long snapshotSequence) throws IOException {
+        for (long logSequence : list(LOG_PREFIX)) {
+            if (logSequence < snapshotSequence) {
+                Files.deleteIfExists(file(LOG_PREFIX, logSequence));
+            }
+        }
+        for (long previous : list(SNAPSHOT_PREFIX)) {
+            if (previous < snapshotSequence) {
+                Files.deleteIfExists(file(SNAPSHOT_PREFIX, previous));
+            }
+        }
+    }
+
+    private List<Long> list(String prefix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()), 16));
+                } catch (NumberFormatException e) {
+                    log.warn("ignore unknown file {}", file);
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private Path file(String prefix, long sequence) {
+        return dir.resolve(String.format("%s%016x%s", prefix, sequence, SUFFIX));
+    }
+
+    /**
+     * 문자열마다 [길이][UTF-8 바이트] 이며 null 은 길이 -1 이다.
+     */
+    static byte[] encode(User user) {
+        byte[][] fields = { bytes(user.getUserId()), bytes(user.getPassword()), bytes(user.getName()),
+                bytes(user.getEmail()) };
+        int length = 0;
+        for (byte[] field : fields) {
+            length += 4 + (field == null ? 0 : field.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] field : fields) {
+            if (field == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(field.length).put(field);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * mapped buffer 에서 문자열을 꺼낼 때 쓰는 byte[] 를 재사용한다.
+     */
+    private static class Decoder {
+        private byte[] scratch = new byte[256];
+
+        User decode(ByteBuffer buffer) {
+            return new User(string(buffer), string(buffer), string(buffer), string(buffer));
+        }
+
+        private String string(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 로그 파일을 append 로 연다. 테스트에서 쓰기 실패를 흉내 낼 때 바꿔 끼운다.
+     */
+    interface ChannelOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    private static class Pending {
+        private final byte[] record;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(byte[] record) {
+            this.record = record;
+        }
+    }
+}
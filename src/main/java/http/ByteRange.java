@@ -0,0 +1,119 @@
+package http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Range 헤더의 bytes 범위 하나. first, last 모두 포함하는 위치다. (RFC 7233 2.1)
+ */
+public class ByteRange {
+    // 작은 범위를 잔뜩 요청해 응답 하나를 부풀리거나 파일을 여러 번 열게 하지 못하게 한다.
+    public static final int MAX_RANGES = 16;
+
+    private final long first;
+    private final long last;
+
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * "bytes=0-99, 200-, -50" 형식을 length 바이트짜리 본문에 맞춰 해석한다.
+     * 본문을 벗어난 범위는 버리고 끝이 넘치는 범위는 잘라 내며, 겹치거나 붙어 있는 범위는 합쳐 위치 순서로 돌려준다.
+     *
+     * @return 문법이 틀렸거나 범위가 MAX_RANGES 개를 넘으면 null(헤더를 무시하고 전체를 보낸다).
+     *         맞는 범위가 하나도 없으면 빈 목록(416)
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null || !header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dash = trimmed.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long first = parseNumber(trimmed, 0, dash);
+            long last = parseNumber(trimmed, dash + 1, trimmed.length());
+            if (first == -1 && last == -1 || first == -2 || last == -2 || last >= 0 && first > last) {
+                return null;
+            }
+            if (first == -1) {
+                // suffix-byte-range-spec: 끝에서 last 바이트
+                if (last > 0 && length > 0) {
+                    ranges.add(new ByteRange(Math.max(0, length - last), length - 1));
+                }
+            } else if (first < length) {
+                ranges.add(new ByteRange(first, last == -1 ? length - 1 : Math.min(last, length - 1)));
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        Collections.sort(ranges, Comparator.comparingLong(ByteRange::getFirst));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.first <= current.last + 1) {
+                current = new ByteRange(current.first, Math.max(current.last, next.last));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    /**
+     * @return 비어 있으면 -1, 숫자가 아니거나 너무 크면 -2
+     */
+    private static long parseNumber(String text, int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        if (to - from > 18) {
+            return -2;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -2;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return first + "-" + last;
+    }
+}
@@ -0,0 +1,38 @@
+package http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * blocking 연결에서 쓰는 FileSender. 앞서 버퍼에 쓴 헤더를 먼저 내보낸 뒤 파일을 transferTo 로 보낸다.
+ * socket channel 이 없으면 OutputStream 을 감싼 channel 로 보내므로 복사는 일어나지만 파일 전체를 byte[] 로 읽지는 않는다.
+ */
+public class ChannelFileSender implements FileSender {
+    private final OutputStream out;
+    private final WritableByteChannel target;
+
+    public ChannelFileSender(OutputStream out, WritableByteChannel socketChannel) {
+        this.out = out;
+        this.target = socketChannel != null ? socketChannel : Channels.newChannel(out);
+    }
+
+    @Override
+    public void send(Path file, long position, long count) throws IOException {
+        out.flush();
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long sent = 0;
+            while (sent < count) {
+                long transferred = fileChannel.transferTo(position + sent, count - sent, target);
+                if (transferred <= 0 && position + sent >= fileChannel.size()) {
+                    throw new IOException("File truncated while sending : " + file);
+                }
+                sent += transferred;
+            }
+        }
+    }
+}
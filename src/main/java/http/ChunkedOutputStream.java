@@ -0,0 +1,109 @@
+package http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 길이를 미리 알 수 없는 본문을 Transfer-Encoding: chunked 로 쓴다. (RFC 7230 4.1)
+ *
+ * 크기가 정해진 버퍼가 차면 chunk 하나로 내보내고 아래 stream 을 flush 하므로, 본문을 다 만들기 전에 앞부분이 전송되고
+ * 응답 하나가 차지하는 메모리는 버퍼 크기를 넘지 않는다. 버퍼보다 큰 write 는 복사하지 않고 그대로 chunk 가 된다.
+ * close() 는 마지막 chunk 를 쓰지만 아래 stream(연결)은 닫지 않는다.
+ */
+public class ChunkedOutputStream extends OutputStream {
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    protected final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    public ChunkedOutputStream(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChunkedOutputStream(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len >= buffer.length) {
+            flushBuffer();
+            writeChunk(b, off, len);
+            out.flush();
+            return;
+        }
+        if (len > buffer.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * 모아 둔 바이트를 chunk 로 내보낸다.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+    }
+
+    /**
+     * 남은 바이트와 마지막 chunk 를 쓴다. 아래 stream 은 닫지 않는다.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (count > 0) {
+            writeChunk(buffer, 0, count);
+            count = 0;
+        }
+        writeTrailer();
+        out.flush();
+        closed = true;
+    }
+
+    protected void writeChunk(byte[] b, int off, int len) throws IOException {
+        out.write(Integer.toHexString(len).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(b, off, len);
+        out.write(CRLF);
+    }
+
+    protected void writeTrailer() throws IOException {
+        out.write(LAST_CHUNK);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            writeChunk(buffer, 0, count);
+            count = 0;
+            out.flush();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+    }
+}
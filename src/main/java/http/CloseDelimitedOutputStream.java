@@ -0,0 +1,23 @@
+package http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * chunked 를 모르는 HTTP/1.0 클라이언트에게 길이를 모르는 본문을 보낸다. 본문을 그대로 쓰고, 끝은 연결을 닫아 알린다.
+ * 버퍼를 채울 때마다 보내는 방식은 ChunkedOutputStream 과 같다.
+ */
+public class CloseDelimitedOutputStream extends ChunkedOutputStream {
+    public CloseDelimitedOutputStream(OutputStream out, int bufferSize) {
+        super(out, bufferSize);
+    }
+
+    @Override
+    protected void writeChunk(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    protected void writeTrailer() {
+    }
+}
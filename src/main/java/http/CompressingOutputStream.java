@@ -0,0 +1,140 @@
+package http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * gzip 또는 deflate(zlib) 로 본문을 압축하며 쓴다. Deflater 는 native 메모리를 쓰고 만드는 비용이 커서
+ * 요청마다 만들지 않고 pool 에서 빌려 쓰며, close() 할 때 reset 해서 돌려준다.
+ */
+public class CompressingOutputStream extends DeflaterOutputStream {
+    private static final int LEVEL = 6;
+    private static final int MAX_POOLED = 64;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final DeflaterPool gzipDeflaters = new DeflaterPool(true);
+    private static final DeflaterPool zlibDeflaters = new DeflaterPool(false);
+
+    // RFC 1952 고정 헤더. 압축 방식 deflate, 플래그/시각 없음, OS unknown.
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final DeflaterPool pool;
+    private final CRC32 crc;
+    private boolean finished;
+    private boolean closed;
+
+    private CompressingOutputStream(OutputStream out, DeflaterPool pool, boolean gzip) throws IOException {
+        super(out, pool.borrow(), BUFFER_SIZE);
+        this.pool = pool;
+        this.crc = gzip ? new CRC32() : null;
+        if (gzip) {
+            out.write(GZIP_HEADER);
+        }
+    }
+
+    public static CompressingOutputStream open(OutputStream out, ContentEncoding encoding) throws IOException {
+        if (encoding == ContentEncoding.GZIP) {
+            return new CompressingOutputStream(out, gzipDeflaters, true);
+        }
+        if (encoding == ContentEncoding.DEFLATE) {
+            return new CompressingOutputStream(out, zlibDeflaters, false);
+        }
+        throw new IllegalArgumentException("압축하지 않는 encoding 입니다 : " + encoding);
+    }
+
+    /**
+     * byte[] 를 한 번에 압축한다. 정적 파일처럼 한 번 압축해 두고 계속 쓸 본문에 사용한다.
+     */
+    public static byte[] compress(byte[] body, ContentEncoding encoding) throws IOException {
+        return compress(body, 0, body.length, encoding);
+    }
+
+    public static byte[] compress(byte[] body, int offset, int length, ContentEncoding encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 3 + 64);
+        try (CompressingOutputStream compressor = open(out, encoding)) {
+            compressor.write(body, offset, length);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        super.finish();
+        finished = true;
+        if (crc != null) {
+            writeInt((int) crc.getValue());
+            writeInt((int) def.getBytesRead());
+        }
+    }
+
+    /**
+     * 압축을 마치고 Deflater 를 pool 에 돌려준다. 감싸고 있는 stream 은 닫지 않는다.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            finish();
+            out.flush();
+        } finally {
+            pool.release(def);
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    private static class DeflaterPool {
+        private final boolean nowrap;
+        private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        DeflaterPool(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        Deflater borrow() {
+            Deflater deflater = deflaters.poll();
+            if (deflater == null) {
+                return new Deflater(LEVEL, nowrap);
+            }
+            size.decrementAndGet();
+            return deflater;
+        }
+
+        void release(Deflater deflater) {
+            deflater.reset();
+            if (size.incrementAndGet() > MAX_POOLED) {
+                size.decrementAndGet();
+                deflater.end();
+                return;
+            }
+            deflaters.offer(deflater);
+        }
+    }
+}
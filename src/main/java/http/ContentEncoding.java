@@ -0,0 +1,63 @@
+package http;
+
+/**
+ * Accept-Encoding 으로 응답 본문의 압축 방식을 고른다. gzip 을 deflate 보다 우선한다.
+ */
+public enum ContentEncoding {
+    IDENTITY(null), GZIP("gzip"), DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @param acceptEncoding은
+     *            gzip;q=0.8, deflate, br 형식이다. q=0 인 방식은 받지 않는다는 뜻이다.
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return IDENTITY;
+        }
+
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String candidate : acceptEncoding.split(",")) {
+            String coding = candidate.trim();
+            int semicolon = coding.indexOf(';');
+            if (semicolon >= 0) {
+                if (isZeroQuality(coding.substring(semicolon + 1))) {
+                    continue;
+                }
+                coding = coding.substring(0, semicolon).trim();
+            }
+            if (coding.equalsIgnoreCase("gzip") || coding.equals("*")) {
+                gzip = true;
+            } else if (coding.equalsIgnoreCase("deflate")) {
+                deflate = true;
+            }
+        }
+
+        if (gzip) {
+            return GZIP;
+        }
+        return deflate ? DEFLATE : IDENTITY;
+    }
+
+    private static boolean isZeroQuality(String parameter) {
+        String value = parameter.trim();
+        if (!value.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(value.substring(2).trim()) <= 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
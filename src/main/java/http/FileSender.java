@@ -0,0 +1,12 @@
+package http;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 파일 내용을 응답 본문으로 보낸다. 연결이 socket channel 을 가지고 있다면
+ * FileChannel.transferTo 로 커널 안에서 바로 보내(sendfile) 힙에 파일 내용을 올리지 않는다.
+ */
+public interface FileSender {
+    void send(Path file, long position, long count) throws IOException;
+}
@@ -0,0 +1,74 @@
+package http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * application/x-www-form-urlencoded 본문을 바이트에서 바로 해석한다.
+ *
+ * 문자열로 바꾼 뒤 '&', '=' 로 자르고 값마다 다시 URL 디코딩하는 대신, 한 번 훑으면서 '+' 와 %XX 를 풀어
+ * 임시 배열에 모으고 이름과 값마다 UTF-8 문자열을 한 번만 만든다.
+ * 같은 이름이 여러 번 오면 처음 값을 쓰고, 잘못된 %XX 는 그대로 둔다. 매개변수는 MAX_PARAMETERS 개까지만 읽는다.
+ */
+public class FormDecoder {
+    public static final int MAX_PARAMETERS = 1000;
+
+    private FormDecoder() {
+    }
+
+    public static Map<String, String> decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    public static Map<String, String> decode(byte[] bytes, int offset, int length) {
+        Map<String, String> parameters = new HashMap<>();
+        // 디코딩한 결과는 원래보다 길지 않으므로 scratch 하나로 충분하다.
+        byte[] scratch = new byte[length];
+        int end = offset + length;
+        int position = offset;
+        while (position < end && parameters.size() < MAX_PARAMETERS) {
+            int pairEnd = indexOf(bytes, '&', position, end);
+            int equals = indexOf(bytes, '=', position, pairEnd);
+            if (equals > position) {
+                String name = decodeComponent(bytes, position, equals, scratch);
+                if (!parameters.containsKey(name)) {
+                    parameters.put(name, decodeComponent(bytes, equals + 1, pairEnd, scratch));
+                }
+            }
+            position = pairEnd + 1;
+        }
+        return parameters;
+    }
+
+    private static String decodeComponent(byte[] bytes, int from, int to, byte[] scratch) {
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '+') {
+                b = ' ';
+            } else if (b == '%' && i + 2 < to) {
+                int high = Character.digit(bytes[i + 1], 16);
+                int low = Character.digit(bytes[i + 2], 16);
+                if (high >= 0 && low >= 0) {
+                    b = (byte) (high << 4 | low);
+                    i += 2;
+                }
+            }
+            scratch[size++] = b;
+        }
+        return new String(scratch, 0, size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return c 의 위치. 없으면 to
+     */
+    private static int indexOf(byte[] bytes, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
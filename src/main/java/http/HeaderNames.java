@@ -0,0 +1,88 @@
+package http;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 자주 쓰는 헤더 이름. 요청을 해석할 때 같은 이름이면 새 문자열을 만들지 않고 이 상수를 그대로 쓴다.
+ */
+public class HeaderNames {
+    public static final String HOST = "Host";
+    public static final String CONNECTION = "Connection";
+    public static final String CONTENT_LENGTH = "Content-Length";
+    public static final String CONTENT_TYPE = "Content-Type";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+    public static final String ACCEPT = "Accept";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String ACCEPT_LANGUAGE = "Accept-Language";
+    public static final String COOKIE = "Cookie";
+    public static final String USER_AGENT = "User-Agent";
+    public static final String REFERER = "Referer";
+    public static final String ORIGIN = "Origin";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String PRAGMA = "Pragma";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String UPGRADE = "Upgrade";
+    public static final String UPGRADE_INSECURE_REQUESTS = "Upgrade-Insecure-Requests";
+    public static final String RANGE = "Range";
+    public static final String IF_RANGE = "If-Range";
+    public static final String DNT = "DNT";
+    public static final String SEC_FETCH_DEST = "Sec-Fetch-Dest";
+    public static final String SEC_FETCH_MODE = "Sec-Fetch-Mode";
+    public static final String SEC_FETCH_SITE = "Sec-Fetch-Site";
+
+    private static final String[] KNOWN = { HOST, CONNECTION, CONTENT_LENGTH, CONTENT_TYPE, TRANSFER_ENCODING, ACCEPT,
+            ACCEPT_ENCODING, ACCEPT_LANGUAGE, COOKIE, USER_AGENT, REFERER, ORIGIN, CACHE_CONTROL, PRAGMA,
+            IF_NONE_MATCH, IF_MODIFIED_SINCE, UPGRADE, UPGRADE_INSECURE_REQUESTS, RANGE, IF_RANGE, DNT,
+            SEC_FETCH_DEST, SEC_FETCH_MODE, SEC_FETCH_SITE };
+
+    // 알려진 이름을 대소문자를 무시한 해시로 미리 넣어 둔 테이블. 요청마다 이름 목록을 훑지 않고 한 번에 찾는다.
+    private static final String[] KNOWN_TABLE = new String[64];
+    private static final int[] KNOWN_HASHES = new int[KNOWN_TABLE.length];
+
+    static {
+        int mask = KNOWN_TABLE.length - 1;
+        for (String name : KNOWN) {
+            int hash = HttpHeaders.hash(name);
+            int slot = hash & mask;
+            while (KNOWN_TABLE[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            KNOWN_TABLE[slot] = name;
+            KNOWN_HASHES[slot] = hash;
+        }
+    }
+
+    /**
+     * @param hash
+     *            HttpHeaders.hash 로 구한 이름의 해시
+     * @return 알려진 헤더 이름이면 대소문자와 관계없이 상수를, 아니면 새 문자열
+     */
+    static String intern(byte[] bytes, int offset, int length, int hash) {
+        int mask = KNOWN_TABLE.length - 1;
+        for (int slot = hash & mask; KNOWN_TABLE[slot] != null; slot = (slot + 1) & mask) {
+            if (KNOWN_HASHES[slot] == hash && equalsAscii(KNOWN_TABLE[slot], bytes, offset, length, true)) {
+                return KNOWN_TABLE[slot];
+            }
+        }
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    static boolean equalsAscii(String expected, byte[] bytes, int offset, int length, boolean ignoreCase) {
+        if (expected.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int a = expected.charAt(i);
+            int b = bytes[offset + i] & 0xff;
+            if (a != b && (!ignoreCase || toLowerCase(a) != toLowerCase(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
@@ -0,0 +1,35 @@
+package http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Last-Modified, If-Modified-Since 등에 쓰는 HTTP-date(IMF-fixdate) 형식. 예) Sun, 06 Nov 1994 08:49:37 GMT
+ */
+public class HttpDates {
+    private static final DateTimeFormatter IMF_FIXDATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    public static String format(long epochMillis) {
+        return IMF_FIXDATE.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * @return 형식이 맞지 않으면 -1
+     */
+    public static long parse(String httpDate) {
+        if (httpDate == null || httpDate.isEmpty()) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(httpDate.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 대소문자를 구분하지 않는 헤더 맵. 항목은 들어온 순서대로 배열에 두고, 이름의 해시로 찾는 open addressing 테이블을 따로 둔다.
+ * 같은 이름이 여러 번 오면 첫 항목에서 next 로 이어 붙인다.
+ *
+ * HttpRequestParser 가 채우는 값은 요청 헤더 바이트 안의 위치만 기록해 두고 처음 꺼낼 때 문자열로 만든다.
+ */
+public class HttpHeaders {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] source;
+    private String[] names;
+    private int[] hashes;
+    private int[] offsets;
+    private String[] values;
+    private int[] next;
+    private int size;
+
+    // 항목 번호 + 1 을 담는다. 0 은 빈 칸이다.
+    private int[] table;
+
+    public HttpHeaders() {
+        this(INITIAL_CAPACITY);
+    }
+
+    HttpHeaders(int capacity) {
+        names = new String[capacity];
+        hashes = new int[capacity];
+        offsets = new int[capacity * 2];
+        values = new String[capacity];
+        next = new int[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    /**
+     * ASCII 대소문자를 무시한 해시.
+     */
+    public static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + toLowerCase(name.charAt(i));
+        }
+        return spread(h);
+    }
+
+    static int hash(byte[] bytes, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + toLowerCase(bytes[i] & 0xff);
+        }
+        return spread(h);
+    }
+
+    public void add(String name, String value) {
+        int index = append(name, hash(name));
+        values[index] = value;
+    }
+
+    /**
+     * 값이 source 바이트의 offset 부터 length 만큼인 헤더를 추가한다.
+     */
+    void add(String name, int hash, int offset, int length) {
+        int index = append(name, hash);
+        offsets[index * 2] = offset;
+        offsets[index * 2 + 1] = length;
+    }
+
+    void setSource(byte[] source) {
+        this.source = source;
+    }
+
+    /**
+     * @return 같은 이름이 여러 번 왔다면 첫 값, 없다면 null
+     */
+    public String get(String name) {
+        int index = indexOf(name, hash(name));
+        return index < 0 ? null : getValue(index);
+    }
+
+    public List<String> getAll(String name) {
+        int index = indexOf(name, hash(name));
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        List<String> all = new ArrayList<>(2);
+        for (; index >= 0; index = next[index]) {
+            all.add(getValue(index));
+        }
+        return all;
+    }
+
+    public boolean contains(String name) {
+        return indexOf(name, hash(name)) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public String getValue(int index) {
+        String value = values[index];
+        if (value == null) {
+            value = new String(source, offsets[index * 2], offsets[index * 2 + 1], StandardCharsets.ISO_8859_1);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private int append(String name, int hash) {
+        if (size == names.length) {
+            grow();
+        }
+        int index = size++;
+        names[index] = name;
+        hashes[index] = hash;
+        next[index] = -1;
+
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (entry < 0) {
+                table[slot] = index + 1;
+                return index;
+            }
+            if (hashes[entry] == hash && matches(names[entry], name)) {
+                while (next[entry] >= 0) {
+                    entry = next[entry];
+                }
+                next[entry] = index;
+                return index;
+            }
+        }
+    }
+
+    private int indexOf(String name, int hash) {
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (hashes[entry] == hash && matches(names[entry], name)) {
+                return entry;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        offsets = Arrays.copyOf(offsets, capacity * 2);
+        values = Arrays.copyOf(values, capacity);
+        next = Arrays.copyOf(next, capacity);
+
+        // 테이블에는 이름마다 첫 항목만 들어 있으므로 그것만 다시 넣는다.
+        int[] old = table;
+        table = new int[tableSizeFor(capacity)];
+        int mask = table.length - 1;
+        for (int slot : old) {
+            if (slot == 0) {
+                continue;
+            }
+            int s = hashes[slot - 1] & mask;
+            while (table[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            table[s] = slot;
+        }
+    }
+
+    private static boolean matches(String a, String b) {
+        return a == b || a.equalsIgnoreCase(b);
+    }
+
+    /**
+     * 항목 수의 두 배 이상인 2의 거듭제곱. 테이블이 절반 넘게 차지 않아 탐색이 짧게 끝난다.
+     */
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int toLowerCase(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
@@ -0,0 +1,34 @@
+package http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 요청을 해석할 수 없거나 크기 제한을 넘었을 때 발생한다. 클라이언트에게 돌려줄 상태 코드를 가지고 있다.
+ */
+public class HttpParseException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+    private final String reason;
+
+    public HttpParseException(int status, String reason) {
+        super(status + " " + reason);
+        this.status = status;
+        this.reason = reason;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 본문 없이 연결을 닫는 오류 응답
+     */
+    public byte[] toResponse() {
+        return ("HTTP/1.1 " + status + " " + reason + " \r\n"
+                + "Content-Length: 0\r\n"
+                + "Connection: close\r\n"
+                + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
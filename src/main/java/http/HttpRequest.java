@@ -0,0 +1,136 @@
+package http;
+
+import java.util.Collections;
+import java.util.Map;
+
+import util.HttpRequestUtils;
+
+/**
+ * HttpRequestParser 가 만든 요청.
+ */
+public class HttpRequest {
+    private String method;
+    private String path;
+    private String queryString;
+    private String version;
+    private HttpHeaders headers;
+    private byte[] body;
+    private Map<String, String> parameters;
+    private Map<String, String> pathParameters = Collections.emptyMap();
+
+    HttpRequest(String method, String target, String version, HttpHeaders headers, byte[] body) {
+        this.method = method;
+        int question = target.indexOf('?');
+        this.path = question < 0 ? target : target.substring(0, question);
+        this.queryString = question < 0 ? "" : target.substring(question + 1);
+        this.version = version;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * HttpRequestParser 를 거치지 않고 받은 요청(HTTP/2)을 만든다.
+     *
+     * @param body
+     *            본문이 없으면 null
+     */
+    public static HttpRequest of(String method, String target, String version, HttpHeaders headers, byte[] body) {
+        return new HttpRequest(method, target, version, headers, body);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return query string 을 뺀 경로
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public String getQueryString() {
+        return queryString;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * 헤더 이름은 대소문자를 구분하지 않는다.
+     *
+     * @return 헤더가 없으면 빈 문자열
+     */
+    public String getHeader(String headerName) {
+        String value = headers.get(headerName);
+        return value == null ? "" : value;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Cookie 헤더가 여러 줄로 나뉘어 올 수 있으므로 모든 줄을 본다.
+     *
+     * @return 쿠키 값. 없으면 null
+     */
+    public String getCookie(String name) {
+        for (String cookies : headers.getAll(HeaderNames.COOKIE)) {
+            String value = HttpRequestUtils.getCookie(cookies, name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 경로의 {name} 에 맞춘 값. 없으면 null
+     */
+    public String getPathParameter(String name) {
+        return pathParameters.get(name);
+    }
+
+    /**
+     * Router 가 경로를 맞춘 뒤 채운다.
+     */
+    public void setPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters;
+    }
+
+    public String getParameter(String name) {
+        return getParameters().get(name);
+    }
+
+    public Map<String, String> getParameters() {
+        if (parameters == null) {
+            parameters = parseParameters();
+        }
+        return parameters;
+    }
+
+    private Map<String, String> parseParameters() {
+        if (body == null) {
+            return Collections.emptyMap();
+        }
+        return FormDecoder.decode(body);
+    }
+
+    /**
+     * HTTP/1.1 은 Connection: close 가 없으면, HTTP/1.0 은 Connection: keep-alive 가 있을 때만 연결을 유지한다.
+     */
+    public boolean isKeepAlive() {
+        String connection = getHeader(HeaderNames.CONNECTION);
+        if ("HTTP/1.0".equals(version)) {
+            return "keep-alive".equalsIgnoreCase(connection);
+        }
+        return !"close".equalsIgnoreCase(connection);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpRequest [method=" + method + ", path=" + path + ", version=" + version + "]";
+    }
+}
@@ -0,0 +1,490 @@
+package http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 바이트를 문자로 디코딩하거나 줄마다 split 하지 않고 버퍼 위에서 바로 요청을 해석한다.
+ * 한 줄(LF)이 들어올 때마다 요청줄 → 헤더 → 본문 순서로 상태를 옮기며, 헤더 값은 위치만 기록해 두고
+ * 실제로 꺼낼 때 문자열로 만든다. 버퍼는 연결 단위로 재사용하고, 남은 바이트는 파이프라이닝된 다음 요청이 된다.
+ *
+ * blocking 연결은 read(InputStream) 을, nio 연결은 feed(ByteBuffer) 후 parse() 를 사용한다.
+ *
+ * 본문은 Content-Length 만큼 정확히 읽거나 Transfer-Encoding: chunked 를 풀어 읽는다. chunk 는 들어오는 대로 본문 자리로
+ * 당겨 붙이고 읽은 framing 바이트는 버리므로, 한 요청이 차지하는 버퍼는 헤더와 maxBodySize 를 크게 넘지 않는다.
+ * 본문이 maxBodySize 를 넘으면 413 으로 거절한다.
+ */
+public class HttpRequestParser {
+    public static final int DEFAULT_MAX_REQUEST_LINE = 8 * 1024;
+    public static final int DEFAULT_MAX_HEADER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_HEADERS = 100;
+
+    private static final int REQUEST_LINE = 0;
+    private static final int HEADERS = 1;
+    private static final int BODY = 2;
+
+    private static final int CHUNK_SIZE = 0;
+    private static final int CHUNK_DATA = 1;
+    private static final int CHUNK_DATA_END = 2;
+    private static final int CHUNK_TRAILER = 3;
+    private static final int MAX_CHUNK_LINE = 1024;
+
+    private static final String[] METHODS = { "GET", "POST", "HEAD", "PUT", "DELETE", "OPTIONS", "PATCH" };
+    private static final String[] VERSIONS = { "HTTP/1.1", "HTTP/1.0" };
+
+    private final int maxRequestLine;
+    private final int maxHeaderSize;
+    private final int maxBodySize;
+
+    private byte[] buffer;
+    private int start;
+    private int end;
+
+    // 진행 중인 요청의 상태. 위치는 모두 headStart 기준의 상대 위치다.
+    private int state = REQUEST_LINE;
+    private int headStart;
+    private int lineStart;
+    private int scanned;
+    private String method;
+    private String target;
+    private String version;
+    private HttpHeaders headers = new HttpHeaders();
+    private int headLength;
+    private int contentLength;
+    private boolean hasContentLength;
+    private boolean chunked;
+    // chunked 본문의 상태. chunkPosition 은 아직 보지 않은 raw 바이트의 위치(headStart 기준)이고,
+    // 푼 본문은 headStart + headLength 부터 contentLength 만큼 쌓인다.
+    private int chunkState;
+    private int chunkPosition;
+    private int chunkRemaining;
+    private int trailers;
+
+    public HttpRequestParser() {
+        this(DEFAULT_MAX_REQUEST_LINE, DEFAULT_MAX_HEADER_SIZE, DEFAULT_MAX_BODY_SIZE);
+    }
+
+    public HttpRequestParser(int maxRequestLine, int maxHeaderSize, int maxBodySize) {
+        this.maxRequestLine = maxRequestLine;
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * 요청 하나를 온전히 읽을 때까지 stream 에서 읽는다.
+     *
+     * @return 요청을 시작하기 전에 연결이 닫혔다면 null
+     */
+    public HttpRequest read(InputStream in) throws IOException {
+        HttpRequest request;
+        while ((request = parse()) == null) {
+            if (!fill(in)) {
+                return null;
+            }
+        }
+        return request;
+    }
+
+    /**
+     * 요청 줄과 헤더를 다 읽을 때까지 stream 에서 읽는다. 본문은 읽지 않으므로 본문을 받기 전에 요청을 거절할 수 있다.
+     *
+     * @return 요청을 시작하기 전에 연결이 닫혔다면 false
+     */
+    public boolean readHead(InputStream in) throws IOException {
+        while (!parseHead()) {
+            if (!fill(in)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 요청을 시작하기 전에 연결이 닫혔다면 false
+     */
+    private boolean fill(InputStream in) throws IOException {
+        ensureWritable(INITIAL_BUFFER_SIZE / 2);
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            if (end > start) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            return false;
+        }
+        end += read;
+        return true;
+    }
+
+    public void feed(ByteBuffer data) {
+        ensureWritable(data.remaining());
+        int length = data.remaining();
+        data.get(buffer, end, length);
+        end += length;
+    }
+
+    /**
+     * 지금까지 들어온 바이트로 요청 하나를 만든다.
+     *
+     * @return 아직 요청이 다 들어오지 않았다면 null
+     */
+    public HttpRequest parse() throws HttpParseException {
+        if (!parseHead()) {
+            return null;
+        }
+
+        int bodyStart = headStart + headLength;
+        if (chunked) {
+            return parseChunks() ? complete(bodyStart, headStart + chunkPosition) : null;
+        }
+        if (end - bodyStart < contentLength) {
+            return null;
+        }
+        return complete(bodyStart, bodyStart + contentLength);
+    }
+
+    /**
+     * 지금까지 들어온 바이트로 요청 줄과 헤더를 해석한다.
+     *
+     * @return 헤더까지 다 들어왔으면 true. 본문은 parse() 가 이어서 읽는다.
+     */
+    public boolean parseHead() throws HttpParseException {
+        if (buffer == null) {
+            return false;
+        }
+        while (state != BODY) {
+            int lineEnd = indexOfLineFeed();
+            if (lineEnd < 0) {
+                checkLimits(end);
+                return false;
+            }
+            checkLimits(lineEnd);
+            processLine(lineEnd);
+        }
+        return true;
+    }
+
+    /**
+     * 처리 중인 바이트가 없다면 버퍼를 놓아 유휴 연결이 메모리를 차지하지 않게 한다.
+     */
+    public void releaseIfIdle() {
+        if (start == end && state == REQUEST_LINE && lineStart == 0 && scanned == 0) {
+            buffer = null;
+            start = 0;
+            end = 0;
+            headStart = 0;
+        }
+    }
+
+    public boolean hasBufferedData() {
+        return end > start;
+    }
+
+    private int indexOfLineFeed() {
+        for (int i = headStart + scanned; i < end; i++) {
+            if (buffer[i] == '\n') {
+                scanned = i + 1 - headStart;
+                return i;
+            }
+        }
+        scanned = end - headStart;
+        return -1;
+    }
+
+    private void checkLimits(int position) throws HttpParseException {
+        if (state == REQUEST_LINE && position - (headStart + lineStart) > maxRequestLine) {
+            throw new HttpParseException(414, "URI Too Long");
+        }
+        if (position - headStart > maxHeaderSize) {
+            throw new HttpParseException(431, "Request Header Fields Too Large");
+        }
+    }
+
+    private void processLine(int lineFeed) throws HttpParseException {
+        int from = headStart + lineStart;
+        int to = lineFeed > from && buffer[lineFeed - 1] == '\r' ? lineFeed - 1 : lineFeed;
+        lineStart = lineFeed + 1 - headStart;
+
+        if (state == REQUEST_LINE) {
+            if (from == to) {
+                // 요청 사이의 빈 줄은 무시한다. (RFC 7230 3.5)
+                headStart = headStart + lineStart;
+                start = headStart;
+                lineStart = 0;
+                scanned = 0;
+                return;
+            }
+            parseRequestLine(from, to);
+            state = HEADERS;
+            return;
+        }
+
+        if (from == to) {
+            headLength = lineStart;
+            state = BODY;
+            if (chunked && hasContentLength) {
+                // 둘 다 있으면 앞의 proxy 와 본문 경계를 다르게 볼 수 있다. (RFC 7230 3.3.3)
+                throw new HttpParseException(400, "Bad Request");
+            }
+            if (contentLength > maxBodySize) {
+                throw new HttpParseException(413, "Payload Too Large");
+            }
+            chunkPosition = headLength;
+            return;
+        }
+        parseHeaderLine(from, to);
+    }
+
+    private void parseRequestLine(int from, int to) throws HttpParseException {
+        int firstSpace = indexOf(' ', from, to);
+        int secondSpace = firstSpace < 0 ? -1 : indexOf(' ', firstSpace + 1, to);
+        if (firstSpace <= from || secondSpace < 0 || secondSpace == firstSpace + 1) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        method = intern(METHODS, from, firstSpace);
+        target = new String(buffer, firstSpace + 1, secondSpace - firstSpace - 1, StandardCharsets.ISO_8859_1);
+        version = intern(VERSIONS, secondSpace + 1, to);
+        if (!version.startsWith("HTTP/1.")) {
+            throw new HttpParseException(505, "HTTP Version Not Supported");
+        }
+    }
+
+    private void parseHeaderLine(int from, int to) throws HttpParseException {
+        if (buffer[from] == ' ' || buffer[from] == '\t') {
+            // obs-fold 는 허용하지 않는다. (RFC 7230 3.2.4)
+            throw new HttpParseException(400, "Bad Request");
+        }
+        int colon = indexOf(':', from, to);
+        if (colon <= from) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        if (headers.size() == MAX_HEADERS) {
+            throw new HttpParseException(431, "Request Header Fields Too Large");
+        }
+
+        int valueStart = colon + 1;
+        while (valueStart < to && (buffer[valueStart] == ' ' || buffer[valueStart] == '\t')) {
+            valueStart++;
+        }
+        int valueEnd = to;
+        while (valueEnd > valueStart && (buffer[valueEnd - 1] == ' ' || buffer[valueEnd - 1] == '\t')) {
+            valueEnd--;
+        }
+
+        int hash = HttpHeaders.hash(buffer, from, colon - from);
+        String name = HeaderNames.intern(buffer, from, colon - from, hash);
+        headers.add(name, hash, valueStart - headStart, valueEnd - valueStart);
+
+        if (name == HeaderNames.CONTENT_LENGTH) {
+            int length = parseContentLength(valueStart, valueEnd);
+            if (hasContentLength && length != contentLength) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            contentLength = length;
+            hasContentLength = true;
+        } else if (name == HeaderNames.TRANSFER_ENCODING) {
+            // chunked 하나만 지원한다. gzip 같은 다른 coding 은 풀 수 없다.
+            if (chunked || !HeaderNames.equalsAscii("chunked", buffer, valueStart, valueEnd - valueStart, true)) {
+                throw new HttpParseException(501, "Not Implemented");
+            }
+            chunked = true;
+        }
+    }
+
+    /**
+     * 들어온 만큼 chunk 를 풀어 본문 자리로 옮긴다. (RFC 7230 4.1) chunk extension 과 trailer 는 읽고 버린다.
+     *
+     * @return 마지막 chunk 와 trailer 까지 다 읽었으면 true
+     */
+    private boolean parseChunks() throws HttpParseException {
+        int bodyStart = headStart + headLength;
+        while (true) {
+            int position = headStart + chunkPosition;
+            if (chunkState == CHUNK_DATA) {
+                int available = Math.min(chunkRemaining, end - position);
+                System.arraycopy(buffer, position, buffer, bodyStart + contentLength, available);
+                contentLength += available;
+                chunkPosition += available;
+                chunkRemaining -= available;
+                if (chunkRemaining > 0) {
+                    discardConsumedChunks();
+                    return false;
+                }
+                chunkState = CHUNK_DATA_END;
+                continue;
+            }
+
+            int lineFeed = indexOf('\n', position, end);
+            if (lineFeed < 0) {
+                if (end - position > MAX_CHUNK_LINE) {
+                    throw new HttpParseException(400, "Bad Request");
+                }
+                discardConsumedChunks();
+                return false;
+            }
+            int to = lineFeed > position && buffer[lineFeed - 1] == '\r' ? lineFeed - 1 : lineFeed;
+            if (to - position > MAX_CHUNK_LINE) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            chunkPosition = lineFeed + 1 - headStart;
+
+            if (chunkState == CHUNK_SIZE) {
+                int size = parseChunkSize(position, to);
+                if (size > maxBodySize - contentLength) {
+                    throw new HttpParseException(413, "Payload Too Large");
+                }
+                chunkRemaining = size;
+                chunkState = size == 0 ? CHUNK_TRAILER : CHUNK_DATA;
+            } else if (chunkState == CHUNK_DATA_END) {
+                if (to != position) {
+                    throw new HttpParseException(400, "Bad Request");
+                }
+                chunkState = CHUNK_SIZE;
+            } else if (to == position) {
+                return true;
+            } else if (++trailers > MAX_HEADERS) {
+                throw new HttpParseException(431, "Request Header Fields Too Large");
+            }
+        }
+    }
+
+    /**
+     * 16진수 chunk-size 를 읽는다. ';' 뒤의 chunk extension 은 무시한다.
+     */
+    private int parseChunkSize(int from, int to) throws HttpParseException {
+        int extension = indexOf(';', from, to);
+        int sizeEnd = extension < 0 ? to : extension;
+        while (sizeEnd > from && (buffer[sizeEnd - 1] == ' ' || buffer[sizeEnd - 1] == '\t')) {
+            sizeEnd--;
+        }
+        if (from == sizeEnd) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        if (sizeEnd - from > 8) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+        long size = 0;
+        for (int i = from; i < sizeEnd; i++) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit < 0) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            size = size << 4 | digit;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+        return (int) size;
+    }
+
+    /**
+     * 이미 읽은 chunk framing 을 지우고 아직 보지 않은 바이트를 푼 본문 바로 뒤로 당긴다.
+     * 1 바이트짜리 chunk 를 끝없이 보내도 버퍼가 본문보다 크게 자라지 않게 한다.
+     */
+    private void discardConsumedChunks() {
+        int bodyEnd = headStart + headLength + contentLength;
+        int position = headStart + chunkPosition;
+        if (position > bodyEnd) {
+            System.arraycopy(buffer, position, buffer, bodyEnd, end - position);
+            end -= position - bodyEnd;
+            chunkPosition = headLength + contentLength;
+        }
+    }
+
+    private int parseContentLength(int from, int to) throws HttpParseException {
+        if (from == to || to - from > 10) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        long length = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            length = length * 10 + digit;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+        return (int) length;
+    }
+
+    /**
+     * @param requestEnd
+     *            다음 요청이 시작하는 위치
+     */
+    private HttpRequest complete(int bodyStart, int requestEnd) {
+        byte[] head = Arrays.copyOfRange(buffer, headStart, bodyStart);
+        byte[] body = contentLength == 0 ? null : Arrays.copyOfRange(buffer, bodyStart, bodyStart + contentLength);
+        headers.setSource(head);
+        HttpRequest request = new HttpRequest(method, target, version, headers, body);
+
+        start = requestEnd;
+        reset();
+        return request;
+    }
+
+    private void reset() {
+        state = REQUEST_LINE;
+        headStart = start;
+        lineStart = 0;
+        scanned = 0;
+        headers = new HttpHeaders();
+        headLength = 0;
+        contentLength = 0;
+        hasContentLength = false;
+        chunked = false;
+        chunkState = CHUNK_SIZE;
+        chunkPosition = 0;
+        chunkRemaining = 0;
+        trailers = 0;
+        method = null;
+        target = null;
+        version = null;
+    }
+
+    /**
+     * 버퍼 끝에 length 만큼 쓸 자리를 만든다. 이미 처리한 앞부분을 당기고, 그래도 모자라면 버퍼를 키운다.
+     */
+    private void ensureWritable(int length) {
+        if (buffer == null) {
+            buffer = new byte[Math.max(INITIAL_BUFFER_SIZE, length)];
+            return;
+        }
+        if (buffer.length - end >= length) {
+            return;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            headStart -= start;
+            start = 0;
+        }
+        if (buffer.length - end < length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, end + length));
+        }
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String intern(String[] candidates, int from, int to) {
+        for (String candidate : candidates) {
+            if (HeaderNames.equalsAscii(candidate, buffer, from, to - from, false)) {
+                return candidate;
+            }
+        }
+        return new String(buffer, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
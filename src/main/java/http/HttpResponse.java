@@ -0,0 +1,271 @@
+package http;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 응답 하나를 쓴다. 연결을 유지할지에 따라 Connection 헤더를 붙이고,
+ * 다음 요청과 경계가 구분되도록 모든 응답에 Content-Length 를 보내거나 본문을 chunked 로 보낸다.
+ */
+public class HttpResponse {
+    private static final Logger log = LoggerFactory.getLogger(HttpResponse.class);
+
+    private DataOutputStream dos;
+    private FileSender fileSender;
+    private Map<String, String> headers = new LinkedHashMap<>();
+    private boolean keepAlive;
+    private boolean committed;
+    private int status;
+    private long committedAt;
+    private long fileBytes;
+
+    public HttpResponse(OutputStream out, boolean keepAlive) {
+        this(out, keepAlive, new ChannelFileSender(out, null));
+    }
+
+    public HttpResponse(OutputStream out, boolean keepAlive, FileSender fileSender) {
+        this.dos = new DataOutputStream(out);
+        this.keepAlive = keepAlive;
+        this.fileSender = fileSender;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * @return 응답을 쓰기 시작한 System.nanoTime(). 아직 쓰지 않았으면 0
+     */
+    public long getCommittedAt() {
+        return committedAt;
+    }
+
+    /**
+     * @return 쓴 응답의 상태 코드. 아직 쓰지 않았으면 0
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return 헤더와 본문을 합해 지금까지 쓴 바이트 수. chunked 본문은 chunk 의 길이 줄까지 센다.
+     */
+    public long getBytesWritten() {
+        return dos.size() + fileBytes;
+    }
+
+    /**
+     * 다음에 쓰는 응답 헤더에 함께 보낼 헤더를 추가한다.
+     */
+    public void addHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    public void response200Header(int lengthOfBodyContent, String contentType) {
+        try {
+            writeStatusLine("HTTP/1.1 200 OK \r\n");
+            dos.writeBytes("Content-Type: " + contentType + ";charset=utf-8\r\n");
+            dos.writeBytes("Content-Length: " + lengthOfBodyContent + "\r\n");
+            writeHeaders();
+            writeConnectionHeader();
+            dos.writeBytes("\r\n");
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 길이를 미리 알 수 없는 본문을 흘려보내는 응답을 시작한다. chunked 를 쓸 수 없는(HTTP/1.0) 클라이언트에게는
+     * 본문을 그대로 보내고 연결을 닫아 끝을 알린다. 돌려받은 stream 을 close 해야 응답이 끝난다.
+     *
+     * @param chunked
+     *            클라이언트가 Transfer-Encoding: chunked 를 이해하는지
+     */
+    public OutputStream response200Stream(String contentType, boolean chunked) throws IOException {
+        if (!chunked) {
+            keepAlive = false;
+        }
+        writeStatusLine("HTTP/1.1 200 OK \r\n");
+        dos.writeBytes("Content-Type: " + contentType + ";charset=utf-8\r\n");
+        if (chunked) {
+            dos.writeBytes("Transfer-Encoding: chunked\r\n");
+        }
+        writeHeaders();
+        writeConnectionHeader();
+        dos.writeBytes("\r\n");
+        return chunked ? new ChunkedOutputStream(dos, ChunkedOutputStream.DEFAULT_BUFFER_SIZE)
+                : new CloseDelimitedOutputStream(dos, ChunkedOutputStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    public void response302Header(String location) {
+        try {
+            writeStatusLine("HTTP/1.1 302 Found \r\n");
+            dos.writeBytes("Location: " + location + "\r\n");
+            dos.writeBytes("Content-Length: 0\r\n");
+            writeHeaders();
+            writeConnectionHeader();
+            dos.writeBytes("\r\n");
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    public void response302Header(String location, String cookie) {
+        try {
+            writeStatusLine("HTTP/1.1 302 Found \r\n");
+            dos.writeBytes("Location: " + location + "\r\n");
+            dos.writeBytes("Set-Cookie: " + cookie + "\r\n");
+            dos.writeBytes("Content-Length: 0\r\n");
+            writeHeaders();
+            writeConnectionHeader();
+            dos.writeBytes("\r\n");
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    public void response404() {
+        try {
+            writeStatusLine("HTTP/1.1 404 Not Found \r\n");
+            dos.writeBytes("Content-Length: 0\r\n");
+            writeHeaders();
+            writeConnectionHeader();
+            dos.writeBytes("\r\n");
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 이 클라이언트가 요청을 너무 자주 보냈으니 잠시 뒤 다시 보내라고 답한다.
+     */
+    public void response429() {
+        try {
+            writeStatusLine("HTTP/1.1 429 Too Many Requests \r\n");
+            dos.writeBytes("Retry-After: 1\r\n");
+            dos.writeBytes("Content-Length: 0\r\n");
+            writeHeaders();
+            writeConnectionHeader();
+            dos.writeBytes("\r\n");
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 지금은 처리할 여유가 없으니 잠시 뒤 다시 보내라고 답한다.
+     */
+    public void response503() {
+        try {
+            writeStatusLine("HTTP/1.1 503 Service Unavailable \r\n");
+            dos.writeBytes("Retry-After: 1\r\n");
+            dos.writeBytes("Content-Length: 0\r\n");
+            writeHeaders();
+            writeConnectionHeader();
+            dos.writeBytes("\r\n");
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * @param header는
+     *            상태줄부터 Content-Length 까지 미리 만들어 둔 헤더. Connection 헤더와 빈 줄은 여기서 붙인다.
+     */
+    public void responsePrepared(byte[] header, byte[] body) {
+        try {
+            responseHeader(header);
+            dos.write(body);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 헤더를 쓴 뒤 파일 내용을 FileSender 로 보낸다. 파일을 힙에 읽어 들이지 않는다.
+     */
+    public void responseFile(byte[] header, Path file, long length) throws IOException {
+        responseHeader(header);
+        responseFileBody(file, 0, length);
+    }
+
+    /**
+     * 미리 만들어 둔 헤더만 쓴다. 본문은 responseBody, responseFileBody 로 이어서 쓴다.
+     *
+     * @param header는
+     *            상태줄부터 Content-Length 까지 미리 만들어 둔 헤더. Connection 헤더와 빈 줄은 여기서 붙인다.
+     */
+    public void responseHeader(byte[] header) throws IOException {
+        commit();
+        status = statusCode(header[9], header[10], header[11]);
+        dos.write(header);
+        writeConnectionHeader();
+        dos.writeBytes("\r\n");
+    }
+
+    /**
+     * 파일의 position 부터 count 바이트를 본문으로 보낸다. 앞서 쓴 바이트를 먼저 내보낸다.
+     */
+    public void responseFileBody(Path file, long position, long count) throws IOException {
+        dos.flush();
+        fileSender.send(file, position, count);
+        fileBytes += count;
+    }
+
+    public void responseBody(byte[] body) {
+        responseBody(body, 0, body.length);
+    }
+
+    public void responseBody(byte[] body, int offset, int length) {
+        try {
+            dos.write(body, offset, length);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    public void flush() throws IOException {
+        dos.flush();
+    }
+
+    private void writeStatusLine(String statusLine) throws IOException {
+        commit();
+        status = statusCode(statusLine.charAt(9), statusLine.charAt(10), statusLine.charAt(11));
+        dos.writeBytes(statusLine);
+    }
+
+    private void commit() {
+        if (!committed) {
+            committed = true;
+            committedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * "HTTP/1.1 " 다음의 세 자리를 상태 코드로 읽는다.
+     */
+    private static int statusCode(int hundreds, int tens, int ones) {
+        return (hundreds - '0') * 100 + (tens - '0') * 10 + ones - '0';
+    }
+
+    private void writeHeaders() throws IOException {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            dos.writeBytes(header.getKey() + ": " + header.getValue() + "\r\n");
+        }
+    }
+
+    private void writeConnectionHeader() throws IOException {
+        dos.writeBytes(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n");
+    }
+}
@@ -0,0 +1,40 @@
+package http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 파일 확장자로 Content-Type 을 정한다. 텍스트 형식에만 charset 을 붙인다.
+ */
+public class MimeTypes {
+    private static final String DEFAULT_TYPE = "application/octet-stream";
+    private static final Map<String, String> types = new HashMap<>();
+
+    static {
+        types.put("html", "text/html;charset=utf-8");
+        types.put("htm", "text/html;charset=utf-8");
+        types.put("css", "text/css;charset=utf-8");
+        types.put("js", "application/javascript;charset=utf-8");
+        types.put("json", "application/json;charset=utf-8");
+        types.put("txt", "text/plain;charset=utf-8");
+        types.put("svg", "image/svg+xml");
+        types.put("png", "image/png");
+        types.put("jpg", "image/jpeg");
+        types.put("jpeg", "image/jpeg");
+        types.put("gif", "image/gif");
+        types.put("ico", "image/x-icon");
+        types.put("eot", "application/vnd.ms-fontobject");
+        types.put("ttf", "font/ttf");
+        types.put("woff", "font/woff");
+        types.put("woff2", "font/woff2");
+    }
+
+    public static String getContentType(String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) {
+            return DEFAULT_TYPE;
+        }
+        String type = types.get(path.substring(dot + 1).toLowerCase());
+        return type == null ? DEFAULT_TYPE : type;
+    }
+}
@@ -0,0 +1,96 @@
+package http2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 프레임을 하나씩 읽는다. 읽은 프레임의 헤더와 payload 는 다음 readFrame 전까지만 유효하다.
+ *
+ * 읽는 도중 SocketTimeoutException 이 나도 읽은 위치를 기억해 두므로 다시 readFrame 을 부르면 이어서 읽는다.
+ */
+public class FrameReader {
+    private final InputStream in;
+    private final int maxFrameSize;
+    private final byte[] header = new byte[Http2.FRAME_HEADER_LENGTH];
+    private final byte[] payload;
+    // 지금 프레임에서 읽은 바이트 수. 헤더 9 바이트를 포함한다.
+    private int position;
+
+    public FrameReader(InputStream in, int maxFrameSize) {
+        this.in = in;
+        this.maxFrameSize = maxFrameSize;
+        this.payload = new byte[maxFrameSize];
+    }
+
+    /**
+     * @return 프레임 경계에서 연결이 끝났으면 false
+     * @throws Http2Exception
+     *             프레임이 maxFrameSize 보다 긴 경우
+     * @throws EOFException
+     *             프레임 도중에 연결이 끝난 경우
+     */
+    public boolean readFrame() throws IOException {
+        while (position < Http2.FRAME_HEADER_LENGTH) {
+            int read = in.read(header, position, Http2.FRAME_HEADER_LENGTH - position);
+            if (read < 0) {
+                if (position == 0) {
+                    return false;
+                }
+                throw new EOFException("connection closed in frame header");
+            }
+            position += read;
+        }
+        int length = getLength();
+        if (length > maxFrameSize) {
+            position = 0;
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "frame too large : " + length);
+        }
+        int end = Http2.FRAME_HEADER_LENGTH + length;
+        while (position < end) {
+            int read = in.read(payload, position - Http2.FRAME_HEADER_LENGTH, end - position);
+            if (read < 0) {
+                throw new EOFException("connection closed in frame payload");
+            }
+            position += read;
+        }
+        position = 0;
+        return true;
+    }
+
+    /**
+     * @return 프레임을 읽다 만 상태면 true
+     */
+    public boolean isPartial() {
+        return position > 0;
+    }
+
+    public int getLength() {
+        return (header[0] & 0xff) << 16 | (header[1] & 0xff) << 8 | header[2] & 0xff;
+    }
+
+    public int getType() {
+        return header[3] & 0xff;
+    }
+
+    public int getFlags() {
+        return header[4] & 0xff;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (getFlags() & flag) != 0;
+    }
+
+    public int getStreamId() {
+        return readInt(header, 5) & 0x7fffffff;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16 | (bytes[offset + 2] & 0xff) << 8
+                | bytes[offset + 3] & 0xff;
+    }
+}
@@ -0,0 +1,109 @@
+package http2;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 프레임을 쓴다. 여러 stream 의 작업 스레드가 함께 쓰므로 메서드마다 동기화해 프레임이 섞이지 않게 하고,
+ * 헤더 블록을 나눈 HEADERS 와 CONTINUATION 사이에도 다른 프레임이 끼지 않게 한다.
+ * 프레임은 버퍼에 모아 두었다가 flush() 할 때 한 번에 보낸다.
+ */
+public class FrameWriter {
+    private static final int BUFFER_SIZE = 4 * (Http2.FRAME_HEADER_LENGTH + Http2.DEFAULT_MAX_FRAME_SIZE);
+
+    private final OutputStream out;
+    private final byte[] header = new byte[Http2.FRAME_HEADER_LENGTH];
+
+    public FrameWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    public synchronized void writeSettings(int... settings) throws IOException {
+        byte[] payload = new byte[settings.length / 2 * 6];
+        for (int i = 0; i + 1 < settings.length; i += 2) {
+            int offset = i / 2 * 6;
+            payload[offset] = (byte) (settings[i] >>> 8);
+            payload[offset + 1] = (byte) settings[i];
+            writeInt(payload, offset + 2, settings[i + 1]);
+        }
+        writeFrame(Http2.SETTINGS, 0, 0, payload, 0, payload.length);
+    }
+
+    public synchronized void writeSettingsAck() throws IOException {
+        writeFrame(Http2.SETTINGS, Http2.FLAG_ACK, 0, header, 0, 0);
+    }
+
+    public synchronized void writePing(boolean ack, byte[] data, int offset) throws IOException {
+        writeFrame(Http2.PING, ack ? Http2.FLAG_ACK : 0, 0, data, offset, 8);
+    }
+
+    public synchronized void writeWindowUpdate(int streamId, int increment) throws IOException {
+        byte[] payload = new byte[4];
+        writeInt(payload, 0, increment);
+        writeFrame(Http2.WINDOW_UPDATE, 0, streamId, payload, 0, 4);
+    }
+
+    public synchronized void writeRstStream(int streamId, int errorCode) throws IOException {
+        byte[] payload = new byte[4];
+        writeInt(payload, 0, errorCode);
+        writeFrame(Http2.RST_STREAM, 0, streamId, payload, 0, 4);
+    }
+
+    public synchronized void writeGoAway(int lastStreamId, int errorCode) throws IOException {
+        byte[] payload = new byte[8];
+        writeInt(payload, 0, lastStreamId);
+        writeInt(payload, 4, errorCode);
+        writeFrame(Http2.GOAWAY, 0, 0, payload, 0, 8);
+    }
+
+    /**
+     * 헤더 블록이 한 프레임에 들어가지 않으면 CONTINUATION 으로 나눠 쓴다.
+     */
+    public synchronized void writeHeaders(int streamId, byte[] block, int length, boolean endStream)
+            throws IOException {
+        int type = Http2.HEADERS;
+        int flags = endStream ? Http2.FLAG_END_STREAM : 0;
+        int offset = 0;
+        do {
+            int fragment = Math.min(length - offset, Http2.DEFAULT_MAX_FRAME_SIZE);
+            boolean last = offset + fragment == length;
+            writeFrame(type, last ? flags | Http2.FLAG_END_HEADERS : flags, streamId, block, offset, fragment);
+            type = Http2.CONTINUATION;
+            flags = 0;
+            offset += fragment;
+        } while (offset < length);
+    }
+
+    /**
+     * @param length
+     *            DEFAULT_MAX_FRAME_SIZE 이하여야 한다.
+     */
+    public synchronized void writeData(int streamId, byte[] data, int offset, int length, boolean endStream)
+            throws IOException {
+        writeFrame(Http2.DATA, endStream ? Http2.FLAG_END_STREAM : 0, streamId, data, offset, length);
+    }
+
+    private void writeFrame(int type, int flags, int streamId, byte[] payload, int offset, int length)
+            throws IOException {
+        header[0] = (byte) (length >>> 16);
+        header[1] = (byte) (length >>> 8);
+        header[2] = (byte) length;
+        header[3] = (byte) type;
+        header[4] = (byte) flags;
+        writeInt(header, 5, streamId);
+        out.write(header);
+        out.write(payload, offset, length);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,68 @@
+package http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HPACK 의 정적 테이블. (RFC 7541 부록 A) 1 번부터 61 번까지이고 동적 테이블은 62 번부터 이어진다.
+ */
+final class Hpack {
+    static final String[] STATIC_NAMES = { null,
+            ":authority", ":method", ":method", ":path", ":path", ":scheme", ":scheme", ":status", ":status",
+            ":status", ":status", ":status", ":status", ":status", "accept-charset", "accept-encoding",
+            "accept-language", "accept-ranges", "accept", "access-control-allow-origin", "age", "allow",
+            "authorization", "cache-control", "content-disposition", "content-encoding", "content-language",
+            "content-length", "content-location", "content-range", "content-type", "cookie", "date", "etag",
+            "expect", "expires", "from", "host", "if-match", "if-modified-since", "if-none-match", "if-range",
+            "if-unmodified-since", "last-modified", "link", "location", "max-forwards", "proxy-authenticate",
+            "proxy-authorization", "range", "referer", "refresh", "retry-after", "server", "set-cookie",
+            "strict-transport-security", "transfer-encoding", "user-agent", "vary", "via", "www-authenticate" };
+    static final String[] STATIC_VALUES = new String[STATIC_NAMES.length];
+    static final int STATIC_LENGTH = STATIC_NAMES.length - 1;
+
+    // 인코딩할 때 쓰는 색인. 이름만 같은 첫 항목과, 이름과 값이 모두 같은 항목을 찾는다.
+    private static final Map<String, Integer> NAME_INDEX = new HashMap<>();
+    private static final Map<String, Integer> FIELD_INDEX = new HashMap<>();
+
+    static {
+        String[][] values = { { "2", "GET" }, { "3", "POST" }, { "4", "/" }, { "5", "/index.html" },
+                { "6", "http" }, { "7", "https" }, { "8", "200" }, { "9", "204" }, { "10", "206" },
+                { "11", "304" }, { "12", "400" }, { "13", "404" }, { "14", "500" },
+                { "16", "gzip, deflate" } };
+        for (String[] value : values) {
+            STATIC_VALUES[Integer.parseInt(value[0])] = value[1];
+        }
+        for (int i = STATIC_LENGTH; i >= 1; i--) {
+            NAME_INDEX.put(STATIC_NAMES[i], i);
+            if (STATIC_VALUES[i] != null) {
+                FIELD_INDEX.put(STATIC_NAMES[i] + '\0' + STATIC_VALUES[i], i);
+            }
+        }
+    }
+
+    private Hpack() {
+    }
+
+    /**
+     * @return 이름과 값이 모두 같은 항목의 번호. 없으면 0
+     */
+    static int indexOf(String name, String value) {
+        Integer index = FIELD_INDEX.get(name + '\0' + value);
+        return index == null ? 0 : index;
+    }
+
+    /**
+     * @return 이름이 같은 항목의 번호. 없으면 0
+     */
+    static int indexOfName(String name) {
+        Integer index = NAME_INDEX.get(name);
+        return index == null ? 0 : index;
+    }
+
+    /**
+     * 테이블 크기를 셀 때 쓰는 항목 크기. (RFC 7541 4.1)
+     */
+    static int entrySize(String name, String value) {
+        return 32 + name.length() + value.length();
+    }
+}
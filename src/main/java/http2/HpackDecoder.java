@@ -0,0 +1,207 @@
+package http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 헤더 블록을 이름, 값 쌍으로 푼다. (RFC 7541) 연결마다 하나를 두고 모든 헤더 블록을 받은 순서대로 넣어야
+ * 동적 테이블이 상대와 같게 유지된다.
+ *
+ * 값은 바이트 그대로 ISO-8859-1 문자열로 만든다. 동적 테이블의 항목을 여러 번 가리켜 작은 블록을 큰 헤더 목록으로 부풀리지
+ * 못하도록, 풀어 낸 목록이 maxHeaderListSize 를 넘으면 더 담지 않는다. 테이블을 맞추기 위해 블록 끝까지 해석은 계속한다.
+ */
+public class HpackDecoder {
+    private final int maxHeaderListSize;
+    private int maxTableSize;
+    private int tableLimit;
+
+    // 동적 테이블. 가장 최근 항목이 head 이고 번호 62 다.
+    private String[] names = new String[16];
+    private String[] values = new String[16];
+    private int head;
+    private int count;
+    private int tableSize;
+
+    private byte[] scratch = new byte[256];
+    private int position;
+
+    /**
+     * @param maxTableSize
+     *            SETTINGS_HEADER_TABLE_SIZE 로 알린 동적 테이블 크기
+     */
+    public HpackDecoder(int maxTableSize, int maxHeaderListSize) {
+        this.maxTableSize = maxTableSize;
+        this.tableLimit = maxTableSize;
+        this.maxHeaderListSize = maxHeaderListSize;
+    }
+
+    /**
+     * 헤더 블록 하나를 풀어 fields 에 이름, 값 순서로 더한다.
+     *
+     * @return 풀어 낸 목록이 maxHeaderListSize 안이면 true. 넘었다면 fields 는 그 앞까지만 담고 있다.
+     * @throws Http2Exception
+     *             블록이 잘못된 경우. 테이블이 어긋났으므로 연결을 끝내야 한다.
+     */
+    public boolean decode(byte[] block, int offset, int length, List<String> fields) throws Http2Exception {
+        int end = offset + length;
+        position = offset;
+        int listSize = 0;
+        boolean withinLimit = true;
+        boolean headerSeen = false;
+        while (position < end) {
+            int b = block[position] & 0xff;
+            String name;
+            String value;
+            if ((b & 0x80) != 0) {
+                int index = decodeInteger(block, end, 7);
+                name = name(index);
+                value = value(index);
+            } else if ((b & 0xe0) == 0x20) {
+                // 동적 테이블 크기 변경은 블록의 맨 앞에만 올 수 있다.
+                if (headerSeen) {
+                    throw new Http2Exception(Http2.COMPRESSION_ERROR, "table size update after header");
+                }
+                int size = decodeInteger(block, end, 5);
+                if (size > maxTableSize) {
+                    throw new Http2Exception(Http2.COMPRESSION_ERROR, "table size too large : " + size);
+                }
+                tableLimit = size;
+                evict(size);
+                continue;
+            } else {
+                boolean indexing = (b & 0xc0) == 0x40;
+                int index = decodeInteger(block, end, indexing ? 6 : 4);
+                name = index == 0 ? decodeString(block, end) : name(index);
+                value = decodeString(block, end);
+                if (indexing) {
+                    add(name, value);
+                }
+            }
+            headerSeen = true;
+            listSize += Hpack.entrySize(name, value);
+            if (listSize > maxHeaderListSize) {
+                withinLimit = false;
+            }
+            if (withinLimit) {
+                fields.add(name);
+                fields.add(value);
+            }
+        }
+        return withinLimit;
+    }
+
+    private String name(int index) throws Http2Exception {
+        if (index >= 1 && index <= Hpack.STATIC_LENGTH) {
+            return Hpack.STATIC_NAMES[index];
+        }
+        return names[dynamicSlot(index)];
+    }
+
+    private String value(int index) throws Http2Exception {
+        if (index >= 1 && index <= Hpack.STATIC_LENGTH) {
+            String value = Hpack.STATIC_VALUES[index];
+            return value == null ? "" : value;
+        }
+        return values[dynamicSlot(index)];
+    }
+
+    private int dynamicSlot(int index) throws Http2Exception {
+        int dynamicIndex = index - Hpack.STATIC_LENGTH - 1;
+        if (index < 1 || dynamicIndex >= count) {
+            throw new Http2Exception(Http2.COMPRESSION_ERROR, "invalid header index : " + index);
+        }
+        return (head + dynamicIndex) & (names.length - 1);
+    }
+
+    private void add(String name, String value) {
+        int size = Hpack.entrySize(name, value);
+        if (size > tableLimit) {
+            // 테이블보다 큰 항목은 테이블을 비우기만 한다. (RFC 7541 4.4)
+            evict(0);
+            return;
+        }
+        evict(tableLimit - size);
+        if (count == names.length) {
+            grow();
+        }
+        head = (head - 1) & (names.length - 1);
+        names[head] = name;
+        values[head] = value;
+        count++;
+        tableSize += size;
+    }
+
+    /**
+     * 테이블이 limit 이하가 될 때까지 가장 오래된 항목을 버린다.
+     */
+    private void evict(int limit) {
+        while (tableSize > limit) {
+            int tail = (head + count - 1) & (names.length - 1);
+            tableSize -= Hpack.entrySize(names[tail], values[tail]);
+            names[tail] = null;
+            values[tail] = null;
+            count--;
+        }
+    }
+
+    private void grow() {
+        String[] newNames = new String[names.length * 2];
+        String[] newValues = new String[values.length * 2];
+        for (int i = 0; i < count; i++) {
+            newNames[i] = names[(head + i) & (names.length - 1)];
+            newValues[i] = values[(head + i) & (values.length - 1)];
+        }
+        names = newNames;
+        values = newValues;
+        head = 0;
+    }
+
+    /**
+     * prefixBits 비트 접두어로 시작하는 정수를 읽는다. (RFC 7541 5.1)
+     */
+    private int decodeInteger(byte[] block, int end, int prefixBits) throws Http2Exception {
+        int max = (1 << prefixBits) - 1;
+        int value = block[position++] & max;
+        if (value < max) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (position == end || shift > 28) {
+                throw new Http2Exception(Http2.COMPRESSION_ERROR, "invalid integer");
+            }
+            int b = block[position++] & 0xff;
+            long next = value + ((long) (b & 0x7f) << shift);
+            if (next > Integer.MAX_VALUE) {
+                throw new Http2Exception(Http2.COMPRESSION_ERROR, "integer overflow");
+            }
+            value = (int) next;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private String decodeString(byte[] block, int end) throws Http2Exception {
+        if (position == end) {
+            throw new Http2Exception(Http2.COMPRESSION_ERROR, "missing string");
+        }
+        boolean huffman = (block[position] & 0x80) != 0;
+        int length = decodeInteger(block, end, 7);
+        if (length > end - position) {
+            throw new Http2Exception(Http2.COMPRESSION_ERROR, "string longer than block");
+        }
+        int start = position;
+        position += length;
+        if (!huffman) {
+            return new String(block, start, length, StandardCharsets.ISO_8859_1);
+        }
+        int maxLength = Huffman.maxDecodedLength(length);
+        if (scratch.length < maxLength) {
+            scratch = new byte[Math.max(maxLength, scratch.length * 2)];
+        }
+        int decoded = Huffman.decode(block, start, length, scratch);
+        return new String(scratch, 0, decoded, StandardCharsets.ISO_8859_1);
+    }
+}
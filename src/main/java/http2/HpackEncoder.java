@@ -0,0 +1,83 @@
+package http2;
+
+import java.util.Arrays;
+
+/**
+ * 헤더 목록을 헤더 블록으로 만든다. (RFC 7541)
+ *
+ * 정적 테이블만 쓰고 동적 테이블에는 넣지 않는다. 그래서 연결의 다른 블록과 순서를 맞출 필요가 없어 여러 스레드가 각자
+ * 인코더를 써도 되고, 상대의 SETTINGS_HEADER_TABLE_SIZE 를 따로 맞추지 않아도 된다. 문자열은 Huffman 없이 그대로 쓴다.
+ */
+public class HpackEncoder {
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    /**
+     * @param name
+     *            소문자로 된 이름
+     */
+    public void encode(String name, String value) {
+        int index = Hpack.indexOf(name, value);
+        if (index > 0) {
+            encodeInteger(0x80, 7, index);
+            return;
+        }
+        // literal header field without indexing (0000xxxx)
+        int nameIndex = Hpack.indexOfName(name);
+        encodeInteger(0x00, 4, nameIndex);
+        if (nameIndex == 0) {
+            encodeString(name);
+        }
+        encodeString(value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 내부 배열. 0 부터 size() 까지가 내용이다.
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    private void encodeInteger(int flags, int prefixBits, int value) {
+        ensureCapacity(6);
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            bytes[size++] = (byte) (flags | value);
+            return;
+        }
+        bytes[size++] = (byte) (flags | max);
+        value -= max;
+        while (value >= 0x80) {
+            bytes[size++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void encodeString(String value) {
+        int length = value.length();
+        encodeInteger(0x00, 7, length);
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            bytes[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        if (bytes.length - size < additional) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+        }
+    }
+}
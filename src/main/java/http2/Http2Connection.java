@@ -0,0 +1,725 @@
+package http2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import http.HttpRequest;
+
+/**
+ * 서버 쪽 HTTP/2 연결 하나. (RFC 7540)
+ *
+ * 연결을 맡은 스레드가 serve() 에서 프레임을 읽고, 본문까지 다 받은 stream 을 StreamHandler 에 넘긴다.
+ * 응답은 handler 가 다른 스레드에서 Http2Stream 으로 쓰므로 한 연결의 여러 요청이 동시에 처리된다.
+ * 받는 쪽은 연결과 stream 의 창을 maxBodySize 보다 조금 크게 열고, 받은 본문은 stream 이 끝나 다 쓴 뒤에야 연결의 창으로
+ * 돌려준다. 그래서 한 연결이 잡아 두는 본문은 창 크기를 넘지 않는다. 덜 받은 본문들이 창을 다 차지하면 가장 나중 stream 을
+ * REFUSED_STREAM 으로 끊는다.
+ * 보내는 쪽은 연결과 stream 의 창이 모두 남아 있을 때만 DATA 를 보내고, 창이 없으면 WINDOW_UPDATE 를 기다린다.
+ */
+public class Http2Connection {
+    private static final Logger log = LoggerFactory.getLogger(Http2Connection.class);
+
+    public static final int MAX_CONCURRENT_STREAMS = 100;
+    private static final int HEADER_TABLE_SIZE = 4096;
+
+    /**
+     * 요청을 다 받은 stream 을 처리한다. 프레임을 읽는 스레드에서 부르므로 오래 걸리는 일은 다른 스레드에 넘겨야 한다.
+     */
+    public interface StreamHandler {
+        void handle(Http2Stream stream);
+    }
+
+    private final FrameReader reader;
+    private final FrameWriter writer;
+    private final HpackDecoder decoder;
+    private final StreamHandler handler;
+    private final int maxHeaderListSize;
+    private final int maxBodySize;
+    private final int receiveWindowSize;
+
+    private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+    private int lastStreamId;
+    private boolean settingsReceived;
+
+    // 여러 프레임에 나뉘어 오는 헤더 블록
+    private byte[] headerBlock = new byte[Http2.DEFAULT_MAX_FRAME_SIZE];
+    private int headerBlockLength;
+    private int headerBlockStreamId;
+    private boolean headerBlockEndStream;
+
+    // 아래는 this 로 지킨다.
+    private int sendWindow = Http2.DEFAULT_WINDOW_SIZE;
+    private int receiveWindow;
+    private int initialSendWindow = Http2.DEFAULT_WINDOW_SIZE;
+    private int blockedWriters;
+    private boolean closed;
+
+    /**
+     * @param maxHeaderListSize
+     *            받을 헤더 목록의 최대 크기. 넘으면 431 로 답한다.
+     * @param maxBodySize
+     *            받을 본문의 최대 크기. 넘으면 413 으로 답한다. 받는 창도 이 크기에 맞춘다.
+     */
+    public Http2Connection(InputStream in, OutputStream out, StreamHandler handler, int maxHeaderListSize,
+            int maxBodySize) {
+        this.reader = new FrameReader(in, Http2.DEFAULT_MAX_FRAME_SIZE);
+        this.writer = new FrameWriter(out);
+        this.decoder = new HpackDecoder(HEADER_TABLE_SIZE, maxHeaderListSize);
+        this.handler = handler;
+        this.maxHeaderListSize = maxHeaderListSize;
+        this.maxBodySize = maxBodySize;
+        // 413 을 알 수 있게 maxBodySize 보다 1 바이트 더 받는다.
+        this.receiveWindowSize = (int) Math.min(Http2.MAX_WINDOW_SIZE,
+                Math.max(Http2.DEFAULT_WINDOW_SIZE, (long) maxBodySize + 1));
+        this.receiveWindow = receiveWindowSize;
+    }
+
+    /**
+     * 연결 preface 를 읽는다. Upgrade: h2c 로 넘어온 연결은 101 응답 뒤에 클라이언트가 보낸다.
+     *
+     * @return preface 가 맞으면 true
+     */
+    public static boolean readPreface(InputStream in) throws IOException {
+        for (byte expected : Http2.PREFACE) {
+            if (in.read() != (expected & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param settings
+     *            HTTP2-Settings 헤더. base64url 로 인코딩한 SETTINGS payload 다. (RFC 7540 3.2.1)
+     * @return 해석하지 못하면 false
+     */
+    public boolean applyUpgradeSettings(String settings) {
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(settings.trim());
+            if (payload.length % 6 != 0) {
+                return false;
+            }
+            applySettings(payload, payload.length);
+            return true;
+        } catch (IllegalArgumentException | Http2Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 연결이 끝날 때까지 프레임을 읽는다. preface 는 이미 읽은 상태여야 한다.
+     * 읽기 timeout 이 났을 때 처리 중인 stream 이 없으면 GOAWAY 를 보내고 끝낸다.
+     *
+     * @param upgraded
+     *            Upgrade: h2c 로 넘어온 요청. stream 1 로 처리한다. 없으면 null
+     */
+    public void serve(HttpRequest upgraded) throws IOException {
+        writer.writeSettings(Http2.SETTINGS_MAX_CONCURRENT_STREAMS, MAX_CONCURRENT_STREAMS,
+                Http2.SETTINGS_MAX_HEADER_LIST_SIZE, maxHeaderListSize,
+                Http2.SETTINGS_INITIAL_WINDOW_SIZE, receiveWindowSize);
+        if (receiveWindowSize > Http2.DEFAULT_WINDOW_SIZE) {
+            writer.writeWindowUpdate(0, receiveWindowSize - Http2.DEFAULT_WINDOW_SIZE);
+        }
+        writer.flush();
+        if (upgraded != null) {
+            Http2Stream stream = new Http2Stream(this, initialSendWindow(), upgraded);
+            lastStreamId = 1;
+            streams.put(1, stream);
+            handler.handle(stream);
+        }
+        try {
+            while (true) {
+                try {
+                    if (!reader.readFrame()) {
+                        return;
+                    }
+                    handleFrame();
+                } catch (SocketTimeoutException e) {
+                    if (streams.isEmpty() && !reader.isPartial()) {
+                        log.debug("HTTP/2 idle timeout");
+                        writer.writeGoAway(lastStreamId, Http2.NO_ERROR);
+                        writer.flush();
+                        return;
+                    }
+                    if (isBlocked()) {
+                        // 응답을 보내려고 창을 기다리는데 상대가 읽지도 창을 열어 주지도 않는다.
+                        log.debug("HTTP/2 flow control stalled");
+                        writer.writeGoAway(lastStreamId, Http2.FLOW_CONTROL_ERROR);
+                        writer.flush();
+                        return;
+                    }
+                } catch (Http2Exception e) {
+                    if (e.isConnectionError()) {
+                        throw e;
+                    }
+                    log.debug("HTTP/2 stream error : {}", e.getMessage());
+                    resetStream(e.getStreamId(), e.getErrorCode());
+                }
+                // 읽은 프레임에 답한 SETTINGS ACK, PING, WINDOW_UPDATE 같은 프레임을 보낸다.
+                writer.flush();
+            }
+        } catch (Http2Exception e) {
+            log.debug("HTTP/2 connection error : {}", e.getMessage());
+            writer.writeGoAway(lastStreamId, e.getErrorCode());
+            writer.flush();
+        } finally {
+            close();
+        }
+    }
+
+    private void handleFrame() throws IOException {
+        int type = reader.getType();
+        if (headerBlockStreamId != 0 && type != Http2.CONTINUATION) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "expected CONTINUATION");
+        }
+        if (!settingsReceived && type != Http2.SETTINGS) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "expected SETTINGS");
+        }
+        switch (type) {
+        case Http2.DATA:
+            onData();
+            break;
+        case Http2.HEADERS:
+            onHeaders();
+            break;
+        case Http2.PRIORITY:
+            onPriority();
+            break;
+        case Http2.RST_STREAM:
+            onRstStream();
+            break;
+        case Http2.SETTINGS:
+            onSettings();
+            break;
+        case Http2.PING:
+            onPing();
+            break;
+        case Http2.GOAWAY:
+            onGoAway();
+            break;
+        case Http2.WINDOW_UPDATE:
+            onWindowUpdate();
+            break;
+        case Http2.CONTINUATION:
+            onContinuation();
+            break;
+        case Http2.PUSH_PROMISE:
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "PUSH_PROMISE from client");
+        default:
+            // 모르는 종류의 프레임은 무시한다. (RFC 7540 4.1)
+        }
+    }
+
+    private void onData() throws IOException {
+        int streamId = requireStream();
+        int length = reader.getLength();
+        int padding = padding(length);
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null || stream.isEndStreamReceived()) {
+            // 받을 stream 이 없으니 창을 바로 돌려준다.
+            consumeWindow(null, length);
+            releaseWindow(length);
+            throw new Http2Exception(Http2.STREAM_CLOSED, closedOrIdle(streamId), "DATA on closed stream");
+        }
+        consumeWindow(stream, length);
+        int offset = reader.hasFlag(Http2.FLAG_PADDED) ? 1 : 0;
+        if (!stream.receiveData(reader.getPayload(), offset, length - offset - padding, maxBodySize)) {
+            respondError(stream, 413, false);
+            return;
+        }
+        if (reader.hasFlag(Http2.FLAG_END_STREAM)) {
+            requestComplete(stream);
+        } else if (stream.received >= receiveWindowSize) {
+            // padding 으로 stream 의 창을 다 썼다. 창을 더 주지 않으니 본문이 너무 큰 것으로 본다.
+            respondError(stream, 413, false);
+        } else {
+            refuseIfStalled();
+        }
+    }
+
+    /**
+     * 받은 DATA 만큼 연결과 stream 의 창을 줄인다.
+     *
+     * @param stream
+     *            받을 stream. 닫힌 stream 이면 null
+     */
+    private synchronized void consumeWindow(Http2Stream stream, int length) throws Http2Exception {
+        if (length > receiveWindow) {
+            throw new Http2Exception(Http2.FLOW_CONTROL_ERROR, "connection window exceeded");
+        }
+        receiveWindow -= length;
+        if (stream == null) {
+            return;
+        }
+        stream.received += length;
+        if (stream.received > receiveWindowSize) {
+            // stream 을 끊을 때 이 DATA 까지 함께 돌려준다.
+            throw new Http2Exception(Http2.FLOW_CONTROL_ERROR, stream.getId(), "stream window exceeded");
+        }
+    }
+
+    /**
+     * 본문을 덜 받은 stream 들이 연결의 창을 다 차지하면 어느 쪽도 끝나지 못한다.
+     * 처리 중인 stream 이 없으면 가장 나중 stream 을 끊어 창을 돌려받는다.
+     */
+    private void refuseIfStalled() throws IOException {
+        Http2Stream newest = null;
+        synchronized (this) {
+            if (receiveWindow > 0) {
+                return;
+            }
+            for (Http2Stream stream : streams.values()) {
+                if (stream.received == 0) {
+                    continue;
+                }
+                if (stream.isEndStreamReceived()) {
+                    // 처리 중인 stream 이 끝나면 창이 돌아온다.
+                    return;
+                }
+                if (newest == null || stream.getId() > newest.getId()) {
+                    newest = stream;
+                }
+            }
+        }
+        if (newest != null) {
+            log.debug("HTTP/2 receive window exhausted, refusing stream {}", newest.getId());
+            resetStream(newest.getId(), Http2.REFUSED_STREAM);
+        }
+    }
+
+    /**
+     * 닫힌 stream 이 받아 둔 본문만큼 연결의 창을 돌려준다.
+     */
+    private void releaseWindow(Http2Stream stream) throws IOException {
+        int released;
+        synchronized (this) {
+            released = stream.received;
+            stream.received = 0;
+        }
+        releaseWindow(released);
+    }
+
+    private void releaseWindow(int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        synchronized (this) {
+            receiveWindow += length;
+        }
+        writer.writeWindowUpdate(0, length);
+    }
+
+    private void onHeaders() throws IOException {
+        int streamId = requireStream();
+        if ((streamId & 1) == 0) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "even stream id : " + streamId);
+        }
+        int length = reader.getLength();
+        int padding = padding(length);
+        int offset = reader.hasFlag(Http2.FLAG_PADDED) ? 1 : 0;
+        if (reader.hasFlag(Http2.FLAG_PRIORITY)) {
+            offset += 5;
+        }
+        if (offset + padding > length) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "padding too long");
+        }
+        headerBlockLength = 0;
+        headerBlockEndStream = reader.hasFlag(Http2.FLAG_END_STREAM);
+        appendHeaderBlock(offset, length - offset - padding);
+        if (reader.hasFlag(Http2.FLAG_END_HEADERS)) {
+            headersComplete(streamId);
+        } else {
+            headerBlockStreamId = streamId;
+        }
+    }
+
+    private void onContinuation() throws IOException {
+        int streamId = reader.getStreamId();
+        if (headerBlockStreamId == 0 || streamId != headerBlockStreamId) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "unexpected CONTINUATION");
+        }
+        appendHeaderBlock(0, reader.getLength());
+        if (reader.hasFlag(Http2.FLAG_END_HEADERS)) {
+            headerBlockStreamId = 0;
+            headersComplete(streamId);
+        }
+    }
+
+    private void appendHeaderBlock(int offset, int length) throws Http2Exception {
+        // 동적 테이블을 맞추려면 블록을 다 받아 풀어야 하므로, 너무 큰 블록은 연결을 끝내는 수밖에 없다.
+        if (headerBlockLength + length > maxHeaderListSize + Http2.DEFAULT_MAX_FRAME_SIZE) {
+            throw new Http2Exception(Http2.ENHANCE_YOUR_CALM, "header block too large");
+        }
+        if (headerBlock.length - headerBlockLength < length) {
+            headerBlock = Arrays.copyOf(headerBlock, Math.max(headerBlock.length * 2, headerBlockLength + length));
+        }
+        System.arraycopy(reader.getPayload(), offset, headerBlock, headerBlockLength, length);
+        headerBlockLength += length;
+    }
+
+    private void headersComplete(int streamId) throws IOException {
+        List<String> fields = new ArrayList<>();
+        boolean withinLimit = decoder.decode(headerBlock, 0, headerBlockLength, fields);
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null && stream.isEndStreamReceived()) {
+            throw new Http2Exception(Http2.STREAM_CLOSED, streamId, "HEADERS after END_STREAM");
+        }
+        if (stream != null) {
+            // 본문 뒤에 오는 trailer. 내용은 쓰지 않는다.
+            if (!headerBlockEndStream) {
+                throw new Http2Exception(Http2.PROTOCOL_ERROR, streamId, "trailer without END_STREAM");
+            }
+            requestComplete(stream);
+            return;
+        }
+        if (streamId <= lastStreamId) {
+            throw new Http2Exception(Http2.STREAM_CLOSED, "HEADERS on closed stream : " + streamId);
+        }
+        lastStreamId = streamId;
+        if (streams.size() >= MAX_CONCURRENT_STREAMS) {
+            throw new Http2Exception(Http2.REFUSED_STREAM, streamId, "too many streams");
+        }
+        stream = new Http2Stream(this, streamId, initialSendWindow());
+        streams.put(streamId, stream);
+        if (!withinLimit) {
+            respondError(stream, 431, headerBlockEndStream);
+            return;
+        }
+        stream.receiveHeaders(fields);
+        if (headerBlockEndStream) {
+            requestComplete(stream);
+        }
+    }
+
+    private void requestComplete(Http2Stream stream) throws IOException {
+        stream.endStream();
+        handler.handle(stream);
+    }
+
+    /**
+     * 요청을 처리하지 않고 본문 없는 오류 응답으로 stream 을 끝낸다. 요청이 덜 왔으면 RST_STREAM(NO_ERROR)로 그만 보내게 한다.
+     */
+    private void respondError(Http2Stream stream, int status, boolean endStreamReceived) throws IOException {
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.encode(":status", Integer.toString(status));
+        encoder.encode("content-length", "0");
+        writeHeaders(stream, encoder.array(), encoder.size(), true);
+        if (!endStreamReceived) {
+            writer.writeRstStream(stream.getId(), Http2.NO_ERROR);
+        }
+    }
+
+    private void onPriority() throws Http2Exception {
+        int streamId = requireStream();
+        if (reader.getLength() != 5) {
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, streamId, "invalid PRIORITY length");
+        }
+    }
+
+    private void onRstStream() throws IOException {
+        int streamId = requireStream();
+        if (reader.getLength() != 4) {
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "invalid RST_STREAM length");
+        }
+        if (streamId > lastStreamId) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "RST_STREAM on idle stream");
+        }
+        Http2Stream stream = streams.remove(streamId);
+        if (stream != null) {
+            log.debug("Stream {} reset by peer : {}", streamId, FrameReader.readInt(reader.getPayload(), 0));
+            stream.markReset();
+            wakeWriters();
+            releaseWindow(stream);
+        }
+    }
+
+    private void onSettings() throws IOException {
+        if (reader.getStreamId() != 0) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "SETTINGS on stream");
+        }
+        int length = reader.getLength();
+        if (reader.hasFlag(Http2.FLAG_ACK)) {
+            if (length != 0) {
+                throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "SETTINGS ACK with payload");
+            }
+            return;
+        }
+        if (length % 6 != 0) {
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "invalid SETTINGS length");
+        }
+        applySettings(reader.getPayload(), length);
+        settingsReceived = true;
+        writer.writeSettingsAck();
+    }
+
+    private void applySettings(byte[] payload, int length) throws Http2Exception {
+        for (int i = 0; i < length; i += 6) {
+            int id = (payload[i] & 0xff) << 8 | payload[i + 1] & 0xff;
+            int value = FrameReader.readInt(payload, i + 2);
+            switch (id) {
+            case Http2.SETTINGS_ENABLE_PUSH:
+                if (value != 0 && value != 1) {
+                    throw new Http2Exception(Http2.PROTOCOL_ERROR, "invalid ENABLE_PUSH : " + value);
+                }
+                break;
+            case Http2.SETTINGS_INITIAL_WINDOW_SIZE:
+                if (value < 0) {
+                    throw new Http2Exception(Http2.FLOW_CONTROL_ERROR, "invalid INITIAL_WINDOW_SIZE");
+                }
+                changeInitialWindow(value);
+                break;
+            case Http2.SETTINGS_MAX_FRAME_SIZE:
+                // 보내는 프레임은 항상 기본 크기 이하이므로 범위만 확인한다.
+                if (value < Http2.DEFAULT_MAX_FRAME_SIZE || value > 0xffffff) {
+                    throw new Http2Exception(Http2.PROTOCOL_ERROR, "invalid MAX_FRAME_SIZE : " + value);
+                }
+                break;
+            default:
+                // HEADER_TABLE_SIZE 는 동적 테이블을 쓰지 않는 인코더와 상관없고, 나머지는 보내는 쪽에 제약이 없다.
+            }
+        }
+    }
+
+    private synchronized void changeInitialWindow(int value) throws Http2Exception {
+        int delta = value - initialSendWindow;
+        initialSendWindow = value;
+        for (Http2Stream stream : streams.values()) {
+            if ((long) stream.sendWindow + delta > Http2.MAX_WINDOW_SIZE) {
+                throw new Http2Exception(Http2.FLOW_CONTROL_ERROR, "window overflow");
+            }
+            stream.sendWindow += delta;
+        }
+        notifyAll();
+    }
+
+    private synchronized int initialSendWindow() {
+        return initialSendWindow;
+    }
+
+    private void onPing() throws IOException {
+        if (reader.getStreamId() != 0) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "PING on stream");
+        }
+        if (reader.getLength() != 8) {
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "invalid PING length");
+        }
+        if (!reader.hasFlag(Http2.FLAG_ACK)) {
+            writer.writePing(true, reader.getPayload(), 0);
+        }
+    }
+
+    private void onGoAway() throws Http2Exception {
+        if (reader.getStreamId() != 0) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "GOAWAY on stream");
+        }
+        if (reader.getLength() < 8) {
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "invalid GOAWAY length");
+        }
+        // 처리 중인 응답은 마저 보낸다. 상대가 다 받고 연결을 닫으면 readFrame 이 끝난다.
+        log.debug("GOAWAY received : {}", FrameReader.readInt(reader.getPayload(), 4));
+    }
+
+    private void onWindowUpdate() throws Http2Exception {
+        int streamId = reader.getStreamId();
+        if (reader.getLength() != 4) {
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "invalid WINDOW_UPDATE length");
+        }
+        int increment = FrameReader.readInt(reader.getPayload(), 0) & 0x7fffffff;
+        if (increment == 0) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, streamId, "zero window increment");
+        }
+        if (streamId > lastStreamId) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "WINDOW_UPDATE on idle stream");
+        }
+        synchronized (this) {
+            if (streamId == 0) {
+                if ((long) sendWindow + increment > Http2.MAX_WINDOW_SIZE) {
+                    throw new Http2Exception(Http2.FLOW_CONTROL_ERROR, "connection window overflow");
+                }
+                sendWindow += increment;
+            } else {
+                Http2Stream stream = streams.get(streamId);
+                if (stream == null) {
+                    return;
+                }
+                if ((long) stream.sendWindow + increment > Http2.MAX_WINDOW_SIZE) {
+                    throw new Http2Exception(Http2.FLOW_CONTROL_ERROR, streamId, "stream window overflow");
+                }
+                stream.sendWindow += increment;
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * stream 을 끝내는 프레임은 바로 보내고, 아니면 버퍼에 둔다.
+     */
+    void writeHeaders(Http2Stream stream, byte[] block, int length, boolean endStream) throws IOException {
+        checkWritable(stream);
+        writer.writeHeaders(stream.getId(), block, length, endStream);
+        if (endStream) {
+            streamClosed(stream);
+            writer.flush();
+        }
+    }
+
+    void writeData(Http2Stream stream, byte[] data, int offset, int length, boolean endStream) throws IOException {
+        do {
+            int size;
+            while ((size = acquireWindow(stream, length)) == 0 && length > 0) {
+                // 창을 기다리기 전에 쌓아 둔 프레임을 보내야 상대가 받고 창을 열어 준다.
+                writer.flush();
+                awaitWindow(stream);
+            }
+            writer.writeData(stream.getId(), data, offset, size, endStream && size == length);
+            offset += size;
+            length -= size;
+        } while (length > 0);
+        if (endStream) {
+            streamClosed(stream);
+            writer.flush();
+        }
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * 연결과 stream 의 창에서 length 바이트 안쪽을 떼어 온다.
+     *
+     * @return 뗀 크기. 창이 비어 있으면 0
+     */
+    private synchronized int acquireWindow(Http2Stream stream, int length) throws IOException {
+        checkWritable(stream);
+        int size = Math.min(Math.min(length, Http2.DEFAULT_MAX_FRAME_SIZE), Math.min(sendWindow, stream.sendWindow));
+        if (size <= 0) {
+            return 0;
+        }
+        sendWindow -= size;
+        stream.sendWindow -= size;
+        return size;
+    }
+
+    /**
+     * 연결과 stream 의 창이 모두 열릴 때까지 WINDOW_UPDATE 를 기다린다.
+     */
+    private synchronized void awaitWindow(Http2Stream stream) throws IOException {
+        blockedWriters++;
+        try {
+            while (sendWindow <= 0 || stream.sendWindow <= 0) {
+                checkWritable(stream);
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for window");
+        } finally {
+            blockedWriters--;
+        }
+    }
+
+    private synchronized void checkWritable(Http2Stream stream) throws IOException {
+        if (closed) {
+            throw new IOException("HTTP/2 connection closed");
+        }
+        if (stream.isReset()) {
+            throw new IOException("HTTP/2 stream reset : " + stream.getId());
+        }
+    }
+
+    private synchronized boolean isBlocked() {
+        return blockedWriters > 0;
+    }
+
+    void resetStream(Http2Stream stream, int errorCode) {
+        if (streams.remove(stream.getId()) == null) {
+            return;
+        }
+        stream.markReset();
+        wakeWriters();
+        try {
+            writer.writeRstStream(stream.getId(), errorCode);
+            releaseWindow(stream);
+            writer.flush();
+        } catch (IOException e) {
+            log.debug("Failed to reset stream {} : {}", stream.getId(), e.getMessage());
+        }
+    }
+
+    private void resetStream(int streamId, int errorCode) throws IOException {
+        Http2Stream stream = streams.remove(streamId);
+        if (stream != null) {
+            stream.markReset();
+            wakeWriters();
+        }
+        writer.writeRstStream(streamId, errorCode);
+        if (stream != null) {
+            releaseWindow(stream);
+        }
+    }
+
+    private void streamClosed(Http2Stream stream) throws IOException {
+        if (streams.remove(stream.getId()) != null) {
+            releaseWindow(stream);
+        }
+    }
+
+    private synchronized void wakeWriters() {
+        notifyAll();
+    }
+
+    private synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return 프레임 헤더의 stream id. 0 이면 PROTOCOL_ERROR
+     */
+    private int requireStream() throws Http2Exception {
+        int streamId = reader.getStreamId();
+        if (streamId == 0) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "frame type " + reader.getType() + " on stream 0");
+        }
+        return streamId;
+    }
+
+    /**
+     * 닫힌 stream 이면 그 stream 의 오류로, 아직 열린 적 없는 stream 이면 연결 오류로 돌려준다.
+     */
+    private int closedOrIdle(int streamId) throws Http2Exception {
+        if (streamId > lastStreamId) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "frame on idle stream : " + streamId);
+        }
+        return streamId;
+    }
+
+    /**
+     * @return PADDED 플래그가 있으면 padding 길이
+     */
+    private int padding(int length) throws Http2Exception {
+        if (!reader.hasFlag(Http2.FLAG_PADDED)) {
+            return 0;
+        }
+        if (length < 1) {
+            throw new Http2Exception(Http2.FRAME_SIZE_ERROR, "missing pad length");
+        }
+        int padding = reader.getPayload()[0] & 0xff;
+        if (padding >= length) {
+            throw new Http2Exception(Http2.PROTOCOL_ERROR, "padding too long");
+        }
+        return padding;
+    }
+}
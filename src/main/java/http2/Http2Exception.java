@@ -0,0 +1,35 @@
+package http2;
+
+import java.io.IOException;
+
+/**
+ * 상대가 규약을 어겼을 때 던진다. streamId 가 0 이면 연결 전체의 오류라 GOAWAY 로, 아니면 그 stream 만 RST_STREAM 으로 끝낸다.
+ */
+public class Http2Exception extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int errorCode;
+    private final int streamId;
+
+    public Http2Exception(int errorCode, String message) {
+        this(errorCode, 0, message);
+    }
+
+    public Http2Exception(int errorCode, int streamId, String message) {
+        super(message);
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public boolean isConnectionError() {
+        return streamId == 0;
+    }
+}
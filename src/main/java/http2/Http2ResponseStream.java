@@ -0,0 +1,260 @@
+package http2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * HttpResponse 가 쓰는 HTTP/1.1 응답 바이트를 stream 의 HEADERS, DATA 프레임으로 옮긴다.
+ *
+ * Controller 들은 HTTP/1.1 응답을 쓰도록 만들어져 있어, 응답을 쓰는 쪽은 그대로 두고 여기서 상태줄과 헤더를 :status 와
+ * 헤더 블록으로 바꾼다. Connection 같은 연결에 딸린 헤더는 버리고, chunked 본문은 chunk 를 풀어 DATA 로 보낸다.
+ * 본문은 프레임 하나 크기만큼 모아 보내며, Content-Length 만큼 받았거나 마지막 chunk 를 받았거나 close() 하면 stream 을 끝낸다.
+ */
+public class Http2ResponseStream extends OutputStream {
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+    private static final int HEAD = 0;
+    private static final int BODY = 1;
+    private static final int CHUNK_SIZE = 2;
+    private static final int CHUNK_DATA = 3;
+    private static final int CHUNK_DATA_END = 4;
+    private static final int TRAILER = 5;
+    private static final int DONE = 6;
+
+    private final Http2Stream stream;
+
+    private int state = HEAD;
+    private byte[] head = new byte[512];
+    private int headLength;
+    private HpackEncoder headerBlock;
+
+    private long contentLength = -1;
+    private long bodyReceived;
+    private long chunkRemaining;
+    private int chunkLineLength;
+
+    private final byte[] data = new byte[Http2.DEFAULT_MAX_FRAME_SIZE];
+    private int dataLength;
+
+    public Http2ResponseStream(Http2Stream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            switch (state) {
+            case HEAD:
+                off = readHead(b, off, end);
+                break;
+            case BODY:
+                int size = (int) Math.min(end - off, contentLength < 0 ? end - off : contentLength - bodyReceived);
+                body(b, off, size);
+                off += size;
+                if (contentLength >= 0 && bodyReceived == contentLength) {
+                    finish();
+                }
+                break;
+            case CHUNK_SIZE:
+                off = readChunkSize(b, off, end);
+                break;
+            case CHUNK_DATA:
+                int chunk = (int) Math.min(end - off, chunkRemaining);
+                body(b, off, chunk);
+                off += chunk;
+                chunkRemaining -= chunk;
+                if (chunkRemaining == 0) {
+                    state = CHUNK_DATA_END;
+                }
+                break;
+            case CHUNK_DATA_END:
+            case TRAILER:
+                off = skipLine(b, off, end);
+                break;
+            default:
+                // 끝난 뒤에 쓰는 바이트는 버린다.
+                return;
+            }
+        }
+    }
+
+    /**
+     * 모아 둔 헤더와 본문을 바로 보낸다. stream 은 끝내지 않는다.
+     * 본문이 아직 없으면 헤더도 두었다가 본문이나 close() 와 함께 보내, 본문 없는 응답이 HEADERS 하나로 끝나게 한다.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (state == HEAD || state == DONE || dataLength == 0) {
+            return;
+        }
+        sendHeaders(false);
+        stream.writeData(data, 0, dataLength, false);
+        dataLength = 0;
+        stream.flush();
+    }
+
+    /**
+     * 응답을 끝낸다. 헤더를 다 받지 못했다면 응답을 만들 수 없으므로 stream 을 INTERNAL_ERROR 로 끝낸다.
+     */
+    @Override
+    public void close() throws IOException {
+        if (state == HEAD) {
+            state = DONE;
+            stream.reset(Http2.INTERNAL_ERROR);
+            return;
+        }
+        finish();
+    }
+
+    private void finish() throws IOException {
+        if (state == DONE) {
+            return;
+        }
+        state = DONE;
+        if (headerBlock != null && dataLength == 0) {
+            sendHeaders(true);
+            return;
+        }
+        sendHeaders(false);
+        stream.writeData(data, 0, dataLength, true);
+        dataLength = 0;
+    }
+
+    private void sendHeaders(boolean endStream) throws IOException {
+        if (headerBlock != null) {
+            stream.writeHeaders(headerBlock.array(), headerBlock.size(), endStream);
+            headerBlock = null;
+        }
+    }
+
+    private void body(byte[] b, int off, int len) throws IOException {
+        bodyReceived += len;
+        while (len > 0) {
+            if (dataLength == data.length) {
+                sendHeaders(false);
+                stream.writeData(data, 0, dataLength, false);
+                dataLength = 0;
+            }
+            int size = Math.min(len, data.length - dataLength);
+            System.arraycopy(b, off, data, dataLength, size);
+            dataLength += size;
+            off += size;
+            len -= size;
+        }
+    }
+
+    /**
+     * 빈 줄까지 모아 헤더 블록을 만든다.
+     *
+     * @return 읽은 다음 위치
+     */
+    private int readHead(byte[] b, int off, int end) throws IOException {
+        while (off < end) {
+            if (headLength == head.length) {
+                if (head.length >= MAX_HEADER_SIZE) {
+                    throw new IOException("response header too large");
+                }
+                head = Arrays.copyOf(head, head.length * 2);
+            }
+            head[headLength++] = b[off++];
+            if (headLength >= 4 && head[headLength - 1] == '\n' && head[headLength - 2] == '\r'
+                    && head[headLength - 3] == '\n' && head[headLength - 4] == '\r') {
+                encodeHead();
+                if (contentLength == 0) {
+                    finish();
+                }
+                return off;
+            }
+        }
+        return off;
+    }
+
+    private void encodeHead() throws IOException {
+        String text = new String(head, 0, headLength - 4, StandardCharsets.ISO_8859_1);
+        String[] lines = text.split("\r\n");
+        if (lines[0].length() < 12 || !lines[0].startsWith("HTTP/1.")) {
+            throw new IOException("invalid response status line : " + lines[0]);
+        }
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.encode(":status", lines[0].substring(9, 12));
+        boolean chunked = false;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            switch (name) {
+            case "connection":
+            case "keep-alive":
+            case "proxy-connection":
+            case "upgrade":
+                continue;
+            case "transfer-encoding":
+                chunked = value.equalsIgnoreCase("chunked");
+                continue;
+            case "content-length":
+                contentLength = Long.parseLong(value);
+                break;
+            default:
+            }
+            encoder.encode(name, value);
+        }
+        headerBlock = encoder;
+        state = chunked ? CHUNK_SIZE : BODY;
+    }
+
+    private int readChunkSize(byte[] b, int off, int end) throws IOException {
+        while (off < end) {
+            byte c = b[off++];
+            if (c == '\n') {
+                state = chunkRemaining == 0 ? TRAILER : CHUNK_DATA;
+                chunkLineLength = 0;
+                return off;
+            }
+            int digit = Character.digit(c, 16);
+            // ';' 뒤의 확장이나 '\r' 이 나온 뒤로는 숫자를 더하지 않는다.
+            if (chunkLineLength >= 0 && digit >= 0) {
+                chunkRemaining = chunkRemaining * 16 + digit;
+                if (++chunkLineLength > 15) {
+                    throw new IOException("chunk size too large");
+                }
+            } else {
+                chunkLineLength = -1;
+            }
+        }
+        return off;
+    }
+
+    /**
+     * chunk 뒤의 CRLF, 마지막 chunk 뒤의 trailer 를 한 줄씩 건너뛴다. trailer 는 빈 줄로 끝난다.
+     */
+    private int skipLine(byte[] b, int off, int end) throws IOException {
+        while (off < end) {
+            byte c = b[off++];
+            if (c == '\n') {
+                if (state == CHUNK_DATA_END) {
+                    state = CHUNK_SIZE;
+                } else if (chunkLineLength == 0) {
+                    finish();
+                }
+                chunkLineLength = 0;
+                return off;
+            }
+            if (c != '\r') {
+                chunkLineLength++;
+            }
+        }
+        return off;
+    }
+}
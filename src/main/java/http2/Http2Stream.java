@@ -0,0 +1,229 @@
+package http2;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import http.HeaderNames;
+import http.HttpHeaders;
+import http.HttpRequest;
+
+/**
+ * 요청 하나를 주고받는 stream. 요청은 Http2Connection 의 읽기 스레드가 채우고, 응답은 요청을 처리하는 작업 스레드가
+ * writeHeaders, writeData 로 보낸다. 흐름 제어 창(sendWindow)과 받아 둔 DATA 의 크기(received)는 Http2Connection 의
+ * lock 으로 지킨다.
+ */
+public class Http2Stream {
+    private static final String VERSION = "HTTP/2.0";
+
+    private final Http2Connection connection;
+    private final int id;
+
+    private String method;
+    private String target;
+    private HttpHeaders headers;
+    private long contentLength = -1;
+    private byte[] body;
+    private int bodyLength;
+    private boolean endStreamReceived;
+    private HttpRequest request;
+
+    private volatile boolean reset;
+    int sendWindow;
+    int received;
+
+    Http2Stream(Http2Connection connection, int id, int sendWindow) {
+        this.connection = connection;
+        this.id = id;
+        this.sendWindow = sendWindow;
+    }
+
+    /**
+     * HTTP/1.1 에서 Upgrade: h2c 로 넘어온 요청을 stream 1 로 만든다.
+     */
+    Http2Stream(Http2Connection connection, int sendWindow, HttpRequest upgraded) {
+        this(connection, 1, sendWindow);
+        this.request = upgraded;
+        this.endStreamReceived = true;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return 요청. 본문까지 다 받은 뒤에만 있다.
+     */
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    /**
+     * @param block
+     *            HpackEncoder 로 만든 헤더 블록
+     */
+    public void writeHeaders(byte[] block, int length, boolean endStream) throws IOException {
+        connection.writeHeaders(this, block, length, endStream);
+    }
+
+    /**
+     * 흐름 제어 창이 빌 때까지 기다리며 본문을 DATA 프레임으로 나눠 보낸다.
+     */
+    public void writeData(byte[] data, int offset, int length, boolean endStream) throws IOException {
+        connection.writeData(this, data, offset, length, endStream);
+    }
+
+    /**
+     * 버퍼에 쌓인 프레임을 보낸다.
+     */
+    public void flush() throws IOException {
+        connection.flush();
+    }
+
+    /**
+     * RST_STREAM 으로 stream 을 끝낸다.
+     */
+    public void reset(int errorCode) {
+        connection.resetStream(this, errorCode);
+    }
+
+    void markReset() {
+        reset = true;
+    }
+
+    boolean isEndStreamReceived() {
+        return endStreamReceived;
+    }
+
+    /**
+     * 요청 헤더를 검사해 둔다. (RFC 7540 8.1.2)
+     *
+     * @param fields
+     *            이름, 값 순서의 목록
+     * @throws Http2Exception
+     *             가짜 헤더가 빠졌거나 순서가 틀렸거나, 대문자 이름이나 연결에 딸린 헤더가 있는 경우
+     */
+    void receiveHeaders(List<String> fields) throws Http2Exception {
+        String scheme = null;
+        String authority = null;
+        HttpHeaders headers = new HttpHeaders();
+        boolean regularSeen = false;
+        for (int i = 0; i < fields.size(); i += 2) {
+            String name = fields.get(i);
+            String value = fields.get(i + 1);
+            if (name.startsWith(":")) {
+                if (regularSeen) {
+                    throw streamError("pseudo header after regular header : " + name);
+                }
+                if (":method".equals(name) && method == null) {
+                    method = value;
+                } else if (":path".equals(name) && target == null) {
+                    target = value;
+                } else if (":scheme".equals(name) && scheme == null) {
+                    scheme = value;
+                } else if (":authority".equals(name) && authority == null) {
+                    authority = value;
+                } else {
+                    throw streamError("invalid pseudo header : " + name);
+                }
+                continue;
+            }
+            validateName(name, value);
+            regularSeen = true;
+            headers.add(name, value);
+            if ("content-length".equals(name)) {
+                contentLength = parseContentLength(value);
+            }
+        }
+        if (method == null || scheme == null || target == null || target.isEmpty()) {
+            throw streamError("missing pseudo header");
+        }
+        // HTTP/1.1 로 만든 Controller 들이 Host 를 보므로 :authority 를 Host 로 옮긴다.
+        if (authority != null && headers.get(HeaderNames.HOST) == null) {
+            headers.add(HeaderNames.HOST, authority);
+        }
+        this.headers = headers;
+    }
+
+    /**
+     * 버퍼는 content-length 가 아니라 실제로 받은 만큼 늘린다.
+     *
+     * @return 본문이 maxBodySize 를 넘으면 false
+     */
+    boolean receiveData(byte[] data, int offset, int length, int maxBodySize) {
+        if (length == 0) {
+            return true;
+        }
+        if (bodyLength + length > maxBodySize) {
+            return false;
+        }
+        if (body == null || body.length - bodyLength < length) {
+            int capacity = (int) Math.min(maxBodySize, Math.max(bodyLength + length, 2L * bodyLength));
+            body = Arrays.copyOf(body == null ? new byte[0] : body, capacity);
+        }
+        System.arraycopy(data, offset, body, bodyLength, length);
+        bodyLength += length;
+        return true;
+    }
+
+    /**
+     * END_STREAM 을 받았을 때 요청을 완성한다.
+     */
+    void endStream() throws Http2Exception {
+        endStreamReceived = true;
+        if (contentLength >= 0 && contentLength != bodyLength) {
+            throw streamError("content-length mismatch : " + contentLength + ", " + bodyLength);
+        }
+        byte[] bytes = body == null ? null : body.length == bodyLength ? body : Arrays.copyOf(body, bodyLength);
+        request = HttpRequest.of(method, target, VERSION, headers, bytes);
+    }
+
+    private void validateName(String name, String value) throws Http2Exception {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                throw streamError("uppercase header name : " + name);
+            }
+        }
+        switch (name) {
+        case "connection":
+        case "keep-alive":
+        case "proxy-connection":
+        case "transfer-encoding":
+        case "upgrade":
+            throw streamError("connection specific header : " + name);
+        case "te":
+            if (!"trailers".equals(value)) {
+                throw streamError("invalid te : " + value);
+            }
+            break;
+        default:
+        }
+    }
+
+    private long parseContentLength(String value) throws Http2Exception {
+        if (value.isEmpty() || value.length() > 18) {
+            throw streamError("invalid content-length : " + value);
+        }
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw streamError("invalid content-length : " + value);
+            }
+            length = length * 10 + c - '0';
+        }
+        if (contentLength >= 0 && contentLength != length) {
+            throw streamError("conflicting content-length");
+        }
+        return length;
+    }
+
+    private Http2Exception streamError(String message) {
+        return new Http2Exception(Http2.PROTOCOL_ERROR, id, message);
+    }
+}
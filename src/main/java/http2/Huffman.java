@@ -0,0 +1,102 @@
+package http2;
+
+/**
+ * HPACK 의 Huffman 코드를 푼다. (RFC 7541 5.2, 부록 B)
+ *
+ * 부록 B 의 코드는 길이가 짧은 것부터, 길이가 같으면 기호 순서로 붙인 canonical Huffman 코드다.
+ * 그래서 기호마다 코드 길이만 두고, 길이별 첫 코드와 그 길이의 기호 목록으로 비트를 읽으면서 바로 기호를 찾는다.
+ */
+final class Huffman {
+    private static final int EOS = 256;
+    private static final int MAX_LENGTH = 30;
+
+    // 기호 0 ~ 256(EOS) 의 코드 길이
+    private static final byte[] LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30 };
+
+    // 길이별 첫 코드, 그 길이의 기호가 SYMBOLS 에서 시작하는 위치와 개수
+    private static final int[] FIRST_CODE = new int[MAX_LENGTH + 1];
+    private static final int[] OFFSET = new int[MAX_LENGTH + 1];
+    private static final int[] COUNT = new int[MAX_LENGTH + 1];
+    private static final int[] SYMBOLS = new int[LENGTHS.length];
+
+    static {
+        for (byte length : LENGTHS) {
+            COUNT[length]++;
+        }
+        int code = 0;
+        int offset = 0;
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            FIRST_CODE[length] = code;
+            OFFSET[length] = offset;
+            code = (code + COUNT[length]) << 1;
+            offset += COUNT[length];
+        }
+        int[] next = OFFSET.clone();
+        for (int symbol = 0; symbol < LENGTHS.length; symbol++) {
+            SYMBOLS[next[LENGTHS[symbol]]++] = symbol;
+        }
+    }
+
+    private Huffman() {
+    }
+
+    /**
+     * src[offset, offset + length) 를 풀어 out 에 쓴다.
+     *
+     * @return 쓴 바이트 수
+     * @throws Http2Exception
+     *             EOS 가 나오거나, 끝의 padding 이 7 비트를 넘거나 1 로만 이루어지지 않은 경우
+     */
+    static int decode(byte[] src, int offset, int length, byte[] out) throws Http2Exception {
+        int size = 0;
+        int code = 0;
+        int codeLength = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int b = src[i] & 0xff;
+            for (int bit = 7; bit >= 0; bit--) {
+                code = code << 1 | (b >>> bit & 1);
+                codeLength++;
+                int index = code - FIRST_CODE[codeLength];
+                if (index >= 0 && index < COUNT[codeLength]) {
+                    int symbol = SYMBOLS[OFFSET[codeLength] + index];
+                    if (symbol == EOS) {
+                        throw new Http2Exception(Http2.COMPRESSION_ERROR, "EOS in huffman string");
+                    }
+                    out[size++] = (byte) symbol;
+                    code = 0;
+                    codeLength = 0;
+                } else if (codeLength == MAX_LENGTH) {
+                    throw new Http2Exception(Http2.COMPRESSION_ERROR, "invalid huffman code");
+                }
+            }
+        }
+        if (codeLength > 7 || code != (1 << codeLength) - 1) {
+            throw new Http2Exception(Http2.COMPRESSION_ERROR, "invalid huffman padding");
+        }
+        return size;
+    }
+
+    /**
+     * @return 풀었을 때의 최대 길이. 가장 짧은 코드가 5 비트다.
+     */
+    static int maxDecodedLength(int encodedLength) {
+        return encodedLength * 8 / 5;
+    }
+}
@@ -0,0 +1,51 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 경로 하나의 응답 시간을 상태 코드별 LatencyHistogram 에 모은다.
+ * 상태 코드를 index 로 하는 배열이라 찾는 데 hash 도 lock 도 없고, 처음 나온 상태 코드에서만 분포를 만든다.
+ */
+public class RequestMetrics {
+    private static final int MAX_STATUS = 600;
+
+    private final String method;
+    private final String route;
+    private final AtomicReferenceArray<LatencyHistogram> byStatus = new AtomicReferenceArray<>(MAX_STATUS);
+
+    public RequestMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+    }
+
+    public void record(int status, long nanos) {
+        int index = status > 0 && status < MAX_STATUS ? status : 0;
+        LatencyHistogram histogram = byStatus.get(index);
+        if (histogram == null) {
+            byStatus.compareAndSet(index, null, new LatencyHistogram());
+            histogram = byStatus.get(index);
+        }
+        histogram.record(nanos);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * 기록이 있는 상태 코드마다 분포를 넘긴다. 상태 코드를 알 수 없던 응답은 0 이다.
+     */
+    public void forEach(ObjIntConsumer<LatencyHistogram> action) {
+        for (int status = 0; status < MAX_STATUS; status++) {
+            LatencyHistogram histogram = byStatus.get(status);
+            if (histogram != null) {
+                action.accept(histogram, status);
+            }
+        }
+    }
+}
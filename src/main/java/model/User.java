@@ -1,5 +1,8 @@
 package model;
 
+/**
+ * password 는 평문이 아니라 PasswordHasher 가 만든 저장용 값(salt, 반복 횟수, 해시)이다.
+ */
 public class User {
     private String userId;
     private String password;
@@ -29,12 +32,15 @@ public class User {
         return email;
     }
 
-    public boolean matchPassword(String password) {
-        return this.password.equals(password);
+    /**
+     * @return password 만 바꾼 사용자
+     */
+    public User withPassword(String password) {
+        return new User(userId, password, name, email);
     }
 
     @Override
     public String toString() {
-        return "User [userId=" + userId + ", password=" + password + ", name=" + name + ", email=" + email + "]";
+        return "User [userId=" + userId + ", name=" + name + ", email=" + email + "]";
     }
 }
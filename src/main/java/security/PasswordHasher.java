@@ -0,0 +1,111 @@
+package security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * 비밀번호를 PBKDF2-HMAC-SHA256 으로 해시한다.
+ *
+ * 저장하는 값은 "pbkdf2-sha256$반복 횟수$base64(salt)$base64(hash)" 형식이라 사용자마다 salt 와 반복 횟수를 함께 가진다.
+ * 반복 횟수를 올려도 예전 값은 그대로 검증되고, needsRehash 로 다시 해시할 값을 알 수 있다.
+ * 이 형식이 아닌 값은 해시하기 전에 저장한 평문으로 보고 상수 시간으로 비교한다.
+ */
+public class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 600000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    // 저장된 값이 망가졌더라도 검증 한 번에 CPU 를 끝없이 쓰지 않게 한다.
+    private static final int MAX_ITERATIONS = 10000000;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder decoder = Base64.getDecoder();
+
+    private final int iterations;
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1 || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("반복 횟수가 잘못되었습니다 : " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return 새 salt 로 해시한 저장용 값
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(pbkdf2(password, salt, iterations, HASH_BYTES));
+    }
+
+    public boolean matches(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        int iterationsEnd = stored.indexOf('$', PREFIX.length());
+        int saltEnd = iterationsEnd < 0 ? -1 : stored.indexOf('$', iterationsEnd + 1);
+        if (saltEnd < 0) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(stored.substring(PREFIX.length(), iterationsEnd));
+            byte[] salt = decoder.decode(stored.substring(iterationsEnd + 1, saltEnd));
+            byte[] expected = decoder.decode(stored.substring(saltEnd + 1));
+            if (storedIterations < 1 || storedIterations > MAX_ITERATIONS || expected.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations, expected.length));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return 평문이거나 지금보다 적은 횟수로 해시한 값이면 true
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int iterationsEnd = stored.indexOf('$', PREFIX.length());
+        try {
+            return iterationsEnd < 0 || Integer.parseInt(stored.substring(PREFIX.length(), iterationsEnd)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package security;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 비밀번호 해시를 요청 처리 스레드가 아닌 전용 스레드에서 계산한다.
+ *
+ * 해시는 일부러 느리게 만든 CPU 작업이라, 로그인이 몰려도 스레드 수(threads)만큼만 코어를 쓰게 해서
+ * 정적 파일 같은 다른 요청이 CPU 를 얻을 수 있게 한다. 대기열(queue)까지 차면 기다리지 않고
+ * RejectedExecutionException 을 던지므로 호출한 쪽은 바로 503 으로 답하면 된다.
+ */
+public class PasswordService {
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    // 없는 사용자도 같은 시간이 걸리게 검증할 값. 응답 시간으로 가입 여부를 알 수 없게 한다.
+    private final String dummy;
+
+    public PasswordService(PasswordHasher hasher, int threads, int queue) {
+        this.hasher = hasher;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dummy = hasher.hash("dummy");
+    }
+
+    /**
+     * @return 저장할 값
+     * @throws RejectedExecutionException
+     *             해시 대기열이 가득 찬 경우
+     */
+    public String hash(String password) throws IOException {
+        return call(() -> hasher.hash(password));
+    }
+
+    /**
+     * stored 가 password 의 값인지 확인한다. 맞았는데 평문이거나 지금보다 약하게 해시한 값이면 그 자리에서 다시 해시한다.
+     *
+     * @param stored
+     *            저장된 값. 사용자가 없으면 null
+     * @return 맞지 않으면 null, 맞으면 저장해 둘 값. 다시 해시하지 않았다면 stored 그대로다.
+     * @throws RejectedExecutionException
+     *             해시 대기열이 가득 찬 경우
+     */
+    public String verify(String stored, String password) throws IOException {
+        return call(() -> {
+            if (stored == null) {
+                hasher.matches(password, dummy);
+                return null;
+            }
+            if (!hasher.matches(password, stored)) {
+                return null;
+            }
+            return hasher.needsRehash(stored) ? hasher.hash(password) : stored;
+        });
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    private String call(Callable<String> task) throws IOException {
+        Future<String> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("password hashing interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
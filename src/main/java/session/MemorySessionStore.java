@@ -0,0 +1,122 @@
+package session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 세션을 이 서버의 메모리에 두는 저장소. 마지막으로 쓴 뒤 ttl 이 지나면 만료된다.
+ *
+ * 토큰은 SecureRandom 으로 만든 selector(9 bytes)와 verifier(24 bytes)를 이어 붙인 것이다.
+ * map 은 selector 로만 찾고 verifier 는 상수 시간으로 비교하므로, map 을 찾는 데 걸린 시간으로는
+ * 맞는 토큰에 다가갈 수 없다.
+ * 만료된 세션은 timer wheel 이 치운다. 따로 스레드를 두지 않고 요청을 처리하는 스레드가 tick 이 지났을 때 진행시킨다.
+ */
+public class MemorySessionStore implements SessionStore {
+    private static final int SELECTOR_BYTES = 9;
+    private static final int VERIFIER_BYTES = 24;
+    // base64url 로 인코딩한 selector 의 길이. 9 bytes 는 패딩 없이 12 글자가 된다.
+    private static final int SELECTOR_LENGTH = SELECTOR_BYTES / 3 * 4;
+    private static final int WHEEL_SLOTS = 512;
+    private static final long TICK_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final int ttlSeconds;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final TimerWheel<Session> wheel;
+
+    public MemorySessionStore(int ttlSeconds) {
+        this(ttlSeconds, System::currentTimeMillis);
+    }
+
+    MemorySessionStore(int ttlSeconds, LongSupplier clock) {
+        this.ttlSeconds = ttlSeconds;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.clock = clock;
+        this.wheel = new TimerWheel<>(WHEEL_SLOTS, TICK_MILLIS, clock.getAsLong(), s -> s.expiresAt);
+    }
+
+    @Override
+    public String create(String userId) {
+        long now = now();
+        while (true) {
+            String selector = Tokens.random(SELECTOR_BYTES);
+            Session session = new Session(selector, Tokens.random(VERIFIER_BYTES), userId, now + ttlMillis);
+            if (sessions.putIfAbsent(selector, session) == null) {
+                wheel.schedule(session);
+                return selector + session.verifier;
+            }
+        }
+    }
+
+    @Override
+    public String findUserId(String token) {
+        Session session = find(token);
+        if (session == null) {
+            return null;
+        }
+        long now = now();
+        if (session.expiresAt <= now) {
+            return null;
+        }
+        // 요청마다 쓰지 않도록 tick 이상 지났을 때만 연장한다. wheel 은 칸에서 꺼낼 때 늘어난 시각을 보고 다시 넣는다.
+        long expiresAt = now + ttlMillis;
+        if (expiresAt - session.expiresAt >= TICK_MILLIS) {
+            session.expiresAt = expiresAt;
+        }
+        return session.userId;
+    }
+
+    @Override
+    public void invalidate(String token) {
+        Session session = find(token);
+        if (session != null) {
+            session.expiresAt = 0;
+            sessions.remove(session.selector, session);
+        }
+    }
+
+    @Override
+    public int getTimeToLiveSeconds() {
+        return ttlSeconds;
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private Session find(String token) {
+        if (token == null || token.length() <= SELECTOR_LENGTH) {
+            return null;
+        }
+        Session session = sessions.get(token.substring(0, SELECTOR_LENGTH));
+        if (session == null || !Tokens.constantTimeEquals(token, SELECTOR_LENGTH, session.verifier)) {
+            return null;
+        }
+        return session;
+    }
+
+    private long now() {
+        long now = clock.getAsLong();
+        if (wheel.isDue(now)) {
+            wheel.advance(now, s -> sessions.remove(s.selector, s));
+        }
+        return now;
+    }
+
+    private static class Session {
+        final String selector;
+        final String verifier;
+        final String userId;
+        volatile long expiresAt;
+
+        Session(String selector, String verifier, String userId, long expiresAt) {
+            this.selector = selector;
+            this.verifier = verifier;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package session;
+
+/**
+ * 로그인한 사용자를 기억하는 세션. 로그인하면 토큰을 발급해 쿠키로 내려주고, 이후 요청의 토큰으로 사용자를 찾는다.
+ *
+ * 토큰은 클라이언트가 보낸 값이므로 형식이 틀리거나 위조되었거나 만료되었으면 예외 없이 null 로 처리한다.
+ */
+public interface SessionStore {
+    /**
+     * @return 쿠키에 그대로 넣을 수 있는 토큰(base64url 과 '.' 만 사용한다)
+     */
+    String create(String userId);
+
+    /**
+     * @return 토큰의 사용자. 없거나 만료되었거나 검증에 실패하면 null
+     */
+    String findUserId(String token);
+
+    /**
+     * 토큰을 더 이상 받지 않는다. 상태를 두지 않는 저장소는 만료될 때까지 기다릴 수밖에 없다.
+     */
+    void invalidate(String token);
+
+    /**
+     * @return 쿠키의 Max-Age 로 쓸 세션 유지 시간(초)
+     */
+    int getTimeToLiveSeconds();
+}
@@ -0,0 +1,133 @@
+package session;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 서버에 상태를 두지 않는 세션. 토큰에 사용자와 만료 시각을 담고 HMAC-SHA256 으로 서명한다.
+ * 같은 비밀 키를 가진 서버라면 어느 서버든 공유 저장소 없이 토큰을 검증할 수 있다.
+ *
+ * 토큰은 base64url(userId) "." 만료 시각(epoch 초) "." base64url(HMAC) 형식이다.
+ * 검증은 스레드마다 둔 Mac 과 배열을 재사용하고 서명을 상수 시간으로 비교하며, 서명이 맞았을 때만 userId 문자열을 만든다.
+ * 발급한 토큰을 되돌릴 수 없으므로 invalidate 는 아무 일도 하지 않고, 세션은 ttl 이 지나야 끝난다.
+ */
+public class SignedSessionStore implements SessionStore {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MAC_BYTES = 32;
+    // 패딩 없는 base64url 로 32 bytes 는 43 글자다.
+    private static final int MAC_LENGTH = 43;
+    private static final int MAX_TOKEN_LENGTH = 512;
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKeySpec key;
+    private final int ttlSeconds;
+    private final LongSupplier clock;
+    private final ThreadLocal<Verifier> verifiers;
+
+    public SignedSessionStore(byte[] secret, int ttlSeconds) {
+        this(secret, ttlSeconds, System::currentTimeMillis);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             secret 이 32 bytes 보다 짧은 경우
+     */
+    SignedSessionStore(byte[] secret, int ttlSeconds, LongSupplier clock) {
+        if (secret == null || secret.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("session.secret 은 " + MIN_SECRET_BYTES + " bytes 이상이어야 합니다");
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+        this.verifiers = ThreadLocal.withInitial(() -> new Verifier(newMac()));
+        // 키가 잘못되었으면 첫 요청이 아니라 시작할 때 알 수 있게 한다.
+        newMac();
+    }
+
+    @Override
+    public String create(String userId) {
+        long expiresAt = TimeUnit.MILLISECONDS.toSeconds(clock.getAsLong()) + ttlSeconds;
+        String payload = Tokens.encode(userId.getBytes(StandardCharsets.UTF_8)) + "." + expiresAt;
+        byte[] mac = newMac().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        return payload + "." + Tokens.encode(mac);
+    }
+
+    @Override
+    public String findUserId(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        int signature = token.length() - MAC_LENGTH - 1;
+        int expiry = token.indexOf('.');
+        if (expiry <= 0 || signature <= expiry || token.charAt(signature) != '.') {
+            return null;
+        }
+
+        Verifier verifier = verifiers.get();
+        for (int i = 0; i < signature; i++) {
+            char c = token.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            verifier.payload[i] = (byte) c;
+        }
+        if (!Tokens.decode(token, signature + 1, token.length(), verifier.actual)) {
+            return null;
+        }
+        try {
+            verifier.mac.update(verifier.payload, 0, signature);
+            verifier.mac.doFinal(verifier.expected, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!Tokens.constantTimeEquals(verifier.expected, verifier.actual)) {
+            return null;
+        }
+
+        // 서명이 맞으면 이 서버가 만든 값이므로 형식은 믿어도 된다.
+        long expiresAt = 0;
+        for (int i = expiry + 1; i < signature; i++) {
+            expiresAt = expiresAt * 10 + (token.charAt(i) - '0');
+        }
+        if (TimeUnit.SECONDS.toMillis(expiresAt) <= clock.getAsLong()) {
+            return null;
+        }
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, expiry)), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void invalidate(String token) {
+    }
+
+    @Override
+    public int getTimeToLiveSeconds() {
+        return ttlSeconds;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static class Verifier {
+        final Mac mac;
+        final byte[] payload = new byte[MAX_TOKEN_LENGTH];
+        final byte[] expected = new byte[MAC_BYTES];
+        final byte[] actual = new byte[MAC_BYTES];
+
+        Verifier(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
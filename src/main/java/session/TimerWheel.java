@@ -0,0 +1,93 @@
+package session;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * 만료 시각이 있는 항목을 tick 단위 칸에 나눠 두고, 시간이 지난 칸만 꺼내 보는 timer wheel.
+ *
+ * 전체를 훑지 않으므로 항목이 많아도 tick 마다 하는 일은 그 칸의 항목 수에 비례한다.
+ * 칸에서 꺼낸 항목의 만료 시각이 아직 오지 않았으면(바퀴 한 바퀴보다 멀거나 도중에 연장된 경우) 그 시각의 칸으로 다시 넣는다.
+ * 만료 여부는 항목을 쓰는 쪽에서도 확인하므로 이 wheel 은 메모리를 돌려받는 일만 맡고, 조금 늦게 꺼내도 괜찮다.
+ */
+class TimerWheel<E> {
+    private final AtomicReferenceArray<Queue<E>> slots;
+    private final int mask;
+    private final long tickMillis;
+    private final ToLongFunction<E> deadline;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 다음에 꺼낼 tick. 이 tick 의 칸부터 아직 보지 않았다.
+    private volatile long nextTick;
+
+    /**
+     * @param slots
+     *            2의 거듭제곱
+     * @param deadline
+     *            항목의 만료 시각(ms)
+     */
+    TimerWheel(int slots, long tickMillis, long now, ToLongFunction<E> deadline) {
+        if (Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots 는 2의 거듭제곱이어야 합니다 : " + slots);
+        }
+        this.slots = new AtomicReferenceArray<>(slots);
+        for (int i = 0; i < slots; i++) {
+            this.slots.set(i, new ConcurrentLinkedQueue<>());
+        }
+        this.mask = slots - 1;
+        this.tickMillis = tickMillis;
+        this.deadline = deadline;
+        this.nextTick = now / tickMillis;
+    }
+
+    void schedule(E entry) {
+        add(entry, nextTick);
+    }
+
+    /**
+     * 꺼낼 칸이 생겼는지만 본다. 요청마다 불러도 부담이 없다.
+     */
+    boolean isDue(long now) {
+        return now / tickMillis >= nextTick;
+    }
+
+    /**
+     * now 까지 지난 칸을 꺼내 만료된 항목을 expired 로 넘긴다. 다른 스레드가 진행 중이면 기다리지 않고 돌아간다.
+     */
+    void advance(long now, Consumer<? super E> expired) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            long nowTick = now / tickMillis;
+            long tick = nextTick;
+            // 오래 쉬었으면 모든 칸을 한 번씩만 보면 된다.
+            if (nowTick - tick > mask) {
+                tick = nowTick - mask;
+            }
+            for (; tick <= nowTick; tick++) {
+                Queue<E> due = slots.getAndSet((int) (tick & mask), new ConcurrentLinkedQueue<>());
+                nextTick = tick + 1;
+                E entry;
+                while ((entry = due.poll()) != null) {
+                    if (deadline.applyAsLong(entry) <= now) {
+                        expired.accept(entry);
+                    } else {
+                        add(entry, tick + 1);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(E entry, long earliestTick) {
+        long tick = Math.max(deadline.applyAsLong(entry) / tickMillis, earliestTick);
+        slots.get((int) (tick & mask)).add(entry);
+    }
+}
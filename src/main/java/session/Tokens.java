@@ -0,0 +1,95 @@
+package session;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 토큰을 만들고 비교하는 데 쓰는 도구. 검증 경로에서 쓰는 함수는 객체를 만들지 않는다.
+ */
+final class Tokens {
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private Tokens() {
+    }
+
+    /**
+     * @return 암호학적으로 안전한 난수 bytes 바이트를 base64url 로 인코딩한 문자열
+     */
+    static String random(int bytes) {
+        byte[] b = new byte[bytes];
+        random.nextBytes(b);
+        return encoder.encodeToString(b);
+    }
+
+    static String encode(byte[] b) {
+        return encoder.encodeToString(b);
+    }
+
+    /**
+     * 처음 다른 곳에서 멈추지 않고 끝까지 비교해 걸린 시간으로 몇 글자가 맞았는지 알 수 없게 한다.
+     * 길이는 비밀이 아니므로 먼저 비교한다.
+     */
+    static boolean constantTimeEquals(CharSequence a, int aFrom, CharSequence b) {
+        int length = b.length();
+        if (a.length() - aFrom != length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < length; i++) {
+            diff |= a.charAt(aFrom + i) ^ b.charAt(i);
+        }
+        return diff == 0;
+    }
+
+    static boolean constantTimeEquals(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < a.length; i++) {
+            diff |= a[i] ^ b[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * 패딩 없는 base64url 인 text[from, to) 를 out 에 채운다.
+     * 같은 바이트가 여러 문자열로 디코딩되지 않도록, out 을 다시 인코딩한 값과 같은 문자열만 받는다.
+     * 즉 길이는 out.length 를 인코딩한 길이여야 하고 마지막 글자의 남는 비트는 0 이어야 한다.
+     *
+     * @return 디코딩했으면 true. base64url 이 아닌 글자가 있거나 길이가 다르거나 남는 비트가 0 이 아니면 false
+     */
+    static boolean decode(CharSequence text, int from, int to, byte[] out) {
+        if (to - from != (out.length * 8 + 5) / 6) {
+            return false;
+        }
+        int bits = 0;
+        int buffered = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int value = c < 128 ? DECODE[c] : -1;
+            if (value < 0) {
+                return false;
+            }
+            bits = bits << 6 | value;
+            buffered += 6;
+            if (buffered >= 8) {
+                buffered -= 8;
+                out[count++] = (byte) (bits >> buffered);
+            }
+        }
+        return (bits & (1 << buffered) - 1) == 0;
+    }
+}
@@ -0,0 +1,51 @@
+package template;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * 템플릿의 이름을 모델 T 에서 값을 꺼내는 함수에 연결한다. 이름은 컴파일할 때 한 번만 찾고,
+ * 렌더링할 때는 연결된 함수를 바로 부른다.
+ */
+public class Bindings<T> {
+    final Map<String, Function<T, ? extends CharSequence>> values = new HashMap<>();
+    final Map<String, ToIntFunction<T>> numbers = new HashMap<>();
+    final Map<String, Section<T, ?>> sections = new HashMap<>();
+
+    /**
+     * {{name}} 에 HTML escape 한 값을 쓴다.
+     */
+    public Bindings<T> value(String name, Function<T, ? extends CharSequence> accessor) {
+        values.put(name, accessor);
+        return this;
+    }
+
+    /**
+     * {{name}} 에 정수를 문자열을 만들지 않고 쓴다.
+     */
+    public Bindings<T> number(String name, ToIntFunction<T> accessor) {
+        numbers.put(name, accessor);
+        return this;
+    }
+
+    /**
+     * {{#name}} ... {{/name}} 을 항목마다 반복한다. 안에서는 항목의 bindings 와 1부터 세는 {{@index}} 를 쓸 수 있다.
+     */
+    public <U> Bindings<T> section(String name, Function<T, ? extends Iterable<? extends U>> items,
+            Bindings<U> itemBindings) {
+        sections.put(name, new Section<>(items, itemBindings));
+        return this;
+    }
+
+    static class Section<T, U> {
+        final Function<T, ? extends Iterable<? extends U>> items;
+        final Bindings<U> bindings;
+
+        Section(Function<T, ? extends Iterable<? extends U>> items, Bindings<U> bindings) {
+            this.items = items;
+            this.bindings = bindings;
+        }
+    }
+}
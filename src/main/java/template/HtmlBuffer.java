@@ -0,0 +1,202 @@
+package template;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 템플릿을 렌더링한 UTF-8 바이트를 담는 버퍼. 문자열을 만들지 않고 char 를 바로 UTF-8 로 인코딩하며 HTML escape 한다.
+ *
+ * 요청마다 큰 배열을 새로 만들지 않도록 acquire() 로 빌리고 release() 로 돌려준다.
+ * streamTo 로 sink 를 지정하면 전체를 모으지 않고 일정 크기마다 내보낸다.
+ */
+public class HtmlBuffer {
+    private static final int INITIAL_SIZE = 16 * 1024;
+    private static final int MAX_POOLED = 64;
+    // 이보다 커진 버퍼는 돌려받지 않아 드문 큰 페이지가 메모리를 계속 차지하지 않게 한다.
+    private static final int MAX_POOLED_SIZE = 4 * 1024 * 1024;
+
+    private static final Queue<HtmlBuffer> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    private static final byte[] AMP = "&amp;".getBytes();
+    private static final byte[] LT = "&lt;".getBytes();
+    private static final byte[] GT = "&gt;".getBytes();
+    private static final byte[] QUOT = "&quot;".getBytes();
+    private static final byte[] APOS = "&#39;".getBytes();
+
+    private byte[] bytes;
+    private int size;
+    private OutputStream sink;
+    private int flushSize;
+
+    public HtmlBuffer() {
+        this(INITIAL_SIZE);
+    }
+
+    public HtmlBuffer(int initialSize) {
+        this.bytes = new byte[initialSize];
+    }
+
+    public static HtmlBuffer acquire() {
+        HtmlBuffer buffer = pool.poll();
+        if (buffer == null) {
+            return new HtmlBuffer();
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    public static void release(HtmlBuffer buffer) {
+        if (buffer.bytes.length > MAX_POOLED_SIZE) {
+            return;
+        }
+        if (pooled.incrementAndGet() > MAX_POOLED) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.size = 0;
+        buffer.sink = null;
+        pool.offer(buffer);
+    }
+
+    /**
+     * 렌더링 도중 내용이 flushSize 이상 쌓일 때마다 sink 로 내보내게 한다. 버퍼는 그 크기 근처에 머문다.
+     */
+    public void streamTo(OutputStream sink, int flushSize) {
+        this.sink = sink;
+        this.flushSize = flushSize;
+    }
+
+    void flushIfFull() throws IOException {
+        if (sink != null && size >= flushSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 쌓인 내용을 sink 로 내보낸다.
+     */
+    public void flush() throws IOException {
+        if (sink != null && size > 0) {
+            sink.write(bytes, 0, size);
+            size = 0;
+        }
+    }
+
+    public void write(byte[] b) {
+        ensureCapacity(b.length);
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(11);
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                write(Integer.toString(value).getBytes());
+                return;
+            }
+            bytes[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    /**
+     * &amp; &lt; &gt; &quot; ' 를 escape 하고 나머지는 UTF-8 로 쓴다. null 은 아무것도 쓰지 않는다.
+     */
+    public void writeEscaped(CharSequence text) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        // 대부분 ASCII 라서 한 번에 충분히 잡아 두고, 모자라면 그때 늘린다.
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                case '&':
+                    write(AMP);
+                    break;
+                case '<':
+                    write(LT);
+                    break;
+                case '>':
+                    write(GT);
+                    break;
+                case '"':
+                    write(QUOT);
+                    break;
+                case '\'':
+                    write(APOS);
+                    break;
+                default:
+                    ensureCapacity(1);
+                    bytes[size++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                bytes[size++] = (byte) (0xc0 | c >> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensureCapacity(4);
+                bytes[size++] = (byte) (0xf0 | codePoint >> 18);
+                bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                bytes[size++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // 짝이 없는 surrogate 는 String.getBytes 처럼 '?' 로 쓴다.
+                ensureCapacity(1);
+                bytes[size++] = '?';
+            } else {
+                ensureCapacity(3);
+                bytes[size++] = (byte) (0xe0 | c >> 12);
+                bytes[size++] = (byte) (0x80 | c >> 6 & 0x3f);
+                bytes[size++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 내부 배열. 0 부터 size() 까지가 내용이다.
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (bytes.length - size < additional) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package template;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * 한 번 읽어 컴파일해 두고 요청마다 렌더링하는 HTML 템플릿.
+ *
+ * 문법은 {{name}}(HTML escape 한 값), {{#name}} ... {{/name}}(반복), 반복 안의 {{@index}}(1부터) 뿐이다.
+ * 컴파일하면 고정된 부분은 UTF-8 바이트 조각이 되고, 이름은 Bindings 의 함수로 바뀐 slot 이 된다.
+ * 렌더링은 조각을 HtmlBuffer 에 복사하고 slot 의 값을 바로 인코딩해 쓰므로 중간 문자열을 만들지 않는다.
+ * HtmlBuffer 에 sink 가 있으면 반복의 항목마다 쌓인 양을 확인해 내보낸다.
+ */
+public class Template<T> {
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final String INDEX = "@index";
+
+    private final Node<T>[] nodes;
+
+    private Template(Node<T>[] nodes) {
+        this.nodes = nodes;
+    }
+
+    public static <T> Template<T> load(Path file, Bindings<T> bindings) throws IOException {
+        return compile(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), bindings);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             문법이 틀렸거나 bindings 에 없는 이름을 쓴 경우
+     */
+    public static <T> Template<T> compile(String source, Bindings<T> bindings) {
+        Parser parser = new Parser(source);
+        Node<T>[] nodes = parser.parse(bindings, null);
+        return new Template<>(nodes);
+    }
+
+    public void render(T model, HtmlBuffer out) throws IOException {
+        renderAll(nodes, model, 0, out);
+    }
+
+    private static <T> void renderAll(Node<T>[] nodes, T model, int index, HtmlBuffer out) throws IOException {
+        for (Node<T> node : nodes) {
+            node.render(model, index, out);
+        }
+    }
+
+    private interface Node<T> {
+        void render(T model, int index, HtmlBuffer out) throws IOException;
+    }
+
+    private static class Text<T> implements Node<T> {
+        private final byte[] bytes;
+
+        Text(String text) {
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void render(T model, int index, HtmlBuffer out) {
+            out.write(bytes);
+        }
+    }
+
+    private static class Value<T> implements Node<T> {
+        private final Function<T, ? extends CharSequence> accessor;
+
+        Value(Function<T, ? extends CharSequence> accessor) {
+            this.accessor = accessor;
+        }
+
+        @Override
+        public void render(T model, int index, HtmlBuffer out) {
+            out.writeEscaped(accessor.apply(model));
+        }
+    }
+
+    private static class Number<T> implements Node<T> {
+        private final ToIntFunction<T> accessor;
+
+        Number(ToIntFunction<T> accessor) {
+            this.accessor = accessor;
+        }
+
+        @Override
+        public void render(T model, int index, HtmlBuffer out) {
+            out.writeInt(accessor.applyAsInt(model));
+        }
+    }
+
+    private static class Index<T> implements Node<T> {
+        @Override
+        public void render(T model, int index, HtmlBuffer out) {
+            out.writeInt(index);
+        }
+    }
+
+    private static class Section<T, U> implements Node<T> {
+        private final Function<T, ? extends Iterable<? extends U>> items;
+        private final Node<U>[] body;
+
+        Section(Function<T, ? extends Iterable<? extends U>> items, Node<U>[] body) {
+            this.items = items;
+            this.body = body;
+        }
+
+        @Override
+        public void render(T model, int index, HtmlBuffer out) throws IOException {
+            Iterable<? extends U> iterable = items.apply(model);
+            if (iterable == null) {
+                return;
+            }
+            int itemIndex = 1;
+            for (U item : iterable) {
+                renderAll(body, item, itemIndex++, out);
+                out.flushIfFull();
+            }
+        }
+    }
+
+    private static class Parser {
+        private final String source;
+        private int position;
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        /**
+         * position 부터 {{/section}} 또는 끝까지를 컴파일한다.
+         */
+        <T> Node<T>[] parse(Bindings<T> bindings, String section) {
+            List<Node<T>> nodes = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            while (true) {
+                int open = source.indexOf(OPEN, position);
+                if (open < 0) {
+                    if (section != null) {
+                        throw new IllegalArgumentException("{{/" + section + "}} 가 없습니다");
+                    }
+                    text.append(source, position, source.length());
+                    position = source.length();
+                    break;
+                }
+                int close = source.indexOf(CLOSE, open + OPEN.length());
+                if (close < 0) {
+                    throw new IllegalArgumentException("}} 가 없습니다 : " + source.substring(open));
+                }
+                text.append(source, position, open);
+                position = close + CLOSE.length();
+
+                String tag = source.substring(open + OPEN.length(), close).trim();
+                if (tag.startsWith("/")) {
+                    if (!tag.substring(1).trim().equals(section)) {
+                        throw new IllegalArgumentException("짝이 맞지 않는 태그입니다 : " + tag);
+                    }
+                    break;
+                }
+                // 이어진 고정 부분은 한 조각으로 합친다.
+                if (text.length() > 0) {
+                    nodes.add(new Text<>(text.toString()));
+                    text.setLength(0);
+                }
+                nodes.add(tag.startsWith("#") ? section(bindings, tag.substring(1).trim()) : slot(bindings, tag,
+                        section != null));
+            }
+            if (text.length() > 0) {
+                nodes.add(new Text<>(text.toString()));
+            }
+            @SuppressWarnings("unchecked")
+            Node<T>[] array = (Node<T>[]) new Node<?>[nodes.size()];
+            return nodes.toArray(array);
+        }
+
+        private <T, U> Node<T> section(Bindings<T> bindings, String name) {
+            @SuppressWarnings("unchecked")
+            Bindings.Section<T, U> binding = (Bindings.Section<T, U>) bindings.sections.get(name);
+            if (binding == null) {
+                throw new IllegalArgumentException("알 수 없는 section 입니다 : " + name);
+            }
+            return new Section<>(binding.items, parse(binding.bindings, name));
+        }
+
+        private <T> Node<T> slot(Bindings<T> bindings, String name, boolean inSection) {
+            if (INDEX.equals(name) && inSection) {
+                return new Index<>();
+            }
+            if (bindings.values.containsKey(name)) {
+                return new Value<>(bindings.values.get(name));
+            }
+            if (bindings.numbers.containsKey(name)) {
+                return new Number<>(bindings.numbers.get(name));
+            }
+            throw new IllegalArgumentException("알 수 없는 이름입니다 : " + name);
+        }
+    }
+}
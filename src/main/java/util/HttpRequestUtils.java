@@ -29,6 +29,38 @@ public class HttpRequestUtils {
         return parseValues(cookies, ";");
     }
 
+    /**
+     * Cookie 헤더에서 name 의 값 하나만 찾는다. 요청마다 map 을 만들지 않도록 잘라 내지 않고 훑는다.
+     *
+     * @return 값. 없으면 null
+     */
+    public static String getCookie(String cookies, String name) {
+        if (cookies == null) {
+            return null;
+        }
+        int length = cookies.length();
+        int start = 0;
+        while (start < length) {
+            int end = cookies.indexOf(';', start);
+            if (end < 0) {
+                end = length;
+            }
+            while (start < end && cookies.charAt(start) == ' ') {
+                start++;
+            }
+            int equals = start + name.length();
+            if (equals < end && cookies.charAt(equals) == '=' && cookies.regionMatches(start, name, 0, name.length())) {
+                int valueEnd = end;
+                while (valueEnd > equals + 1 && cookies.charAt(valueEnd - 1) == ' ') {
+                    valueEnd--;
+                }
+                return cookies.substring(equals + 1, valueEnd);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
     private static Map<String, String> parseValues(String values, String separator) {
         if (Strings.isNullOrEmpty(values)) {
             return Maps.newHashMap();
@@ -1,20 +1,36 @@
 package util;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class IOUtils {
+    // Content-Length 만 믿고 큰 배열을 먼저 잡지 않도록, 실제로 읽은 만큼 이 단위로 늘린다.
+    private static final int CHUNK_SIZE = 8 * 1024;
+
     /**
      * @param BufferedReader는
      *            Request Body를 시작하는 시점이어야
      * @param contentLength는
      *            Request Header의 Content-Length 값이다.
      * @return
-     * @throws IOException
+     * @throws EOFException
+     *             contentLength 만큼 읽기 전에 stream 이 끝난 경우
      */
     public static String readData(BufferedReader br, int contentLength) throws IOException {
-        char[] body = new char[contentLength];
-        br.read(body, 0, contentLength);
+        char[] body = new char[Math.min(contentLength, CHUNK_SIZE)];
+        int read = 0;
+        while (read < contentLength) {
+            if (read == body.length) {
+                body = Arrays.copyOf(body, (int) Math.min(contentLength, body.length * 2L));
+            }
+            int n = br.read(body, read, body.length - read);
+            if (n < 0) {
+                throw new EOFException("expected " + contentLength + " chars but read " + read);
+            }
+            read += n;
+        }
         return String.copyValueOf(body);
     }
 }
@@ -0,0 +1,135 @@
+package webserver;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import admission.AimdLimiter;
+import admission.TokenBucketLimiter;
+import http.HttpResponse;
+
+/**
+ * 요청 헤더를 읽은 직후, 본문을 받거나 worker 에게 넘기기 전에 요청을 받을지 정한다.
+ *
+ * 클라이언트 주소마다 admission.rate(초당 요청 수, 기본 0 이면 끔)와 admission.burst 로 제한해 넘치면 429 로,
+ * 서버 전체에서 동시에 처리하는 요청 수를 admission.limit.initial, admission.limit.min, admission.limit.max
+ * (기본 0 이면 끔) 안에서 응답 시간에 맞춰 조절해 넘치면 503 으로 바로 답한다.
+ * 처리 시간이 admission.latency(ms) 를 넘으면 한도를 줄인다. 처리 시간은 세 engine 모두 요청을 다 받은 때부터
+ * 응답을 쓰기 시작할 때까지로, 작업 큐에서 기다린 시간은 넣고 클라이언트가 응답을 받아 가는 시간은 넣지 않는다.
+ * 두 제한 모두 배포 환경에 맞춰 값을 정해 켠다. 주소별 제한은 NAT 나 프록시 뒤의 클라이언트를 한 주소로 본다.
+ */
+public class AdmissionPolicy {
+    public static final int ADMITTED = 0;
+
+    static final byte[] TOO_MANY_REQUESTS = ("HTTP/1.1 429 Too Many Requests \r\n"
+            + "Content-Length: 0\r\n"
+            + "Connection: close\r\n"
+            + "Retry-After: 1\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    // 켰을 때 기본 한도는 worker 스레드 수(threads 기본값)에서 시작한다.
+    private static final int DEFAULT_INITIAL_LIMIT = 200;
+    private static final int DEFAULT_MIN_LIMIT = 10;
+    private static final int DEFAULT_LATENCY = 1000;
+    private static final int MAX_CLIENTS = 100000;
+    private static final double BACKOFF = 0.9;
+
+    private final TokenBucketLimiter<InetAddress> rateLimiter;
+    private final AimdLimiter concurrencyLimiter;
+
+    /**
+     * @param rateLimiter
+     *            null 이면 주소별로 제한하지 않는다.
+     * @param concurrencyLimiter
+     *            null 이면 동시 처리 수를 제한하지 않는다.
+     */
+    public AdmissionPolicy(TokenBucketLimiter<InetAddress> rateLimiter, AimdLimiter concurrencyLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public static AdmissionPolicy from(ServerConfig config) {
+        double rate = Double.parseDouble(config.getString("admission.rate", "0"));
+        TokenBucketLimiter<InetAddress> rateLimiter = rate > 0
+                ? new TokenBucketLimiter<>(rate, config.getInt("admission.burst", (int) Math.ceil(rate * 2)),
+                        MAX_CLIENTS)
+                : null;
+        int max = config.getInt("admission.limit.max", 0);
+        AimdLimiter concurrencyLimiter = max > 0
+                ? new AimdLimiter(config.getInt("admission.limit.initial", Math.min(DEFAULT_INITIAL_LIMIT, max)),
+                        config.getInt("admission.limit.min", Math.min(DEFAULT_MIN_LIMIT, max)), max,
+                        TimeUnit.MILLISECONDS.toNanos(config.getInt("admission.latency", DEFAULT_LATENCY)), BACKOFF)
+                : null;
+        return new AdmissionPolicy(rateLimiter, concurrencyLimiter);
+    }
+
+    /**
+     * @return 받았으면 ADMITTED, 아니면 답할 상태 코드(429, 503). ADMITTED 라면 release 나 cancel 을 꼭 불러야 한다.
+     */
+    public int admit(InetAddress client) {
+        if (rateLimiter != null && rateLimiter.tryAcquire(client) > 0) {
+            return 429;
+        }
+        if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+            return 503;
+        }
+        return ADMITTED;
+    }
+
+    /**
+     * 처리를 마친 요청의 자리를 돌려준다. 503 은 뒤에서 과부하로 거절한 것으로 보고 한도를 줄인다.
+     * 응답을 다 보낼 때까지 재면 느린 클라이언트 때문에 서버가 한가해도 한도가 줄므로, 응답을 쓰기 시작한 때까지만 잰다.
+     *
+     * @param readyAt
+     *            요청을 다 받은 System.nanoTime()
+     * @param response
+     *            응답을 만들지 못했다면 null
+     */
+    public void release(long readyAt, HttpResponse response) {
+        if (concurrencyLimiter == null) {
+            return;
+        }
+        boolean committed = response != null && response.isCommitted();
+        long finishedAt = committed ? response.getCommittedAt() : System.nanoTime();
+        concurrencyLimiter.release(finishedAt - readyAt, committed && response.getStatus() == 503);
+    }
+
+    /**
+     * 처리하지 못한 요청(연결이 끊기거나 본문이 잘못된 경우)의 자리를 돌려준다.
+     */
+    public void cancel() {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.cancel();
+        }
+    }
+
+    /**
+     * @return 연결을 닫는 거절 응답
+     */
+    static byte[] rejection(int status) {
+        return status == 429 ? TOO_MANY_REQUESTS : RequestDispatcher.SERVICE_UNAVAILABLE;
+    }
+
+    public long getRateLimited() {
+        return rateLimiter == null ? 0 : rateLimiter.getRejected();
+    }
+
+    public int getTrackedClients() {
+        return rateLimiter == null ? 0 : rateLimiter.size();
+    }
+
+    public long getConcurrencyLimited() {
+        return concurrencyLimiter == null ? 0 : concurrencyLimiter.getRejected();
+    }
+
+    /**
+     * @return 제한하지 않으면 -1
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimiter == null ? -1 : concurrencyLimiter.getLimit();
+    }
+
+    public int getInFlight() {
+        return concurrencyLimiter == null ? 0 : concurrencyLimiter.getInFlight();
+    }
+}
@@ -0,0 +1,54 @@
+package webserver;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 정적 파일 경로의 prefix 별로 Cache-Control 값을 정한다. 가장 길게 일치하는 prefix 를 사용한다.
+ * cache.control=/fonts/:31536000,/js/:604800 형식으로 설정하며, 일치하는 prefix 가 없으면 no-cache 로
+ * 브라우저가 매번 ETag 로 재검증하게 한다.
+ */
+public class CacheControlPolicy {
+    private static final String DEFAULT_RULES = "/fonts/:31536000,/js/:604800,/css/:604800,/images/:604800";
+    private static final String NO_CACHE = "no-cache";
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    public CacheControlPolicy(String rules) {
+        if (rules == null || rules.trim().isEmpty()) {
+            return;
+        }
+        for (String rule : rules.split(",")) {
+            int colon = rule.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("cache.control 은 prefix:max-age 형식이어야 합니다 : " + rule);
+            }
+            this.rules.add(new Rule(rule.substring(0, colon).trim(), Long.parseLong(rule.substring(colon + 1).trim())));
+        }
+        this.rules.sort(Comparator.comparingInt((Rule r) -> r.prefix.length()).reversed());
+    }
+
+    public static CacheControlPolicy from(ServerConfig config) {
+        return new CacheControlPolicy(config.getString("cache.control", DEFAULT_RULES));
+    }
+
+    public String getCacheControl(String path) {
+        for (Rule rule : rules) {
+            if (path.startsWith(rule.prefix)) {
+                return rule.maxAge > 0 ? "public, max-age=" + rule.maxAge : NO_CACHE;
+            }
+        }
+        return NO_CACHE;
+    }
+
+    private static class Rule {
+        private final String prefix;
+        private final long maxAge;
+
+        Rule(String prefix, long maxAge) {
+            this.prefix = prefix;
+            this.maxAge = maxAge;
+        }
+    }
+}
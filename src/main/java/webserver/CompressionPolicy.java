@@ -0,0 +1,65 @@
+package webserver;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 어떤 응답을 압축할지 정한다. 이미 압축된 형식(이미지, woff 등)이나 너무 작은 본문은 압축해도 이득이 없다.
+ * compress=false 로 끌 수 있고, compress.min(bytes), compress.types(Content-Type prefix 목록)로 조정한다.
+ * 길이를 아는 본문은 압축본을 메모리에 만들어 두므로, compress.max(bytes) 를 넘으면 압축하지 않고 원본을 보낸다.
+ */
+public class CompressionPolicy {
+    private static final String DEFAULT_TYPES = "text/,application/javascript,application/json,image/svg+xml";
+    private static final int DEFAULT_MIN_SIZE = 1024;
+    private static final long DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    private final boolean enabled;
+    private final int minSize;
+    private final long maxSize;
+    private final List<String> types;
+
+    public CompressionPolicy(boolean enabled, int minSize, String types) {
+        this(enabled, minSize, DEFAULT_MAX_SIZE, types);
+    }
+
+    public CompressionPolicy(boolean enabled, int minSize, long maxSize, String types) {
+        this.enabled = enabled;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.types = Arrays.asList(types.split(","));
+    }
+
+    public static CompressionPolicy from(ServerConfig config) {
+        return new CompressionPolicy(config.getBoolean("compress", true),
+                config.getInt("compress.min", DEFAULT_MIN_SIZE),
+                config.getLong("compress.max", DEFAULT_MAX_SIZE),
+                config.getString("compress.types", DEFAULT_TYPES));
+    }
+
+    public static CompressionPolicy disabled() {
+        return new CompressionPolicy(false, DEFAULT_MIN_SIZE, DEFAULT_TYPES);
+    }
+
+    /**
+     * @param contentType은
+     *            text/html;charset=utf-8 처럼 파라미터를 포함할 수 있다. 허용 목록의 prefix 와 비교한다.
+     */
+    public boolean isCompressible(String contentType, long length) {
+        return length >= minSize && length <= maxSize && isCompressible(contentType);
+    }
+
+    /**
+     * 길이를 미리 알 수 없는 본문에 쓴다. 크기 조건 없이 type 만 본다.
+     */
+    public boolean isCompressible(String contentType) {
+        if (!enabled || contentType == null) {
+            return false;
+        }
+        for (String type : types) {
+            if (contentType.startsWith(type.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
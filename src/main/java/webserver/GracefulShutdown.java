@@ -0,0 +1,100 @@
+package webserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 종료 신호(SIGTERM, Ctrl+C)를 받으면 서버를 순서대로 멈춘다.
+ *
+ * 먼저 새 연결을 받지 않고, keep-alive 를 꺼서 처리 중인 요청은 응답을 마치면 연결을 닫게 한 뒤
+ * shutdown.timeout(ms) 까지 열린 연결이 모두 닫히기를 기다린다. 그때까지 남은 worker 는 interrupt 하고,
+ * 마지막으로 access log, DB 처럼 기록을 남기는 자원을 등록한 순서대로 닫는다.
+ * JVM 은 shutdown hook 들을 동시에 실행하므로 요청을 처리하는 중에 자원이 닫히지 않도록 hook 을 하나만 둔다.
+ */
+public class GracefulShutdown {
+    private static final Logger log = LoggerFactory.getLogger(GracefulShutdown.class);
+    private static final long DEFAULT_TIMEOUT = 30000;
+    private static final long POLL_MILLIS = 50;
+
+    private final long timeoutMillis;
+    private final List<Closeable> resources = new CopyOnWriteArrayList<>();
+    private volatile Listener listener;
+    private volatile ServerContext context;
+    private volatile ExecutorService workers;
+
+    public GracefulShutdown(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 종료할 때 실행할 shutdown hook 을 등록한다.
+     */
+    public static GracefulShutdown install(ServerConfig config) {
+        GracefulShutdown shutdown = new GracefulShutdown(config.getLong("shutdown.timeout", DEFAULT_TIMEOUT));
+        Runtime.getRuntime().addShutdownHook(new Thread(shutdown::run, "graceful-shutdown"));
+        return shutdown;
+    }
+
+    /**
+     * 요청 처리를 모두 마친 뒤 닫는다.
+     */
+    public void closeOnExit(Closeable resource) {
+        resources.add(resource);
+    }
+
+    /**
+     * 종료할 때 listener 를 닫고 context 의 연결이 모두 닫히기를 기다린 뒤 workers 를 멈춘다.
+     */
+    public void drainOnExit(Listener listener, ServerContext context, ExecutorService workers) {
+        this.listener = listener;
+        this.context = context;
+        this.workers = workers;
+    }
+
+    void run() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (listener != null) {
+            drain(deadline);
+        }
+        for (Closeable resource : resources) {
+            closeQuietly(resource);
+        }
+    }
+
+    private void drain(long deadline) {
+        log.info("Shutting down. Waiting up to {} ms for open connections.", timeoutMillis);
+        closeQuietly(listener);
+        context.getKeepAlivePolicy().drain();
+
+        ServerMetrics metrics = context.getMetrics();
+        try {
+            while (metrics.getActiveConnections() > 0 && deadline - System.nanoTime() > 0) {
+                Thread.sleep(POLL_MILLIS);
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("Shutdown timeout. Interrupting workers with {} open connections.",
+                        metrics.getActiveConnections());
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Closeable resource) {
+        try {
+            resource.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+}
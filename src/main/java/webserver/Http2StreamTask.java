@@ -0,0 +1,81 @@
+package webserver;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import http.ChannelFileSender;
+import http.HttpResponse;
+import http2.Http2;
+import http2.Http2ResponseStream;
+import http2.Http2Stream;
+
+/**
+ * HTTP/2 stream 하나의 요청을 작업 스레드에서 처리한다. Controller 가 쓰는 HTTP/1.1 응답은 Http2ResponseStream 이
+ * 프레임으로 옮긴다. 작업 큐가 가득 차면 연결은 두고 그 stream 만 REFUSED_STREAM 으로 끝내 클라이언트가 다시 보낼 수 있게 한다.
+ * 받아들일 때 얻은 AdmissionPolicy 의 자리는 처리를 마치면 돌려준다.
+ */
+class Http2StreamTask implements RejectableTask {
+    private static final Logger log = LoggerFactory.getLogger(Http2StreamTask.class);
+
+    private final Http2Stream stream;
+    private final ServerContext context;
+    private final long admittedAt;
+
+    /**
+     * @param admittedAt
+     *            요청을 다 받아 AdmissionPolicy 가 받아들인 System.nanoTime(). 작업 큐에서 기다린 시간도 처리 시간에 넣는다.
+     */
+    Http2StreamTask(Http2Stream stream, ServerContext context, long admittedAt) {
+        this.stream = stream;
+        this.context = context;
+        this.admittedAt = admittedAt;
+    }
+
+    @Override
+    public void run() {
+        Http2ResponseStream out = new Http2ResponseStream(stream);
+        HttpResponse response = new HttpResponse(out, true, new ChannelFileSender(out, null));
+        try {
+            context.getDispatcher().dispatch(stream.getRequest(), response);
+            response.flush();
+            out.close();
+        } catch (IOException e) {
+            log.debug("HTTP/2 stream {} failed : {}", stream.getId(), e.getMessage());
+            stream.reset(Http2.INTERNAL_ERROR);
+        } catch (RuntimeException e) {
+            log.error("HTTP/2 stream {} failed", stream.getId(), e);
+            stream.reset(Http2.INTERNAL_ERROR);
+        } finally {
+            context.getAdmission().release(admittedAt, response);
+        }
+    }
+
+    @Override
+    public void rejectServiceUnavailable() {
+        context.getAdmission().cancel();
+        context.getMetrics().requestRejected();
+        stream.reset(Http2.REFUSED_STREAM);
+    }
+
+    /**
+     * AdmissionPolicy 가 받지 않은 요청에 429, 503 으로 답한다. 연결의 다른 stream 은 그대로 둔다.
+     */
+    static void reject(Http2Stream stream, int status) {
+        Http2ResponseStream out = new Http2ResponseStream(stream);
+        HttpResponse response = new HttpResponse(out, true);
+        if (status == 429) {
+            response.response429();
+        } else {
+            response.response503();
+        }
+        try {
+            response.flush();
+            out.close();
+        } catch (IOException e) {
+            log.debug("HTTP/2 stream {} failed : {}", stream.getId(), e.getMessage());
+            stream.reset(Http2.INTERNAL_ERROR);
+        }
+    }
+}
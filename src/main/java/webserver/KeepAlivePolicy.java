@@ -0,0 +1,60 @@
+package webserver;
+
+import http.HttpRequest;
+
+/**
+ * 하나의 연결에서 몇 개의 요청을, 얼마나 기다리며 처리할지 정한다.
+ * keepalive.timeout(ms) 동안 다음 요청이 오지 않거나 keepalive.max 개의 요청을 처리하면 연결을 닫는다.
+ * 첫 요청을 기다리거나 요청을 읽는 도중에는 read.timeout(ms) 동안 바이트가 오지 않으면 연결을 닫아,
+ * 멈춘 클라이언트가 스레드나 연결을 붙잡아 두지 못하게 한다.
+ * 서버를 멈출 때 drain() 하면 처리 중인 요청의 응답을 마지막으로 연결을 닫는다.
+ */
+public class KeepAlivePolicy {
+    private static final int DEFAULT_IDLE_TIMEOUT = 5000;
+    private static final int DEFAULT_MAX_REQUESTS = 100;
+    private static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    private final int idleTimeoutMillis;
+    private final int maxRequests;
+    private final int readTimeoutMillis;
+    private volatile boolean draining;
+
+    public KeepAlivePolicy(int idleTimeoutMillis, int maxRequests, int readTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxRequests = maxRequests;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public static KeepAlivePolicy from(ServerConfig config) {
+        return new KeepAlivePolicy(config.getInt("keepalive.timeout", DEFAULT_IDLE_TIMEOUT),
+                config.getInt("keepalive.max", DEFAULT_MAX_REQUESTS),
+                config.getInt("read.timeout", DEFAULT_READ_TIMEOUT));
+    }
+
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * 이후 응답은 모두 Connection: close 로 보낸다.
+     */
+    public void drain() {
+        draining = true;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @param served는
+     *            이 요청 이전에 같은 연결에서 처리한 요청 수
+     */
+    public boolean keepAlive(HttpRequest request, int served) {
+        return !draining && maxRequests > 0 && served + 1 < maxRequests && request.isKeepAlive();
+    }
+}
@@ -0,0 +1,199 @@
+package webserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 서버 소켓을 열고 acceptors 개의 스레드로 연결을 받는다.
+ *
+ * 운영체제가 SO_REUSEPORT 를 지원하면 acceptor 마다 같은 포트에 소켓을 따로 열어 커널이 연결을 나누어 주게 하고,
+ * 지원하지 않으면 소켓 하나의 accept() 를 여러 스레드가 함께 기다린다.
+ * listen.backlog 는 accept 를 기다리는 연결 큐의 길이다. 운영체제의 상한(somaxconn)을 넘으면 상한으로 줄어든다.
+ * tcp.nodelay(기본 true), socket.sndbuf, socket.rcvbuf(bytes, 0 이면 운영체제 기본값)는 받은 연결에 적용한다.
+ * 받는 버퍼는 연결이 맺어질 때 window scale 이 정해지므로 서버 소켓에 미리 정해 받은 연결이 물려받게 한다.
+ */
+public class Listener implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(Listener.class);
+    private static final int DEFAULT_BACKLOG = 1024;
+    private static final int MAX_DEFAULT_ACCEPTORS = 4;
+    // 파일 디스크립터가 모자라 accept 가 실패할 때 바로 다시 시도하며 CPU 를 쓰지 않게 잠시 쉰다.
+    private static final long ACCEPT_BACKOFF_MILLIS = 100;
+
+    /**
+     * acceptor 스레드에서 받은 연결마다 호출된다.
+     */
+    public interface Handler {
+        void handle(SocketChannel connection) throws IOException;
+    }
+
+    private final int port;
+    private final int acceptors;
+    private final int backlog;
+    private final boolean tcpNoDelay;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+
+    private final List<ServerSocketChannel> channels = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean closed;
+
+    public Listener(int port, int acceptors, int backlog, boolean tcpNoDelay, int sendBufferSize,
+            int receiveBufferSize) {
+        if (acceptors < 1) {
+            throw new IllegalArgumentException("acceptors 는 1 이상이어야 합니다 : " + acceptors);
+        }
+        this.port = port;
+        this.acceptors = acceptors;
+        this.backlog = backlog;
+        this.tcpNoDelay = tcpNoDelay;
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public static Listener from(ServerConfig config) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return new Listener(config.getPort(), config.getInt("acceptors", Math.min(processors, MAX_DEFAULT_ACCEPTORS)),
+                config.getInt("listen.backlog", DEFAULT_BACKLOG), config.getBoolean("tcp.nodelay", true),
+                config.getInt("socket.sndbuf", 0), config.getInt("socket.rcvbuf", 0));
+    }
+
+    /**
+     * 소켓을 열고 acceptor 스레드를 시작한다. acceptor 는 daemon 이 아니라서 close() 전까지 프로세스를 유지한다.
+     */
+    public synchronized void start(String name, Handler handler) throws IOException {
+        SocketOption<Boolean> reusePort = acceptors > 1 ? reusePortOption() : null;
+        int sockets = reusePort != null ? acceptors : 1;
+        int boundPort = port;
+        for (int i = 0; i < sockets; i++) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channels.add(channel);
+            if (reusePort != null) {
+                channel.setOption(reusePort, true);
+            }
+            if (receiveBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+            channel.bind(new InetSocketAddress(boundPort), backlog);
+            // port 0 이면 처음 받은 포트에 나머지 소켓을 함께 연다.
+            boundPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        }
+        for (int i = 0; i < acceptors; i++) {
+            ServerSocketChannel channel = channels.get(i % sockets);
+            Thread thread = new Thread(() -> accept(channel, handler), name + "-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        log.info("Listening on {} port. acceptors : {}, SO_REUSEPORT : {}, backlog : {}", boundPort, acceptors,
+                reusePort != null, backlog);
+    }
+
+    /**
+     * @return 실제로 연 포트. port 0 으로 열었을 때 쓴다.
+     */
+    public synchronized int getLocalPort() throws IOException {
+        return ((InetSocketAddress) channels.get(0).getLocalAddress()).getPort();
+    }
+
+    /**
+     * 새 연결을 더 받지 않는다. 이미 받은 연결은 그대로 둔다.
+     * accept() 에서 기다리는 스레드가 깨어나야 운영체제의 listen 소켓이 닫히므로, acceptor 가 모두 끝날 때까지 기다린다.
+     * 그 전에는 닫은 뒤에도 연결이 맺어져 아무도 받지 않는 backlog 에 남는다.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        for (ServerSocketChannel channel : channels) {
+            channel.close();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing listener");
+        }
+    }
+
+    private void accept(ServerSocketChannel channel, Handler handler) {
+        while (!closed) {
+            SocketChannel connection;
+            try {
+                connection = channel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.error("Accept failed : {}", e.getMessage());
+                if (!sleep(ACCEPT_BACKOFF_MILLIS)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                configure(connection);
+                handler.handle(connection);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Connection setup failed : {}", e.getMessage());
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private void configure(SocketChannel connection) throws IOException {
+        // 스트리밍 응답의 마지막 chunk 가 Nagle 과 클라이언트의 delayed ACK 에 걸려 40ms 씩 늦지 않게 한다.
+        connection.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
+        if (sendBufferSize > 0) {
+            connection.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+        }
+    }
+
+    /**
+     * SO_REUSEPORT 는 Java 9 에 들어왔으므로 Java 8 에서도 돌도록 이름으로 찾는다.
+     *
+     * @return 지원하지 않으면 null
+     */
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() throws IOException {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            for (SocketOption<?> option : probe.supportedOptions()) {
+                if ("SO_REUSEPORT".equals(option.name())) {
+                    return (SocketOption<Boolean>) option;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void closeQuietly(SocketChannel connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package webserver;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import http.HttpParseException;
+import http.HttpRequest;
+import http.HttpRequestParser;
+import http.HttpResponse;
+
+/**
+ * nio 엔진의 연결 하나. event loop 스레드에서만 상태를 바꾼다.
+ * 읽은 바이트를 HttpRequestParser 에 넘겨 요청 하나가 완성되면 worker 에게 처리를 맡기고,
+ * 응답이 돌아오면 socket 이 받아주는 만큼씩 non-blocking 으로 쓴다.
+ * 파이프라이닝된 요청은 앞선 응답을 모두 쓴 뒤에 차례로 처리해 응답 순서를 지킨다.
+ * 헤더가 들어오면 본문을 기다리기 전에 AdmissionPolicy 로 받을지 정하고, 얻은 자리는 DispatchTask 가 돌려준다.
+ */
+class NioConnection {
+    private static final Logger log = LoggerFactory.getLogger(NioConnection.class);
+    private static final int STREAM_WINDOW = 64 * 1024;
+
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    private final HttpRequestParser parser;
+    private final AdmissionPolicy admission;
+    private final InetAddress client;
+
+    private final ArrayDeque<NioOutbound> outbound = new ArrayDeque<>();
+    private final NioStreamWindow streamWindow = new NioStreamWindow(STREAM_WINDOW);
+    // 헤더를 받아들였지만 아직 DispatchTask 에 넘기지 않은 요청이 있다.
+    private boolean admitted;
+    private boolean processing;
+    private boolean closeAfterWrite;
+    private boolean closed;
+    private int served;
+    private long lastActive;
+
+    NioConnection(NioEventLoop loop, SocketChannel channel, SelectionKey key) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.parser = loop.getContext().newParser();
+        this.admission = loop.getContext().getAdmission();
+        this.client = channel.socket().getInetAddress();
+        this.lastActive = System.currentTimeMillis();
+        loop.getContext().getMetrics().connectionOpened();
+    }
+
+    /**
+     * 요청을 기다리기만 하며 시간을 넘긴 연결인지 확인한다. 처리 중이거나 응답을 쓰는 중이면 유휴 상태가 아니다.
+     * 첫 요청이나 읽다 만 요청은 read timeout 을, 응답을 마친 뒤에는 keep-alive 시간을 기다리고,
+     * 서버를 멈추는 중이면 요청을 읽는 중이 아닌 연결은 바로 닫는다.
+     */
+    boolean isIdleExpired(long now, KeepAlivePolicy policy) {
+        if (processing || !outbound.isEmpty()) {
+            return false;
+        }
+        if (parser.hasBufferedData()) {
+            return now - lastActive > policy.getReadTimeoutMillis();
+        }
+        if (policy.isDraining()) {
+            return true;
+        }
+        return now - lastActive > (served == 0 ? policy.getReadTimeoutMillis() : policy.getIdleTimeoutMillis());
+    }
+
+    void onReadable(ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            close();
+            return;
+        }
+        lastActive = System.currentTimeMillis();
+        readBuffer.flip();
+        parser.feed(readBuffer);
+        processInbound();
+    }
+
+    void onWritable() throws IOException {
+        flush();
+    }
+
+    private void processInbound() throws IOException {
+        if (processing || !outbound.isEmpty() || closed) {
+            return;
+        }
+
+        HttpRequest request;
+        try {
+            if (!admitted && parser.parseHead()) {
+                int rejection = admission.admit(client);
+                if (rejection != AdmissionPolicy.ADMITTED) {
+                    log.debug("Admission rejected {}. IP : {}", rejection, client);
+                    respondAndClose(AdmissionPolicy.rejection(rejection));
+                    return;
+                }
+                admitted = true;
+            }
+            request = parser.parse();
+        } catch (HttpParseException e) {
+            log.debug("Invalid request : {}", e.getMessage());
+            respondAndClose(e.toResponse());
+            return;
+        }
+        if (request == null) {
+            // 연결이 대부분 유휴 상태라도 메모리를 차지하지 않도록 처리할 바이트가 없으면 버퍼를 놓는다.
+            parser.releaseIfIdle();
+            return;
+        }
+
+        admitted = false;
+        processing = true;
+        key.interestOps(0);
+        loop.getWorkers().execute(new DispatchTask(request, served++));
+    }
+
+    private void onResponse(List<NioOutbound> response, boolean keepAlive) {
+        if (closed) {
+            response.forEach(NioOutbound::release);
+            return;
+        }
+        processing = false;
+        outbound.addAll(response);
+        closeAfterWrite = !keepAlive;
+        try {
+            flush();
+        } catch (IOException e) {
+            log.debug("Write failed : {}", e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * 아직 만들고 있는 응답의 앞부분. 연결은 계속 처리 중 상태다.
+     */
+    private void onPartialResponse(List<NioOutbound> part) {
+        if (closed) {
+            part.forEach(NioOutbound::release);
+            return;
+        }
+        outbound.addAll(part);
+        try {
+            flush();
+        } catch (IOException e) {
+            log.debug("Write failed : {}", e.getMessage());
+            close();
+        }
+    }
+
+    private void respondAndClose(byte[] response) throws IOException {
+        outbound.add(NioOutbound.of(response));
+        closeAfterWrite = true;
+        flush();
+    }
+
+    /**
+     * 쓸 조각이 없더라도 응답이 끝났다면 다음 요청을 읽도록 되돌려야 하므로, 흘려보낸 응답의 마지막처럼
+     * 남은 조각이 없는 경우도 끝까지 진행한다.
+     */
+    private void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        lastActive = System.currentTimeMillis();
+        while (!outbound.isEmpty()) {
+            if (!outbound.peek().writeTo(channel)) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            outbound.poll().release();
+        }
+
+        if (processing) {
+            // 흘려보내는 응답의 앞부분만 썼다. 나머지가 올 때까지 요청을 더 읽지 않는다.
+            key.interestOps(0);
+            return;
+        }
+        if (closeAfterWrite) {
+            close();
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        processInbound();
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (admitted) {
+            admitted = false;
+            admission.cancel();
+        }
+        loop.getContext().getMetrics().connectionClosed();
+        streamWindow.abort();
+        outbound.forEach(NioOutbound::release);
+        outbound.clear();
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    private class DispatchTask implements RejectableTask {
+        private final HttpRequest request;
+        private final int served;
+        private final long dispatchedAt = System.nanoTime();
+
+        DispatchTask(HttpRequest request, int served) {
+            this.request = request;
+            this.served = served;
+        }
+
+        @Override
+        public void run() {
+            NioResponseBuffer out = new NioResponseBuffer(part -> loop.execute(() -> onPartialResponse(part)),
+                    streamWindow);
+            boolean keepAlive = false;
+            HttpResponse response = null;
+            try {
+                ServerContext context = loop.getContext();
+                keepAlive = context.getKeepAlivePolicy().keepAlive(request, served);
+                response = new HttpResponse(out, keepAlive, out);
+                context.getDispatcher().dispatch(request, response);
+                keepAlive = response.isKeepAlive();
+            } catch (IOException | RuntimeException e) {
+                log.error(e.getMessage());
+                keepAlive = false;
+            } finally {
+                // 작업 큐에서 기다린 시간도 넣어야 worker 가 밀릴 때 한도가 줄어든다.
+                admission.release(dispatchedAt, response);
+            }
+            List<NioOutbound> parts = out.toOutbound();
+            boolean keepConnection = keepAlive;
+            loop.execute(() -> onResponse(parts, keepConnection));
+        }
+
+        @Override
+        public void rejectServiceUnavailable() {
+            admission.cancel();
+            loop.getContext().getMetrics().requestRejected();
+            List<NioOutbound> response = Collections
+                    .singletonList(NioOutbound.of(RequestDispatcher.SERVICE_UNAVAILABLE));
+            loop.execute(() -> onResponse(response, false));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package webserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 하나의 Selector 를 돌며 자신에게 등록된 연결들의 읽기/쓰기를 처리한다.
+ * 다른 스레드에서 연결 상태를 바꿔야 할 때는 execute() 로 작업을 넘겨 이 스레드에서 실행되게 한다.
+ */
+class NioEventLoop implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(NioEventLoop.class);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final Executor workers;
+    private final ServerContext context;
+    private long lastIdleCheck = System.currentTimeMillis();
+
+    NioEventLoop(Executor workers, ServerContext context) throws IOException {
+        this.selector = Selector.open();
+        this.workers = workers;
+        this.context = context;
+    }
+
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new NioConnection(this, channel, key));
+            } catch (ClosedChannelException e) {
+                log.debug("Channel closed before register : {}", e.getMessage());
+            }
+        });
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    Executor getWorkers() {
+        return workers;
+    }
+
+    ServerContext getContext() {
+        return context;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select(IDLE_CHECK_INTERVAL);
+                runTasks();
+                processSelectedKeys();
+                closeIdleConnections();
+            } catch (IOException e) {
+                log.error(e.getMessage());
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * 요청을 기다리다 시간을 넘긴 연결을 닫는다. 연결 수에 비례하는 작업이므로 1초에 한 번만 확인한다.
+     */
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < IDLE_CHECK_INTERVAL) {
+            return;
+        }
+        lastIdleCheck = now;
+
+        KeepAlivePolicy keepAlivePolicy = context.getKeepAlivePolicy();
+        for (SelectionKey key : selector.keys()) {
+            NioConnection connection = (NioConnection) key.attachment();
+            if (connection != null && connection.isIdleExpired(now, keepAlivePolicy)) {
+                connection.close();
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            NioConnection connection = (NioConnection) key.attachment();
+            if (connection == null || !key.isValid()) {
+                continue;
+            }
+            try {
+                if (key.isReadable()) {
+                    connection.onReadable(readBuffer);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.onWritable();
+                }
+            } catch (IOException e) {
+                log.debug("Connection error : {}", e.getMessage());
+                connection.close();
+            }
+        }
+    }
+}
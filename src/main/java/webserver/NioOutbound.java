@@ -0,0 +1,102 @@
+package webserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * nio 연결에 쓸 응답 조각. socket 이 받아주는 만큼만 쓰고, 남은 부분은 다음 OP_WRITE 때 이어서 쓴다.
+ */
+abstract class NioOutbound {
+    private static final Logger log = LoggerFactory.getLogger(NioOutbound.class);
+
+    /**
+     * @return 이 조각을 모두 썼다면 true
+     */
+    abstract boolean writeTo(SocketChannel channel) throws IOException;
+
+    void release() {
+    }
+
+    static NioOutbound of(byte[] bytes) {
+        return new BufferOutbound(ByteBuffer.wrap(bytes), null);
+    }
+
+    /**
+     * 다 쓰거나 버려질 때 window 에 자리를 돌려주는 조각.
+     */
+    static NioOutbound of(byte[] bytes, NioStreamWindow window) {
+        return new BufferOutbound(ByteBuffer.wrap(bytes), window);
+    }
+
+    static NioOutbound of(FileChannel file, long position, long count) {
+        return new FileOutbound(file, position, count);
+    }
+
+    private static class BufferOutbound extends NioOutbound {
+        private final ByteBuffer buffer;
+        private final NioStreamWindow window;
+
+        BufferOutbound(ByteBuffer buffer, NioStreamWindow window) {
+            this.buffer = buffer;
+            this.window = window;
+        }
+
+        @Override
+        boolean writeTo(SocketChannel channel) throws IOException {
+            channel.write(buffer);
+            return !buffer.hasRemaining();
+        }
+
+        @Override
+        void release() {
+            if (window != null) {
+                window.release(buffer.capacity());
+            }
+        }
+    }
+
+    /**
+     * 파일의 일부를 transferTo 로 보낸다. non-blocking socket 에서는 보낸 만큼만 position 을 옮긴다.
+     */
+    private static class FileOutbound extends NioOutbound {
+        private final FileChannel file;
+        private long position;
+        private long remaining;
+
+        FileOutbound(FileChannel file, long position, long count) {
+            this.file = file;
+            this.position = position;
+            this.remaining = count;
+        }
+
+        @Override
+        boolean writeTo(SocketChannel channel) throws IOException {
+            while (remaining > 0) {
+                long transferred = file.transferTo(position, remaining, channel);
+                if (transferred <= 0) {
+                    if (position >= file.size()) {
+                        throw new IOException("File truncated while sending");
+                    }
+                    return false;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            return true;
+        }
+
+        @Override
+        void release() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.error(e.getMessage());
+            }
+        }
+    }
+}
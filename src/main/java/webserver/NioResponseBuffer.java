@@ -0,0 +1,81 @@
+package webserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import http.FileSender;
+
+/**
+ * worker 가 nio 연결의 응답을 만드는 동안 쓰는 버퍼. 바이트는 모아 두고,
+ * 파일 본문은 내용을 읽지 않고 FileChannel 만 열어 두어 event loop 가 transferTo 로 보내게 한다.
+ *
+ * chunked 응답처럼 본문을 흘려보내는 경우 flush() 할 때마다 모은 조각을 먼저 event loop 에 넘긴다.
+ * 아직 쓰지 못한 조각이 window 를 넘으면 flush() 는 자리가 날 때까지 기다린다.
+ */
+class NioResponseBuffer extends OutputStream implements FileSender {
+    private final List<NioOutbound> outbound = new ArrayList<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final Consumer<List<NioOutbound>> partial;
+    private final NioStreamWindow window;
+
+    NioResponseBuffer(Consumer<List<NioOutbound>> partial, NioStreamWindow window) {
+        this.partial = partial;
+        this.window = window;
+    }
+
+    @Override
+    public void write(int b) {
+        bytes.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        bytes.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (bytes.size() == 0) {
+            return;
+        }
+        byte[] chunk = bytes.toByteArray();
+        bytes.reset();
+        window.acquire(chunk.length);
+        outbound.add(NioOutbound.of(chunk, window));
+        partial.accept(new ArrayList<>(outbound));
+        outbound.clear();
+    }
+
+    @Override
+    public void send(Path file, long position, long count) throws IOException {
+        flushBytes();
+        outbound.add(NioOutbound.of(FileChannel.open(file, StandardOpenOption.READ), position, count));
+    }
+
+    List<NioOutbound> toOutbound() {
+        flushBytes();
+        return outbound;
+    }
+
+    /**
+     * 응답을 보내지 못하게 된 경우 열어 둔 파일을 닫는다.
+     */
+    void release() {
+        outbound.forEach(NioOutbound::release);
+        outbound.clear();
+    }
+
+    private void flushBytes() {
+        if (bytes.size() > 0) {
+            outbound.add(NioOutbound.of(bytes.toByteArray()));
+            bytes.reset();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package webserver;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selector 기반의 non-blocking 서버.
+ * Listener 의 acceptor 들이 연결을 받아 N 개의 event loop 에 나누어 주고,
+ * event loop 는 요청을 읽고 응답을 쓰는 일만 하며 실제 처리는 worker 에게 맡긴다.
+ */
+public class NioServer {
+    private static final Logger log = LoggerFactory.getLogger(NioServer.class);
+
+    private final ServerConfig config;
+    private final Executor workers;
+    private final ServerContext context;
+
+    public NioServer(ServerConfig config, Executor workers, ServerContext context) {
+        this.config = config;
+        this.workers = workers;
+        this.context = context;
+    }
+
+    public void start(Listener listener) throws IOException {
+        int loopCount = config.getInt("loops", Runtime.getRuntime().availableProcessors());
+        NioEventLoop[] loops = new NioEventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new NioEventLoop(workers, context);
+            Thread thread = new Thread(loops[i], "nio-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        listener.start("nio-acceptor", channel -> {
+            channel.configureBlocking(false);
+            loops[Math.floorMod(next.getAndIncrement(), loopCount)].register(channel);
+        });
+        log.info("Web Application Server(nio) started {} port. event loops : {}", config.getPort(), loopCount);
+    }
+}
@@ -0,0 +1,50 @@
+package webserver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * worker 가 응답을 흘려보내는 동안 아직 socket 에 쓰지 못한 바이트 수를 제한한다.
+ * 한도를 넘으면 worker 는 event loop 가 앞선 조각을 쓸 때까지 기다리므로, 느린 클라이언트에게 큰 응답을 보내도
+ * 메모리가 한도 이상 쌓이지 않는다.
+ */
+class NioStreamWindow {
+    private final long limit;
+    private long inFlight;
+    private boolean aborted;
+
+    NioStreamWindow(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 보낼 자리가 날 때까지 기다린다. 한 조각이 한도보다 커도 앞선 조각이 모두 나갔다면 보낸다.
+     */
+    synchronized void acquire(long bytes) throws IOException {
+        while (!aborted && inFlight > 0 && inFlight + bytes > limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while streaming response");
+            }
+        }
+        if (aborted) {
+            throw new IOException("connection closed while streaming response");
+        }
+        inFlight += bytes;
+    }
+
+    synchronized void release(long bytes) {
+        inFlight -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * 연결이 닫혔다. 기다리는 worker 를 깨워 응답을 그만 만들게 한다.
+     */
+    synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+}
@@ -0,0 +1,8 @@
+package webserver;
+
+/**
+ * 작업 큐가 가득 차 실행되지 못한 작업이 클라이언트에게 거절 응답을 보낼 수 있도록 한다.
+ */
+interface RejectableTask extends Runnable {
+    void rejectServiceUnavailable();
+}
@@ -0,0 +1,79 @@
+package webserver;
+
+import accesslog.AccessLog;
+import http.HttpHeaders;
+import http.HttpRequest;
+import http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import webserver.Router.Route;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 요청 하나를 읽어 알맞은 처리를 하고 응답을 쓴다.
+ * 연결을 어떻게 받아들이고 관리하는지(blocking, nio)와 무관하게 같은 라우팅을 사용하기 위해 분리했다.
+ * 어느 Controller 가 처리할지는 Router 가 정하고, 처리에 걸린 시간은 그 경로의 RequestMetrics 에 기록한다.
+ * 요청마다 access log 를 한 줄 남기고, 헤더는 headerSampleRate 개 중 하나꼴로만 로그에 남긴다.
+ */
+public class RequestDispatcher {
+    static final byte[] SERVICE_UNAVAILABLE = ("HTTP/1.1 503 Service Unavailable \r\n"
+            + "Content-Length: 0\r\n"
+            + "Connection: close\r\n"
+            + "Retry-After: 1\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private static final Logger log = LoggerFactory.getLogger(RequestDispatcher.class);
+
+    private final Router router;
+    private final AccessLog accessLog;
+    private final int headerSampleRate;
+
+    public RequestDispatcher(Router router) {
+        this(router, null, 0);
+    }
+
+    /**
+     * @param accessLog
+     *            null 이면 남기지 않는다.
+     * @param headerSampleRate
+     *            0 이면 헤더를 남기지 않는다.
+     */
+    public RequestDispatcher(Router router, AccessLog accessLog, int headerSampleRate) {
+        this.router = router;
+        this.accessLog = accessLog;
+        this.headerSampleRate = headerSampleRate;
+    }
+
+    public void dispatch(HttpRequest request, HttpResponse response) throws IOException {
+        if (headerSampleRate > 0 && ThreadLocalRandom.current().nextInt(headerSampleRate) == 0) {
+            logHeaders(request);
+        }
+
+        Route route = router.route(request);
+        long start = System.nanoTime();
+        try {
+            route.getController().service(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            route.getMetrics().record(response.getStatus(), elapsed);
+            if (accessLog != null) {
+                accessLog.log(request.getMethod(), request.getPath(), response.getStatus(),
+                        response.getBytesWritten(), elapsed);
+            }
+        }
+    }
+
+    private static void logHeaders(HttpRequest request) {
+        StringBuilder message = new StringBuilder();
+        message.append(request.getMethod()).append(' ').append(request.getPath()).append(' ')
+                .append(request.getVersion());
+        HttpHeaders headers = request.getHeaders();
+        for (int i = 0; i < headers.size(); i++) {
+            message.append("\n  ").append(headers.getName(i)).append(": ").append(headers.getValue(i));
+        }
+        log.info("Sampled request : {}", message);
+    }
+}
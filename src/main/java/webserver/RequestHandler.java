@@ -1,294 +1,232 @@
 package webserver;
 
-import db.DataBase;
-import model.User;
+import http.ChannelFileSender;
+import http.HeaderNames;
+import http.HttpParseException;
+import http.HttpRequest;
+import http.HttpRequestParser;
+import http.HttpResponse;
+import http2.Http2;
+import http2.Http2Connection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import util.HttpRequestUtils;
-import util.IOUtils;
 
 import java.io.*;
 import java.net.Socket;
-import java.net.URLDecoder;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-
-import static util.HttpRequestUtils.*;
-
-public class RequestHandler extends Thread {
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+
+/**
+ * blocking 연결 하나를 처리한다. 연결이 HTTP/2 preface 로 시작하거나 Upgrade: h2c 를 요청하면 HTTP/2 로 처리하고,
+ * 그때 각 stream 의 요청은 streamWorkers 에서 동시에 처리한다. frame 을 읽는 이 스레드와 다른 pool 이어야
+ * HTTP/2 연결이 worker 를 모두 차지해도 stream 이 처리된다.
+ */
+public class RequestHandler implements RejectableTask {
     private static final Logger log = LoggerFactory.getLogger(RequestHandler.class);
 
+    private static final byte[] SWITCHING_PROTOCOLS = ("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Connection: Upgrade\r\n"
+            + "Upgrade: h2c\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    private static final String HTTP2_SETTINGS = "HTTP2-Settings";
+
     private Socket connection;
+    private ServerContext context;
+    private Executor streamWorkers;
+    private final long queuedAt = System.nanoTime();
 
-    public RequestHandler(Socket connectionSocket) {
+    public RequestHandler(Socket connectionSocket, ServerContext context, Executor streamWorkers) {
         this.connection = connectionSocket;
+        this.context = context;
+        this.streamWorkers = streamWorkers;
     }
 
+    @Override
     public void run() {
+        // 연결이 작업 큐에서 기다린 시간은 첫 요청의 처리 시간에 넣는다. 첫 바이트를 기다린 시간은 클라이언트 몫이므로 빼고 잰다.
+        long queuedNanos = System.nanoTime() - queuedAt;
         log.debug("New Client Connect! Connected IP : {}, Port : {}", connection.getInetAddress(),
                 connection.getPort());
 
         try (InputStream in = connection.getInputStream(); OutputStream out = connection.getOutputStream()) {
-            BufferedReader br = new BufferedReader(new InputStreamReader(in));
-            String firstLine = br.readLine();
-            log.debug(firstLine);
-            String requestMethod = firstLine.split(" ")[0];
-            String requestURL = firstLine.split(" ")[1];
-            List<Pair> headers = parseHeaders(br);
-            Map<String, String> queryString = parseQueryString(headers, br);
-
-            if (requestMethod.equals("POST") && requestURL.startsWith("/user/create")) {
-                createUser(out, queryString);
+            // 파이프라이닝된 요청이 버퍼에 남아 있을 수 있으므로 parser 는 연결 단위로 유지한다.
+            HttpRequestParser parser = context.newParser();
+            BufferedOutputStream bos = new BufferedOutputStream(out);
+            ChannelFileSender fileSender = new ChannelFileSender(bos, connection.getChannel());
+            KeepAlivePolicy keepAlivePolicy = context.getKeepAlivePolicy();
+            // 멈춘 클라이언트가 스레드를 계속 붙잡지 않도록 첫 요청부터 읽기 시간을 제한한다.
+            connection.setSoTimeout(keepAlivePolicy.getReadTimeoutMillis());
+
+            if (context.isH2cEnabled() && readPreface(in, parser)) {
+                serve(newHttp2Connection(in, out), null);
                 return;
             }
 
-            if (requestMethod.equals("POST") && requestURL.startsWith("/user/login")) {
-                loginUser(out, queryString);
-                return;
-            }
-
-            if (requestMethod.equals("GET") && requestURL.equals("/user/list.html")) {
-                createUserList(out, headers);
-                return;
-            }
-
-            if (requestMethod.equals("GET")) {
-                String contentType = extractHeader(headers, "Accept").startsWith("text/css")
-                        ? "text/css"
-                        : "text/html";
-                DataOutputStream dos = new DataOutputStream(out);
-                byte[] body = Files.readAllBytes(new File("./webapp" + requestURL).toPath());
-                response200Header(dos, body.length, contentType);
-                responseBody(dos, body);
+            AdmissionPolicy admission = context.getAdmission();
+            try {
+                int served = 0;
+                // 헤더만 읽고 받을지 정해, 거절할 요청의 본문은 받지 않는다.
+                while (parser.readHead(in)) {
+                    int rejection = admission.admit(connection.getInetAddress());
+                    if (rejection != AdmissionPolicy.ADMITTED) {
+                        log.debug("Admission rejected {}. IP : {}", rejection, connection.getInetAddress());
+                        bos.write(AdmissionPolicy.rejection(rejection));
+                        bos.flush();
+                        break;
+                    }
+                    HttpRequest request;
+                    try {
+                        connection.setSoTimeout(keepAlivePolicy.getReadTimeoutMillis());
+                        request = parser.read(in);
+                    } catch (IOException e) {
+                        admission.cancel();
+                        throw e;
+                    }
+                    if (context.isH2cEnabled() && isH2cUpgrade(request) && !parser.hasBufferedData()) {
+                        if (upgrade(in, out, bos, request)) {
+                            return;
+                        }
+                    }
+                    long readyAt = System.nanoTime() - queuedNanos;
+                    queuedNanos = 0;
+                    boolean keepAlive = keepAlivePolicy.keepAlive(request, served++);
+                    HttpResponse response = new HttpResponse(bos, keepAlive, fileSender);
+                    try {
+                        context.getDispatcher().dispatch(request, response);
+                    } finally {
+                        admission.release(readyAt, response);
+                    }
+                    response.flush();
+                    // 길이를 모르는 본문을 연결을 닫아 끝내는 응답이라면 dispatch 중에 keep-alive 가 꺼진다.
+                    if (!response.isKeepAlive()) {
+                        break;
+                    }
+                    connection.setSoTimeout(keepAlivePolicy.getIdleTimeoutMillis());
+                }
+            } catch (HttpParseException e) {
+                log.debug("Invalid request : {}", e.getMessage());
+                bos.write(e.toResponse());
+                bos.flush();
             }
+        } catch (SocketTimeoutException e) {
+            log.debug("Connection timeout. IP : {}, Port : {}", connection.getInetAddress(), connection.getPort());
         } catch (IOException e) {
             log.error(e.getMessage());
+        } finally {
+            context.getMetrics().connectionClosed();
         }
     }
 
-    private List<Pair> parseHeaders(BufferedReader br) throws IOException {
-        List<Pair> headers = new ArrayList<>();
-
-        String headerLine = br.readLine();
-        while (headerLine != null && !headerLine.equals("")) {
-            log.debug(headerLine);
-            headers.add(parseHeader(headerLine));
-            headerLine = br.readLine();
+    /**
+     * 연결의 처음 바이트가 HTTP/2 preface 인지 본다. 아니라면 읽은 바이트를 parser 에 넣어 HTTP/1.1 요청으로 이어 읽는다.
+     */
+    private static boolean readPreface(InputStream in, HttpRequestParser parser) throws IOException {
+        byte[] preface = Http2.PREFACE;
+        byte[] read = new byte[preface.length];
+        int length = 0;
+        while (length < preface.length) {
+            int count = in.read(read, length, preface.length - length);
+            if (count < 0) {
+                break;
+            }
+            for (int i = length; i < length + count; i++) {
+                if (read[i] != preface[i]) {
+                    parser.feed(ByteBuffer.wrap(read, 0, length + count));
+                    return false;
+                }
+            }
+            length += count;
         }
-
-        return headers;
-    }
-
-    private Map<String, String> parseQueryString(List<Pair> headers, BufferedReader br) throws IOException {
-        String contentLength = extractHeader(headers, "Content-Length");
-
-        if (contentLength.isEmpty()) {
-            return Collections.emptyMap();
+        if (length < preface.length) {
+            parser.feed(ByteBuffer.wrap(read, 0, length));
+            return false;
         }
-
-        String bodyData = IOUtils.readData(br, Integer.parseInt(contentLength));
-        Map<String, String> queryString = HttpRequestUtils.parseQueryString(bodyData);
-
-        queryString.forEach((k, v) -> {
-            try {
-                queryString.put(k, URLDecoder.decode(v, "utf-8"));
-            } catch (UnsupportedEncodingException e) {
-                log.error(e.getMessage());
-            }
-        });
-
-        return queryString;
-    }
-
-    private String extractHeader(List<Pair> headers, String headerName) {
-        return headers.stream()
-                .filter(header -> header.getKey().equals(headerName))
-                .map(Pair::getValue)
-                .findAny()
-                .orElse("");
+        return true;
     }
 
-    private void createUser(OutputStream out, Map<String, String> queryString) {
-        User user = new User(queryString.get("userId"),
-                queryString.get("password"),
-                queryString.get("name"),
-                queryString.get("email"));
-        DataBase.addUser(user);
-        DataOutputStream dos = new DataOutputStream(out);
-        response302Header(dos, "/index.html");
+    /**
+     * Upgrade 와 HTTP2-Settings 가 모두 있고 Connection 에 둘이 들어 있는 HTTP/1.1 요청인지 본다. (RFC 7540 3.2)
+     */
+    private static boolean isH2cUpgrade(HttpRequest request) {
+        return "HTTP/1.1".equals(request.getVersion())
+                && hasToken(request.getHeader(HeaderNames.UPGRADE), "h2c")
+                && request.getHeaders().getAll(HTTP2_SETTINGS).size() == 1
+                && hasToken(request.getHeader(HeaderNames.CONNECTION), "upgrade")
+                && hasToken(request.getHeader(HeaderNames.CONNECTION), HTTP2_SETTINGS);
     }
 
-    private void loginUser(OutputStream out, Map<String, String> queryString) {
-        String userId = queryString.get("userId");
-        User user = DataBase.findUserById(userId);
-        if (user == null || !user.matchPassword(queryString.get("password"))) {
-            DataOutputStream dos = new DataOutputStream(out);
-            response302Header(dos, "/user/login_failed.html", "logined=false");
-        } else {
-            DataOutputStream dos = new DataOutputStream(out);
-            response302Header(dos, "/index.html", "logined=true");
+    private static boolean hasToken(String header, String token) {
+        for (String value : header.split(",")) {
+            if (value.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private void createUserList(OutputStream out, List<Pair> headers) {
-        String cookies = extractHeader(headers, "Cookie");
-        boolean logined = Boolean.parseBoolean(parseCookies(cookies)
-                .get("logined"));
-        DataOutputStream dos = new DataOutputStream(out);
-
-        if (logined) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("<!DOCTYPE html>\n" +
-                    "<html lang=\"kr\">\n" +
-                    "<head>\n" +
-                    "    <meta http-equiv=\"content-type\" content=\"text/html; charset=UTF-8\">\n" +
-                    "    <meta charset=\"utf-8\">\n" +
-                    "    <title>SLiPP Java Web Programming</title>\n" +
-                    "    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1, maximum-scale=1\">\n" +
-                    "    <link href=\"../css/bootstrap.min.css\" rel=\"stylesheet\">\n" +
-                    "    <!--[if lt IE 9]>\n" +
-                    "    <script src=\"//html5shim.googlecode.com/svn/trunk/html5.js\"></script>\n" +
-                    "    <![endif]-->\n" +
-                    "    <link href=\"../css/styles.css\" rel=\"stylesheet\">\n" +
-                    "</head>\n" +
-                    "<body>\n" +
-                    "<nav class=\"navbar navbar-fixed-top header\">\n" +
-                    "    <div class=\"col-md-12\">\n" +
-                    "        <div class=\"navbar-header\">\n" +
-                    "\n" +
-                    "            <a href=\"../index.html\" class=\"navbar-brand\">SLiPP</a>\n" +
-                    "            <button type=\"button\" class=\"navbar-toggle\" data-toggle=\"collapse\" data-target=\"#navbar-collapse1\">\n" +
-                    "                <i class=\"glyphicon glyphicon-search\"></i>\n" +
-                    "            </button>\n" +
-                    "\n" +
-                    "        </div>\n" +
-                    "        <div class=\"collapse navbar-collapse\" id=\"navbar-collapse1\">\n" +
-                    "            <form class=\"navbar-form pull-left\">\n" +
-                    "                <div class=\"input-group\" style=\"max-width:470px;\">\n" +
-                    "                    <input type=\"text\" class=\"form-control\" placeholder=\"Search\" name=\"srch-term\" id=\"srch-term\">\n" +
-                    "                    <div class=\"input-group-btn\">\n" +
-                    "                        <button class=\"btn btn-default btn-primary\" type=\"submit\"><i class=\"glyphicon glyphicon-search\"></i></button>\n" +
-                    "                    </div>\n" +
-                    "                </div>\n" +
-                    "            </form>\n" +
-                    "            <ul class=\"nav navbar-nav navbar-right\">\n" +
-                    "                <li>\n" +
-                    "                    <a href=\"#\" class=\"dropdown-toggle\" data-toggle=\"dropdown\"><i class=\"glyphicon glyphicon-bell\"></i></a>\n" +
-                    "                    <ul class=\"dropdown-menu\">\n" +
-                    "                        <li><a href=\"https://slipp.net\" target=\"_blank\">SLiPP</a></li>\n" +
-                    "                        <li><a href=\"https://facebook.com\" target=\"_blank\">Facebook</a></li>\n" +
-                    "                    </ul>\n" +
-                    "                </li>\n" +
-                    "                <li><a href=\"../user/list.html\"><i class=\"glyphicon glyphicon-user\"></i></a></li>\n" +
-                    "            </ul>\n" +
-                    "        </div>\n" +
-                    "    </div>\n" +
-                    "</nav>\n" +
-                    "<div class=\"navbar navbar-default\" id=\"subnav\">\n" +
-                    "    <div class=\"col-md-12\">\n" +
-                    "        <div class=\"navbar-header\">\n" +
-                    "            <a href=\"#\" style=\"margin-left:15px;\" class=\"navbar-btn btn btn-default btn-plus dropdown-toggle\" data-toggle=\"dropdown\"><i class=\"glyphicon glyphicon-home\" style=\"color:#dd1111;\"></i> Home <small><i class=\"glyphicon glyphicon-chevron-down\"></i></small></a>\n" +
-                    "            <ul class=\"nav dropdown-menu\">\n" +
-                    "                <li><a href=\"../user/profile.html\"><i class=\"glyphicon glyphicon-user\" style=\"color:#1111dd;\"></i> Profile</a></li>\n" +
-                    "                <li class=\"nav-divider\"></li>\n" +
-                    "                <li><a href=\"#\"><i class=\"glyphicon glyphicon-cog\" style=\"color:#dd1111;\"></i> Settings</a></li>\n" +
-                    "            </ul>\n" +
-                    "            \n" +
-                    "            <button type=\"button\" class=\"navbar-toggle\" data-toggle=\"collapse\" data-target=\"#navbar-collapse2\">\n" +
-                    "            \t<span class=\"sr-only\">Toggle navigation</span>\n" +
-                    "            \t<span class=\"icon-bar\"></span>\n" +
-                    "            \t<span class=\"icon-bar\"></span>\n" +
-                    "            \t<span class=\"icon-bar\"></span>\n" +
-                    "            </button>            \n" +
-                    "        </div>\n" +
-                    "        <div class=\"collapse navbar-collapse\" id=\"navbar-collapse2\">\n" +
-                    "            <ul class=\"nav navbar-nav navbar-right\">\n" +
-                    "                <li class=\"active\"><a href=\"../index.html\">Posts</a></li>\n" +
-                    "                <li><a href=\"../user/login.html\" role=\"button\">로그인</a></li>\n" +
-                    "                <li><a href=\"../user/form.html\" role=\"button\">회원가입</a></li>\n" +
-                    "                <li><a href=\"#\" role=\"button\">로그아웃</a></li>\n" +
-                    "                <li><a href=\"#\" role=\"button\">개인정보수정</a></li>\n" +
-                    "            </ul>\n" +
-                    "        </div>\n" +
-                    "    </div>\n" +
-                    "</div>\n" +
-                    "\n" +
-                    "<div class=\"container\" id=\"main\">\n" +
-                    "   <div class=\"col-md-10 col-md-offset-1\">\n" +
-                    "      <div class=\"panel panel-default\">\n" +
-                    "          <table class=\"table table-hover\">\n" +
-                    "              <thead>\n" +
-                    "                <tr>\n" +
-                    "                    <th>#</th> <th>사용자 아이디</th> <th>이름</th> <th>이메일</th><th></th>\n" +
-                    "                </tr>\n" +
-                    "              </thead>\n" +
-                    "              <tbody>");
-
-            int number = 1;
-            for (User user : DataBase.findAll()) {
-                sb.append(String.format("<tr>\n" +
-                        "                    <th scope=\"row\">%d</th> <td>%s</td> <td>%s</td> <td>%s</td><td><a href=\"#\" class=\"btn btn-success\" role=\"button\">수정</a></td>\n" +
-                        "                </tr>", number++, user.getUserId(), user.getName(), user.getEmail()));
-            }
-
-            sb.append("</tbody>\n" +
-                    "          </table>\n" +
-                    "        </div>\n" +
-                    "    </div>\n" +
-                    "</div>\n" +
-                    "\n" +
-                    "<!-- script references -->\n" +
-                    "<script src=\"../js/jquery-2.2.0.min.js\"></script>\n" +
-                    "<script src=\"../js/bootstrap.min.js\"></script>\n" +
-                    "<script src=\"../js/scripts.js\"></script>\n" +
-                    "\t</body>\n" +
-                    "</html>");
-            response200Header(dos, sb.length(), "text/html");
-            responseBody(dos, sb.toString().getBytes());
-        } else {
-            response302Header(dos, "/user/login.html");
+    /**
+     * 101 로 답하고 HTTP/2 로 넘어간다. 요청은 stream 1 의 요청으로 처리한다.
+     *
+     * @return HTTP2-Settings 를 해석하지 못해 넘어가지 않았으면 false
+     */
+    private boolean upgrade(InputStream in, OutputStream out, BufferedOutputStream bos, HttpRequest request)
+            throws IOException {
+        Http2Connection http2 = newHttp2Connection(in, out);
+        if (!http2.applyUpgradeSettings(request.getHeader(HTTP2_SETTINGS))) {
+            return false;
         }
+        // 올린 요청은 stream 1 로 다시 받아들이므로 HTTP/1.1 요청으로 받은 자리는 돌려준다.
+        context.getAdmission().cancel();
+        bos.write(SWITCHING_PROTOCOLS);
+        bos.flush();
+        if (!Http2Connection.readPreface(in)) {
+            log.debug("Invalid HTTP/2 preface after upgrade. IP : {}", connection.getInetAddress());
+            return true;
+        }
+        serve(http2, request);
+        return true;
     }
 
-    private void response200Header(DataOutputStream dos, int lengthOfBodyContent, String contentType) {
-        try {
-            dos.writeBytes("HTTP/1.1 200 OK \r\n");
-            dos.writeBytes("Content-Type: " + contentType + ";charset=utf-8\r\n");
-            dos.writeBytes("Content-Length: " + lengthOfBodyContent + "\r\n");
-            dos.writeBytes("\r\n");
-        } catch (IOException e) {
-            log.error(e.getMessage());
-        }
+    private void serve(Http2Connection http2, HttpRequest upgraded) throws IOException {
+        log.debug("HTTP/2 connection. IP : {}, Port : {}", connection.getInetAddress(), connection.getPort());
+        connection.setSoTimeout(context.getKeepAlivePolicy().getIdleTimeoutMillis());
+        http2.serve(upgraded);
     }
 
-    private void response302Header(DataOutputStream dos, String location) {
-        try {
-            dos.writeBytes("HTTP/1.1 302 Found \r\n");
-            dos.writeBytes("Location: " + location + "\r\n");
-            dos.writeBytes("\r\n");
-        } catch (IOException e) {
-            log.error(e.getMessage());
-        }
+    private Http2Connection newHttp2Connection(InputStream in, OutputStream out) {
+        return context.newHttp2Connection(in, out, stream -> {
+            int rejection = context.getAdmission().admit(connection.getInetAddress());
+            if (rejection != AdmissionPolicy.ADMITTED) {
+                Http2StreamTask.reject(stream, rejection);
+                return;
+            }
+            streamWorkers.execute(new Http2StreamTask(stream, context, System.nanoTime()));
+        });
     }
 
-    private void response302Header(DataOutputStream dos, String location, String cookie) {
-        try {
-            dos.writeBytes("HTTP/1.1 302 Found \r\n");
-            dos.writeBytes("Location: " + location + "\r\n");
-            dos.writeBytes("Set-Cookie: " + cookie + "\r\n");
-            dos.writeBytes("\r\n");
+    /**
+     * 작업 큐가 가득 차 요청을 처리할 수 없을 때 호출된다. 503 응답을 보내고 연결을 닫는다.
+     */
+    @Override
+    public void rejectServiceUnavailable() {
+        log.warn("Server is busy. Rejected IP : {}, Port : {}", connection.getInetAddress(), connection.getPort());
+        context.getMetrics().requestRejected();
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(RequestDispatcher.SERVICE_UNAVAILABLE);
+            out.flush();
         } catch (IOException e) {
             log.error(e.getMessage());
+        } finally {
+            closeQuietly();
+            context.getMetrics().connectionClosed();
         }
     }
 
-    private void responseBody(DataOutputStream dos, byte[] body) {
+    private void closeQuietly() {
         try {
-            dos.write(body, 0, body.length);
-            dos.flush();
+            connection.close();
         } catch (IOException e) {
             log.error(e.getMessage());
         }
@@ -0,0 +1,172 @@
+package webserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import controller.Controller;
+import http.HttpRequest;
+import metrics.RequestMetrics;
+
+/**
+ * 요청의 method 와 경로로 Controller 를 찾는다. 경로는 서버를 시작할 때 한 번 등록한다.
+ *
+ * 고정된 경로는 경로 전체를 key 로 하는 map 에서 한 번에 찾으므로 등록한 경로가 늘어도 비용이 같다.
+ * /qna/{id} 처럼 {name} 이 있는 경로는 '/' 로 나눈 조각의 trie 에 두고, 맞춘 값은 request 의 path parameter 로 넘긴다.
+ * 같은 자리에서는 고정된 조각을 {name} 보다 먼저 본다. 어디에도 맞지 않으면 fallback 이 처리한다.
+ * 경로마다 RequestMetrics 를 두어 응답 시간을 등록한 pattern 단위로 모은다.
+ */
+public class Router {
+    static final String FALLBACK = "fallback";
+
+    private final Map<String, Map<String, Route>> exactRoutes = new HashMap<>();
+    private final Node root = new Node();
+    private final List<Route> routes = new ArrayList<>();
+    private boolean hasPatterns;
+    private Route fallback;
+
+    public Router get(String pattern, Controller controller) {
+        return add("GET", pattern, controller);
+    }
+
+    public Router post(String pattern, Controller controller) {
+        return add("POST", pattern, controller);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             pattern 이 '/' 로 시작하지 않거나 같은 method 와 pattern 을 두 번 등록한 경우
+     */
+    public Router add(String method, String pattern, Controller controller) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("경로는 / 로 시작해야 합니다 : " + pattern);
+        }
+        Map<String, Route> controllers;
+        if (pattern.indexOf('{') < 0) {
+            controllers = exactRoutes.computeIfAbsent(pattern, p -> new HashMap<>());
+        } else {
+            Node node = root;
+            for (String segment : pattern.substring(1).split("/", -1)) {
+                node = node.child(segment);
+            }
+            controllers = node.controllers;
+            hasPatterns = true;
+        }
+        Route route = new Route(method, pattern, controller);
+        if (controllers.putIfAbsent(method, route) != null) {
+            throw new IllegalArgumentException("이미 등록된 경로입니다 : " + method + " " + pattern);
+        }
+        routes.add(route);
+        return this;
+    }
+
+    public Router fallback(Controller controller) {
+        this.fallback = new Route("*", FALLBACK, controller);
+        routes.add(fallback);
+        return this;
+    }
+
+    /**
+     * @return 맞는 경로. 없으면 fallback
+     */
+    public Route route(HttpRequest request) {
+        String method = request.getMethod();
+        String path = request.getPath();
+        Map<String, Route> controllers = exactRoutes.get(path);
+        Route route = controllers == null ? null : controllers.get(method);
+        if (route != null) {
+            return route;
+        }
+        if (hasPatterns && path.startsWith("/")) {
+            Map<String, String> parameters = new HashMap<>();
+            route = match(root, path, 1, method, parameters);
+            if (route != null) {
+                request.setPathParameters(Collections.unmodifiableMap(parameters));
+                return route;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * @return 등록한 순서대로의 경로. fallback 도 포함한다.
+     */
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    /**
+     * path 의 start 부터 시작하는 조각을 node 아래에서 찾는다. 맞춘 {name} 은 끝까지 맞았을 때만 parameters 에 넣는다.
+     */
+    private static Route match(Node node, String path, int start, String method,
+            Map<String, String> parameters) {
+        if (start > path.length()) {
+            return node.controllers.get(method);
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        String segment = path.substring(start, end);
+
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Route route = match(literal, path, end + 1, method, parameters);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.parameter != null && !segment.isEmpty()) {
+            Route route = match(node.parameter, path, end + 1, method, parameters);
+            if (route != null) {
+                parameters.put(node.parameterName, segment);
+                return route;
+            }
+        }
+        return null;
+    }
+
+    public static class Route {
+        private final Controller controller;
+        private final RequestMetrics metrics;
+
+        Route(String method, String pattern, Controller controller) {
+            this.controller = controller;
+            this.metrics = new RequestMetrics(method, pattern);
+        }
+
+        public Controller getController() {
+            return controller;
+        }
+
+        public RequestMetrics getMetrics() {
+            return metrics;
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        final Map<String, Route> controllers = new HashMap<>();
+        String parameterName;
+        Node parameter;
+
+        Node child(String segment) {
+            if (!segment.startsWith("{")) {
+                return literals.computeIfAbsent(segment, s -> new Node());
+            }
+            if (!segment.endsWith("}") || segment.length() == 2) {
+                throw new IllegalArgumentException("{name} 형식이 아닙니다 : " + segment);
+            }
+            String name = segment.substring(1, segment.length() - 1);
+            if (parameter == null) {
+                parameterName = name;
+                parameter = new Node();
+            } else if (!parameterName.equals(name)) {
+                throw new IllegalArgumentException("같은 자리의 이름이 다릅니다 : {" + parameterName + "}, " + segment);
+            }
+            return parameter;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package webserver;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 서버 시작 인자를 해석한다. 첫 번째 인자는 포트이고 이후 인자는 key=value 형식의 옵션이다.
+ * 예) java webserver.WebServer 8080 mode=pool threads=200 queue=1000
+ */
+public class ServerConfig {
+    private static final int DEFAULT_PORT = 8080;
+
+    private final int port;
+    private final Map<String, String> options;
+
+    ServerConfig(int port, Map<String, String> options) {
+        this.port = port;
+        this.options = Collections.unmodifiableMap(options);
+    }
+
+    public static ServerConfig parse(String[] args) {
+        int port = DEFAULT_PORT;
+        Map<String, String> options = new HashMap<>();
+        if (args == null) {
+            return new ServerConfig(port, options);
+        }
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            int index = arg.indexOf('=');
+            if (index < 0) {
+                if (i != 0) {
+                    throw new IllegalArgumentException("옵션은 key=value 형식이어야 합니다 : " + arg);
+                }
+                port = Integer.parseInt(arg);
+                continue;
+            }
+            options.put(arg.substring(0, index).trim(), arg.substring(index + 1).trim());
+        }
+        return new ServerConfig(port, options);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = options.get(key);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = options.get(key);
+        return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = options.get(key);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    @Override
+    public String toString() {
+        return "ServerConfig [port=" + port + ", options=" + options + "]";
+    }
+}
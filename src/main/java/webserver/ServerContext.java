@@ -0,0 +1,164 @@
+package webserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import accesslog.AccessLog;
+import controller.CreateUserController;
+import controller.ListUserController;
+import controller.LoginController;
+import controller.MetricsController;
+import http.HttpRequestParser;
+import http2.Http2Connection;
+import security.PasswordHasher;
+import security.PasswordService;
+import session.MemorySessionStore;
+import session.SessionStore;
+import session.SignedSessionStore;
+
+/**
+ * blocking, nio 엔진이 연결을 처리할 때 함께 쓰는 설정과 객체를 모아 둔다.
+ * 요청 크기 제한은 request.line.max, request.header.max, request.body.max(bytes) 로 설정한다.
+ * 세션은 session.store=memory(기본) 또는 signed 로 고르고, 유지 시간은 session.ttl(초) 로 설정한다.
+ * signed 는 여러 서버가 같은 session.secret(32 bytes 이상)을 써야 서로의 로그인을 받아들인다.
+ * access log 는 access.log(파일, 기본 logs/access.log), access.log.buffer(줄 수), access.log.overflow(drop, block)로,
+ * 헤더 로그는 log.headers.sample(N 개 요청 중 하나, 0 이면 끔)로 설정한다.
+ * 비밀번호 해시는 password.iterations(PBKDF2 반복 횟수), password.threads(기본 코어 수의 절반),
+ * password.queue(대기열 길이, 넘치면 503)로 설정한다.
+ * h2c=false 이면 blocking 엔진이 HTTP/2(prior knowledge, Upgrade: h2c)를 받지 않는다.
+ * 과부하 때 요청을 미리 거절하는 설정(admission.*)은 AdmissionPolicy 에 있다.
+ */
+public class ServerContext {
+    private static final int DEFAULT_SESSION_TTL = 30 * 60;
+    private static final int DEFAULT_PASSWORD_QUEUE = 64;
+
+    private final RequestDispatcher dispatcher;
+    private final KeepAlivePolicy keepAlivePolicy;
+    private final int maxRequestLine;
+    private final int maxHeaderSize;
+    private final int maxBodySize;
+    private final ServerMetrics metrics;
+    private final boolean h2cEnabled;
+    private final AdmissionPolicy admission;
+
+    public ServerContext(RequestDispatcher dispatcher, KeepAlivePolicy keepAlivePolicy, int maxRequestLine,
+            int maxHeaderSize, int maxBodySize, ServerMetrics metrics, boolean h2cEnabled,
+            AdmissionPolicy admission) {
+        this.dispatcher = dispatcher;
+        this.h2cEnabled = h2cEnabled;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.keepAlivePolicy = keepAlivePolicy;
+        this.maxRequestLine = maxRequestLine;
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * @param shutdown
+     *            access log 를 종료할 때 닫도록 등록한다.
+     */
+    public static ServerContext from(ServerConfig config, GracefulShutdown shutdown) throws IOException {
+        StaticFileCache staticFiles = StaticFileCache.from(config);
+        PasswordService passwords = passwordService(config);
+        Router router = router(config, staticFiles, passwords);
+        AccessLog accessLog = accessLog(config);
+        if (accessLog != null) {
+            shutdown.closeOnExit(accessLog);
+        }
+        ServerMetrics metrics = new ServerMetrics(router, staticFiles, accessLog);
+        metrics.monitor(passwords);
+        AdmissionPolicy admission = AdmissionPolicy.from(config);
+        metrics.monitor(admission);
+        router.get("/metrics", new MetricsController(metrics));
+        RequestDispatcher dispatcher = new RequestDispatcher(router, accessLog, config.getInt("log.headers.sample", 0));
+        return new ServerContext(dispatcher, KeepAlivePolicy.from(config),
+                config.getInt("request.line.max", HttpRequestParser.DEFAULT_MAX_REQUEST_LINE),
+                config.getInt("request.header.max", HttpRequestParser.DEFAULT_MAX_HEADER_SIZE),
+                config.getInt("request.body.max", HttpRequestParser.DEFAULT_MAX_BODY_SIZE), metrics,
+                config.getBoolean("h2c", true), admission);
+    }
+
+    /**
+     * 새 기능은 Controller 를 만들어 여기에 경로와 함께 등록한다.
+     */
+    static Router router(ServerConfig config, StaticFileCache staticFiles, PasswordService passwords)
+            throws IOException {
+        SessionStore sessions = sessionStore(config);
+        return new Router()
+                .post("/user/create", new CreateUserController(passwords))
+                .post("/user/login", new LoginController(sessions, passwords))
+                .get("/user/list.html", new ListUserController(sessions, CompressionPolicy.from(config),
+                        ListUserController.loadTemplate(Paths.get(config.getString("webapp", "./webapp")))))
+                .fallback(new StaticFileController(staticFiles));
+    }
+
+    /**
+     * access.log=off 이면 남기지 않는다.
+     */
+    static AccessLog accessLog(ServerConfig config) throws IOException {
+        String file = config.getString("access.log", "logs/access.log");
+        if ("off".equals(file)) {
+            return null;
+        }
+        String overflow = config.getString("access.log.overflow", "drop").toUpperCase(Locale.ROOT);
+        return AccessLog.open(Paths.get(file), config.getInt("access.log.buffer", 8192),
+                AccessLog.OverflowPolicy.valueOf(overflow));
+    }
+
+    static PasswordService passwordService(ServerConfig config) {
+        int threads = config.getInt("password.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        return new PasswordService(new PasswordHasher(config.getInt("password.iterations",
+                PasswordHasher.DEFAULT_ITERATIONS)), threads, config.getInt("password.queue", DEFAULT_PASSWORD_QUEUE));
+    }
+
+    static SessionStore sessionStore(ServerConfig config) {
+        int ttl = config.getInt("session.ttl", DEFAULT_SESSION_TTL);
+        String store = config.getString("session.store", "memory");
+        if ("signed".equals(store)) {
+            return new SignedSessionStore(config.getString("session.secret", "").getBytes(StandardCharsets.UTF_8), ttl);
+        }
+        if (!"memory".equals(store)) {
+            throw new IllegalArgumentException("알 수 없는 session.store 입니다 : " + store);
+        }
+        return new MemorySessionStore(ttl);
+    }
+
+    public RequestDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public KeepAlivePolicy getKeepAlivePolicy() {
+        return keepAlivePolicy;
+    }
+
+    public AdmissionPolicy getAdmission() {
+        return admission;
+    }
+
+    /**
+     * 연결마다 하나씩 만들어 그 연결의 요청을 모두 해석하는 데 재사용한다.
+     */
+    public HttpRequestParser newParser() {
+        return new HttpRequestParser(maxRequestLine, maxHeaderSize, maxBodySize);
+    }
+
+    public boolean isH2cEnabled() {
+        return h2cEnabled;
+    }
+
+    /**
+     * HTTP/1.1 과 같은 헤더, 본문 크기 제한으로 HTTP/2 연결을 만든다.
+     */
+    public Http2Connection newHttp2Connection(InputStream in, OutputStream out, Http2Connection.StreamHandler handler) {
+        return new Http2Connection(in, out, handler, maxHeaderSize, maxBodySize);
+    }
+}
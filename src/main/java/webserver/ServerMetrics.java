@@ -0,0 +1,217 @@
+package webserver;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import accesslog.AccessLog;
+import metrics.LatencyHistogram;
+import metrics.RequestMetrics;
+import security.PasswordService;
+import webserver.Router.Route;
+
+/**
+ * 서버의 상태를 모은다. 경로별 응답 시간은 Router 의 RequestMetrics 에 있고, 여기에는 연결 수와 거절한 요청 수를 센다.
+ * 작업 큐 길이와 정적 파일 캐시 적중률은 읽을 때 가져온다.
+ *
+ * /metrics 로 Prometheus text 형식을 내보내고, metrics.log.interval(초, 기본 60, 0 이면 끔)마다 요약을 로그에 남긴다.
+ */
+public class ServerMetrics {
+    private static final Logger log = LoggerFactory.getLogger(ServerMetrics.class);
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private final Router router;
+    private final StaticFileCache staticFiles;
+    private final AccessLog accessLog;
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile ExecutorService workers;
+    private volatile PasswordService passwords;
+    private volatile AdmissionPolicy admission;
+
+    private long lastLoggedCount;
+    private long lastLoggedAt = System.nanoTime();
+
+    /**
+     * @param accessLog
+     *            남기지 않으면 null
+     */
+    public ServerMetrics(Router router, StaticFileCache staticFiles, AccessLog accessLog) {
+        this.router = router;
+        this.staticFiles = staticFiles;
+        this.accessLog = accessLog;
+    }
+
+    /**
+     * 작업 큐 길이를 볼 worker 를 정한다. ThreadPoolExecutor 가 아니면(virtual 모드) 큐 길이는 0 이다.
+     */
+    public void monitor(ExecutorService workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * 비밀번호 해시 대기열 길이와 거절한 수를 함께 내보낸다.
+     */
+    public void monitor(PasswordService passwords) {
+        this.passwords = passwords;
+    }
+
+    /**
+     * 요청을 받기 전에 거절한 수와 지금의 동시 처리 한도를 함께 내보낸다.
+     */
+    public void monitor(AdmissionPolicy admission) {
+        this.admission = admission;
+    }
+
+    public void connectionOpened() {
+        acceptedConnections.increment();
+        activeConnections.increment();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    public void requestRejected() {
+        rejected.increment();
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public int getQueueDepth() {
+        ExecutorService executor = workers;
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    /**
+     * text/plain; version=0.0.4 형식. 응답 시간은 초 단위 summary 로 쓴다.
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP http_server_requests_seconds Request latency by route and status.\n");
+        out.append("# TYPE http_server_requests_seconds summary\n");
+        for (Route route : router.getRoutes()) {
+            RequestMetrics metrics = route.getMetrics();
+            metrics.forEach((histogram, status) -> {
+                String labels = "method=\"" + escape(metrics.getMethod()) + "\",route=\""
+                        + escape(metrics.getRoute()) + "\",status=\"" + status + "\"";
+                for (double quantile : QUANTILES) {
+                    out.append("http_server_requests_seconds{").append(labels).append(",quantile=\"")
+                            .append(quantile).append("\"} ").append(seconds(histogram.getValueAtQuantile(quantile)))
+                            .append('\n');
+                }
+                out.append("http_server_requests_seconds_count{").append(labels).append("} ")
+                        .append(histogram.getCount()).append('\n');
+                out.append("http_server_requests_seconds_sum{").append(labels).append("} ")
+                        .append(seconds(histogram.getSumMicros())).append('\n');
+            });
+        }
+        gauge(out, "http_server_connections_active", "Open client connections.", getActiveConnections());
+        counter(out, "http_server_connections_total", "Accepted client connections.", acceptedConnections.sum());
+        counter(out, "http_server_rejected_total", "Requests answered 503 because the worker queue was full.",
+                rejected.sum());
+        gauge(out, "http_server_worker_queue_depth", "Tasks waiting for a worker thread.", getQueueDepth());
+        gauge(out, "static_cache_entries", "Files held by the static file cache.", staticFiles.size());
+        gauge(out, "static_cache_hit_ratio", "Static file cache hit ratio since start.", staticFiles.getHitRate());
+        PasswordService passwords = this.passwords;
+        if (passwords != null) {
+            gauge(out, "password_hash_queue_depth", "Password hashes waiting for a hashing thread.",
+                    passwords.getQueueSize());
+            counter(out, "password_hash_rejected_total", "Password hashes refused because the queue was full.",
+                    passwords.getRejected());
+        }
+        AdmissionPolicy admission = this.admission;
+        if (admission != null) {
+            out.append("# HELP http_server_admission_rejected_total Requests refused before dispatch.\n");
+            out.append("# TYPE http_server_admission_rejected_total counter\n");
+            out.append("http_server_admission_rejected_total{reason=\"rate\"} ").append(admission.getRateLimited())
+                    .append('\n');
+            out.append("http_server_admission_rejected_total{reason=\"concurrency\"} ")
+                    .append(admission.getConcurrencyLimited()).append('\n');
+            gauge(out, "http_server_admission_limit", "Adaptive concurrency limit, -1 if disabled.",
+                    admission.getConcurrencyLimit());
+            gauge(out, "http_server_admission_in_flight", "Admitted requests not yet answered.",
+                    admission.getInFlight());
+            gauge(out, "http_server_admission_clients", "Clients tracked by the rate limiter.",
+                    admission.getTrackedClients());
+        }
+        if (accessLog != null) {
+            counter(out, "access_log_dropped_total", "Access log lines dropped because the buffer was full.",
+                    accessLog.getDropped());
+        }
+        return out.toString();
+    }
+
+    /**
+     * 마지막 요약 뒤로 처리한 요청 수와 초당 처리량, 시작한 뒤 전체 응답 시간의 분위수를 한 줄로 만든다.
+     */
+    synchronized String summary() {
+        LatencyHistogram total = new LatencyHistogram();
+        for (Route route : router.getRoutes()) {
+            route.getMetrics().forEach((histogram, status) -> histogram.addTo(total));
+        }
+        long count = total.getCount();
+        long now = System.nanoTime();
+        double elapsedSeconds = Math.max(1, now - lastLoggedAt) / 1e9;
+        long requests = count - lastLoggedCount;
+        lastLoggedCount = count;
+        lastLoggedAt = now;
+        return String.format(Locale.ROOT,
+                "requests=%d (%.1f/s), latency since start p50=%.2fms p99=%.2fms, "
+                        + "connections=%d, queue=%d, static hit=%.1f%%",
+                requests, requests / elapsedSeconds, millis(total.getValueAtQuantile(0.5)),
+                millis(total.getValueAtQuantile(0.99)), getActiveConnections(), getQueueDepth(),
+                staticFiles.getHitRate() * 100);
+    }
+
+    /**
+     * intervalSeconds 마다 요약을 INFO 로그로 남기는 daemon 스레드를 시작한다.
+     */
+    public void startSummaryLog(long intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> log.info(summary()), intervalSeconds, intervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, Number value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static double seconds(long micros) {
+        return micros / 1e6;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1e3;
+    }
+}
@@ -0,0 +1,120 @@
+package webserver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * webapp 아래 정적 파일을 경로별로 메모리에 보관한다.
+ * 전체 크기가 static.cache.size(bytes) 를 넘으면 오래 쓰지 않은 항목부터 내보내고,
+ * static.recheck(ms) 마다 파일의 수정 시각을 확인해 바뀐 파일은 다시 읽는다.
+ * static.zerocopy.threshold(bytes) 이상인 파일은 내용을 보관하지 않고 transferTo 로 보낸다.
+ * 압축할 만한 파일은 읽어 들일 때 한 번만 압축해 압축본을 함께 보관한다.
+ */
+public class StaticFileCache {
+    private static final Logger log = LoggerFactory.getLogger(StaticFileCache.class);
+
+    private static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+    private static final long DEFAULT_RECHECK_INTERVAL = 1000;
+    private static final long DEFAULT_ZERO_COPY_THRESHOLD = 64 * 1024;
+
+    private final Path root;
+    private final long recheckIntervalMillis;
+    private final long zeroCopyThreshold;
+    private final CacheControlPolicy cacheControlPolicy;
+    private final CompressionPolicy compressionPolicy;
+    private final Cache<String, StaticResource> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StaticFileCache(Path root, long maxSize, long recheckIntervalMillis) {
+        this(root, maxSize, recheckIntervalMillis, Long.MAX_VALUE, new CacheControlPolicy(null),
+                CompressionPolicy.disabled());
+    }
+
+    public StaticFileCache(Path root, long maxSize, long recheckIntervalMillis, long zeroCopyThreshold,
+            CacheControlPolicy cacheControlPolicy, CompressionPolicy compressionPolicy) {
+        this.root = root.toAbsolutePath().normalize();
+        this.recheckIntervalMillis = recheckIntervalMillis;
+        this.zeroCopyThreshold = zeroCopyThreshold;
+        this.cacheControlPolicy = cacheControlPolicy;
+        this.compressionPolicy = compressionPolicy;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String path, StaticResource resource) -> resource.weight())
+                .build();
+    }
+
+    public static StaticFileCache from(ServerConfig config) {
+        return new StaticFileCache(Paths.get(config.getString("webapp", "./webapp")),
+                config.getLong("static.cache.size", DEFAULT_MAX_SIZE),
+                config.getLong("static.recheck", DEFAULT_RECHECK_INTERVAL),
+                config.getLong("static.zerocopy.threshold", DEFAULT_ZERO_COPY_THRESHOLD),
+                CacheControlPolicy.from(config),
+                CompressionPolicy.from(config));
+    }
+
+    /**
+     * @return 파일이 없거나 webapp 밖을 가리키면 null
+     */
+    StaticResource get(String requestPath) throws IOException {
+        long now = System.currentTimeMillis();
+        StaticResource resource = cache.getIfPresent(requestPath);
+        if (resource != null && resource.isFresh(now, recheckIntervalMillis)) {
+            hits.increment();
+            return resource;
+        }
+
+        misses.increment();
+        Path file = resolve(requestPath);
+        if (file == null) {
+            cache.invalidate(requestPath);
+            return null;
+        }
+        resource = StaticResource.load(file, cacheControlPolicy.getCacheControl(requestPath), now,
+                zeroCopyThreshold, compressionPolicy);
+        cache.put(requestPath, resource);
+        log.debug("Static file loaded : {}", requestPath);
+        return resource;
+    }
+
+    private Path resolve(String requestPath) {
+        String relative = requestPath.startsWith("/") ? requestPath.substring(1) : requestPath;
+        Path file = root.resolve(relative).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return file;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 1.0 : (double) hit / total;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return "StaticFileCache [entries=" + cache.size() + ", hits=" + hits.sum() + ", misses=" + misses.sum() + "]";
+    }
+}
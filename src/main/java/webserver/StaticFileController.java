@@ -0,0 +1,115 @@
+package webserver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import controller.Controller;
+import http.ByteRange;
+import http.ContentEncoding;
+import http.HeaderNames;
+import http.HttpRequest;
+import http.HttpResponse;
+import webserver.StaticResource.Representation;
+
+/**
+ * 등록된 경로에 맞지 않는 GET 요청을 webapp 의 정적 파일로 응답한다. 파일이 없으면 404 로 응답한다.
+ * HEAD 는 GET 과 같은 파일, 같은 encoding 을 골라 같은 헤더를 보내고 본문은 보내지 않는다.
+ *
+ * Range 가 있으면 원본에서 그 범위만 206 으로 보낸다. 범위가 여럿이면 multipart/byteranges 로 묶고,
+ * 맞는 범위가 없으면 416 으로 답한다. If-Range 가 지금의 ETag, Last-Modified 와 다르면 Range 를 무시하고 전체를 보낸다.
+ */
+public class StaticFileController implements Controller {
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final StaticFileCache staticFiles;
+
+    public StaticFileController(StaticFileCache staticFiles) {
+        this.staticFiles = staticFiles;
+    }
+
+    @Override
+    public void service(HttpRequest request, HttpResponse response) throws IOException {
+        boolean head = "HEAD".equals(request.getMethod());
+        StaticResource resource = head || "GET".equals(request.getMethod()) ? staticFiles.get(request.getPath())
+                : null;
+        if (resource == null) {
+            // 연결을 유지하는 동안 응답 없이 끝나면 클라이언트가 계속 기다리므로 404 로 응답한다.
+            response.response404();
+            return;
+        }
+
+        Representation representation = resource
+                .select(ContentEncoding.negotiate(request.getHeader(HeaderNames.ACCEPT_ENCODING)));
+        if (representation.isNotModified(request.getHeader(HeaderNames.IF_NONE_MATCH),
+                request.getHeader(HeaderNames.IF_MODIFIED_SINCE))) {
+            response.responsePrepared(representation.getNotModifiedHeader(), EMPTY_BODY);
+            return;
+        }
+        if (head) {
+            // Range 는 GET 에만 적용한다. (RFC 7233 3.1)
+            response.responseHeader(representation.getHeader());
+            return;
+        }
+
+        Representation identity = resource.getIdentity();
+        List<ByteRange> ranges = identity.matchesIfRange(request.getHeader(HeaderNames.IF_RANGE))
+                ? ByteRange.parse(request.getHeader(HeaderNames.RANGE), identity.getLength()) : null;
+        if (ranges == null) {
+            sendWhole(resource, representation, response);
+        } else if (ranges.isEmpty()) {
+            response.responsePrepared(identity.getRangeNotSatisfiableHeader(), EMPTY_BODY);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.responseHeader(identity.getPartialHeader(range));
+            sendRange(resource, identity, range, response);
+        } else {
+            sendMultipart(resource, identity, ranges, response);
+        }
+    }
+
+    private void sendWhole(StaticResource resource, Representation representation, HttpResponse response)
+            throws IOException {
+        if (representation.isInMemory()) {
+            response.responsePrepared(representation.getHeader(), representation.getBody());
+        } else {
+            response.responseFile(representation.getHeader(), resource.getFile(), resource.getLength());
+        }
+    }
+
+    /**
+     * 범위마다 구분자와 Content-Range 를 붙여 multipart/byteranges 로 보낸다. (RFC 7233 4.1)
+     * 전체 길이를 먼저 계산해 Content-Length 로 보내므로 본문은 모으지 않고 범위마다 바로 쓴다.
+     */
+    private void sendMultipart(StaticResource resource, Representation identity, List<ByteRange> ranges,
+            HttpResponse response) throws IOException {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        byte[][] partHeaders = new byte[ranges.size()][];
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        long contentLength = closing.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            partHeaders[i] = identity.getPartHeader(boundary, ranges.get(i));
+            contentLength += partHeaders[i].length + ranges.get(i).getLength();
+        }
+
+        response.responseHeader(identity.getMultipartHeader(boundary, contentLength));
+        for (int i = 0; i < ranges.size(); i++) {
+            response.responseBody(partHeaders[i]);
+            sendRange(resource, identity, ranges.get(i), response);
+        }
+        response.responseBody(closing);
+    }
+
+    /**
+     * 메모리에 있으면 그 배열의 일부를, 없으면 파일의 일부만 보낸다.
+     */
+    private void sendRange(StaticResource resource, Representation identity, ByteRange range,
+            HttpResponse response) throws IOException {
+        if (identity.isInMemory()) {
+            response.responseBody(identity.getBody(), (int) range.getFirst(), (int) range.getLength());
+        } else {
+            response.responseFileBody(resource.getFile(), range.getFirst(), range.getLength());
+        }
+    }
+}
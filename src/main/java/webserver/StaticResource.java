@@ -0,0 +1,283 @@
+package webserver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import http.ByteRange;
+import http.CompressingOutputStream;
+import http.ContentEncoding;
+import http.HttpDates;
+import http.MimeTypes;
+
+/**
+ * 캐시에 보관하는 정적 파일 하나. 미리 만들어 둔 응답 헤더를 가지고 있어 요청마다 헤더 문자열을 조립하지 않는다.
+ * zeroCopyThreshold 보다 작은 파일은 내용을 힙에 보관하고, 큰 파일은 내용 없이 메타데이터만 보관해
+ * 응답할 때 FileChannel.transferTo 로 보낸다.
+ * ETag 는 파일 내용의 해시로 읽어 들일 때 한 번만 계산하고, 압축할 만한 파일은 gzip/deflate 본을 함께 만들어 둔다.
+ * compress.max 를 넘는 파일은 압축본을 만들지 않으므로 힙에 읽지 않고 원본을 transferTo 로 보낸다.
+ * Range 요청은 원본(identity)의 바이트로만 답하므로 Accept-Ranges 도 원본 응답에만 붙인다.
+ */
+class StaticResource {
+    private static final HashFunction ETAG_HASH = Hashing.murmur3_128();
+
+    private final Path file;
+    private final long length;
+    private final long lastModified;
+    private final Representation identity;
+    private final Representation gzip;
+    private final Representation deflate;
+    private volatile long checkedAt;
+
+    private StaticResource(Path file, long length, long lastModified, Representation identity, Representation gzip,
+            Representation deflate, long checkedAt) {
+        this.file = file;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.identity = identity;
+        this.gzip = gzip;
+        this.deflate = deflate;
+        this.checkedAt = checkedAt;
+    }
+
+    static StaticResource load(Path file, String cacheControl, long now, long zeroCopyThreshold,
+            CompressionPolicy compressionPolicy) throws IOException {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        long length = Files.size(file);
+        String contentType = MimeTypes.getContentType(file.getFileName().toString());
+        boolean compressible = compressionPolicy.isCompressible(contentType, length);
+
+        byte[] content = null;
+        String hash;
+        if (length < zeroCopyThreshold || compressible) {
+            content = Files.readAllBytes(file);
+            length = content.length;
+            hash = ETAG_HASH.hashBytes(content).toString();
+        } else {
+            hash = com.google.common.io.Files.hash(file.toFile(), ETAG_HASH).toString();
+        }
+
+        String commonHeaders = "Last-Modified: " + HttpDates.format(lastModified) + "\r\n"
+                + "Cache-Control: " + cacheControl + "\r\n"
+                + (compressible ? "Vary: Accept-Encoding\r\n" : "");
+        byte[] identityBody = length < zeroCopyThreshold ? content : null;
+        Representation identity = new Representation(contentType, null, "\"" + hash + "\"", identityBody, length,
+                commonHeaders, lastModified);
+        if (!compressible) {
+            return new StaticResource(file, length, lastModified, identity, null, null, now);
+        }
+
+        Representation gzip = compressed(ContentEncoding.GZIP, content, contentType, hash, commonHeaders,
+                lastModified);
+        Representation deflate = compressed(ContentEncoding.DEFLATE, content, contentType, hash, commonHeaders,
+                lastModified);
+        return new StaticResource(file, length, lastModified, identity, gzip, deflate, now);
+    }
+
+    private static Representation compressed(ContentEncoding encoding, byte[] content, String contentType,
+            String hash, String commonHeaders, long lastModified) throws IOException {
+        byte[] body = CompressingOutputStream.compress(content, encoding);
+        // 표현마다 바이트가 다르므로 강한 ETag 도 encoding 별로 달라야 한다.
+        String etag = "\"" + hash + "-" + encoding.getToken() + "\"";
+        return new Representation(contentType, encoding, etag, body, body.length, commonHeaders, lastModified);
+    }
+
+    /**
+     * 마지막 확인 후 recheckIntervalMillis 가 지났다면 파일의 수정 시각과 크기를 다시 확인한다.
+     */
+    boolean isFresh(long now, long recheckIntervalMillis) {
+        if (now - checkedAt < recheckIntervalMillis) {
+            return true;
+        }
+        try {
+            if (Files.getLastModifiedTime(file).toMillis() != lastModified || Files.size(file) != length) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        checkedAt = now;
+        return true;
+    }
+
+    /**
+     * 클라이언트가 받을 수 있는 encoding 의 표현을 고른다. 압축본이 없으면 원본을 준다.
+     */
+    Representation select(ContentEncoding encoding) {
+        if (encoding == ContentEncoding.GZIP && gzip != null) {
+            return gzip;
+        }
+        if (encoding == ContentEncoding.DEFLATE && deflate != null) {
+            return deflate;
+        }
+        return identity;
+    }
+
+    Representation getIdentity() {
+        return identity;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    int weight() {
+        int weight = identity.weight();
+        if (gzip != null) {
+            weight += gzip.weight() + deflate.weight();
+        }
+        return weight;
+    }
+
+    /**
+     * 같은 파일의 encoding 별 응답. 헤더와 304 헤더를 미리 만들어 둔다.
+     */
+    static class Representation {
+        private final String contentType;
+        private final String etag;
+        private final String validators;
+        private final byte[] header;
+        private final byte[] notModifiedHeader;
+        private final byte[] rangeNotSatisfiableHeader;
+        private final byte[] body;
+        private final long length;
+        private final long lastModified;
+
+        Representation(String contentType, ContentEncoding encoding, String etag, byte[] body, long length,
+                String commonHeaders, long lastModified) {
+            String validators = "ETag: " + etag + "\r\n" + commonHeaders;
+            String header = "HTTP/1.1 200 OK \r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + (encoding != null ? "Content-Encoding: " + encoding.getToken() + "\r\n" : "")
+                    + "Content-Length: " + length + "\r\n"
+                    + (encoding == null ? "Accept-Ranges: bytes\r\n" : "")
+                    + validators;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.validators = validators;
+            this.header = header.getBytes(StandardCharsets.US_ASCII);
+            this.notModifiedHeader = ("HTTP/1.1 304 Not Modified \r\n" + validators)
+                    .getBytes(StandardCharsets.US_ASCII);
+            this.rangeNotSatisfiableHeader = ("HTTP/1.1 416 Range Not Satisfiable \r\n"
+                    + "Content-Range: bytes */" + length + "\r\n"
+                    + "Content-Length: 0\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            this.body = body;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * If-Range 가 없거나 지금의 강한 ETag 또는 Last-Modified 와 같으면 true. 다르면 범위 대신 전체를 보내야 한다.
+         */
+        boolean matchesIfRange(String ifRange) {
+            if (ifRange.isEmpty()) {
+                return true;
+            }
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                return ifRange.equals(etag);
+            }
+            long date = HttpDates.parse(ifRange);
+            return date >= 0 && date / 1000 == lastModified / 1000;
+        }
+
+        /**
+         * 범위 하나를 보내는 206 헤더.
+         */
+        byte[] getPartialHeader(ByteRange range) {
+            return ("HTTP/1.1 206 Partial Content \r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + contentRange(range) + "\r\n"
+                    + "Content-Length: " + range.getLength() + "\r\n"
+                    + validators).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * 여러 범위를 multipart/byteranges 로 보내는 206 헤더.
+         */
+        byte[] getMultipartHeader(String boundary, long contentLength) {
+            return ("HTTP/1.1 206 Partial Content \r\n"
+                    + "Content-Type: multipart/byteranges; boundary=" + boundary + "\r\n"
+                    + "Content-Length: " + contentLength + "\r\n"
+                    + validators).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * multipart/byteranges 에서 범위마다 앞에 붙는 구분자와 헤더.
+         */
+        byte[] getPartHeader(String boundary, ByteRange range) {
+            return ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + contentRange(range) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private String contentRange(ByteRange range) {
+            return "bytes " + range.getFirst() + "-" + range.getLast() + "/" + length;
+        }
+
+        /**
+         * If-None-Match 가 있으면 ETag 로만 비교하고, 없을 때 If-Modified-Since 를 초 단위로 비교한다.
+         */
+        boolean isNotModified(String ifNoneMatch, String ifModifiedSince) {
+            if (!ifNoneMatch.isEmpty()) {
+                return matchesEtag(ifNoneMatch);
+            }
+            long since = HttpDates.parse(ifModifiedSince);
+            return since >= 0 && lastModified / 1000 <= since / 1000;
+        }
+
+        private boolean matchesEtag(String ifNoneMatch) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isInMemory() {
+            return body != null;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        byte[] getHeader() {
+            return header;
+        }
+
+        byte[] getNotModifiedHeader() {
+            return notModifiedHeader;
+        }
+
+        byte[] getRangeNotSatisfiableHeader() {
+            return rangeNotSatisfiableHeader;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        long getLength() {
+            return length;
+        }
+
+        int weight() {
+            return header.length + notModifiedHeader.length + rangeNotSatisfiableHeader.length
+                    + (body == null ? 0 : body.length);
+        }
+    }
+}
@@ -1,34 +1,74 @@
 package webserver;
 
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import db.DataBase;
+
 public class WebServer {
     private static final Logger log = LoggerFactory.getLogger(WebServer.class);
-    private static final int DEFAULT_PORT = 8080;
 
     public static void main(String args[]) throws Exception {
-        int port = 0;
-        if (args == null || args.length == 0) {
-            port = DEFAULT_PORT;
-        } else {
-            port = Integer.parseInt(args[0]);
-        }
+        ServerConfig config = ServerConfig.parse(args);
+        int port = config.getPort();
+        // 종료할 때 연결을 정리한 뒤 DB, access log 를 닫도록 hook 을 먼저 건다.
+        GracefulShutdown shutdown = GracefulShutdown.install(config);
+        openDataBase(config, shutdown);
+        ExecutorService workers = WorkerExecutors.create(config);
+        ServerContext context = ServerContext.from(config, shutdown);
+        context.getMetrics().monitor(workers);
+        // metrics.log.interval(초) 마다 처리량과 응답 시간 요약을 남긴다. 0 이면 남기지 않는다.
+        context.getMetrics().startSummaryLog(config.getLong("metrics.log.interval", 60));
 
         // 서버소켓을 생성한다. 웹서버는 기본적으로 8080번 포트를 사용한다.
+        Listener listener = Listener.from(config);
+        shutdown.drainOnExit(listener, context, workers);
 
-        try (ServerSocket listenSocket = new ServerSocket(port)) {
-            log.info("Web Application Server started {} port.", port);
+        // engine=nio 이면 Selector 기반의 non-blocking 서버를 사용한다.
+        if ("nio".equals(config.getString("engine", "blocking"))) {
+            new NioServer(config, workers, context).start(listener);
+            return;
+        }
+
+        serveBlocking(listener, context, workers, WorkerExecutors.createStreamWorkers(config));
+        log.info("Web Application Server started {} port.", port);
+    }
 
-            // 클라이언트가 연결될때까지 대기한다.
-            Socket connection;
-            while ((connection = listenSocket.accept()) != null) {
-                RequestHandler requestHandler = new RequestHandler(connection);
-                requestHandler.start();
-            }
+    /**
+     * 연결마다 worker 하나가 요청을 읽고 처리한다. HTTP/2 로 넘어간 연결의 stream 은 streamWorkers 가 처리한다.
+     */
+    static void serveBlocking(Listener listener, ServerContext context, Executor workers, Executor streamWorkers)
+            throws IOException {
+        // 정적 파일을 transferTo(sendfile)로 보낼 수 있도록 channel 을 가진 socket 을 받는다.
+        listener.start("acceptor", connection -> {
+            context.getMetrics().connectionOpened();
+            workers.execute(new RequestHandler(connection.socket(), context, streamWorkers));
+        });
+    }
+
+    /**
+     * 사용자를 db.dir 에 기록한다. db.dir=off 이면 이전처럼 메모리에만 둔다.
+     */
+    private static void openDataBase(ServerConfig config, GracefulShutdown shutdown) throws IOException {
+        Path dir = dataBaseDir(config);
+        if (dir == null) {
+            return;
         }
+        DataBase.open(dir, config.getLong("db.sync.window", 2), config.getInt("db.snapshot.records", 100000));
+        shutdown.closeOnExit(DataBase::close);
+    }
+
+    /**
+     * @return 기록하지 않으면 null
+     */
+    static Path dataBaseDir(ServerConfig config) {
+        String dir = config.getString("db.dir", "data");
+        return "off".equals(dir) ? null : Paths.get(dir);
     }
 }
@@ -0,0 +1,116 @@
+package webserver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 요청을 처리할 실행 모델을 만든다.
+ * pool 모드는 크기가 제한된 ThreadPoolExecutor 를, virtual 모드는 요청마다 가상 스레드를 사용한다.
+ *
+ * HTTP/2 stream 은 따로 만든 pool 에서 처리한다. blocking engine 은 HTTP/2 연결마다 frame 을 읽는 스레드가 worker 를
+ * 하나씩 차지하므로, stream 까지 같은 pool 에 넣으면 HTTP/2 연결이 threads 개가 되는 순간 stream 을 처리할 스레드가 없다.
+ */
+public class WorkerExecutors {
+    private static final Logger log = LoggerFactory.getLogger(WorkerExecutors.class);
+
+    public static final String MODE_POOL = "pool";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    private static final int DEFAULT_THREADS = 200;
+    private static final int DEFAULT_QUEUE = 1000;
+
+    public static ExecutorService create(ServerConfig config) {
+        return create(config, "worker", config.getInt("threads", DEFAULT_THREADS),
+                config.getInt("queue", DEFAULT_QUEUE));
+    }
+
+    /**
+     * HTTP/2 stream 을 처리할 pool. 크기는 h2.threads, h2.queue 로 정하고 기본값은 worker 와 같다.
+     */
+    public static ExecutorService createStreamWorkers(ServerConfig config) {
+        return create(config, "h2-worker", config.getInt("h2.threads", config.getInt("threads", DEFAULT_THREADS)),
+                config.getInt("h2.queue", config.getInt("queue", DEFAULT_QUEUE)));
+    }
+
+    private static ExecutorService create(ServerConfig config, String name, int threads, int queue) {
+        String mode = config.getString("mode", MODE_POOL);
+        if (MODE_VIRTUAL.equals(mode)) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                log.info("{} mode : virtual thread per task", name);
+                return executor;
+            }
+            log.warn("Virtual threads are not supported on this JVM({}). Falling back to pool mode.",
+                    System.getProperty("java.version"));
+        } else if (!MODE_POOL.equals(mode)) {
+            throw new IllegalArgumentException("지원하지 않는 mode 입니다 : " + mode);
+        }
+
+        log.info("{} mode : pool, threads : {}, queue : {}", name, threads, queue);
+        return newBoundedPool(name, threads, queue, new ServiceUnavailablePolicy());
+    }
+
+    static ThreadPoolExecutor newBoundedPool(String name, int threads, int queueSize,
+            RejectedExecutionHandler rejectionPolicy) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads 는 1 이상이어야 합니다 : " + threads);
+        }
+        BlockingQueue<Runnable> queue = queueSize > 0
+                ? new ArrayBlockingQueue<>(queueSize)
+                : new SynchronousQueue<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, queue,
+                new NamedThreadFactory(name), rejectionPolicy);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 큐가 가득 차서 처리할 수 없는 연결에는 503 응답을 보내고 연결을 닫는다.
+     */
+    static class ServiceUnavailablePolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (task instanceof RejectableTask) {
+                ((RejectableTask) task).rejectServiceUnavailable();
+                return;
+            }
+            log.warn("Rejected task : {}", task);
+        }
+    }
+
+    static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package accesslog;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import accesslog.AccessLog.OverflowPolicy;
+
+public class AccessLogTest {
+    @Test
+    public void log() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccessLog accessLog = new AccessLog(out, 16, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            assertThat(accessLog.log("GET", "/index.html", 200, 1234, TimeUnit.MICROSECONDS.toNanos(532)), is(true));
+        }
+        accessLog.log("POST", "/a\"b\nc", 302, 0, 0);
+        accessLog.close();
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertThat(lines.length, is(101));
+        assertThat(lines[0].matches("time=\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.\\d{3}Z method=GET "
+                + "path=\"/index.html\" status=200 bytes=1234 duration_us=532"), is(true));
+        assertThat(lines[100], endsWith(" method=POST path=\"/a\\x22b\\x0ac\" status=302 bytes=0 duration_us=0"));
+    }
+
+    @Test
+    public void log_drop() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                super.write(b, off, len);
+            }
+        };
+        AccessLog accessLog = new AccessLog(out, 2, OverflowPolicy.DROP);
+        accessLog.log("GET", "/1", 200, 0, 0);
+        // writer 가 첫 줄을 쓰다 멈춘 동안 buffer 두 칸이 차면 나머지는 버린다.
+        assertThat(writing.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(accessLog.log("GET", "/2", 200, 0, 0), is(true));
+        assertThat(accessLog.log("GET", "/3", 200, 0, 0), is(true));
+        assertThat(accessLog.log("GET", "/4", 200, 0, 0), is(false));
+        assertThat(accessLog.getDropped(), is(1L));
+
+        release.countDown();
+        accessLog.close();
+        String written = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+        assertThat(written, containsString("path=\"/3\""));
+        assertThat(written, not(containsString("path=\"/4\"")));
+    }
+
+    @Test
+    public void open_append() throws Exception {
+        Path file = Files.createTempDirectory("access").resolve("logs/access.log");
+        for (int i = 0; i < 2; i++) {
+            AccessLog accessLog = AccessLog.open(file, 8, OverflowPolicy.DROP);
+            accessLog.log("GET", "/" + i, 200, 0, 0);
+            accessLog.close();
+        }
+        assertThat(Files.readAllLines(file).size(), is(2));
+    }
+}
@@ -0,0 +1,79 @@
+package admission;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AimdLimiterTest {
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void tryAcquire_rejectsOverLimit() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, THRESHOLD, 0.5);
+        assertThat(limiter.tryAcquire(), is(true));
+        assertThat(limiter.tryAcquire(), is(true));
+        assertThat(limiter.tryAcquire(), is(false));
+        limiter.cancel();
+        assertThat(limiter.tryAcquire(), is(true));
+        assertThat(limiter.getInFlight(), is(2));
+        assertThat(limiter.getRejected(), is(1L));
+    }
+
+    @Test
+    public void release_increasesWhenFastAndBusy() {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 5, THRESHOLD, 0.5);
+        long now = System.nanoTime();
+        // 한도만큼 빠르게 처리할 때마다 1 씩 는다.
+        for (int i = 0; i < 4; i++) {
+            acquireAll(limiter);
+            releaseAll(limiter, 1, false, now);
+        }
+        assertThat(limiter.getLimit(), is(5));
+        for (int i = 0; i < 10; i++) {
+            acquireAll(limiter);
+            releaseAll(limiter, 1, false, now);
+        }
+        assertThat(limiter.getLimit(), is(5));
+    }
+
+    @Test
+    public void release_keepsLimitWhenIdle() {
+        AimdLimiter limiter = new AimdLimiter(10, 1, 20, THRESHOLD, 0.5);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(1, false);
+        }
+        assertThat(limiter.getLimit(), is(10));
+    }
+
+    @Test
+    public void release_decreasesOncePerThreshold() {
+        AimdLimiter limiter = new AimdLimiter(8, 3, 10, THRESHOLD, 0.5);
+        long now = System.nanoTime() + THRESHOLD;
+        acquireAll(limiter);
+        releaseAll(limiter, THRESHOLD * 2, false, now);
+        assertThat(limiter.getLimit(), is(4));
+
+        limiter.tryAcquire();
+        limiter.release(1, true, now + THRESHOLD);
+        assertThat(limiter.getLimit(), is(3));
+        limiter.tryAcquire();
+        limiter.release(1, true, now + THRESHOLD * 2);
+        assertThat(limiter.getLimit(), is(3));
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    private static void acquireAll(AimdLimiter limiter) {
+        while (limiter.tryAcquire()) {
+        }
+    }
+
+    private static void releaseAll(AimdLimiter limiter, long latency, boolean overloaded, long now) {
+        while (limiter.getInFlight() > 0) {
+            limiter.release(latency, overloaded, now);
+        }
+    }
+}
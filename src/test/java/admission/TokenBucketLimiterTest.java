@@ -0,0 +1,71 @@
+package admission;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TokenBucketLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void tryAcquire_burstThenRate() {
+        TokenBucketLimiter<String> limiter = new TokenBucketLimiter<>(10, 5, 100);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("a", now), is(0L));
+        }
+        assertThat(limiter.tryAcquire("a", now) > 0, is(true));
+        // 다른 클라이언트는 영향을 받지 않는다.
+        assertThat(limiter.tryAcquire("b", now), is(0L));
+
+        // 0.1 초마다 토큰 하나가 찬다.
+        assertThat(limiter.tryAcquire("a", now + SECOND / 10), is(0L));
+        assertThat(limiter.tryAcquire("a", now + SECOND / 10) > 0, is(true));
+        assertThat(limiter.getRejected(), is(2L));
+    }
+
+    @Test
+    public void sweep_removesFullBuckets() {
+        TokenBucketLimiter<String> limiter = new TokenBucketLimiter<>(10, 5, 100);
+        long now = System.nanoTime();
+        limiter.tryAcquire("a", now);
+        limiter.tryAcquire("b", now);
+        limiter.tryAcquire("b", now);
+        assertThat(limiter.size(), is(2));
+
+        limiter.sweep(now + SECOND / 10);
+        assertThat(limiter.size(), is(1));
+        limiter.sweep(now + SECOND / 5);
+        assertThat(limiter.size(), is(0));
+    }
+
+    @Test
+    public void tryAcquire_failsOpenWhenTooManyClients() {
+        TokenBucketLimiter<String> limiter = new TokenBucketLimiter<>(1, 1, 2);
+        long now = System.nanoTime();
+        limiter.tryAcquire("a", now);
+        limiter.tryAcquire("b", now);
+        assertThat(limiter.tryAcquire("c", now), is(0L));
+        assertThat(limiter.tryAcquire("c", now), is(0L));
+        assertThat(limiter.size(), is(2));
+    }
+
+    @Test
+    public void tryAcquire_sweepsOnlyWhenDueEvenIfFull() {
+        TokenBucketLimiter<String> limiter = new TokenBucketLimiter<>(10, 1, 2);
+        long now = System.nanoTime();
+        limiter.tryAcquire("a", now);
+        limiter.tryAcquire("b", now);
+
+        // a, b 는 0.1 초 뒤에 가득 차지만 정리는 1 초마다 한다.
+        assertThat(limiter.tryAcquire("c", now + SECOND / 2), is(0L));
+        assertThat(limiter.size(), is(2));
+
+        assertThat(limiter.tryAcquire("c", now + SECOND * 2), is(0L));
+        assertThat(limiter.size(), is(1));
+        assertThat(limiter.tryAcquire("c", now + SECOND * 2) > 0, is(true));
+    }
+}
@@ -0,0 +1,96 @@
+package controller;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import db.DataBase;
+import http.HttpRequest;
+import http.HttpRequestParser;
+import http.HttpResponse;
+import model.User;
+import security.PasswordHasher;
+import security.PasswordService;
+import session.MemorySessionStore;
+import session.SessionStore;
+import webserver.CompressionPolicy;
+
+public class UserControllerTest {
+    private final SessionStore sessions = new MemorySessionStore(60);
+    private final PasswordService passwords = new PasswordService(new PasswordHasher(1000), 1, 4);
+
+    @Test
+    public void login_list() throws Exception {
+        String userId = "controller-" + System.nanoTime();
+        String created = service(new CreateUserController(passwords), "POST /user/create HTTP/1.1\r\n",
+                "userId=" + userId + "&password=pw&name=%EC%9E%90%EB%B0%94%EC%A7%80%EA%B8%B0&email=" + userId
+                        + "%40b.c");
+        assertThat(created, containsString("Location: /index.html"));
+        assertThat(DataBase.findUserById(userId).getPassword(), startsWith("pbkdf2-sha256$1000$"));
+
+        String failed = service(new LoginController(sessions, passwords), "POST /user/login HTTP/1.1\r\n",
+                "userId=" + userId + "&password=wrong");
+        assertThat(failed, containsString("Location: /user/login_failed.html"));
+        assertThat(failed, not(containsString("Set-Cookie")));
+
+        String logined = service(new LoginController(sessions, passwords), "POST /user/login HTTP/1.1\r\n",
+                "userId=" + userId + "&password=pw");
+        int start = logined.indexOf("SESSIONID=") + "SESSIONID=".length();
+        String token = logined.substring(start, logined.indexOf(';', start));
+        assertThat(sessions.findUserId(token), is(userId));
+
+        ListUserController list = new ListUserController(sessions, CompressionPolicy.disabled(),
+                ListUserController.loadTemplate(Paths.get("webapp")));
+        assertThat(service(list, "GET /user/list.html HTTP/1.1\r\n", null),
+                containsString("Location: /user/login.html"));
+        String page = service(list, "GET /user/list.html HTTP/1.1\r\nCookie: SESSIONID=" + token + "\r\n", null);
+        assertThat(page, containsString("HTTP/1.1 200 OK"));
+        assertThat(page, containsString("<td>" + userId + "</td>"));
+        assertThat(page, containsString("자바지기"));
+    }
+
+    @Test
+    public void login_rehashesOldPassword() throws Exception {
+        String userId = "rehash-" + System.nanoTime();
+        DataBase.addUser(new User(userId, "pw", "name", userId + "@b.c"));
+
+        String logined = service(new LoginController(sessions, passwords), "POST /user/login HTTP/1.1\r\n",
+                "userId=" + userId + "&password=pw");
+        assertThat(logined, containsString("Set-Cookie: SESSIONID="));
+        String rehashed = DataBase.findUserById(userId).getPassword();
+        assertThat(rehashed, startsWith("pbkdf2-sha256$1000$"));
+
+        PasswordService stronger = new PasswordService(new PasswordHasher(2000), 1, 4);
+        service(new LoginController(sessions, stronger), "POST /user/login HTTP/1.1\r\n",
+                "userId=" + userId + "&password=pw");
+        assertThat(DataBase.findUserById(userId).getPassword(), startsWith("pbkdf2-sha256$2000$"));
+    }
+
+    @Test
+    public void create_duplicateEmail() throws Exception {
+        String userId = "duplicate-" + System.nanoTime();
+        DataBase.addUser(new User(userId, "pw", "name", userId + "@b.c"));
+
+        String created = service(new CreateUserController(passwords), "POST /user/create HTTP/1.1\r\n",
+                "userId=other-" + userId + "&password=pw&email=" + userId + "%40b.c");
+        assertThat(created, containsString("Location: /user/form.html"));
+        assertThat(DataBase.findUserById("other-" + userId), is(nullValue()));
+    }
+
+    private static String service(Controller controller, String head, String body) throws Exception {
+        String request = head + (body == null ? "\r\n" : "Content-Length: " + body.length() + "\r\n\r\n" + body);
+        HttpRequest httpRequest = new HttpRequestParser()
+                .read(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpResponse response = new HttpResponse(out, true);
+        controller.service(httpRequest, response);
+        response.flush();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
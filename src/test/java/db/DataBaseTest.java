@@ -0,0 +1,198 @@
+package db;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.User;
+
+public class DataBaseTest {
+    @Before
+    public void setup() {
+        DataBase.clear();
+    }
+
+    @After
+    public void tearDown() {
+        DataBase.clear();
+    }
+
+    @Test
+    public void findUserByEmail() throws Exception {
+        DataBase.addUser(new User("javajigi", "password", "자바지기", "javajigi@slipp.net"));
+
+        assertThat(DataBase.findUserByEmail("JavaJigi@slipp.net").getUserId(), is("javajigi"));
+        assertThat(DataBase.findUserByEmail("other@slipp.net"), is(nullValue()));
+    }
+
+    @Test
+    public void addUser_replaceEmail() throws Exception {
+        DataBase.addUser(new User("javajigi", "password", "자바지기", "old@slipp.net"));
+        DataBase.addUser(new User("javajigi", "password", "자바지기", "new@slipp.net"));
+
+        assertThat(DataBase.findUserByEmail("old@slipp.net"), is(nullValue()));
+        assertThat(DataBase.findUserByEmail("new@slipp.net").getUserId(), is("javajigi"));
+        assertThat(DataBase.count(), is(1));
+    }
+
+    @Test
+    public void addUser_duplicateEmail() throws Exception {
+        DataBase.addUser(new User("javajigi", "password", "자바지기", "javajigi@slipp.net"));
+        try {
+            DataBase.addUser(new User("sanjigi", "password", "산지기", "JavaJigi@slipp.net"));
+            fail();
+        } catch (DuplicateEmailException e) {
+            assertThat(DataBase.findUserById("sanjigi"), is(nullValue()));
+            assertThat(DataBase.findUserByEmail("javajigi@slipp.net").getUserId(), is("javajigi"));
+        }
+
+        // 자기 email 을 그대로 쓰는 것은 괜찮다.
+        DataBase.addUser(new User("javajigi", "changed", "자바지기", "javajigi@slipp.net"));
+        assertThat(DataBase.findUserByEmail("javajigi@slipp.net").getPassword(), is("changed"));
+
+        // 놓아준 email 은 다른 사용자가 쓸 수 있다.
+        DataBase.addUser(new User("javajigi", "changed", "자바지기", "new@slipp.net"));
+        DataBase.addUser(new User("sanjigi", "password", "산지기", "javajigi@slipp.net"));
+        assertThat(DataBase.findUserByEmail("javajigi@slipp.net").getUserId(), is("sanjigi"));
+    }
+
+    @Test
+    public void concurrentSignUpWithSameEmail() throws Exception {
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 200; i++) {
+                String email = "same-" + i + "@x";
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int w = 0; w < writers; w++) {
+                    String id = "w" + w + "-" + i;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            DataBase.addUser(new User(id, "p", "n", email));
+                            return true;
+                        } catch (DuplicateEmailException e) {
+                            return false;
+                        }
+                    }));
+                }
+                start.countDown();
+                int added = 0;
+                for (Future<Boolean> future : futures) {
+                    added += future.get() ? 1 : 0;
+                }
+                assertThat(added, is(1));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(DataBase.count(), is(200));
+    }
+
+    @Test
+    public void replacePassword_onlyWhenUnchanged() throws Exception {
+        DataBase.addUser(new User("javajigi", "plain", "자바지기", "old@slipp.net"));
+        // 비밀번호를 검증하는 사이 다른 요청이 사용자를 바꿨다.
+        DataBase.addUser(new User("javajigi", "changed", "자바지기", "new@slipp.net"));
+
+        assertThat(DataBase.replacePassword("javajigi", "plain", "hashed"), is(false));
+        assertThat(DataBase.findUserById("javajigi").getPassword(), is("changed"));
+
+        assertThat(DataBase.replacePassword("javajigi", "changed", "hashed"), is(true));
+        User user = DataBase.findUserById("javajigi");
+        assertThat(user.getPassword(), is("hashed"));
+        assertThat(user.getEmail(), is("new@slipp.net"));
+        assertThat(DataBase.replacePassword("nobody", "plain", "hashed"), is(false));
+    }
+
+    @Test
+    public void findAll_snapshot() throws Exception {
+        DataBase.addUser(new User("b", "p", "b", "b@x"));
+        DataBase.addUser(new User("a", "p", "a", "a@x"));
+        Collection<User> snapshot = DataBase.findAll();
+
+        DataBase.addUser(new User("c", "p", "c", "c@x"));
+
+        assertThat(snapshot.size(), is(2));
+        assertThat(snapshot.iterator().next().getUserId(), is("a"));
+        assertThat(DataBase.findAll().size(), is(3));
+    }
+
+    @Test
+    public void findAll_page() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            DataBase.addUser(new User(String.format("user%02d", i), "p", "n", i + "@x"));
+        }
+
+        assertThat(DataBase.findAll(0, 10).get(0).getUserId(), is("user00"));
+        assertThat(DataBase.findAll(20, 10).size(), is(5));
+        assertThat(DataBase.findAll(20, 10).get(4).getUserId(), is("user24"));
+        assertThat(DataBase.findAll(30, 10).isEmpty(), is(true));
+    }
+
+    @Test
+    public void concurrentSignUpAndList() throws Exception {
+        int writers = 8;
+        int usersPerWriter = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int i = 0; i < usersPerWriter; i++) {
+                        String id = "w" + writer + "-" + i;
+                        DataBase.addUser(new User(id, "p", "n", id + "@x"));
+                        // 같은 userId 를 다른 스레드도 함께 덮어쓴다.
+                        DataBase.addUser(new User("shared-" + i, "p", "n", "shared-" + writer + "-" + i + "@x"));
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < 2; r++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    int last = 0;
+                    while (DataBase.count() < writers * usersPerWriter + usersPerWriter) {
+                        Collection<User> snapshot = DataBase.findAll();
+                        int size = 0;
+                        for (User user : snapshot) {
+                            assertThat(user, is(notNullValue()));
+                            size++;
+                        }
+                        assertThat(size >= last, is(true));
+                        last = size;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(DataBase.findAll().size(), is(writers * usersPerWriter + usersPerWriter));
+        for (int i = 0; i < usersPerWriter; i++) {
+            User shared = DataBase.findUserById("shared-" + i);
+            assertThat(DataBase.findUserByEmail(shared.getEmail()), is(sameInstance(shared)));
+        }
+    }
+}
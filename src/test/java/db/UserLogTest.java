@@ -0,0 +1,296 @@
+package db;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.User;
+
+public class UserLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+
+    @Before
+    public void setup() throws IOException {
+        DataBase.close();
+        DataBase.clear();
+        dir = folder.getRoot().toPath();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        DataBase.close();
+        DataBase.clear();
+    }
+
+    @Test
+    public void recoverFromLog() throws Exception {
+        DataBase.open(dir, 0, 1000);
+        DataBase.addUser(new User("javajigi", "password", "자바지기", "javajigi@slipp.net"));
+        DataBase.addUser(new User("javajigi", "password2", "자바지기", "new@slipp.net"));
+        DataBase.addUser(new User("slipp", "password", "슬립", null));
+        restart(1000);
+
+        assertThat(DataBase.count(), is(2));
+        assertThat(DataBase.findUserById("javajigi").getPassword(), is("password2"));
+        assertThat(DataBase.findUserByEmail("new@slipp.net").getName(), is("자바지기"));
+        assertThat(DataBase.findUserById("slipp").getEmail(), is(nullValue()));
+    }
+
+    @Test
+    public void recoverFromSnapshotAndLog() throws Exception {
+        DataBase.open(dir, 0, 10);
+        for (int i = 0; i < 35; i++) {
+            DataBase.addUser(new User("user" + i, "p", "n", i + "@x"));
+        }
+        restart(10);
+
+        assertThat(DataBase.count(), is(35));
+        assertThat(files("snapshot-").isEmpty(), is(false));
+        // 스냅샷에 포함된 로그는 지워진다.
+        assertThat(files("log-").size() <= 3, is(true));
+    }
+
+    @Test
+    public void truncateTornTail() throws Exception {
+        DataBase.open(dir, 0, 1000);
+        DataBase.addUser(new User("javajigi", "password", "자바지기", "javajigi@slipp.net"));
+        DataBase.close();
+        Path logFile = files("log-").get(0);
+        long validSize = Files.size(logFile);
+        try (FileChannel out = FileChannel.open(logFile, StandardOpenOption.APPEND)) {
+            out.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2, 3 }));
+        }
+        restart(1000);
+
+        assertThat(DataBase.count(), is(1));
+        assertThat(Files.size(logFile), is(validSize));
+    }
+
+    @Test
+    public void groupCommit() throws Exception {
+        DataBase.open(dir, 5, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        DataBase.addUser(new User("t" + thread + "-" + i, "p", "n", null));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        restart(1000);
+
+        assertThat(DataBase.count(), is(800));
+    }
+
+    @Test
+    public void addUserDuringRotation() throws Exception {
+        // 레코드 하나마다 로그를 넘기고 스냅샷을 쓴다. addUser 가 userId 를 읽을 때마다 늦춰,
+        // 로그에 쓰인 레코드가 메모리에 반영되기 전에 스냅샷을 뜨면 사용자가 사라지는 경우를 드러낸다.
+        DataBase.open(dir, 0, 1);
+        DataBase.addUser(new User("slow", "p", "n", null) {
+            private int calls;
+
+            @Override
+            public String getUserId() {
+                if (++calls > 1 && calls < 5) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getUserId();
+            }
+        });
+        restart(1);
+
+        assertThat(DataBase.findUserById("slow").getName(), is("n"));
+    }
+
+    @Test
+    public void appendAfterFailedWrite() throws Exception {
+        List<FailingChannel> channels = new ArrayList<>();
+        UserLog userLog = UserLog.open(dir, 0, 1000, user -> {
+        }, Collections::emptyList, file -> {
+            FailingChannel channel = new FailingChannel(FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+            channels.add(channel);
+            return channel;
+        });
+        try {
+            UserLog.await(userLog.append(new User("before", "p", "n", null)));
+            // 레코드의 절반만 쓰고 실패한다.
+            channels.get(0).failNextWrite = true;
+            try {
+                UserLog.await(userLog.append(new User("failed", "p", "n", null)));
+                fail();
+            } catch (IOException e) {
+                assertThat(e.getMessage(), is("disk full"));
+            }
+            UserLog.await(userLog.append(new User("after", "p", "n", null)));
+        } finally {
+            userLog.close();
+        }
+        DataBase.open(dir, 0, 1000);
+
+        assertThat(DataBase.count(), is(2));
+        assertThat(DataBase.findUserById("failed"), is(nullValue()));
+        assertThat(DataBase.findUserById("after").getName(), is("n"));
+    }
+
+    private void restart(int snapshotRecords) throws IOException {
+        DataBase.close();
+        DataBase.clear();
+        DataBase.open(dir, 0, snapshotRecords);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(prefix)).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * failNextWrite 를 켜면 다음 write 는 절반만 쓰고 실패한다.
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private volatile boolean failNextWrite;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                ByteBuffer half = src.duplicate();
+                half.limit(half.position() + half.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("disk full");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
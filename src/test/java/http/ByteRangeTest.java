@@ -0,0 +1,48 @@
+package http;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+    @Test
+    public void parse() {
+        assertThat(ByteRange.parse("bytes=0-99", 1000).toString(), is("[0-99]"));
+        assertThat(ByteRange.parse("bytes=900-", 1000).toString(), is("[900-999]"));
+        assertThat(ByteRange.parse("bytes=-100", 1000).toString(), is("[900-999]"));
+        assertThat(ByteRange.parse("bytes=-2000", 1000).toString(), is("[0-999]"));
+        assertThat(ByteRange.parse("bytes=990-2000", 1000).toString(), is("[990-999]"));
+    }
+
+    @Test
+    public void parse_multipleSortedAndCoalesced() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=500-599, 0-9,5-19, 20-29", 1000);
+        assertThat(ranges.toString(), is("[0-29, 500-599]"));
+    }
+
+    @Test
+    public void parse_unsatisfiable() {
+        assertThat(ByteRange.parse("bytes=1000-", 1000).isEmpty(), is(true));
+        assertThat(ByteRange.parse("bytes=-0", 1000).isEmpty(), is(true));
+        assertThat(ByteRange.parse("bytes=0-", 0).isEmpty(), is(true));
+    }
+
+    @Test
+    public void parse_ignored() {
+        assertThat(ByteRange.parse("", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("items=0-1", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=5-1", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=a-b", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=-", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=99999999999999999999-", 1000), is(nullValue()));
+
+        StringBuilder many = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= ByteRange.MAX_RANGES; i++) {
+            many.append(',').append(i * 2).append('-').append(i * 2);
+        }
+        assertThat(ByteRange.parse(many.toString(), 1000), is(nullValue()));
+    }
+}
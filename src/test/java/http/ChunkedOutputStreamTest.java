@@ -0,0 +1,57 @@
+package http;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ChunkedOutputStreamTest {
+    @Test
+    public void write_chunks() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedOutputStream chunked = new ChunkedOutputStream(out, 4);
+        chunked.write("abc".getBytes());
+        chunked.write("de".getBytes());
+        chunked.write("0123456789".getBytes());
+        chunked.write('x');
+        chunked.close();
+        chunked.close();
+
+        assertThat(out.toString("US-ASCII"), is("3\r\nabc\r\n2\r\nde\r\na\r\n0123456789\r\n1\r\nx\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    public void response200Stream_http11() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpResponse response = new HttpResponse(out, true);
+        try (OutputStream body = response.response200Stream("text/html", true)) {
+            body.write("안녕".getBytes(StandardCharsets.UTF_8));
+        }
+
+        String written = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(written, containsString("Transfer-Encoding: chunked\r\n"));
+        assertThat(written, containsString("Connection: keep-alive\r\n"));
+        assertThat(written, not(containsString("Content-Length")));
+        assertThat(written, endsWith("\r\n\r\n6\r\n안녕\r\n0\r\n\r\n"));
+        assertThat(response.isKeepAlive(), is(true));
+    }
+
+    @Test
+    public void response200Stream_http10() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpResponse response = new HttpResponse(out, true);
+        try (OutputStream body = response.response200Stream("text/html", false)) {
+            body.write("hello".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        String written = out.toString("US-ASCII");
+        assertThat(written, not(containsString("Transfer-Encoding")));
+        assertThat(written, containsString("Connection: close\r\n"));
+        assertThat(written, endsWith("\r\n\r\nhello"));
+        assertThat(response.isKeepAlive(), is(false));
+    }
+}
@@ -0,0 +1,56 @@
+package http;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class CompressingOutputStreamTest {
+    private static final byte[] BODY = "<tr><td>javajigi</td><td>자바지기</td></tr>\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void gzip_streaming() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompressingOutputStream gzip = CompressingOutputStream.open(out, ContentEncoding.GZIP)) {
+            for (int i = 0; i < 100; i++) {
+                gzip.write(BODY);
+            }
+        }
+
+        byte[] decompressed = read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertThat(decompressed.length, is(BODY.length * 100));
+    }
+
+    @Test
+    public void deflate_reusesPooledDeflater() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            byte[] compressed = CompressingOutputStream.compress(BODY, ContentEncoding.DEFLATE);
+            byte[] decompressed = read(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+            assertThat(new String(decompressed, StandardCharsets.UTF_8), is(new String(BODY, StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void negotiate() {
+        assertThat(ContentEncoding.negotiate("gzip, deflate, br"), is(ContentEncoding.GZIP));
+        assertThat(ContentEncoding.negotiate("deflate, gzip;q=0"), is(ContentEncoding.DEFLATE));
+        assertThat(ContentEncoding.negotiate("br"), is(ContentEncoding.IDENTITY));
+        assertThat(ContentEncoding.negotiate("*"), is(ContentEncoding.GZIP));
+        assertThat(ContentEncoding.negotiate(""), is(ContentEncoding.IDENTITY));
+    }
+
+    private byte[] read(InputStream in) throws Exception {
+        try (InputStream input = in) {
+            return ByteStreams.toByteArray(input);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package http;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class FormDecoderTest {
+    @Test
+    public void decode() {
+        Map<String, String> parameters = decode("user%49d=java+jigi&name=%EC%9E%90%EB%B0%94&empty=&flag");
+        assertThat(parameters.get("userId"), is("java jigi"));
+        assertThat(parameters.get("name"), is("자바"));
+        assertThat(parameters.get("empty"), is(""));
+        assertThat(parameters.get("flag"), is(""));
+    }
+
+    @Test
+    public void decode_firstValueWins() {
+        Map<String, String> parameters = decode("a=1&a=2&b=c=d&=e&&");
+        assertThat(parameters.get("a"), is("1"));
+        assertThat(parameters.get("b"), is("c=d"));
+        assertThat(parameters.size(), is(2));
+    }
+
+    @Test
+    public void decode_malformedPercent() {
+        Map<String, String> parameters = decode("a=100%&b=%zz&c=%4");
+        assertThat(parameters.get("a"), is("100%"));
+        assertThat(parameters.get("b"), is("%zz"));
+        assertThat(parameters.get("c"), is("%4"));
+    }
+
+    @Test
+    public void decode_limitsParameters() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < FormDecoder.MAX_PARAMETERS + 10; i++) {
+            body.append('p').append(i).append("=v&");
+        }
+        assertThat(decode(body.toString()).size(), is(FormDecoder.MAX_PARAMETERS));
+    }
+
+    private Map<String, String> decode(String body) {
+        return FormDecoder.decode(body.getBytes(StandardCharsets.US_ASCII));
+    }
+}
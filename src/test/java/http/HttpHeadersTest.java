@@ -0,0 +1,62 @@
+package http;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class HttpHeadersTest {
+    @Test
+    public void get_ignoreCase() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "text/html");
+        headers.add("x-custom", "value");
+
+        assertThat(headers.get("content-type"), is("text/html"));
+        assertThat(headers.get("CONTENT-TYPE"), is("text/html"));
+        assertThat(headers.get("X-Custom"), is("value"));
+        assertThat(headers.get("Cookie"), is(nullValue()));
+        assertThat(headers.contains("Cookie"), is(false));
+    }
+
+    @Test
+    public void getAll_multipleValues() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Cookie", "a=1");
+        headers.add("Host", "localhost");
+        headers.add("cookie", "b=2");
+
+        assertThat(headers.get("Cookie"), is("a=1"));
+        assertThat(headers.getAll("COOKIE"), is(Arrays.asList("a=1", "b=2")));
+        assertThat(headers.getName(2), is("cookie"));
+        assertThat(headers.size(), is(3));
+    }
+
+    @Test
+    public void add_grow() {
+        HttpHeaders headers = new HttpHeaders(2);
+        for (int i = 0; i < 100; i++) {
+            headers.add("X-Header-" + i, String.valueOf(i));
+            headers.add("x-header-" + i, "again");
+        }
+
+        assertThat(headers.size(), is(200));
+        for (int i = 0; i < 100; i++) {
+            assertThat(headers.getAll("X-HEADER-" + i), is(Arrays.asList(String.valueOf(i), "again")));
+        }
+    }
+
+    @Test
+    public void getValue_fromSource() {
+        byte[] source = "Host: localhost".getBytes();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HeaderNames.HOST, HttpHeaders.hash(source, 0, 4), 6, 9);
+        headers.setSource(source);
+
+        assertThat(headers.get("host"), is("localhost"));
+        assertThat(HeaderNames.intern(source, 0, 4, HttpHeaders.hash(source, 0, 4)),
+                is(sameInstance(HeaderNames.HOST)));
+    }
+}
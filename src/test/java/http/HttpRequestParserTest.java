@@ -0,0 +1,161 @@
+package http;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HttpRequestParserTest {
+    private static final String REQUEST = "POST /user/login HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "Content-Length: 29\r\n"
+            + "\r\n"
+            + "userId=javajigi&password=pass";
+
+    @Test
+    public void parse_byteByByte() throws Exception {
+        HttpRequestParser parser = new HttpRequestParser();
+        byte[] bytes = (REQUEST + REQUEST).getBytes(StandardCharsets.US_ASCII);
+
+        int parsed = 0;
+        for (byte b : bytes) {
+            parser.feed(ByteBuffer.wrap(new byte[] { b }));
+            HttpRequest request = parser.parse();
+            if (request != null) {
+                assertThat(request.getMethod(), is(sameInstance("POST")));
+                assertThat(request.getHeader(HeaderNames.HOST), is("localhost:8080"));
+                assertThat(request.getParameter("password"), is("pass"));
+                parsed++;
+            }
+        }
+        assertThat(parsed, is(2));
+        assertThat(parser.hasBufferedData(), is(false));
+    }
+
+    @Test
+    public void parse_bareLineFeedAndLeadingEmptyLine() throws Exception {
+        HttpRequest request = read("\r\nGET /index.html HTTP/1.1\nAccept: */*\n\n");
+        assertThat(request.getPath(), is("/index.html"));
+        assertThat(request.getHeader("Accept"), is("*/*"));
+    }
+
+    @Test
+    public void parse_uriTooLong() throws Exception {
+        assertStatus(new HttpRequestParser(32, 1024, 1024), "GET /" + repeat('a', 64) + " HTTP/1.1\r\n\r\n", 414);
+    }
+
+    @Test
+    public void parse_headerTooLarge() throws Exception {
+        assertStatus(new HttpRequestParser(1024, 64, 1024), "GET / HTTP/1.1\r\nCookie: " + repeat('a', 64) + "\r\n\r\n",
+                431);
+    }
+
+    @Test
+    public void parse_bodyTooLarge() throws Exception {
+        assertStatus(new HttpRequestParser(1024, 1024, 10), "POST / HTTP/1.1\r\nContent-Length: 11\r\n\r\n", 413);
+    }
+
+    @Test
+    public void parse_invalid() throws Exception {
+        assertStatus(new HttpRequestParser(), "GET\r\n\r\n", 400);
+        assertStatus(new HttpRequestParser(), "GET / HTTP/1.1\r\nContent-Length: -1\r\n\r\n", 400);
+        assertStatus(new HttpRequestParser(), "GET / HTTP/1.1\r\nno-colon\r\n\r\n", 400);
+        assertStatus(new HttpRequestParser(), "GET / HTTP/3.0\r\n\r\n", 505);
+    }
+
+    @Test
+    public void read_closedInMiddleOfRequest() throws Exception {
+        HttpRequestParser parser = new HttpRequestParser();
+        try {
+            parser.read(new ByteArrayInputStream("GET / HTTP/1.1\r\nHost".getBytes(StandardCharsets.US_ASCII)));
+            fail();
+        } catch (HttpParseException e) {
+            assertThat(e.getStatus(), is(400));
+        }
+    }
+
+    @Test
+    public void readHead_doesNotWaitForBody() throws Exception {
+        HttpRequestParser parser = new HttpRequestParser();
+        String head = REQUEST.substring(0, REQUEST.indexOf("\r\n\r\n") + 4);
+        assertThat(parser.readHead(new ByteArrayInputStream(head.getBytes(StandardCharsets.US_ASCII))), is(true));
+        assertThat(parser.parse(), is(nullValue()));
+
+        HttpRequest request = parser.read(new ByteArrayInputStream("userId=javajigi&password=pass".getBytes(
+                StandardCharsets.US_ASCII)));
+        assertThat(request.getParameter("userId"), is("javajigi"));
+        assertThat(parser.readHead(new ByteArrayInputStream(new byte[0])), is(false));
+    }
+
+    @Test
+    public void parse_chunkedByteByByte() throws Exception {
+        String request = "POST /user/create HTTP/1.1\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + "\r\n"
+                + "b;ext=1\r\nuserId=java\r\n"
+                + "9\r\njigi&name\r\n"
+                + "3\r\n=%E\r\n"
+                + "7\r\nC%9D%B4\r\n"
+                + "0\r\nExpires: 0\r\n\r\n";
+        HttpRequestParser parser = new HttpRequestParser();
+        byte[] bytes = (request + "GET / HTTP/1.1\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        List<HttpRequest> requests = new ArrayList<>();
+        for (byte b : bytes) {
+            parser.feed(ByteBuffer.wrap(new byte[] { b }));
+            HttpRequest parsed = parser.parse();
+            if (parsed != null) {
+                requests.add(parsed);
+            }
+        }
+        assertThat(requests.size(), is(2));
+        assertThat(requests.get(0).getParameter("userId"), is("javajigi"));
+        assertThat(requests.get(0).getParameter("name"), is("이"));
+        assertThat(requests.get(1).getPath(), is("/"));
+        assertThat(parser.hasBufferedData(), is(false));
+    }
+
+    @Test
+    public void parse_chunkedTooLarge() throws Exception {
+        String head = "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n";
+        assertStatus(new HttpRequestParser(1024, 1024, 10), head + "6\r\naaaaaa\r\n5\r\n", 413);
+        assertStatus(new HttpRequestParser(1024, 1024, 10), head + "fffffffff\r\n", 413);
+    }
+
+    @Test
+    public void parse_chunkedInvalid() throws Exception {
+        String head = "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n";
+        assertStatus(new HttpRequestParser(), head + "Content-Length: 3\r\n\r\n", 400);
+        assertStatus(new HttpRequestParser(), head + "\r\nzz\r\n", 400);
+        assertStatus(new HttpRequestParser(), head + "\r\n1\r\nab\r\n", 400);
+        assertStatus(new HttpRequestParser(), "POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n", 501);
+    }
+
+    private HttpRequest read(String request) throws Exception {
+        return new HttpRequestParser().read(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private void assertStatus(HttpRequestParser parser, String request, int status) {
+        parser.feed(ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII)));
+        try {
+            parser.parse();
+            fail();
+        } catch (HttpParseException e) {
+            assertThat(e.getStatus(), is(status));
+        }
+    }
+
+    private String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package http;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class HttpRequestTest {
+    @Test
+    public void read_pipelined() throws Exception {
+        String requests = "POST /user/create HTTP/1.1\r\n"
+                + "Content-Length: 57\r\n"
+                + "\r\n"
+                + "userId=javajigi&name=%EC%9E%90%EB%B0%94%EC%A7%80%EA%B8%B0"
+                + "GET /index.html?debug=true HTTP/1.1\r\n"
+                + "Connection: close\r\n"
+                + "\r\n";
+        HttpRequestParser parser = new HttpRequestParser();
+        ByteArrayInputStream in = new ByteArrayInputStream(requests.getBytes(StandardCharsets.US_ASCII));
+
+        HttpRequest first = parser.read(in);
+        assertThat(first.getMethod(), is("POST"));
+        assertThat(first.getParameter("userId"), is("javajigi"));
+        assertThat(first.getParameter("name"), is("자바지기"));
+        assertThat(first.isKeepAlive(), is(true));
+
+        HttpRequest second = parser.read(in);
+        assertThat(second.getPath(), is("/index.html"));
+        assertThat(second.getQueryString(), is("debug=true"));
+        assertThat(second.isKeepAlive(), is(false));
+
+        assertThat(parser.read(in), is(nullValue()));
+    }
+
+    @Test
+    public void isKeepAlive_http10() throws Exception {
+        assertThat(parse("GET / HTTP/1.0\r\n\r\n").isKeepAlive(), is(false));
+        assertThat(parse("GET / HTTP/1.0\r\nConnection: keep-alive\r\n\r\n").isKeepAlive(), is(true));
+    }
+
+    @Test
+    public void getHeader_ignoreCase() throws Exception {
+        HttpRequest request = parse("GET / HTTP/1.1\r\ncontent-type:text/html \r\nX-Custom: a b\r\n\r\n");
+        assertThat(request.getHeader("Content-Type"), is("text/html"));
+        assertThat(request.getHeader("x-custom"), is("a b"));
+        assertThat(request.getHeader("Cookie"), is(""));
+        assertThat(request.getHeaders().getName(0), is(sameInstance(HeaderNames.CONTENT_TYPE)));
+    }
+
+    private HttpRequest parse(String request) throws Exception {
+        return new HttpRequestParser().read(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,115 @@
+package http2;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HpackDecoderTest {
+    @Test
+    public void decode_requestsWithoutHuffman() throws Exception {
+        // RFC 7541 C.3
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        assertThat(decode(decoder, "828684410f7777772e6578616d706c652e636f6d"), is(Arrays.asList(
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com")));
+        assertThat(decode(decoder, "828684be58086e6f2d6361636865"), is(Arrays.asList(
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                "cache-control", "no-cache")));
+        assertThat(decode(decoder, "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"), is(Arrays.asList(
+                ":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                "custom-key", "custom-value")));
+    }
+
+    @Test
+    public void decode_requestsWithHuffman() throws Exception {
+        // RFC 7541 C.4
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        assertThat(decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"), is(Arrays.asList(
+                ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com")));
+        assertThat(decode(decoder, "828684be5886a8eb10649cbf").subList(8, 10),
+                is(Arrays.asList("cache-control", "no-cache")));
+        assertThat(decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf").subList(8, 10),
+                is(Arrays.asList("custom-key", "custom-value")));
+    }
+
+    @Test
+    public void decode_evictsOldEntries() throws Exception {
+        // :authority(57) + cache-control(53) 이 들어간 뒤 크기를 60 으로 줄이면 가장 최근 항목 하나만 남는다.
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+        decode(decoder, "828684410f7777772e6578616d706c652e636f6d");
+        decode(decoder, "828684be58086e6f2d6361636865");
+
+        assertThat(decode(decoder, "3f1dbe"), is(Arrays.asList("cache-control", "no-cache")));
+        try {
+            decode(decoder, "bf");
+            fail();
+        } catch (Http2Exception e) {
+            assertThat(e.getErrorCode(), is(Http2.COMPRESSION_ERROR));
+        }
+    }
+
+    @Test
+    public void decode_invalid() throws Exception {
+        for (String block : new String[] { "80", "c0", "3fe21f", "0085", "00ffffffffff0f", "82" + "3f00" }) {
+            try {
+                decode(new HpackDecoder(4096, 16384), block);
+                fail(block);
+            } catch (Http2Exception e) {
+                assertThat(e.getErrorCode(), is(Http2.COMPRESSION_ERROR));
+            }
+        }
+    }
+
+    @Test
+    public void decode_stopsCollectingOverLimit() throws Exception {
+        HpackDecoder decoder = new HpackDecoder(4096, 110);
+        List<String> fields = new ArrayList<>();
+        byte[] block = hex("400a637573746f6d2d6b65790c637573746f6d2d76616c7565bebebe");
+
+        assertThat(decoder.decode(block, 0, block.length, fields), is(false));
+        assertThat(fields, is(Arrays.asList("custom-key", "custom-value", "custom-key", "custom-value")));
+    }
+
+    @Test
+    public void encode_roundTrip() throws Exception {
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.encode(":status", "200");
+        encoder.encode(":status", "302");
+        encoder.encode("location", "/index.html");
+        encoder.encode("x-custom", "value");
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longValue.append('a');
+        }
+        encoder.encode("set-cookie", longValue.toString());
+
+        List<String> fields = new ArrayList<>();
+        new HpackDecoder(4096, 16384).decode(encoder.array(), 0, encoder.size(), fields);
+        assertThat(encoder.array()[0], is((byte) 0x88));
+        assertThat(fields.subList(0, 6), is(Arrays.asList(":status", "200", ":status", "302", "location",
+                "/index.html")));
+        assertThat(fields.subList(6, 8), is(Arrays.asList("x-custom", "value")));
+        assertThat(fields.get(9), is(longValue.toString()));
+    }
+
+    private static List<String> decode(HpackDecoder decoder, String hex) throws Http2Exception {
+        byte[] block = hex(hex);
+        List<String> fields = new ArrayList<>();
+        decoder.decode(block, 0, block.length, fields);
+        return fields;
+    }
+
+    static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,329 @@
+package http2;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import http.HttpRequest;
+import http.HttpResponse;
+
+public class Http2ConnectionTest {
+    private final List<HttpRequest> requests = new ArrayList<>();
+
+    @Test
+    public void serve_get() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(client);
+        writer.writeSettings();
+        writeHeaders(writer, 1, encoder("GET", "/index.html?a=1"), false);
+        writer.writeData(1, new byte[0], 0, 0, true);
+        writer.flush();
+
+        List<Frame> frames = serve(client, stream -> respond(stream, (response, request) -> {
+            response.response200Header(5, "text/plain");
+            response.responseBody("hello".getBytes());
+        }));
+
+        HttpRequest request = requests.get(0);
+        assertThat(request.getMethod(), is("GET"));
+        assertThat(request.getPath(), is("/index.html"));
+        assertThat(request.getQueryString(), is("a=1"));
+        assertThat(request.getHeader("Host"), is("localhost"));
+        assertThat(request.getHeader("Accept"), is("*/*"));
+        assertThat(request.getVersion(), is("HTTP/2.0"));
+
+        assertThat(frames.get(0).type, is(Http2.SETTINGS));
+        assertThat(frames.get(1).type, is(Http2.SETTINGS));
+        assertThat(frames.get(1).flags, is(Http2.FLAG_ACK));
+        Frame headers = frames.get(2);
+        assertThat(headers.type, is(Http2.HEADERS));
+        assertThat(headers.flags, is(Http2.FLAG_END_HEADERS));
+        assertThat(decode(headers), is(Arrays.asList(":status", "200", "content-type", "text/plain;charset=utf-8",
+                "content-length", "5")));
+        Frame data = frames.get(3);
+        assertThat(data.type, is(Http2.DATA));
+        assertThat(data.flags, is(Http2.FLAG_END_STREAM));
+        assertThat(new String(data.payload), is("hello"));
+        assertThat(frames.size(), is(4));
+    }
+
+    @Test
+    public void serve_postBodyAndChunkedResponse() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(client);
+        writer.writeSettings();
+        writeHeaders(writer, 3, encoder("POST", "/user/create"), false);
+        writer.writeData(3, "userId=a&".getBytes(), 0, 9, false);
+        writer.writeData(3, "name=b".getBytes(), 0, 6, true);
+        writer.flush();
+
+        List<Frame> frames = serve(client, stream -> respond(stream, (response, request) -> {
+            try (OutputStream body = response.response200Stream("text/html", true)) {
+                body.write("abc".getBytes());
+                body.flush();
+                body.write("de".getBytes());
+            }
+        }));
+
+        assertThat(requests.get(0).getParameter("userId"), is("a"));
+        assertThat(requests.get(0).getParameter("name"), is("b"));
+
+        Frame headers = frames.get(2);
+        assertThat(decode(headers), not(hasItem("transfer-encoding")));
+        assertThat(decode(headers), not(hasItem("connection")));
+        StringBuilder body = new StringBuilder();
+        for (Frame frame : frames.subList(3, frames.size() - 1)) {
+            assertThat(frame.type, is(Http2.DATA));
+            body.append(new String(frame.payload));
+        }
+        assertThat(body.toString(), is("abcde"));
+        assertThat(frames.get(frames.size() - 2).flags, is(Http2.FLAG_END_STREAM));
+        // 받은 본문은 응답을 끝낸 뒤에야 연결의 창으로 돌려준다.
+        Frame windowUpdate = frames.get(frames.size() - 1);
+        assertThat(windowUpdate.type, is(Http2.WINDOW_UPDATE));
+        assertThat(windowUpdate.streamId, is(0));
+        assertThat(FrameReader.readInt(windowUpdate.payload, 0), is(15));
+    }
+
+    @Test
+    public void serve_refuseStalledUploads() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(client);
+        writer.writeSettings();
+        // 창은 100001 바이트다. 두 stream 이 본문을 덜 보낸 채 창을 다 쓴다.
+        writeHeaders(writer, 1, encoder("POST", "/"), false);
+        writeHeaders(writer, 3, encoder("POST", "/"), false);
+        writeData(writer, 1, 60000);
+        writeData(writer, 3, 40001);
+        writer.writeData(1, new byte[0], 0, 0, true);
+        writer.flush();
+
+        List<Frame> frames = serve(client, 100000, stream -> respond(stream, (response, request) -> {
+            response.response200Header(0, "text/plain");
+        }));
+
+        assertThat(frames.get(0).type, is(Http2.SETTINGS));
+        assertThat(frames.get(1).type, is(Http2.WINDOW_UPDATE));
+        assertThat(FrameReader.readInt(frames.get(1).payload, 0), is(100001 - Http2.DEFAULT_WINDOW_SIZE));
+        assertThat(frames.get(2).type, is(Http2.SETTINGS));
+        assertThat(frames.get(2).flags, is(Http2.FLAG_ACK));
+        // 나중 stream 을 끊어 창을 돌려받는다.
+        assertThat(frames.get(3).type, is(Http2.RST_STREAM));
+        assertThat(frames.get(3).streamId, is(3));
+        assertThat(FrameReader.readInt(frames.get(3).payload, 0), is(Http2.REFUSED_STREAM));
+        assertThat(frames.get(4).type, is(Http2.WINDOW_UPDATE));
+        assertThat(FrameReader.readInt(frames.get(4).payload, 0), is(40001));
+        // 먼저 stream 은 끝까지 받아 처리한다.
+        assertThat(requests.size(), is(1));
+        assertThat(frames.get(5).type, is(Http2.HEADERS));
+        assertThat(frames.get(5).streamId, is(1));
+        assertThat(FrameReader.readInt(frames.get(frames.size() - 1).payload, 0), is(60000));
+    }
+
+    @Test
+    public void serve_connectionWindowExceeded() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(client);
+        writer.writeSettings();
+        // stream 마다 maxBodySize 안쪽이지만 모두 더하면 연결의 창 65535 바이트를 넘는다.
+        for (int i = 0; i < 64; i++) {
+            writeHeaders(writer, 2 * i + 1, encoder("POST", "/"), false);
+            writeData(writer, 2 * i + 1, 1024);
+        }
+        writer.flush();
+
+        List<Frame> frames = serve(client, stream -> fail());
+
+        Frame goAway = frames.get(frames.size() - 1);
+        assertThat(goAway.type, is(Http2.GOAWAY));
+        assertThat(FrameReader.readInt(goAway.payload, 4), is(Http2.FLOW_CONTROL_ERROR));
+        for (Frame frame : frames) {
+            assertThat(frame.type, not(Http2.RST_STREAM));
+        }
+    }
+
+    @Test
+    public void serve_pingAndInvalidStreams() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(client);
+        writer.writeSettings();
+        writer.writePing(false, "12345678".getBytes(), 0);
+        // 대문자 헤더 이름은 그 stream 만 PROTOCOL_ERROR 로 끝낸다.
+        HpackEncoder encoder = encoder("GET", "/");
+        encoder.encode("X-Upper", "a");
+        writeHeaders(writer, 1, encoder, true);
+        writeHeaders(writer, 2, encoder("GET", "/"), true);
+        writer.flush();
+
+        List<Frame> frames = serve(client, stream -> fail());
+
+        assertThat(frames.get(2).type, is(Http2.PING));
+        assertThat(frames.get(2).flags, is(Http2.FLAG_ACK));
+        assertThat(new String(frames.get(2).payload), is("12345678"));
+        assertThat(frames.get(3).type, is(Http2.RST_STREAM));
+        assertThat(frames.get(3).streamId, is(1));
+        assertThat(FrameReader.readInt(frames.get(3).payload, 0), is(Http2.PROTOCOL_ERROR));
+        // 짝수 stream 은 연결 오류다.
+        assertThat(frames.get(4).type, is(Http2.GOAWAY));
+        assertThat(FrameReader.readInt(frames.get(4).payload, 0), is(1));
+        assertThat(FrameReader.readInt(frames.get(4).payload, 4), is(Http2.PROTOCOL_ERROR));
+    }
+
+    @Test
+    public void serve_flowControl() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(client);
+        writer.writeSettings(Http2.SETTINGS_INITIAL_WINDOW_SIZE, 10);
+        writeHeaders(writer, 1, encoder("GET", "/"), true);
+        writer.writeWindowUpdate(1, 20);
+        writer.flush();
+
+        byte[] body = new byte[25];
+        Arrays.fill(body, (byte) 'x');
+        // 응답은 창이 열릴 때까지 기다려야 하므로 별도 스레드에서 쓴다.
+        List<Thread> workers = new ArrayList<>();
+        ByteArrayOutputStream server = new ByteArrayOutputStream();
+        Http2Connection connection = new Http2Connection(new ByteArrayInputStream(client.toByteArray()) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                // 응답이 창 10 바이트를 다 쓸 때까지 WINDOW_UPDATE 를 늦게 주고, 나머지를 다 쓸 때까지 연결을 유지한다.
+                if (available() == 13 || available() == 0) {
+                    sleep();
+                }
+                return super.read(b, off, len);
+            }
+        }, server, stream -> {
+            Thread thread = new Thread(() -> respond(stream, (response, request) -> {
+                response.response200Header(body.length, "text/plain");
+                response.responseBody(body);
+            }));
+            workers.add(thread);
+            thread.start();
+        }, 16384, 1024);
+        connection.serve(null);
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        List<Frame> frames = read(server);
+
+        int total = 0;
+        List<Integer> sizes = new ArrayList<>();
+        for (Frame frame : frames) {
+            if (frame.type == Http2.DATA) {
+                sizes.add(frame.payload.length);
+                total += frame.payload.length;
+            }
+        }
+        assertThat(total, is(25));
+        assertThat(sizes.get(0), is(10));
+    }
+
+    private interface Responder {
+        void respond(HttpResponse response, HttpRequest request) throws IOException;
+    }
+
+    private void respond(Http2Stream stream, Responder responder) {
+        requests.add(stream.getRequest());
+        Http2ResponseStream out = new Http2ResponseStream(stream);
+        try {
+            HttpResponse response = new HttpResponse(out, true);
+            responder.respond(response, stream.getRequest());
+            response.flush();
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Frame> serve(ByteArrayOutputStream client, Http2Connection.StreamHandler handler)
+            throws IOException {
+        return serve(client, 1024, handler);
+    }
+
+    private static List<Frame> serve(ByteArrayOutputStream client, int maxBodySize,
+            Http2Connection.StreamHandler handler) throws IOException {
+        ByteArrayOutputStream server = new ByteArrayOutputStream();
+        new Http2Connection(new ByteArrayInputStream(client.toByteArray()), server, handler, 16384, maxBodySize)
+                .serve(null);
+        return read(server);
+    }
+
+    /**
+     * length 바이트를 frame 크기에 맞춰 나눠 보낸다. END_STREAM 은 붙이지 않는다.
+     */
+    private static void writeData(FrameWriter writer, int streamId, int length) throws IOException {
+        byte[] data = new byte[Http2.DEFAULT_MAX_FRAME_SIZE];
+        for (int sent = 0; sent < length; sent += data.length) {
+            writer.writeData(streamId, data, 0, Math.min(data.length, length - sent), false);
+        }
+    }
+
+    private static List<Frame> read(ByteArrayOutputStream server) throws IOException {
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(server.toByteArray()),
+                Http2.DEFAULT_MAX_FRAME_SIZE);
+        List<Frame> frames = new ArrayList<>();
+        while (reader.readFrame()) {
+            frames.add(new Frame(reader));
+        }
+        return frames;
+    }
+
+    private static void writeHeaders(FrameWriter writer, int streamId, HpackEncoder encoder, boolean endStream)
+            throws IOException {
+        writer.writeHeaders(streamId, encoder.array(), encoder.size(), endStream);
+    }
+
+    private static HpackEncoder encoder(String method, String path) {
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.encode(":method", method);
+        encoder.encode(":scheme", "http");
+        encoder.encode(":authority", "localhost");
+        encoder.encode(":path", path);
+        encoder.encode("accept", "*/*");
+        return encoder;
+    }
+
+    private static List<String> decode(Frame headers) throws Http2Exception {
+        List<String> fields = new ArrayList<>();
+        new HpackDecoder(4096, 16384).decode(headers.payload, 0, headers.payload.length, fields);
+        return fields;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Frame {
+        final int type;
+        final int flags;
+        final int streamId;
+        final byte[] payload;
+
+        Frame(FrameReader reader) {
+            this.type = reader.getType();
+            this.flags = reader.getFlags();
+            this.streamId = reader.getStreamId();
+            this.payload = Arrays.copyOf(reader.getPayload(), reader.getLength());
+        }
+
+        @Override
+        public String toString() {
+            return type + "/" + flags + "/" + streamId + "/" + new String(payload, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package metrics;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    public void index_highestEquivalentValue() {
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.index(value);
+            long highest = LatencyHistogram.highestEquivalentValue(index);
+            assertThat(value + " -> " + highest, highest >= value, is(true));
+            assertThat(value + " -> " + highest, highest - value <= value / 32, is(true));
+            assertThat(LatencyHistogram.index(highest + 1), is(index + 1));
+        }
+    }
+
+    @Test
+    public void quantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        assertThat(histogram.getCount(), is(1000L));
+        assertThat(histogram.getMaxMicros(), is(1_000_000L));
+        assertWithin(histogram.getValueAtQuantile(0.5), 500_000);
+        assertWithin(histogram.getValueAtQuantile(0.99), 990_000);
+        assertWithin(histogram.getSumMicros(), 500_500_000);
+        assertThat(new LatencyHistogram().getValueAtQuantile(0.99), is(0L));
+    }
+
+    @Test
+    public void addTo() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            fast.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        slow.record(TimeUnit.SECONDS.toNanos(1));
+
+        LatencyHistogram total = new LatencyHistogram();
+        fast.addTo(total);
+        slow.addTo(total);
+        assertThat(total.getCount(), is(100L));
+        assertWithin(total.getValueAtQuantile(0.99), 100);
+        assertWithin(total.getValueAtQuantile(1), 1_000_000);
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertThat(actual + " ~ " + expected, Math.abs(actual - expected) <= expected / 32, is(true));
+    }
+}
@@ -0,0 +1,47 @@
+package security;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PasswordHasherTest {
+    private final PasswordHasher hasher = new PasswordHasher(1000);
+
+    @Test
+    public void hash_matches() {
+        String stored = hasher.hash("비밀번호");
+        assertThat(stored, startsWith("pbkdf2-sha256$1000$"));
+        assertThat(hasher.matches("비밀번호", stored), is(true));
+        assertThat(hasher.matches("비밀번호2", stored), is(false));
+        assertThat(hasher.matches(null, stored), is(false));
+    }
+
+    @Test
+    public void hash_saltPerCall() {
+        assertThat(hasher.hash("pw"), is(not(hasher.hash("pw"))));
+    }
+
+    @Test
+    public void needsRehash() {
+        String stored = hasher.hash("pw");
+        assertThat(hasher.needsRehash(stored), is(false));
+        assertThat(new PasswordHasher(2000).needsRehash(stored), is(true));
+        assertThat(new PasswordHasher(2000).matches("pw", stored), is(true));
+        assertThat(hasher.needsRehash("pw"), is(true));
+    }
+
+    @Test
+    public void matches_plainText() {
+        assertThat(hasher.matches("pw", "pw"), is(true));
+        assertThat(hasher.matches("pw", "pw2"), is(false));
+    }
+
+    @Test
+    public void matches_malformed() {
+        assertThat(hasher.matches("pw", "pbkdf2-sha256$"), is(false));
+        assertThat(hasher.matches("pw", "pbkdf2-sha256$x$AAAA$AAAA"), is(false));
+        assertThat(hasher.matches("pw", "pbkdf2-sha256$1000$!!$AAAA"), is(false));
+        assertThat(hasher.matches("pw", "pbkdf2-sha256$2000000000$AAAA$AAAA"), is(false));
+    }
+}
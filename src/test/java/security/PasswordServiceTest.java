@@ -0,0 +1,69 @@
+package security;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+public class PasswordServiceTest {
+    @Test
+    public void verify() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(1000);
+        PasswordService passwords = new PasswordService(hasher, 1, 1);
+        String stored = passwords.hash("pw");
+        assertThat(passwords.verify(stored, "pw"), is(stored));
+        assertThat(passwords.verify(stored, "wrong"), is(nullValue()));
+        assertThat(passwords.verify(null, "pw"), is(nullValue()));
+        assertThat(hasher.matches("pw", passwords.verify("pw", "pw")), is(true));
+    }
+
+    @Test
+    public void hash_rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordHasher blocking = new PasswordHasher(1000) {
+            @Override
+            public String hash(String password) {
+                if ("block".equals(password)) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.hash(password);
+            }
+        };
+        PasswordService passwords = new PasswordService(blocking, 1, 1);
+        Thread running = new Thread(() -> call(passwords, "block"));
+        running.start();
+        started.await();
+        Thread queued = new Thread(() -> call(passwords, "queued"));
+        queued.start();
+        while (passwords.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            passwords.hash("rejected");
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertThat(passwords.getRejected(), is(1L));
+        }
+        release.countDown();
+        running.join();
+        queued.join();
+    }
+
+    private static void call(PasswordService passwords, String password) {
+        try {
+            passwords.hash(password);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
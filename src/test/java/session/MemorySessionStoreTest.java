@@ -0,0 +1,73 @@
+package session;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class MemorySessionStoreTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final MemorySessionStore store = new MemorySessionStore(60, now::get);
+
+    @Test
+    public void create_find() {
+        String token = store.create("javajigi");
+        assertThat(store.findUserId(token), is("javajigi"));
+        assertThat(store.create("javajigi"), is(not(token)));
+    }
+
+    @Test
+    public void find_wrongToken() {
+        String token = store.create("javajigi");
+        char last = token.charAt(token.length() - 1);
+        assertThat(store.findUserId(token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A')),
+                is(nullValue()));
+        assertThat(store.findUserId(token.substring(0, 12)), is(nullValue()));
+        assertThat(store.findUserId(token + "A"), is(nullValue()));
+        assertThat(store.findUserId(""), is(nullValue()));
+        assertThat(store.findUserId(null), is(nullValue()));
+    }
+
+    @Test
+    public void expire() {
+        String token = store.create("javajigi");
+        now.addAndGet(59_000);
+        assertThat(store.findUserId(token), is("javajigi"));
+
+        // 마지막으로 쓴 때부터 다시 센다.
+        now.addAndGet(59_000);
+        assertThat(store.findUserId(token), is("javajigi"));
+        now.addAndGet(60_000);
+        assertThat(store.findUserId(token), is(nullValue()));
+    }
+
+    @Test
+    public void expire_removedByWheel() {
+        for (int i = 0; i < 100; i++) {
+            store.create("user" + i);
+        }
+        String token = store.create("javajigi");
+        now.addAndGet(30_000);
+        store.findUserId(token);
+        assertThat(store.size(), is(101));
+
+        now.addAndGet(31_000);
+        store.findUserId(token);
+        assertThat(store.size(), is(1));
+
+        // 바퀴 한 바퀴(512초)보다 오래 쉬어도 남은 세션을 치운다.
+        now.addAndGet(1_000_000);
+        store.findUserId(token);
+        assertThat(store.size(), is(0));
+    }
+
+    @Test
+    public void invalidate() {
+        String token = store.create("javajigi");
+        store.invalidate(token);
+        assertThat(store.findUserId(token), is(nullValue()));
+        assertThat(store.size(), is(0));
+    }
+}
@@ -0,0 +1,77 @@
+package session;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class SignedSessionStoreTest {
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final SignedSessionStore store = new SignedSessionStore(SECRET, 60, now::get);
+
+    @Test
+    public void create_find() {
+        String token = store.create("자바지기");
+        assertThat(store.findUserId(token), is("자바지기"));
+    }
+
+    @Test
+    public void find_otherNode() {
+        String token = store.create("javajigi");
+        assertThat(new SignedSessionStore(SECRET.clone(), 60, now::get).findUserId(token), is("javajigi"));
+
+        byte[] otherSecret = SECRET.clone();
+        otherSecret[0] ^= 1;
+        assertThat(new SignedSessionStore(otherSecret, 60, now::get).findUserId(token), is(nullValue()));
+    }
+
+    @Test
+    public void find_tampered() {
+        String token = store.create("javajigi");
+        String forged = store.create("admin");
+        String signature = token.substring(token.lastIndexOf('.'));
+        assertThat(store.findUserId(forged.substring(0, forged.lastIndexOf('.')) + signature), is(nullValue()));
+
+        // 만료 시각을 늘린 토큰
+        int expiry = token.indexOf('.');
+        assertThat(store.findUserId(token.substring(0, expiry) + ".9" + token.substring(expiry + 1)),
+                is(nullValue()));
+        assertThat(store.findUserId(token.substring(0, token.length() - 1)), is(nullValue()));
+        assertThat(store.findUserId("a.b.c"), is(nullValue()));
+        assertThat(store.findUserId(""), is(nullValue()));
+    }
+
+    @Test
+    public void find_nonCanonicalSignature() {
+        String token = store.create("javajigi");
+        // 서명 32 바이트는 43 글자로 인코딩되고 마지막 글자의 아래 2 비트는 쓰지 않는다.
+        // 그 비트만 바꾼 글자는 같은 바이트로 디코딩되지만 다른 토큰이므로 받지 않는다.
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        int last = alphabet.indexOf(token.charAt(token.length() - 1));
+        for (int unused = 1; unused < 4; unused++) {
+            String forged = token.substring(0, token.length() - 1) + alphabet.charAt(last ^ unused);
+            assertThat(store.findUserId(forged), is(nullValue()));
+        }
+        assertThat(store.findUserId(token + "A"), is(nullValue()));
+        assertThat(store.findUserId(token), is("javajigi"));
+    }
+
+    @Test
+    public void expire() {
+        String token = store.create("javajigi");
+        now.addAndGet(59_000);
+        assertThat(store.findUserId(token), is("javajigi"));
+        now.addAndGet(1_000);
+        assertThat(store.findUserId(token), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shortSecret() {
+        new SignedSessionStore("secret".getBytes(StandardCharsets.US_ASCII), 60);
+    }
+}
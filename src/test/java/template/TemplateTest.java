@@ -0,0 +1,103 @@
+package template;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+import model.User;
+
+public class TemplateTest {
+    private static final Bindings<User> USER = new Bindings<User>()
+            .value("userId", User::getUserId)
+            .value("name", User::getName)
+            .value("email", User::getEmail);
+
+    @Test
+    public void render_section() throws Exception {
+        Template<List<User>> template = Template.compile(
+                "<ul>{{#users}}<li>{{@index}}.{{ userId }}:{{name}}</li>{{/users}}</ul>",
+                new Bindings<List<User>>().section("users", users -> users, USER).number("count", List::size));
+        List<User> users = Arrays.asList(new User("javajigi", "p", "자바지기", null), new User("slipp", "p", "슬립", null));
+
+        assertThat(render(template, users), is("<ul><li>1.javajigi:자바지기</li><li>2.slipp:슬립</li></ul>"));
+    }
+
+    @Test
+    public void render_escape() throws Exception {
+        Template<User> template = Template.compile("<td title=\"{{name}}\">{{email}}</td>", USER);
+        User user = new User("id", "p", "<script>\"a\" & 'b'</script>😀", null);
+
+        assertThat(render(template, user),
+                is("<td title=\"&lt;script&gt;&quot;a&quot; &amp; &#39;b&#39;&lt;/script&gt;😀\"></td>"));
+    }
+
+    @Test
+    public void writeInt() {
+        HtmlBuffer buffer = new HtmlBuffer(1);
+        buffer.writeInt(0);
+        buffer.writeInt(-42);
+        buffer.writeInt(1234567890);
+        buffer.writeInt(Integer.MIN_VALUE);
+
+        assertThat(new String(buffer.toByteArray(), StandardCharsets.US_ASCII), is("0-421234567890-2147483648"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_unknownName() {
+        Template.compile("{{password}}", USER);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_unclosedSection() {
+        Template.compile("{{#users}}{{userId}}", new Bindings<List<User>>().section("users", users -> users, USER));
+    }
+
+    @Test
+    public void load_userList() throws Exception {
+        Template<Collection<User>> template = Template.load(Paths.get("./webapp/user/list.html"),
+                new Bindings<Collection<User>>().section("users", users -> users, USER));
+        String html = render(template, Arrays.asList(new User("javajigi", "p", "자바지기", "javajigi@slipp.net")));
+
+        assertThat(html, containsString("<th scope=\"row\">1</th> <td>javajigi</td> <td>자바지기</td>"));
+        assertThat(html, not(containsString("{{")));
+    }
+
+    @Test
+    public void render_streamTo() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            users.add(new User("user" + i, "p", "name" + i, null));
+        }
+        Template<List<User>> template = Template.compile("{{#users}}<p>{{userId}}</p>{{/users}}",
+                new Bindings<List<User>>().section("users", list -> list, USER));
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        HtmlBuffer buffer = new HtmlBuffer(16);
+        buffer.streamTo(sink, 256);
+
+        template.render(users, buffer);
+        assertThat(buffer.size() < 256 + 32, is(true));
+        buffer.flush();
+
+        assertThat(new String(sink.toByteArray(), StandardCharsets.UTF_8), startsWith("<p>user0</p><p>user1</p>"));
+        assertThat(new String(sink.toByteArray(), StandardCharsets.UTF_8), endsWith("<p>user999</p>"));
+    }
+
+    private <T> String render(Template<T> template, T model) throws Exception {
+        HtmlBuffer buffer = HtmlBuffer.acquire();
+        try {
+            template.render(model, buffer);
+            return new String(buffer.array(), 0, buffer.size(), StandardCharsets.UTF_8);
+        } finally {
+            HtmlBuffer.release(buffer);
+        }
+    }
+}
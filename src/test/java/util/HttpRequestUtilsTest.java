@@ -52,6 +52,17 @@ public class HttpRequestUtilsTest {
         assertThat(parameters.get("session"), is(nullValue()));
     }
 
+    @Test
+    public void getCookie() {
+        String cookies = "logined=true;JSessionId=1234 ; SID=a.b=c";
+        assertThat(HttpRequestUtils.getCookie(cookies, "logined"), is("true"));
+        assertThat(HttpRequestUtils.getCookie(cookies, "JSessionId"), is("1234"));
+        assertThat(HttpRequestUtils.getCookie(cookies, "SID"), is("a.b=c"));
+        assertThat(HttpRequestUtils.getCookie(cookies, "Session"), is(nullValue()));
+        assertThat(HttpRequestUtils.getCookie(cookies, "ID"), is(nullValue()));
+        assertThat(HttpRequestUtils.getCookie(null, "SID"), is(nullValue()));
+    }
+
     @Test
     public void getKeyValue() throws Exception {
         Pair pair = HttpRequestUtils.getKeyValue("userId=javajigi", "=");
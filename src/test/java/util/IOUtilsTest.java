@@ -1,21 +1,39 @@
 package util;
 
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
 import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 
 import org.junit.Test;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class IOUtilsTest {
-    private static final Logger logger = LoggerFactory.getLogger(IOUtilsTest.class);
-
     @Test
     public void readData() throws Exception {
         String data = "abcd123";
         StringReader sr = new StringReader(data);
         BufferedReader br = new BufferedReader(sr);
 
-        logger.debug("parse body : {}", IOUtils.readData(br, data.length()));
+        assertThat(IOUtils.readData(br, data.length()), is(data));
+    }
+
+    @Test
+    public void readData_shortReads() throws Exception {
+        Reader oneByOne = new StringReader("abcd123") {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 1));
+            }
+        };
+        assertThat(IOUtils.readData(new BufferedReader(oneByOne, 1), 7), is("abcd123"));
+    }
+
+    @Test(expected = EOFException.class)
+    public void readData_endOfStream() throws Exception {
+        IOUtils.readData(new BufferedReader(new StringReader("abc")), Integer.MAX_VALUE);
     }
 }
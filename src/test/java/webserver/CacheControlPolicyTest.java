@@ -0,0 +1,22 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CacheControlPolicyTest {
+    @Test
+    public void getCacheControl_longestPrefix() {
+        CacheControlPolicy policy = new CacheControlPolicy("/js/:600, /js/vendor/:86400, /user/:0");
+        assertThat(policy.getCacheControl("/js/scripts.js"), is("public, max-age=600"));
+        assertThat(policy.getCacheControl("/js/vendor/jquery.js"), is("public, max-age=86400"));
+        assertThat(policy.getCacheControl("/user/form.html"), is("no-cache"));
+        assertThat(policy.getCacheControl("/index.html"), is("no-cache"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRule() {
+        new CacheControlPolicy("/js/");
+    }
+}
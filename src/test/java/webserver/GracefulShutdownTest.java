@@ -0,0 +1,63 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class GracefulShutdownTest {
+    @Test
+    public void run_drainsConnectionsBeforeClosingResources() throws Exception {
+        ServerMetrics metrics = new ServerMetrics(new Router(), new StaticFileCache(Paths.get("webapp"), 0, 0), null);
+        ServerContext context = new ServerContext(null, new KeepAlivePolicy(5000, 100, 30000), 0, 0, 0, metrics,
+                false, null);
+        Listener listener = new Listener(0, 1, 16, true, 0, 0);
+        listener.start("test-acceptor", connection -> connection.close());
+        ExecutorService workers = Executors.newFixedThreadPool(1);
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicBoolean closedAfterDrain = new AtomicBoolean();
+
+        GracefulShutdown shutdown = new GracefulShutdown(5000);
+        shutdown.drainOnExit(listener, context, workers);
+        shutdown.closeOnExit(() -> {
+            closed.set(true);
+            closedAfterDrain.set(metrics.getActiveConnections() == 0 && workers.isTerminated());
+        });
+        metrics.connectionOpened();
+        Thread hook = new Thread(shutdown::run);
+        hook.start();
+
+        Thread.sleep(200);
+        assertThat(context.getKeepAlivePolicy().isDraining(), is(true));
+        assertThat(closed.get(), is(false));
+
+        metrics.connectionClosed();
+        hook.join(5000);
+        assertThat(closed.get(), is(true));
+        assertThat(closedAfterDrain.get(), is(true));
+    }
+
+    @Test
+    public void run_givesUpAtDeadline() throws Exception {
+        ServerMetrics metrics = new ServerMetrics(new Router(), new StaticFileCache(Paths.get("webapp"), 0, 0), null);
+        ServerContext context = new ServerContext(null, new KeepAlivePolicy(5000, 100, 30000), 0, 0, 0, metrics,
+                false, null);
+        Listener listener = new Listener(0, 1, 16, true, 0, 0);
+        listener.start("test-acceptor", connection -> connection.close());
+        ExecutorService workers = Executors.newFixedThreadPool(1);
+        AtomicBoolean closed = new AtomicBoolean();
+
+        GracefulShutdown shutdown = new GracefulShutdown(200);
+        shutdown.drainOnExit(listener, context, workers);
+        shutdown.closeOnExit(() -> closed.set(true));
+        metrics.connectionOpened();
+        shutdown.run();
+        assertThat(closed.get(), is(true));
+        assertThat(workers.isShutdown(), is(true));
+    }
+}
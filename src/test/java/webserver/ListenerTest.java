@@ -0,0 +1,43 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ListenerTest {
+    @Test
+    public void start_acceptsWithOptionsUntilClosed() throws Exception {
+        BlockingQueue<SocketChannel> accepted = new LinkedBlockingQueue<>();
+        Listener listener = new Listener(0, 2, 16, true, 0, 0);
+        listener.start("test-acceptor", accepted::add);
+        int port = listener.getLocalPort();
+        try {
+            for (int i = 0; i < 4; i++) {
+                Socket client = new Socket("127.0.0.1", port);
+                SocketChannel connection = accepted.poll(5, TimeUnit.SECONDS);
+                assertThat(connection.getOption(StandardSocketOptions.TCP_NODELAY), is(true));
+                connection.close();
+                client.close();
+            }
+        } finally {
+            listener.close();
+        }
+
+        try (Socket client = new Socket()) {
+            client.connect(new InetSocketAddress("127.0.0.1", port), 1000);
+            fail();
+        } catch (ConnectException e) {
+            // close() 가 돌아오면 listen 소켓이 닫혀 있어 연결이 맺어지지 않는다.
+        }
+    }
+}
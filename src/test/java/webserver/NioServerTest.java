@@ -0,0 +1,128 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static webserver.RequestHandlerTest.readBody;
+import static webserver.RequestHandlerTest.readHead;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.Test;
+
+import controller.Controller;
+import http.HttpResponse;
+
+public class NioServerTest {
+    /**
+     * 받은 query string 을 그대로 돌려준다.
+     */
+    private static final Controller QUERY = (request, response) -> respond(response, request.getQueryString());
+    /**
+     * 받은 form 의 name 을 그대로 돌려준다.
+     */
+    private static final Controller NAME = (request, response) -> respond(response, request.getParameter("name"));
+
+    private Listener listener;
+    private ExecutorService workers;
+
+    @After
+    public void tearDown() throws IOException {
+        if (listener != null) {
+            listener.close();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestSplitAcrossWrites() throws Exception {
+        int port = start(new KeepAlivePolicy(5000, 100, 5000));
+
+        try (Socket socket = connect(port)) {
+            OutputStream out = socket.getOutputStream();
+            // 요청 줄, 헤더, 본문이 여러 번에 나뉘어 도착한다.
+            String[] parts = { "POST /na", "me HTTP/1.1\r\nHost: localhost\r\nContent-Le", "ngth: 11\r\n",
+                    "\r\nname=", "abcdef" };
+            for (String part : parts) {
+                out.write(part.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                Thread.sleep(50);
+            }
+
+            assertThat(readResponse(socket.getInputStream()), is("abcdef"));
+        }
+    }
+
+    @Test
+    public void pipelinedRequestsAnsweredInOrder() throws Exception {
+        int port = start(new KeepAlivePolicy(5000, 100, 5000));
+
+        try (Socket socket = connect(port)) {
+            StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < 2; i++) {
+                requests.append("GET /query?").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            }
+            socket.getOutputStream().write(requests.toString().getBytes(StandardCharsets.US_ASCII));
+
+            InputStream in = socket.getInputStream();
+            assertThat(readResponse(in), is("0"));
+            assertThat(readResponse(in), is("1"));
+        }
+    }
+
+    @Test
+    public void idleConnectionClosed() throws Exception {
+        int port = start(new KeepAlivePolicy(300, 100, 5000));
+
+        try (Socket socket = connect(port)) {
+            // 서버는 응답을 보낸 뒤부터 idle 시간을 재므로 요청을 보내기 전부터 재면 timeout 보다 짧을 수 없다.
+            long start = System.currentTimeMillis();
+            socket.getOutputStream().write("GET /query?a HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            assertThat(readResponse(in), is("a"));
+
+            // 다음 요청을 보내지 않으면 idle timeout 뒤에 서버가 닫는다. 닫지 않으면 읽기 timeout 으로 실패한다.
+            assertThat(in.read(), is(-1));
+            assertThat(System.currentTimeMillis() - start >= 300, is(true));
+        }
+    }
+
+    private int start(KeepAlivePolicy keepAlivePolicy) throws IOException {
+        ServerConfig config = ServerConfig.parse(new String[] { "0", "loops=1" });
+        Router router = new Router().get("/query", QUERY).post("/name", NAME);
+        ServerMetrics metrics = new ServerMetrics(router, new StaticFileCache(Paths.get("webapp"), 0, 0), null);
+        ServerContext context = new ServerContext(new RequestDispatcher(router), keepAlivePolicy, 8192, 8192, 8192,
+                metrics, false, new AdmissionPolicy(null, null));
+        workers = WorkerExecutors.create(config);
+        listener = new Listener(0, 1, 16, true, 0, 0);
+        new NioServer(config, workers, context).start(listener);
+        return listener.getLocalPort();
+    }
+
+    private static Socket connect(int port) throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void respond(HttpResponse response, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        response.response200Header(body.length, "text/plain");
+        response.responseBody(body);
+    }
+
+    private static String readResponse(InputStream in) throws IOException {
+        String head = readHead(in);
+        assertThat(head, startsWith("HTTP/1.1 200 OK"));
+        return new String(readBody(in, head), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,312 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import admission.AimdLimiter;
+import controller.Controller;
+import http2.FrameReader;
+import http2.FrameWriter;
+import http2.HpackDecoder;
+import http2.HpackEncoder;
+import http2.Http2;
+
+public class RequestHandlerTest {
+    private static final Controller OK = (request, response) -> {
+        response.response200Header(2, "text/plain");
+        response.responseBody("ok".getBytes(StandardCharsets.US_ASCII));
+    };
+    /**
+     * 받은 query string 을 그대로 돌려준다.
+     */
+    private static final Controller QUERY = (request, response) -> {
+        byte[] body = request.getQueryString().getBytes(StandardCharsets.US_ASCII);
+        response.response200Header(body.length, "text/plain");
+        response.responseBody(body);
+    };
+
+    private Listener listener;
+    private ExecutorService workers;
+    private ExecutorService streamWorkers;
+
+    @After
+    public void tearDown() throws IOException {
+        if (listener != null) {
+            listener.close();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+            streamWorkers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void keepAliveServesSeveralRequests() throws Exception {
+        int port = start(new Router().get("/query", QUERY), new KeepAlivePolicy(5000, 100, 5000),
+                new AdmissionPolicy(null, null));
+
+        try (Socket socket = connect(port)) {
+            for (int i = 0; i < 2; i++) {
+                send(socket, "GET /query?" + i + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                String head = readHead(socket.getInputStream());
+                assertThat(head, containsString("Connection: keep-alive"));
+                assertThat(new String(readBody(socket.getInputStream(), head)), is(Integer.toString(i)));
+            }
+        }
+    }
+
+    @Test
+    public void pipelinedRequestsAnsweredInOrder() throws Exception {
+        int port = start(new Router().get("/query", QUERY), new KeepAlivePolicy(5000, 100, 5000),
+                new AdmissionPolicy(null, null));
+
+        try (Socket socket = connect(port)) {
+            StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                requests.append("GET /query?").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            }
+            send(socket, requests.toString());
+
+            InputStream in = socket.getInputStream();
+            for (int i = 0; i < 3; i++) {
+                assertThat(new String(readBody(in, readHead(in))), is(Integer.toString(i)));
+            }
+        }
+    }
+
+    @Test
+    public void connectionCloseHonored() throws Exception {
+        int port = start(new Router().get("/query", QUERY), new KeepAlivePolicy(5000, 100, 5000),
+                new AdmissionPolicy(null, null));
+
+        try (Socket socket = connect(port)) {
+            // 뒤에 온 요청은 처리하지 않는다.
+            send(socket, "GET /query?a HTTP/1.1\r\nConnection: close\r\n\r\nGET /query?b HTTP/1.1\r\n\r\n");
+
+            InputStream in = socket.getInputStream();
+            String head = readHead(in);
+            assertThat(head, containsString("Connection: close"));
+            assertThat(new String(readBody(in, head)), is("a"));
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    @Test
+    public void maxRequestsClosesConnection() throws Exception {
+        int port = start(new Router().get("/query", QUERY), new KeepAlivePolicy(5000, 2, 5000),
+                new AdmissionPolicy(null, null));
+
+        try (Socket socket = connect(port)) {
+            send(socket, "GET /query?a HTTP/1.1\r\n\r\nGET /query?b HTTP/1.1\r\n\r\nGET /query?c HTTP/1.1\r\n\r\n");
+
+            InputStream in = socket.getInputStream();
+            assertThat(readHead(in), containsString("Connection: keep-alive"));
+            assertThat(new String(readBody(in, readHead(in))), is("b"));
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    @Test
+    public void idleConnectionClosed() throws Exception {
+        int port = start(new Router().get("/query", QUERY), new KeepAlivePolicy(300, 100, 5000),
+                new AdmissionPolicy(null, null));
+
+        try (Socket socket = connect(port)) {
+            // 서버는 응답을 보낸 뒤부터 idle 시간을 재므로 요청을 보내기 전부터 재면 timeout 보다 짧을 수 없다.
+            long start = System.currentTimeMillis();
+            send(socket, "GET /query?a HTTP/1.1\r\n\r\n");
+            InputStream in = socket.getInputStream();
+            assertThat(new String(readBody(in, readHead(in))), is("a"));
+
+            // 다음 요청을 보내지 않으면 idle timeout 뒤에 서버가 닫는다. 닫지 않으면 읽기 timeout 으로 실패한다.
+            assertThat(in.read(), is(-1));
+            assertThat(System.currentTimeMillis() - start >= 300, is(true));
+        }
+    }
+
+    @Test
+    public void slowClientDoesNotLowerConcurrencyLimit() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(10, 1, 100, TimeUnit.MILLISECONDS.toNanos(50), 0.5);
+        byte[] body = new byte[4 * 1024 * 1024];
+        Router router = new Router().get("/big", (request, response) -> {
+            response.response200Header(body.length, "application/octet-stream");
+            response.responseBody(body);
+        });
+        int port = start(router, new KeepAlivePolicy(5000, 100, 5000), new AdmissionPolicy(null, limiter));
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+            socket.getOutputStream().write("GET /big HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            // 받지 않는 동안 서버는 응답을 쓰다 막힌다.
+            Thread.sleep(300);
+            String head = readHead(socket.getInputStream());
+            assertThat(head, startsWith("HTTP/1.1 200 OK"));
+            assertThat(readBody(socket.getInputStream(), head).length, is(body.length));
+        }
+        for (int i = 0; i < 100 && limiter.getInFlight() > 0; i++) {
+            Thread.sleep(20);
+        }
+
+        assertThat(limiter.getInFlight(), is(0));
+        assertThat(limiter.getLimit() >= 10, is(true));
+    }
+
+    @Test
+    public void clientThinkTimeNotCountedAsQueueTime() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(10, 1, 100, TimeUnit.MILLISECONDS.toNanos(50), 0.5);
+        int port = start(new Router().get("/", OK), new KeepAlivePolicy(5000, 100, 5000),
+                new AdmissionPolicy(null, limiter));
+
+        try (Socket socket = connect(port)) {
+            // 연결만 맺고 요청을 늦게 보낸다. 그 사이 worker 는 첫 바이트를 기다린다.
+            Thread.sleep(200);
+            send(socket, "GET / HTTP/1.1\r\n\r\n");
+            InputStream in = socket.getInputStream();
+            assertThat(readHead(in), startsWith("HTTP/1.1 200 OK"));
+        }
+
+        assertThat(limiter.getLimit() >= 10, is(true));
+    }
+
+    @Test
+    public void http2ConnectionsDoNotStarveStreams() throws Exception {
+        // HTTP/2 연결마다 frame 을 읽는 스레드가 worker 를 하나씩 차지한다.
+        int port = start(new Router().get("/", OK), new KeepAlivePolicy(5000, 100, 5000),
+                new AdmissionPolicy(null, null), "threads=2", "h2.threads=1");
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Socket socket = new Socket("127.0.0.1", port);
+                socket.setSoTimeout(5000);
+                sendHttp2Get(socket.getOutputStream());
+                sockets.add(socket);
+            }
+            assertThat(readHttp2Status(sockets.get(0).getInputStream()), is("200"));
+            assertThat(readHttp2Status(sockets.get(1).getInputStream()), is("200"));
+            // 연결 하나가 닫혀 worker 가 나면 기다리던 연결도 처리된다.
+            sockets.get(0).close();
+            assertThat(readHttp2Status(sockets.get(2).getInputStream()), is("200"));
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private int start(Router router, KeepAlivePolicy keepAlivePolicy, AdmissionPolicy admission,
+            String... options) throws IOException {
+        List<String> args = new ArrayList<>(Arrays.asList(options));
+        args.add(0, "0");
+        ServerConfig config = ServerConfig.parse(args.toArray(new String[0]));
+        ServerMetrics metrics = new ServerMetrics(router, new StaticFileCache(Paths.get("webapp"), 0, 0), null);
+        ServerContext context = new ServerContext(new RequestDispatcher(router), keepAlivePolicy, 8192, 8192, 8192,
+                metrics, true, admission);
+        workers = WorkerExecutors.create(config);
+        streamWorkers = WorkerExecutors.createStreamWorkers(config);
+        // 서버가 보내는 쪽 버퍼를 작게 잡아 클라이언트가 받지 않으면 쓰기가 곧 막히게 한다.
+        listener = new Listener(0, 1, 16, true, 4096, 0);
+        WebServer.serveBlocking(listener, context, workers, streamWorkers);
+        return listener.getLocalPort();
+    }
+
+    private static Socket connect(int port) throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * preface, SETTINGS 와 stream 1 의 GET / 을 보낸다.
+     */
+    private static void sendHttp2Get(OutputStream out) throws IOException {
+        out.write(Http2.PREFACE);
+        FrameWriter writer = new FrameWriter(out);
+        writer.writeSettings();
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.encode(":method", "GET");
+        encoder.encode(":scheme", "http");
+        encoder.encode(":path", "/");
+        writer.writeHeaders(1, encoder.array(), encoder.size(), true);
+        writer.flush();
+    }
+
+    /**
+     * stream 1 이 끝날 때까지 frame 을 읽는다.
+     *
+     * @return 응답의 :status
+     */
+    private static String readHttp2Status(InputStream in) throws IOException {
+        FrameReader reader = new FrameReader(in, Http2.DEFAULT_MAX_FRAME_SIZE);
+        String status = null;
+        while (reader.readFrame()) {
+            if (reader.getStreamId() != 1) {
+                continue;
+            }
+            if (reader.getType() == Http2.HEADERS) {
+                List<String> fields = new ArrayList<>();
+                new HpackDecoder(4096, 8192).decode(reader.getPayload(), 0, reader.getLength(), fields);
+                status = fields.get(1);
+            }
+            if (reader.hasFlag(Http2.FLAG_END_STREAM)) {
+                return status;
+            }
+        }
+        throw new IOException("closed before stream 1 ended");
+    }
+
+    /**
+     * 빈 줄까지 읽는다.
+     */
+    static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("closed in response head : " + head);
+            }
+            head.write(b);
+            matched = b == (matched % 2 == 0 ? '\r' : '\n') ? matched + 1 : b == '\r' ? 1 : 0;
+        }
+        return new String(head.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Content-Length 만큼 읽는다.
+     */
+    static byte[] readBody(InputStream in, String head) throws IOException {
+        int start = head.indexOf("Content-Length: ") + "Content-Length: ".length();
+        byte[] body = new byte[Integer.parseInt(head.substring(start, head.indexOf("\r\n", start)))];
+        int read = 0;
+        while (read < body.length) {
+            int count = in.read(body, read, body.length - read);
+            if (count < 0) {
+                throw new IOException("closed in response body");
+            }
+            read += count;
+        }
+        return body;
+    }
+}
@@ -0,0 +1,83 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import controller.Controller;
+import http.HttpRequest;
+import http.HttpRequestParser;
+
+public class RouterTest {
+    private final Controller create = (request, response) -> {
+    };
+    private final Controller list = (request, response) -> {
+    };
+    private final Controller show = (request, response) -> {
+    };
+    private final Controller answers = (request, response) -> {
+    };
+    private final Controller fallback = (request, response) -> {
+    };
+
+    private final Router router = new Router()
+            .post("/user/create", create)
+            .get("/user/list.html", list)
+            .get("/qna/{id}", show)
+            .get("/qna/{id}/answers/{answerId}", answers)
+            .get("/qna/form", list)
+            .fallback(fallback);
+
+    @Test
+    public void route_exact() throws Exception {
+        assertThat(controller(request("POST /user/create")), is(create));
+        assertThat(controller(request("GET /user/list.html?page=2")), is(list));
+        assertThat(controller(request("GET /user/create")), is(fallback));
+        assertThat(controller(request("POST /user/create/1")), is(fallback));
+        assertThat(controller(request("GET /index.html")), is(fallback));
+    }
+
+    @Test
+    public void route_pathParameters() throws Exception {
+        HttpRequest request = request("GET /qna/12");
+        assertThat(controller(request), is(show));
+        assertThat(request.getPathParameter("id"), is("12"));
+
+        request = request("GET /qna/12/answers/3");
+        assertThat(controller(request), is(answers));
+        assertThat(request.getPathParameter("id"), is("12"));
+        assertThat(request.getPathParameter("answerId"), is("3"));
+
+        // 고정된 조각을 먼저 본다.
+        request = request("GET /qna/form");
+        assertThat(controller(request), is(list));
+        assertThat(request.getPathParameter("id"), is(nullValue()));
+
+        assertThat(controller(request("GET /qna/")), is(fallback));
+        assertThat(controller(request("GET /qna/12/answers")), is(fallback));
+        assertThat(controller(request("POST /qna/12")), is(fallback));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_duplicate() {
+        router.get("/qna/{id}", list);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_differentParameterName() {
+        router.get("/qna/{questionId}/edit", list);
+    }
+
+    private Controller controller(HttpRequest request) {
+        return router.route(request).getController();
+    }
+
+    private static HttpRequest request(String requestLine) throws Exception {
+        String request = requestLine + " HTTP/1.1\r\n\r\n";
+        return new HttpRequestParser().read(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,29 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ServerConfigTest {
+    @Test
+    public void parse_default() {
+        ServerConfig config = ServerConfig.parse(new String[0]);
+        assertThat(config.getPort(), is(8080));
+        assertThat(config.getString("mode", "pool"), is("pool"));
+    }
+
+    @Test
+    public void parse_portAndOptions() {
+        ServerConfig config = ServerConfig.parse(new String[] { "9090", "mode=virtual", "threads=16" });
+        assertThat(config.getPort(), is(9090));
+        assertThat(config.getString("mode", "pool"), is("virtual"));
+        assertThat(config.getInt("threads", 200), is(16));
+        assertThat(config.getInt("queue", 1000), is(1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_invalidOption() {
+        ServerConfig.parse(new String[] { "9090", "threads" });
+    }
+}
@@ -0,0 +1,38 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ServerMetricsTest {
+    @Test
+    public void toPrometheus() {
+        Router router = new Router()
+                .get("/qna/{id}", (request, response) -> {
+                })
+                .fallback((request, response) -> {
+                });
+        ServerMetrics metrics = new ServerMetrics(router, new StaticFileCache(Paths.get("webapp"), 0, 0),
+                null);
+        router.getRoutes().get(0).getMetrics().record(200, TimeUnit.MILLISECONDS.toNanos(3));
+        router.getRoutes().get(0).getMetrics().record(404, TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.connectionOpened();
+        metrics.connectionOpened();
+        metrics.connectionClosed();
+
+        String text = metrics.toPrometheus();
+        assertThat(text, containsString("# TYPE http_server_requests_seconds summary\n"));
+        assertThat(text, containsString(
+                "http_server_requests_seconds_count{method=\"GET\",route=\"/qna/{id}\",status=\"200\"} 1\n"));
+        assertThat(text, containsString(
+                "http_server_requests_seconds{method=\"GET\",route=\"/qna/{id}\",status=\"404\",quantile=\"0.5\"}"));
+        assertThat(text, not(containsString("route=\"fallback\"")));
+        assertThat(text, containsString("http_server_connections_active 1\n"));
+        assertThat(text, containsString("http_server_connections_total 2\n"));
+        assertThat(text, containsString("http_server_worker_queue_depth 0\n"));
+    }
+}
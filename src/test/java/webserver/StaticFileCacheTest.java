@@ -0,0 +1,158 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import http.ContentEncoding;
+import http.HttpDates;
+import webserver.StaticResource.Representation;
+
+public class StaticFileCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.newFolder("webapp").toPath();
+        Files.createDirectories(root.resolve("css"));
+        Files.write(root.resolve("css/styles.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.getRoot().toPath().resolve("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void get_hitAndMiss() throws Exception {
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 60000);
+
+        StaticResource first = cache.get("/css/styles.css");
+        StaticResource second = cache.get("/css/styles.css");
+
+        assertThat(second, is(sameInstance(first)));
+        Representation identity = first.select(ContentEncoding.IDENTITY);
+        assertThat(new String(identity.getBody(), StandardCharsets.UTF_8), is("body {}"));
+        assertThat(new String(identity.getHeader(), StandardCharsets.US_ASCII),
+                containsString("Content-Type: text/css;charset=utf-8\r\nContent-Length: 7\r\n"));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void get_reloadWhenModified() throws Exception {
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 0);
+        cache.get("/css/styles.css");
+
+        Path file = root.resolve("css/styles.css");
+        Files.write(file, "body { color: red; }".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        StaticResource resource = cache.get("/css/styles.css");
+        assertThat(new String(resource.select(ContentEncoding.IDENTITY).getBody(), StandardCharsets.UTF_8),
+                is("body { color: red; }"));
+        assertThat(cache.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void get_notFoundOrOutsideRoot() throws Exception {
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 0);
+        assertThat(cache.get("/nothing.html"), is(nullValue()));
+        assertThat(cache.get("/../secret.txt"), is(nullValue()));
+        assertThat(cache.get("/css"), is(nullValue()));
+    }
+
+    @Test
+    public void get_evictWhenFull() throws Exception {
+        Files.write(root.resolve("big.js"), new byte[128 * 1024]);
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 60000);
+
+        assertThat(cache.get("/big.js").select(ContentEncoding.IDENTITY).getBody().length, is(128 * 1024));
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void get_zeroCopyOverThreshold() throws Exception {
+        Files.write(root.resolve("big.js"), new byte[2048]);
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 60000, 1024, new CacheControlPolicy(null),
+                CompressionPolicy.disabled());
+
+        StaticResource big = cache.get("/big.js");
+        Representation identity = big.select(ContentEncoding.IDENTITY);
+        assertThat(identity.isInMemory(), is(false));
+        assertThat(big.getLength(), is(2048L));
+        assertThat(new String(identity.getHeader(), StandardCharsets.US_ASCII),
+                containsString("Content-Length: 2048\r\n"));
+        assertThat(cache.get("/css/styles.css").select(ContentEncoding.IDENTITY).isInMemory(), is(true));
+        assertThat(cache.size(), is(2L));
+    }
+
+    @Test
+    public void isNotModified() throws Exception {
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 60000);
+        Representation resource = cache.get("/css/styles.css").select(ContentEncoding.IDENTITY);
+        String lastModified = HttpDates.format(Files.getLastModifiedTime(root.resolve("css/styles.css")).toMillis());
+
+        assertThat(resource.isNotModified(resource.getEtag(), ""), is(true));
+        assertThat(resource.isNotModified("\"other\", W/" + resource.getEtag(), ""), is(true));
+        assertThat(resource.isNotModified("\"other\"", lastModified), is(false));
+        assertThat(resource.isNotModified("", lastModified), is(true));
+        assertThat(resource.isNotModified("", "Thu, 01 Jan 1970 00:00:00 GMT"), is(false));
+        assertThat(resource.isNotModified("", ""), is(false));
+        assertThat(new String(resource.getNotModifiedHeader(), StandardCharsets.US_ASCII),
+                containsString("ETag: " + resource.getEtag() + "\r\n"));
+    }
+
+    @Test
+    public void select_compressed() throws Exception {
+        byte[] css = new byte[4096];
+        Arrays.fill(css, (byte) 'a');
+        Files.write(root.resolve("css/big.css"), css);
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 60000, 1024, new CacheControlPolicy(null),
+                new CompressionPolicy(true, 1024, "text/"));
+
+        StaticResource resource = cache.get("/css/big.css");
+        Representation identity = resource.select(ContentEncoding.IDENTITY);
+        Representation gzip = resource.select(ContentEncoding.GZIP);
+
+        assertThat(identity.isInMemory(), is(false));
+        assertThat(gzip.getBody().length < css.length, is(true));
+        assertThat(gzip.getEtag(), is(not(identity.getEtag())));
+        assertThat(new String(gzip.getHeader(), StandardCharsets.US_ASCII),
+                containsString("Content-Encoding: gzip\r\nContent-Length: " + gzip.getBody().length + "\r\n"));
+        assertThat(new String(identity.getHeader(), StandardCharsets.US_ASCII),
+                containsString("Vary: Accept-Encoding\r\n"));
+        assertThat(cache.get("/css/styles.css").select(ContentEncoding.GZIP).getHeader(),
+                is(cache.get("/css/styles.css").select(ContentEncoding.IDENTITY).getHeader()));
+    }
+
+    @Test
+    public void select_notCompressedOverMaxSize() throws Exception {
+        byte[] css = new byte[4096];
+        Arrays.fill(css, (byte) 'a');
+        Files.write(root.resolve("css/max.css"), css);
+        Files.write(root.resolve("css/over.css"), Arrays.copyOf(css, css.length + 1));
+        StaticFileCache cache = new StaticFileCache(root, 64 * 1024, 60000, 1024, new CacheControlPolicy(null),
+                new CompressionPolicy(true, 1024, 4096, "text/"));
+
+        StaticResource max = cache.get("/css/max.css");
+        assertThat(max.select(ContentEncoding.GZIP).getBody().length < css.length, is(true));
+
+        StaticResource over = cache.get("/css/over.css");
+        Representation identity = over.select(ContentEncoding.IDENTITY);
+        assertThat(over.select(ContentEncoding.GZIP), is(sameInstance(identity)));
+        assertThat(identity.isInMemory(), is(false));
+        assertThat(over.weight(), is(identity.weight()));
+        assertThat(new String(identity.getHeader(), StandardCharsets.US_ASCII),
+                not(containsString("Vary: Accept-Encoding")));
+    }
+}
@@ -0,0 +1,125 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import http.HttpDates;
+import http.HttpRequest;
+import http.HttpRequestParser;
+import http.HttpResponse;
+
+public class StaticFileControllerTest {
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.newFolder("webapp").toPath();
+        Files.write(root.resolve("data.bin"), CONTENT.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void range_single() throws Exception {
+        for (int zeroCopyThreshold : new int[] { 64 * 1024, 0 }) {
+            String response = get(zeroCopyThreshold, "Range: bytes=10-15\r\n");
+            assertThat(response, startsWith("HTTP/1.1 206 Partial Content"));
+            assertThat(response, containsString("Content-Range: bytes 10-15/36\r\n"));
+            assertThat(response, containsString("Content-Length: 6\r\n"));
+            assertThat(response, endsWith("\r\n\r\nabcdef"));
+        }
+    }
+
+    @Test
+    public void range_multipart() throws Exception {
+        for (int zeroCopyThreshold : new int[] { 64 * 1024, 0 }) {
+            String response = get(zeroCopyThreshold, "Range: bytes=0-1,-2\r\n");
+            assertThat(response, startsWith("HTTP/1.1 206 Partial Content"));
+            String boundary = response.substring(response.indexOf("boundary=") + 9, response.indexOf("\r\n",
+                    response.indexOf("boundary=")));
+            String body = response.substring(response.indexOf("\r\n\r\n") + 4);
+            assertThat(body, is("\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\n"
+                    + "Content-Range: bytes 0-1/36\r\n\r\n01"
+                    + "\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\n"
+                    + "Content-Range: bytes 34-35/36\r\n\r\nyz"
+                    + "\r\n--" + boundary + "--\r\n"));
+            assertThat(response, containsString("Content-Length: " + body.length() + "\r\n"));
+        }
+    }
+
+    @Test
+    public void range_notSatisfiable() throws Exception {
+        String response = get(64 * 1024, "Range: bytes=36-\r\n");
+        assertThat(response, startsWith("HTTP/1.1 416 Range Not Satisfiable"));
+        assertThat(response, containsString("Content-Range: bytes */36\r\n"));
+    }
+
+    @Test
+    public void ifRange() throws Exception {
+        String whole = get(64 * 1024, "");
+        assertThat(whole, containsString("Accept-Ranges: bytes\r\n"));
+        int start = whole.indexOf("ETag: ") + 6;
+        String etag = whole.substring(start, whole.indexOf("\r\n", start));
+        long lastModified = Files.getLastModifiedTime(root.resolve("data.bin")).toMillis();
+
+        assertThat(get(64 * 1024, "Range: bytes=0-0\r\nIf-Range: " + etag + "\r\n"), startsWith("HTTP/1.1 206"));
+        assertThat(get(64 * 1024, "Range: bytes=0-0\r\nIf-Range: " + HttpDates.format(lastModified) + "\r\n"),
+                startsWith("HTTP/1.1 206"));
+        assertThat(get(64 * 1024, "Range: bytes=0-0\r\nIf-Range: \"old\"\r\n"), startsWith("HTTP/1.1 200"));
+    }
+
+    @Test
+    public void head() throws Exception {
+        byte[] page = new byte[4096];
+        Arrays.fill(page, (byte) 'a');
+        Files.write(root.resolve("page.html"), page);
+        for (long zeroCopyThreshold : new long[] { 64 * 1024, 1024 }) {
+            StaticFileCache cache = new StaticFileCache(root, 1024 * 1024, 60000, zeroCopyThreshold,
+                    new CacheControlPolicy(null), new CompressionPolicy(true, 1024, "text/"));
+            for (String acceptEncoding : new String[] { "", "Accept-Encoding: gzip\r\n" }) {
+                String get = service(cache, "GET /page.html HTTP/1.1\r\n" + acceptEncoding + "\r\n");
+                String head = service(cache, "HEAD /page.html HTTP/1.1\r\n" + acceptEncoding + "\r\n");
+                assertThat(head, is(get.substring(0, get.indexOf("\r\n\r\n") + 4)));
+            }
+            String head = service(cache, "HEAD /page.html HTTP/1.1\r\nAccept-Encoding: gzip\r\n"
+                    + "Range: bytes=0-0\r\n\r\n");
+            assertThat(head, startsWith("HTTP/1.1 200 OK"));
+            assertThat(head, containsString("Content-Encoding: gzip\r\n"));
+            assertThat(head, containsString("ETag: "));
+            assertThat(head, endsWith("\r\n\r\n"));
+        }
+        assertThat(service(new StaticFileCache(root, 1024, 60000), "HEAD /none.html HTTP/1.1\r\n\r\n"),
+                startsWith("HTTP/1.1 404 Not Found"));
+    }
+
+    private String get(int zeroCopyThreshold, String headers) throws Exception {
+        return service(new StaticFileCache(root, zeroCopyThreshold, 60000),
+                "GET /data.bin HTTP/1.1\r\n" + headers + "\r\n");
+    }
+
+    private String service(StaticFileCache staticFiles, String request) throws Exception {
+        StaticFileController controller = new StaticFileController(staticFiles);
+        HttpRequest httpRequest = new HttpRequestParser()
+                .read(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpResponse response = new HttpResponse(out, true);
+        controller.service(httpRequest, response);
+        response.flush();
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,19 @@
+package webserver;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+public class WebServerTest {
+    @Test
+    public void dataBaseDir() {
+        assertThat(WebServer.dataBaseDir(ServerConfig.parse(new String[] { "8080" })), is(Paths.get("data")));
+        assertThat(WebServer.dataBaseDir(ServerConfig.parse(new String[] { "8080", "db.dir=/tmp/users" })),
+                is(Paths.get("/tmp/users")));
+        assertThat(WebServer.dataBaseDir(ServerConfig.parse(new String[] { "8080", "db.dir=off" })),
+                is(nullValue()));
+    }
+}